@@ -0,0 +1,104 @@
+package io.worldy.sockiopath;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.socket.DatagramPacket;
+import io.worldy.sockiopath.messaging.MessageBus;
+import io.worldy.sockiopath.messaging.RouteTable;
+import io.worldy.sockiopath.session.MapBackedSessionStore;
+import io.worldy.sockiopath.session.SessionTokens;
+import io.worldy.sockiopath.session.SockiopathSession;
+import io.worldy.sockiopath.udp.UdpServerHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One UDP message through {@link SockiopathHandler}: parsing, the session lookup, dispatch to the
+ * {@link MessageBus} of its address and writing the reply, with the channel replaced by an {@link EmbeddedChannel}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+
+    private static final byte[] RESPONSE = "ok".getBytes();
+
+    @Param({"16", "1024"})
+    int payloadSize;
+
+    @Param({"10", "1000"})
+    int addressCount;
+
+    @Param({"100", "10000"})
+    int sessionCount;
+
+    private EmbeddedChannel channel;
+    private UdpServerHandler handler;
+    private ChannelHandlerContext context;
+    private final InetSocketAddress sender = new InetSocketAddress("127.0.0.1", 9999);
+    private ByteBuf content;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Map<String, MessageBus> messageHandlers = new HashMap<>();
+        for (int i = 0; i < addressCount; i++) {
+            messageHandlers.put("service/" + i + "/update", new MessageBus(
+                    (message, allocator) -> CompletableFuture.completedFuture(allocator.buffer(RESPONSE.length).writeBytes(RESPONSE)),
+                    1000
+            ));
+        }
+
+        Map<String, SockiopathSession> sessions = new HashMap<>();
+        SockiopathSession target = null;
+        for (int i = 0; i < sessionCount; i++) {
+            SockiopathSession session = new SockiopathSession(null);
+            sessions.put(SessionTokens.toHex(session.getToken()), session);
+            target = session;
+        }
+
+        handler = new UdpServerHandler(new MapBackedSessionStore(sessions), messageHandlers);
+        channel = new EmbeddedChannel(handler);
+        context = channel.pipeline().context(handler);
+
+        String message = "service/" + (addressCount / 2) + "/update|" + SessionTokens.toHex(target.getToken()) + "|"
+                + "x".repeat(payloadSize);
+        byte[] bytes = message.getBytes(RouteTable.ADDRESS_CHARSET);
+        content = PooledByteBufAllocator.DEFAULT.directBuffer(bytes.length).writeBytes(bytes);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        content.release();
+        channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public DatagramPacket dispatch() {
+        handler.channelRead0(context, sender, content);
+        DatagramPacket reply = channel.readOutbound();
+        reply.release();
+        return reply;
+    }
+}
@@ -0,0 +1,145 @@
+package io.worldy.sockiopath;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoop;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.local.LocalChannel;
+import io.worldy.sockiopath.messaging.MessageBus;
+import io.worldy.sockiopath.messaging.MessageHandler;
+import io.worldy.sockiopath.messaging.RouteTable;
+import io.worldy.sockiopath.session.MapBackedSessionStore;
+import io.worldy.sockiopath.session.SessionTokens;
+import io.worldy.sockiopath.session.SockiopathSession;
+import io.worldy.sockiopath.udp.UdpServerHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A UDP message that updates per session state the WebSocket channel of the session updates too.
+ * <p>
+ * Without {@link SockiopathServerHandler#setSessionAffinity(boolean) session affinity} the message is processed on
+ * the thread it arrived on and the state is guarded by a lock, which it contends for with the WebSocket updates.
+ * With it the message is handed to the event loop of the WebSocket channel, where the state needs no lock; the
+ * operation then includes the hop and waits for the message to be processed there.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionAffinityBenchmark {
+
+    private static final String ADDRESS = "session/update";
+
+    @Param({"false", "true"})
+    boolean affinity;
+
+    @Param({"10"})
+    int webSocketUpdateMicros;
+
+    private final InetSocketAddress sender = new InetSocketAddress("127.0.0.1", 9999);
+    private final SessionState state = new SessionState();
+
+    private DefaultEventLoopGroup webSocketLoop;
+    private LocalChannel webSocketChannel;
+    private EmbeddedChannel udpChannel;
+    private UdpServerHandler handler;
+    private ChannelHandlerContext udpContext;
+    private ByteBuf content;
+
+    private volatile long handled;
+    private volatile boolean running;
+
+    static final class SessionState {
+        long updates;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        webSocketLoop = new DefaultEventLoopGroup(1);
+        webSocketChannel = new LocalChannel();
+        webSocketChannel.pipeline().addLast(new ChannelInboundHandlerAdapter());
+        webSocketLoop.register(webSocketChannel).syncUninterruptibly();
+
+        SockiopathSession session = new SockiopathSession(webSocketChannel.pipeline().firstContext());
+        String sessionId = SessionTokens.toHex(session.getToken());
+        Map<String, SockiopathSession> sessions = new HashMap<>();
+        sessions.put(sessionId, session);
+
+        MessageHandler update = (message, allocator) -> {
+            update();
+            handled++;
+            return CompletableFuture.completedFuture(null);
+        };
+        handler = new UdpServerHandler(new MapBackedSessionStore(sessions), Map.of(ADDRESS, new MessageBus(update, 1000)));
+        handler.setSessionAffinity(affinity);
+        udpChannel = new EmbeddedChannel(handler);
+        udpContext = udpChannel.pipeline().context(handler);
+
+        byte[] bytes = (ADDRESS + "|" + sessionId + "|x").getBytes(RouteTable.ADDRESS_CHARSET);
+        content = PooledByteBufAllocator.DEFAULT.directBuffer(bytes.length).writeBytes(bytes);
+
+        running = true;
+        scheduleWebSocketUpdate(webSocketChannel.eventLoop());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        running = false;
+        webSocketLoop.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+        content.release();
+        udpChannel.finishAndReleaseAll();
+    }
+
+    // stands in for the WebSocket messages of the session
+    private void scheduleWebSocketUpdate(EventLoop loop) {
+        loop.schedule(() -> {
+            update();
+            if (running) {
+                scheduleWebSocketUpdate(loop);
+            }
+        }, webSocketUpdateMicros, TimeUnit.MICROSECONDS);
+    }
+
+    private void update() {
+        if (affinity) {
+            state.updates++;
+        } else {
+            synchronized (state) {
+                state.updates++;
+            }
+        }
+    }
+
+    @Benchmark
+    public long udpUpdate() {
+        long expected = handled + 1;
+        handler.channelRead0(udpContext, sender, content);
+        while (handled < expected) {
+            Thread.onSpinWait();
+        }
+        return expected;
+    }
+}
@@ -0,0 +1,54 @@
+package io.worldy.sockiopath;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SockiopathServer#byteBufferToString(ByteBuffer)} against decoding the same bytes as ISO-8859-1, which
+ * produces the same string.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SockiopathServerBenchmark {
+
+    @Param({"16", "256", "4096"})
+    int payloadSize;
+
+    private ByteBuffer content;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        byte[] bytes = new byte[payloadSize];
+        Arrays.fill(bytes, (byte) 'x');
+        content = ByteBuffer.wrap(bytes);
+    }
+
+    @Benchmark
+    public String byteBufferToString() {
+        return SockiopathServer.byteBufferToString(content);
+    }
+
+    @Benchmark
+    public String decodeLatin1() {
+        return new String(content.array(), 0, content.capacity(), StandardCharsets.ISO_8859_1);
+    }
+}
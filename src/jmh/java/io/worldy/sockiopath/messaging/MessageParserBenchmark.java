@@ -0,0 +1,98 @@
+package io.worldy.sockiopath.messaging;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.worldy.sockiopath.session.SessionTokens;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing one inbound message: the {@code ByteBuffer} adapter, the text format and the binary format read straight
+ * from a pooled buffer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageParserBenchmark {
+
+    @Param({"16", "256", "4096"})
+    int payloadSize;
+
+    @Param({"10", "1000"})
+    int addressCount;
+
+    private final DefaultMessageParser parser = new DefaultMessageParser('|');
+    private RouteTable routes;
+
+    private ByteBuffer nioContent;
+    private ByteBuf textContent;
+    private ByteBuf binaryContent;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Map<String, MessageBus> messageHandlers = new HashMap<>();
+        for (int i = 0; i < addressCount; i++) {
+            messageHandlers.put("service/" + i + "/update", new MessageBus(msg -> CompletableFuture.completedFuture(null), 1000));
+        }
+        routes = new RouteTable(messageHandlers);
+
+        String address = "service/" + (addressCount / 2) + "/update";
+        long token = SessionTokens.next();
+        byte[] payload = new byte[payloadSize];
+        byte[] text = (address + "|" + SessionTokens.toHex(token) + "|" + new String(payload, RouteTable.ADDRESS_CHARSET))
+                .getBytes(RouteTable.ADDRESS_CHARSET);
+
+        nioContent = ByteBuffer.wrap(text);
+        textContent = PooledByteBufAllocator.DEFAULT.directBuffer(text.length).writeBytes(text);
+        binaryContent = BinaryFrame.encode(PooledByteBufAllocator.DEFAULT, routes.route(address).id(), token, Unpooled.wrappedBuffer(payload));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        textContent.release();
+        binaryContent.release();
+    }
+
+    @Benchmark
+    public void applyByteBuffer(Blackhole blackhole) {
+        consume(parser.apply(nioContent), blackhole);
+    }
+
+    @Benchmark
+    public void parseText(Blackhole blackhole) {
+        consume(parser.parse(textContent, routes), blackhole);
+    }
+
+    @Benchmark
+    public void parseBinary(Blackhole blackhole) {
+        consume(parser.parse(binaryContent, routes), blackhole);
+    }
+
+    private static void consume(Optional<SockiopathMessage> message, Blackhole blackhole) {
+        message.ifPresent(SockiopathMessage::release);
+        blackhole.consume(message);
+    }
+}
@@ -0,0 +1,87 @@
+package io.worldy.sockiopath.messaging;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolving the {@link MessageBus} of an address that sits in an inbound buffer: decoding the address and
+ * looking it up in the handler map, as dispatch used to, against resolving it straight from the bytes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteTableBenchmark {
+
+    private static final int LOOKUPS = 1024;
+
+    @Param({"10", "100", "1000", "10000"})
+    int addressCount;
+
+    private Map<String, MessageBus> messageHandlers;
+    private RouteTable routes;
+
+    private ByteBuf content;
+    private int[] offsets;
+    private int[] lengths;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        messageHandlers = new HashMap<>();
+        for (int i = 0; i < addressCount; i++) {
+            messageHandlers.put("service/" + i + "/update", new MessageBus(msg -> CompletableFuture.completedFuture(null), 1000));
+        }
+        routes = new RouteTable(messageHandlers);
+
+        Random random = new Random(42);
+        content = PooledByteBufAllocator.DEFAULT.directBuffer();
+        offsets = new int[LOOKUPS];
+        lengths = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            byte[] address = ("service/" + random.nextInt(addressCount) + "/update").getBytes(RouteTable.ADDRESS_CHARSET);
+            offsets[i] = content.writerIndex();
+            lengths[i] = address.length;
+            content.writeBytes(address);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        content.release();
+    }
+
+    @Benchmark
+    public MessageBus hashMapLookup() {
+        int i = next++ & (LOOKUPS - 1);
+        String address = content.toString(offsets[i], lengths[i], RouteTable.ADDRESS_CHARSET);
+        return messageHandlers.get(address);
+    }
+
+    @Benchmark
+    public MessageBus routeTableLookup() {
+        int i = next++ & (LOOKUPS - 1);
+        return routes.route(content, offsets[i], lengths[i]).messageBus();
+    }
+}
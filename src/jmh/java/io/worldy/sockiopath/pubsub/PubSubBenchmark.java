@@ -0,0 +1,119 @@
+package io.worldy.sockiopath.pubsub;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import io.worldy.sockiopath.flush.FanOut;
+import io.worldy.sockiopath.session.ConcurrentSessionStore;
+import io.worldy.sockiopath.session.SessionAttribute;
+import io.worldy.sockiopath.session.SessionTokens;
+import io.worldy.sockiopath.session.SockiopathSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes to a room of {@code roomSize} sessions out of {@code sessions}, through the {@link TopicIndex} of a
+ * {@link PubSub}, and by visiting every session in the store and sending to those whose room attribute matches.
+ * The cost of a publish should follow the size of the room, and that of the scan the number of sessions.
+ * <p>
+ * The sessions share {@value CHANNELS} channels, which drop what they are sent.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PubSubBenchmark {
+
+    private static final int CHANNELS = 64;
+    private static final String ROOM = "room-a";
+    private static final SessionAttribute<String> ROOM_ATTRIBUTE = SessionAttribute.valueOf(
+            PubSubBenchmark.class.getName() + ".room", String.class
+    );
+
+    @Param({"1000", "100000"})
+    int sessions;
+
+    @Param({"10", "1000"})
+    int roomSize;
+
+    private EmbeddedChannel[] channels;
+    private ConcurrentSessionStore sessionStore;
+    private PubSub pubSub;
+    private ByteBuf payload;
+
+    static final class Sink extends ChannelOutboundHandlerAdapter {
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+            ReferenceCountUtil.release(msg);
+            promise.trySuccess();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        channels = new EmbeddedChannel[CHANNELS];
+        ChannelHandlerContext[] contexts = new ChannelHandlerContext[CHANNELS];
+        for (int i = 0; i < CHANNELS; i++) {
+            ChannelInboundHandlerAdapter handler = new ChannelInboundHandlerAdapter();
+            channels[i] = new EmbeddedChannel(new Sink(), handler);
+            contexts[i] = channels[i].pipeline().context(handler);
+        }
+        sessionStore = new ConcurrentSessionStore();
+        pubSub = new PubSub(sessionStore);
+        // members are spread over the store rather than being the first sessions created
+        int stride = Math.max(1, sessions / roomSize);
+        for (int i = 0; i < sessions; i++) {
+            SockiopathSession session = new SockiopathSession(contexts[i % CHANNELS]);
+            sessionStore.put(SessionTokens.toHex(session.getToken()), session);
+            if (i % stride == 0 && pubSub.topicIndex().subscriberCount(ROOM) < roomSize) {
+                pubSub.subscribe(session, ROOM, Transport.WEB_SOCKET);
+                session.setAttribute(ROOM_ATTRIBUTE, ROOM);
+            }
+        }
+        payload = PooledByteBufAllocator.DEFAULT.directBuffer(64).writeZero(64);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        payload.release();
+        for (EmbeddedChannel channel : channels) {
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    @Benchmark
+    public int publish() {
+        return pubSub.publish(ROOM, payload);
+    }
+
+    @Benchmark
+    public int scanAllSessions() {
+        FanOut fanOut = new FanOut();
+        sessionStore.forEachSession(session -> {
+            if (ROOM.equals(session.getAttribute(ROOM_ATTRIBUTE))) {
+                fanOut.addBinary(session.getWebSocketContext(), payload);
+            }
+        });
+        return fanOut.send();
+    }
+}
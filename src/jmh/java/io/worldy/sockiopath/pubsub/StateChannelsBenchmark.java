@@ -0,0 +1,110 @@
+package io.worldy.sockiopath.pubsub;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.worldy.sockiopath.session.ConcurrentSessionStore;
+import io.worldy.sockiopath.session.SessionTokens;
+import io.worldy.sockiopath.session.SockiopathSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends a storm of {@code updates} updates of {@value KEYS} keys to a room of {@value ROOM_SIZE} sessions, published
+ * one by one through a {@link PubSub} and held per key through {@link StateChannels}, until the event loops of the
+ * sessions get to run. The cost of the storm should follow the number of updates with the first, and mostly the
+ * number of keys with the second.
+ * <p>
+ * The sessions share {@value CHANNELS} channels, which drop what they are sent.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StateChannelsBenchmark {
+
+    private static final int CHANNELS = 16;
+    private static final int ROOM_SIZE = 100;
+    private static final int KEYS = 4;
+    private static final String ROOM = "room-a";
+
+    @Param({"10", "1000"})
+    int updates;
+
+    private EmbeddedChannel[] channels;
+    private PubSub pubSub;
+    private StateChannels stateChannels;
+    private ByteBuf value;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        channels = new EmbeddedChannel[CHANNELS];
+        ChannelHandlerContext[] contexts = new ChannelHandlerContext[CHANNELS];
+        for (int i = 0; i < CHANNELS; i++) {
+            ChannelInboundHandlerAdapter handler = new ChannelInboundHandlerAdapter();
+            channels[i] = new EmbeddedChannel(new PubSubBenchmark.Sink(), handler);
+            contexts[i] = channels[i].pipeline().context(handler);
+        }
+        ConcurrentSessionStore sessionStore = new ConcurrentSessionStore();
+        pubSub = new PubSub(sessionStore);
+        stateChannels = new StateChannels(sessionStore);
+        for (int i = 0; i < ROOM_SIZE; i++) {
+            SockiopathSession session = new SockiopathSession(contexts[i % CHANNELS]);
+            sessionStore.put(SessionTokens.toHex(session.getToken()), session);
+            pubSub.subscribe(session, ROOM, Transport.WEB_SOCKET);
+            stateChannels.subscribe(session, ROOM);
+        }
+        value = PooledByteBufAllocator.DEFAULT.directBuffer(16).writeZero(16);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        value.release();
+        for (EmbeddedChannel channel : channels) {
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    @Benchmark
+    public int publishEveryUpdate() {
+        int sent = 0;
+        for (int i = 0; i < updates; i++) {
+            sent += pubSub.publish(ROOM, value);
+        }
+        runEventLoops();
+        return sent;
+    }
+
+    @Benchmark
+    public long latestValuePerKey() {
+        long sent = stateChannels.sentCount();
+        for (int i = 0; i < updates; i++) {
+            stateChannels.update(ROOM, "key-" + (i % KEYS), value);
+        }
+        runEventLoops();
+        return stateChannels.sentCount() - sent;
+    }
+
+    private void runEventLoops() {
+        for (EmbeddedChannel channel : channels) {
+            channel.runPendingTasks();
+        }
+    }
+}
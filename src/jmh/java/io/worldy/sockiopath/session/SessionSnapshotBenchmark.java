@@ -0,0 +1,77 @@
+package io.worldy.sockiopath.session;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long a {@link SessionCheckpointer} takes to checkpoint a million sessions with UDP bindings, and to restore
+ * them into an empty {@link ConcurrentSessionStore} as a restarting server does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class SessionSnapshotBenchmark {
+
+    @Param({"1000000"})
+    int sessionCount;
+
+    private Path directory;
+    private SessionCheckpointer checkpointer;
+    private SessionCheckpointer restorer;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("sockiopath-snapshot");
+        Path snapshot = directory.resolve("sessions");
+        SessionStore<SockiopathSession> sessionStore = new ConcurrentSessionStore();
+        for (int i = 0; i < sessionCount; i++) {
+            SockiopathSession session = new SockiopathSession(null)
+                    .withUdpSocketAddress(new InetSocketAddress("10.0." + (i >>> 16 & 0xFF) + "." + (i >>> 8 & 0xFF), 1024 + (i & 0xFF)));
+            sessionStore.put(SessionTokens.toHex(session.getToken()), session);
+        }
+        checkpointer = new SessionCheckpointer(sessionStore, snapshot, Duration.ZERO);
+        checkpointer.checkpoint();
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyStore() {
+        restorer = new SessionCheckpointer(new ConcurrentSessionStore(), directory.resolve("sessions"), Duration.ZERO);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(directory.resolve("sessions"));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public int checkpoint() throws IOException {
+        return checkpointer.checkpoint();
+    }
+
+    @Benchmark
+    public int restore() {
+        return restorer.restore();
+    }
+}
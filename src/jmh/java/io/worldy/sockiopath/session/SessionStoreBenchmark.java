@@ -0,0 +1,88 @@
+package io.worldy.sockiopath.session;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looking a session up in a {@link MapBackedSessionStore} by its id, as text messages do, and by its token, as
+ * binary frames do, and visiting every session, as a broadcast does: once by looking up each id of the key set and
+ * once with {@link SessionStore#forEachSession}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionStoreBenchmark {
+
+    private static final int LOOKUPS = 1024;
+
+    @Param({"100", "10000", "100000"})
+    int sessionCount;
+
+    private SessionStore<SockiopathSession> sessionStore;
+    private Map<String, SockiopathSession> sessions;
+
+    private String[] ids;
+    private long[] tokens;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        sessions = new HashMap<>();
+        SockiopathSession[] created = new SockiopathSession[sessionCount];
+        for (int i = 0; i < sessionCount; i++) {
+            created[i] = new SockiopathSession(null);
+            sessions.put(SessionTokens.toHex(created[i].getToken()), created[i]);
+        }
+        sessionStore = new MapBackedSessionStore(sessions);
+
+        Random random = new Random(42);
+        ids = new String[LOOKUPS];
+        tokens = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            SockiopathSession session = created[random.nextInt(sessionCount)];
+            ids[i] = SessionTokens.toHex(session.getToken());
+            tokens[i] = session.getToken();
+        }
+    }
+
+    @Benchmark
+    public SockiopathSession getById() {
+        return sessionStore.get(ids[next++ & (LOOKUPS - 1)]);
+    }
+
+    @Benchmark
+    public SockiopathSession getByToken() {
+        return sessionStore.getByToken(tokens[next++ & (LOOKUPS - 1)]);
+    }
+
+    @Benchmark
+    public void visitByKeySet(Blackhole blackhole) {
+        for (String id : sessions.keySet()) {
+            blackhole.consume(sessionStore.get(id).getWebSocketContext());
+        }
+    }
+
+    @Benchmark
+    public void visitForEachSession(Blackhole blackhole) {
+        sessionStore.forEachSession(session -> blackhole.consume(session.getWebSocketContext()));
+    }
+}
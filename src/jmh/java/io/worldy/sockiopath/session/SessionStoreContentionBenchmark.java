@@ -0,0 +1,96 @@
+package io.worldy.sockiopath.session;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups and join/leave churn on one {@link ConcurrentSessionStore} shared by all benchmark threads. Run it once per
+ * thread count with {@code -Djmh.threads}, from 1 to 64, to see how it scales; {@code shards=1} shows the store
+ * without sharding.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionStoreContentionBenchmark {
+
+    private static final int LOOKUPS = 1024;
+    private static final int CHURN = 1024;
+
+    @Param({"1", "16", "256"})
+    int shards;
+
+    @Param({"100000"})
+    int sessionCount;
+
+    private SessionStore<SockiopathSession> sessionStore;
+    private String[] ids;
+    private long[] tokens;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        sessionStore = new ConcurrentSessionStore(shards);
+        SockiopathSession[] created = new SockiopathSession[sessionCount];
+        for (int i = 0; i < sessionCount; i++) {
+            created[i] = new SockiopathSession(null);
+            sessionStore.put(SessionTokens.toHex(created[i].getToken()), created[i]);
+        }
+
+        Random random = new Random(42);
+        ids = new String[LOOKUPS];
+        tokens = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            SockiopathSession session = created[random.nextInt(sessionCount)];
+            ids[i] = SessionTokens.toHex(session.getToken());
+            tokens[i] = session.getToken();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private final String[] joinIds = new String[CHURN];
+        private final SockiopathSession[] joinSessions = new SockiopathSession[CHURN];
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            for (int i = 0; i < CHURN; i++) {
+                joinSessions[i] = new SockiopathSession(null);
+                joinIds[i] = SessionTokens.toHex(joinSessions[i].getToken());
+            }
+            next = new Random(Thread.currentThread().getId()).nextInt(LOOKUPS);
+        }
+    }
+
+    @Benchmark
+    public SockiopathSession getById(ThreadState state) {
+        return sessionStore.get(ids[state.next++ & (LOOKUPS - 1)]);
+    }
+
+    @Benchmark
+    public SockiopathSession getByToken(ThreadState state) {
+        return sessionStore.getByToken(tokens[state.next++ & (LOOKUPS - 1)]);
+    }
+
+    @Benchmark
+    public SockiopathSession joinAndLeave(ThreadState state) {
+        int i = state.next++ & (CHURN - 1);
+        sessionStore.put(state.joinIds[i], state.joinSessions[i]);
+        return sessionStore.remove(state.joinIds[i]);
+    }
+}
@@ -0,0 +1,107 @@
+package io.worldy.sockiopath.session;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The heap a {@link MapBackedSessionStore} and an {@link OffHeapSessionStore} keep for a million sessions with UDP
+ * bindings, and what that costs the garbage collector.
+ * <p>
+ * {@code heapBytes} is the heap still in use after a full collection, less what was in use before the store was
+ * filled. {@code fullGc} is the pause of a full collection with the store live, and {@code lookupAndTouch} is the
+ * UDP hot path, whose {@code gc.time} from the {@code gc} profiler is the collection time it causes.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class SessionStoreFootprintBenchmark {
+
+    private static final int LOOKUPS = 1024;
+
+    @Param({"map", "offHeap"})
+    String store;
+
+    @Param({"1000000"})
+    int sessionCount;
+
+    private SessionStore<SockiopathSession> sessionStore;
+    private long retainedHeap;
+    private long[] tokens;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        long before = usedHeap();
+        sessionStore = "map".equals(store)
+                ? new MapBackedSessionStore(new HashMap<>())
+                : new OffHeapSessionStore(sessionCount);
+
+        // tokens are random, so the first sessions are as good a sample as any
+        tokens = new long[LOOKUPS];
+        for (int i = 0; i < sessionCount; i++) {
+            SockiopathSession session = new SockiopathSession(null)
+                    .withUdpSocketAddress(new InetSocketAddress("10.0." + (i >>> 16 & 0xFF) + "." + (i >>> 8 & 0xFF), 1024 + (i & 0xFF)));
+            sessionStore.put(SessionTokens.toHex(session.getToken()), session);
+            if (i < LOOKUPS) {
+                tokens[i] = session.getToken();
+            }
+        }
+        retainedHeap = usedHeap() - before;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (sessionStore instanceof OffHeapSessionStore offHeapSessionStore) {
+            offHeapSessionStore.release();
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+        public long heapBytes;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public void fullGc(Footprint footprint) {
+        System.gc();
+        footprint.heapBytes = retainedHeap;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long lookupAndTouch() {
+        SockiopathSession session = sessionStore.getByToken(tokens[next++ & (LOOKUPS - 1)]);
+        session.touchUdp();
+        return session.getLastActivityNanos();
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,109 @@
+package io.worldy.sockiopath.udp;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.DatagramPacket;
+import io.worldy.sockiopath.StartServerResult;
+import io.worldy.sockiopath.flush.FlushPolicy;
+import io.worldy.sockiopath.udp.client.BootstrappedUdpClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Packets per second through a loopback echo {@link UdpServer}: a {@link BootstrappedUdpClient} sends a burst of
+ * small datagrams in one flush and waits for the replies. {@code nio} is the baseline, {@code epoll} adds the native
+ * transport and {@code epoll-batched} adds {@link DatagramBatching} to both the client and the server.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UdpThroughputBenchmark {
+
+    private static final int BURST = 32;
+    private static final int DATAGRAM_SIZE = 64;
+
+    @Param({"nio", "epoll", "epoll-batched"})
+    String transport;
+
+    private ExecutorService executorService;
+    private StartServerResult server;
+    private BootstrappedUdpClient client;
+    private final Semaphore replies = new Semaphore(0);
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        UdpTransport udpTransport = switch (transport) {
+            case "epoll" -> UdpTransport.epoll(1);
+            case "epoll-batched" -> UdpTransport.epoll(1).withBatching(DatagramBatching.enabled());
+            default -> UdpTransport.nio();
+        };
+
+        executorService = Executors.newSingleThreadExecutor();
+        server = new UdpServer(UdpThroughputBenchmark::echoHandler, executorService, 0, FlushPolicy.adaptive(), udpTransport)
+                .start().get(5, TimeUnit.SECONDS);
+
+        client = new BootstrappedUdpClient("localhost", server.port(), new SimpleChannelInboundHandler<>() {
+            @Override
+            protected void channelRead0(ChannelHandlerContext ctx, Object msg) {
+                replies.release();
+            }
+        }, 1000, udpTransport);
+        client.startup();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.getChannel().close();
+        client.shutdown();
+        server.closeFuture().cancel(true);
+        executorService.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public int echoBurst() throws InterruptedException {
+        Channel channel = client.getChannel();
+        for (int i = 0; i < BURST; i++) {
+            ByteBuf datagram = channel.alloc().directBuffer(DATAGRAM_SIZE).writeZero(DATAGRAM_SIZE);
+            channel.write(datagram, channel.voidPromise());
+        }
+        channel.flush();
+
+        if (replies.tryAcquire(BURST, 1, TimeUnit.SECONDS)) {
+            return BURST;
+        }
+        // datagrams may be dropped, count what came back and carry on
+        return replies.drainPermits();
+    }
+
+    private static SimpleChannelInboundHandler<DatagramPacket> echoHandler() {
+        return new SimpleChannelInboundHandler<>() {
+            @Override
+            protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket packet) {
+                ctx.writeAndFlush(new DatagramPacket(packet.content().retain(), packet.sender()));
+            }
+        };
+    }
+}
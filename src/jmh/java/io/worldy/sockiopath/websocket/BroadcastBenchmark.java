@@ -0,0 +1,111 @@
+package io.worldy.sockiopath.websocket;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocket08FrameEncoder;
+import io.netty.util.ReferenceCountUtil;
+import io.worldy.sockiopath.flush.FanOut;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Broadcasts a chat message to {@code sessions} WebSocket channels, through the WebSocket frame encoder, the way
+ * {@link WebSocketServerHandler} did before, with a frame of its own encoded for every recipient, and the way it
+ * does now, with the text encoded once and shared through a {@link FanOut}. The channels drop what they are
+ * sent after encoding it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastBenchmark {
+
+    private static final String PREFIX = "1a2b3c4d: ";
+
+    @Param({"100", "10000"})
+    int sessions;
+
+    @Param({"64"})
+    int messageLength;
+
+    private EmbeddedChannel[] channels;
+    private ChannelHandlerContext[] contexts;
+    private String textMessage;
+
+    static final class Sink extends ChannelOutboundHandlerAdapter {
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+            ReferenceCountUtil.release(msg);
+            promise.trySuccess();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        channels = new EmbeddedChannel[sessions];
+        contexts = new ChannelHandlerContext[sessions];
+        for (int i = 0; i < sessions; i++) {
+            ChannelInboundHandlerAdapter handler = new ChannelInboundHandlerAdapter();
+            channels[i] = new EmbeddedChannel(new Sink(), new WebSocket08FrameEncoder(false), handler);
+            contexts[i] = channels[i].pipeline().context(handler);
+        }
+        textMessage = "x".repeat(messageLength);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (EmbeddedChannel channel : channels) {
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    @Benchmark
+    public int perRecipientFrames() {
+        for (int i = 0; i < sessions; i++) {
+            String prefix = i == 0 ? "" : PREFIX;
+            contexts[i].writeAndFlush(new TextWebSocketFrame(prefix + textMessage));
+        }
+        return sessions;
+    }
+
+    @Benchmark
+    public int sharedFrame() {
+        PooledByteBufAllocator allocator = PooledByteBufAllocator.DEFAULT;
+        ByteBuf body = ByteBufUtil.writeUtf8(allocator, textMessage);
+        CompositeByteBuf prefixed = allocator.compositeBuffer(2)
+                .addComponents(true, ByteBufUtil.writeUtf8(allocator, PREFIX), body.retainedDuplicate());
+        try {
+            FanOut fanOut = new FanOut();
+            for (int i = 0; i < sessions; i++) {
+                fanOut.addText(contexts[i], i == 0 ? body : prefixed);
+            }
+            return fanOut.send();
+        } finally {
+            body.release();
+            prefixed.release();
+        }
+    }
+}
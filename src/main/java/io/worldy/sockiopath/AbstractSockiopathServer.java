@@ -2,6 +2,8 @@ package io.worldy.sockiopath;
 
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandler;
+import io.worldy.sockiopath.flush.FlushPolicy;
+import io.worldy.sockiopath.session.SessionCheckpointer;
 
 import java.util.concurrent.ExecutorService;
 
@@ -11,6 +13,10 @@ public abstract class AbstractSockiopathServer implements SockiopathServer {
 
     protected final ExecutorService executorService;
 
+    protected final FlushPolicy flushPolicy;
+
+    protected SessionCheckpointer sessionCheckpointer;
+
     protected ChannelFuture closeFuture;
     protected final int port;
     protected int actualPort;
@@ -19,12 +25,47 @@ public abstract class AbstractSockiopathServer implements SockiopathServer {
             ChannelHandler channelHandler,
             ExecutorService executorService,
             int port
+    ) {
+        this(channelHandler, executorService, port, null);
+    }
+
+    /**
+     * @param flushPolicy how the replies of a channel are flushed, or {@code null} to flush them as they are written
+     */
+    public AbstractSockiopathServer(
+            ChannelHandler channelHandler,
+            ExecutorService executorService,
+            int port,
+            FlushPolicy flushPolicy
     ) {
         this.channelHandler = channelHandler;
         this.executorService = executorService;
         this.port = port;
+        this.flushPolicy = flushPolicy;
+    }
+
+    /**
+     * Restores the sessions of {@code sessionCheckpointer} when the server starts, and checkpoints them until it
+     * stops. Servers sharing a session store can share one checkpointer.
+     */
+    public void setSessionCheckpointer(SessionCheckpointer sessionCheckpointer) {
+        this.sessionCheckpointer = sessionCheckpointer;
     }
 
+    protected void restoreSessions() {
+        if (sessionCheckpointer != null) {
+            sessionCheckpointer.start();
+        }
+    }
+
+    @Override
+    public void stop() {
+        // checkpoint before the channels close and their sessions leave the store
+        if (sessionCheckpointer != null) {
+            sessionCheckpointer.stop();
+        }
+        SockiopathServer.super.stop();
+    }
 
     @Override
     public int actualPort() {
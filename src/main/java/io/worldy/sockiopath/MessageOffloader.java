@@ -0,0 +1,191 @@
+package io.worldy.sockiopath;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.concurrent.EventExecutor;
+import io.worldy.sockiopath.messaging.SockiopathMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Moves message processing off the I/O threads onto a worker {@link Executor}.
+ * <p>
+ * Each event loop hands its messages to the workers through its own bounded queue, and the messages of one queue
+ * are processed in the order they were read. The offloaded task owns the {@link SockiopathMessage} and has to
+ * release it. A message that is rejected is released here. What happens when a queue is full is decided by the
+ * {@link RejectionPolicy}.
+ */
+public class MessageOffloader {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessageOffloader.class);
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    // tasks run per worker hand-off before the queue goes to the back of the executor, so loops share the workers
+    static final int DRAIN_BATCH = 64;
+
+    public enum RejectionPolicy {
+        /**
+         * Drops the new message.
+         */
+        DROP,
+        /**
+         * Drops the oldest queued message to make room for the new one.
+         */
+        DROP_OLDEST,
+        /**
+         * Queues the new message anyway and stops reading from its channel until the workers have drained the queue
+         * to half its capacity, so clients are slowed down without messages being dropped or reordered.
+         */
+        PAUSE_READS
+    }
+
+    private final Executor executor;
+    private final int queueCapacity;
+    private final RejectionPolicy rejectionPolicy;
+    private final Logger logger;
+
+    private final Map<EventExecutor, HandOffQueue> queues = new ConcurrentHashMap<>();
+    private final LongAdder rejected = new LongAdder();
+
+    public MessageOffloader(Executor executor, int queueCapacity, RejectionPolicy rejectionPolicy, Logger logger) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("queueCapacity must be at least 1: " + queueCapacity);
+        }
+        this.executor = executor;
+        this.queueCapacity = queueCapacity;
+        this.rejectionPolicy = rejectionPolicy;
+        this.logger = logger;
+    }
+
+    public MessageOffloader(Executor executor, int queueCapacity, RejectionPolicy rejectionPolicy) {
+        this(executor, queueCapacity, rejectionPolicy, LOGGER);
+    }
+
+    public MessageOffloader(Executor executor) {
+        this(executor, DEFAULT_QUEUE_CAPACITY, RejectionPolicy.DROP);
+    }
+
+    public void offload(ChannelHandlerContext context, SockiopathMessage message, Runnable task) {
+        queues.computeIfAbsent(context.executor(), loop -> new HandOffQueue())
+                .offer(context.channel(), new OffloadedMessage(message, task));
+    }
+
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    private void reject(OffloadedMessage offloaded) {
+        rejected.increment();
+        offloaded.message().release();
+        logger.debug("Offload queue full, dropped message for: " + offloaded.message().address());
+    }
+
+    private record OffloadedMessage(SockiopathMessage message, Runnable task) {
+    }
+
+    private class HandOffQueue {
+
+        // only the loop of the queue offers, so the size checked before an offer can only have shrunk after it
+        private final Queue<OffloadedMessage> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final Set<Channel> paused = ConcurrentHashMap.newKeySet();
+
+        void offer(Channel channel, OffloadedMessage offloaded) {
+            if (size.get() >= queueCapacity) {
+                switch (rejectionPolicy) {
+                    case PAUSE_READS -> pause(channel);
+                    case DROP_OLDEST -> {
+                        OffloadedMessage oldest = poll();
+                        if (oldest != null) {
+                            reject(oldest);
+                        }
+                    }
+                    default -> {
+                        reject(offloaded);
+                        schedule();
+                        return;
+                    }
+                }
+            }
+            size.incrementAndGet();
+            pending.add(offloaded);
+            schedule();
+        }
+
+        private OffloadedMessage poll() {
+            OffloadedMessage offloaded = pending.poll();
+            if (offloaded != null) {
+                size.decrementAndGet();
+            }
+            return offloaded;
+        }
+
+        private void pause(Channel channel) {
+            if (paused.add(channel)) {
+                channel.config().setAutoRead(false);
+                logger.debug("Offload queue full, paused reading from: " + channel);
+            }
+        }
+
+        private void resume() {
+            for (Channel channel : paused) {
+                paused.remove(channel);
+                channel.config().setAutoRead(true);
+            }
+        }
+
+        private void schedule() {
+            if (!scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+                logger.error("Offload executor rejected the hand-off: " + e.getMessage());
+                for (OffloadedMessage offloaded = poll(); offloaded != null; offloaded = poll()) {
+                    reject(offloaded);
+                }
+                resume();
+            }
+        }
+
+        private void drain() {
+            for (int i = 0; i < DRAIN_BATCH; i++) {
+                OffloadedMessage offloaded = poll();
+                if (offloaded == null) {
+                    break;
+                }
+                run(offloaded);
+            }
+            if (!paused.isEmpty() && size.get() <= queueCapacity / 2) {
+                resume();
+            }
+            scheduled.set(false);
+            if (!pending.isEmpty()) {
+                schedule();
+            }
+        }
+
+        private void run(OffloadedMessage offloaded) {
+            try {
+                offloaded.task().run();
+            } catch (RuntimeException e) {
+                logger.error("Error processing offloaded message: " + e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -2,6 +2,7 @@ package io.worldy.sockiopath;
 
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
 import io.worldy.sockiopath.messaging.MessageBus;
+import io.worldy.sockiopath.messaging.MessageHandler;
 import io.worldy.sockiopath.websocket.client.BootstrappedWebSocketClient;
 import io.worldy.sockiopath.websocket.client.WebSocketClientHandler;
 
@@ -27,7 +28,7 @@ public class Sockiopath implements SockioPathClient {
 //                    handler.accept(parser.apply(sm.data()));
 //                    return CompletableFuture.completedFuture(sm.data());
 //                },
-                null,
+                (MessageHandler) null,
                 1000
         );
         clientMessageHandlers.put(address, messageBus);
@@ -2,23 +2,25 @@ package io.worldy.sockiopath;
 
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.channel.socket.DatagramPacket;
 import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
 import io.worldy.sockiopath.messaging.DefaultMessageParser;
 import io.worldy.sockiopath.messaging.MessageBus;
+import io.worldy.sockiopath.messaging.MessageParser;
+import io.worldy.sockiopath.messaging.Route;
+import io.worldy.sockiopath.messaging.RouteTable;
 import io.worldy.sockiopath.messaging.SockiopathMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
-import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Function;
 
 public abstract class SockiopathHandler<T> extends SimpleChannelInboundHandler<T> {
 
@@ -30,36 +32,39 @@ public abstract class SockiopathHandler<T> extends SimpleChannelInboundHandler<T
     protected static final String NO_SESSION_ERROR_MESSAGE = "No session for request. sender: [%s].";
     protected static final String HANDLE_MESSAGE_DEBUG_MESSAGE = "Handling message. address: [%s]. content: ";
 
-    protected final Function<ByteBuffer, Optional<SockiopathMessage>> messageParser;
+    protected final MessageParser messageParser;
 
     protected final Map<String, MessageBus> messageHandlers;
 
+    protected final RouteTable routes;
+
     protected final Logger logger;
 
     ChannelHandlerContext channelHandlerContext;
 
     public SockiopathHandler(
             Map<String, MessageBus> messageHandlers,
-            Function<ByteBuffer, Optional<SockiopathMessage>> messageParser,
+            MessageParser messageParser,
             Logger logger
     ) {
         this.messageParser = messageParser;
         this.messageHandlers = messageHandlers;
+        this.routes = new RouteTable(messageHandlers);
         this.logger = logger;
     }
 
     public void channelRead0(ChannelHandlerContext context, InetSocketAddress sender, ByteBuf payload) {
-        messageParser.apply(payload.copy().nioBuffer())
+        messageParser.parse(payload, routes)
                 .ifPresentOrElse(
                         sockiopathMessage -> process(sockiopathMessage, context, sender),
-                        () -> logError(sender, payload.copy().nioBuffer())
+                        () -> logError(sender, payload)
                 );
     }
 
-    protected void logError(InetSocketAddress sender, ByteBuffer content) {
+    protected void logError(InetSocketAddress sender, ByteBuf content) {
         final String message;
         if (logger.isDebugEnabled()) {
-            message = SockiopathServer.byteBufferToString(content);
+            message = content.toString(StandardCharsets.ISO_8859_1);
         } else {
             message = ENABLE_DEBUGGING_MESSAGE;
         }
@@ -68,21 +73,24 @@ public abstract class SockiopathHandler<T> extends SimpleChannelInboundHandler<T
 
     protected void process(SockiopathMessage sockiopathMessage, ChannelHandlerContext context, InetSocketAddress sender) {
 
-        Optional.ofNullable(messageHandlers.get(sockiopathMessage.address()))
+        Optional.ofNullable(resolveRoute(sockiopathMessage))
+                .map(Route::messageBus)
                 .ifPresentOrElse(
                         handler -> {
                             if (logger.isDebugEnabled()) {
-                                logger.debug(HANDLE_MESSAGE_DEBUG_MESSAGE.formatted(sockiopathMessage.address()) + new String(sockiopathMessage.data()));
+                                logger.debug(HANDLE_MESSAGE_DEBUG_MESSAGE.formatted(sockiopathMessage.address())
+                                        + sockiopathMessage.content().toString(Charset.defaultCharset()));
                             }
 
-                            handler.consumer().apply(sockiopathMessage)
+                            handler.handler().handle(sockiopathMessage, context.alloc())
                                     .orTimeout(handler.timeoutMillis(), TimeUnit.MILLISECONDS)
                                     .whenComplete((response, error) -> {
+                                        sockiopathMessage.release();
                                         if (response != null) {
                                             if (isUdp()) {
-                                                context.writeAndFlush(new DatagramPacket(Unpooled.copiedBuffer(response), sender));
+                                                context.writeAndFlush(new DatagramPacket(response, sender));
                                             } else {
-                                                context.channel().writeAndFlush(new BinaryWebSocketFrame(Unpooled.copiedBuffer(response)));
+                                                context.channel().writeAndFlush(new BinaryWebSocketFrame(response));
                                             }
                                         } else if (error != null) {
                                             logger.error(error.getMessage(), error);
@@ -91,11 +99,21 @@ public abstract class SockiopathHandler<T> extends SimpleChannelInboundHandler<T
                                         }
                                     });
                         },
-                        () -> logger.debug("No message handler for: " + sockiopathMessage.address())
+                        () -> {
+                            sockiopathMessage.release();
+                            logger.debug("No message handler for: " + sockiopathMessage.address());
+                        }
                 );
 
     }
 
+    protected Route resolveRoute(SockiopathMessage sockiopathMessage) {
+        if (sockiopathMessage.route() != null) {
+            return sockiopathMessage.route();
+        }
+        return routes.route(sockiopathMessage.address());
+    }
+
     protected abstract boolean isUdp();
 
     public abstract void channelRead0(ChannelHandlerContext context, T var2) throws Exception;
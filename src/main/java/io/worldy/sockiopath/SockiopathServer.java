@@ -11,6 +11,9 @@ import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpServerCodec;
 import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
 import io.netty.handler.ssl.SslContext;
+import io.worldy.sockiopath.flush.OutboundPolicy;
+import io.worldy.sockiopath.flush.OutboundQueue;
+import io.worldy.sockiopath.flush.SlowConsumerMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -140,6 +143,21 @@ public interface SockiopathServer {
             int maxContentLength,
             List<Supplier<SimpleChannelInboundHandler<?>>> messageHandlers,
             SslContext sslCtx
+    ) {
+        return basicWebSocketChannelHandler(path, maxContentLength, messageHandlers, sslCtx, null, null);
+    }
+
+    /**
+     * Like the other overloads, with an {@link OutboundQueue} for every channel that holds WebSocket frames back while
+     * the client is slow, bounded by {@code outboundPolicy}. A {@code null} policy leaves it out.
+     */
+    static ChannelInitializer<SocketChannel> basicWebSocketChannelHandler(
+            String path,
+            int maxContentLength,
+            List<Supplier<SimpleChannelInboundHandler<?>>> messageHandlers,
+            SslContext sslCtx,
+            OutboundPolicy outboundPolicy,
+            SlowConsumerMetrics slowConsumerMetrics
     ) {
         ExecutorService sslChannelExecutor = Executors.newFixedThreadPool(1);
         return new ChannelInitializer<>() {
@@ -152,6 +170,9 @@ public interface SockiopathServer {
                 pipeline.addLast(new HttpServerCodec());
                 pipeline.addLast(new HttpObjectAggregator(maxContentLength));
                 pipeline.addLast(new WebSocketServerProtocolHandler(path, null, true));
+                if (outboundPolicy != null) {
+                    pipeline.addLast(new OutboundQueue(outboundPolicy, slowConsumerMetrics));
+                }
                 messageHandlers.forEach(messageHandlerSupplier -> pipeline.addLast(messageHandlerSupplier.get()));
             }
         };
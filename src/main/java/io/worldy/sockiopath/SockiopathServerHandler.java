@@ -2,20 +2,21 @@ package io.worldy.sockiopath;
 
 
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.channel.pool.ChannelPool;
+import io.netty.util.concurrent.EventExecutor;
 import io.worldy.sockiopath.messaging.MessageBus;
+import io.worldy.sockiopath.messaging.MessageParser;
 import io.worldy.sockiopath.messaging.SockiopathMessage;
 import io.worldy.sockiopath.session.SessionStore;
 import io.worldy.sockiopath.session.SockiopathSession;
+import io.worldy.sockiopath.session.UdpSessionIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
-import java.nio.ByteBuffer;
 import java.util.Map;
 import java.util.Optional;
-import java.util.function.Function;
+import java.util.concurrent.RejectedExecutionException;
 
 public abstract class SockiopathServerHandler<T> extends SockiopathHandler<T> {
 
@@ -23,26 +24,104 @@ public abstract class SockiopathServerHandler<T> extends SockiopathHandler<T> {
 
     protected SessionStore<SockiopathSession> sessionStore;
 
+    protected MessageOffloader offloader;
+
+    protected UdpSessionIndex udpSessionIndex;
+
+    protected boolean sessionAffinity;
+
     ChannelHandlerContext channelHandlerContext;
 
     public SockiopathServerHandler(
             SessionStore<SockiopathSession> sessionStore,
             Map<String, MessageBus> messageHandlers,
-            Function<ByteBuffer, Optional<SockiopathMessage>> messageParser,
+            MessageParser messageParser,
             Logger logger
     ) {
         super(messageHandlers, messageParser, logger);
         this.sessionStore = sessionStore;
     }
 
-    public void setChannelPool(ChannelPool channelPool) {
-        throw new UnsupportedOperationException();
+    /**
+     * Processes messages on the workers of {@code offloader} instead of the I/O thread. {@code null} processes them
+     * on the I/O thread.
+     */
+    public void setOffloader(MessageOffloader offloader) {
+        this.offloader = offloader;
+    }
+
+    /**
+     * Binds sessions to the UDP address their datagrams come from in {@code udpSessionIndex}, so that bound
+     * clients can send session-less messages. Handlers of all transports sharing a session store should share
+     * the index, so that sessions leaving the store are unbound.
+     */
+    public void setUdpSessionIndex(UdpSessionIndex udpSessionIndex) {
+        this.udpSessionIndex = udpSessionIndex;
     }
 
+    /**
+     * Processes the UDP messages of a session with a WebSocket channel on the event loop of that channel, where its
+     * WebSocket messages are processed too, so that state handlers keep per session is only ever touched by one
+     * thread and needs no locking. Messages of other sessions are processed as before. Takes precedence over the
+     * offloader.
+     */
+    public void setSessionAffinity(boolean sessionAffinity) {
+        this.sessionAffinity = sessionAffinity;
+    }
+
+    @Override
     protected void process(SockiopathMessage sockiopathMessage, ChannelHandlerContext context, InetSocketAddress sender) {
+        if (sessionAffinity && isUdp()) {
+            SockiopathSession session = findSession(sockiopathMessage, sender);
+            ChannelHandlerContext webSocketContext = session != null ? session.getWebSocketContext() : null;
+            if (webSocketContext != null) {
+                processOnLoop(webSocketContext.executor(), sockiopathMessage, session, context, sender);
+            } else if (offloader != null) {
+                // the session was found already, so it is not looked up again where the message is processed
+                offloader.offload(context, sockiopathMessage, () -> processSession(sockiopathMessage, session, context, sender));
+            } else {
+                processSession(sockiopathMessage, session, context, sender);
+            }
+            return;
+        }
+        if (offloader != null) {
+            offloader.offload(context, sockiopathMessage, () -> processMessage(sockiopathMessage, context, sender));
+        } else {
+            processMessage(sockiopathMessage, context, sender);
+        }
+    }
+
+    private void processOnLoop(
+            EventExecutor loop,
+            SockiopathMessage sockiopathMessage,
+            SockiopathSession session,
+            ChannelHandlerContext context,
+            InetSocketAddress sender
+    ) {
+        if (loop.inEventLoop()) {
+            processSession(sockiopathMessage, session, context, sender);
+            return;
+        }
+        try {
+            loop.execute(() -> processSession(sockiopathMessage, session, context, sender));
+        } catch (RejectedExecutionException e) {
+            sockiopathMessage.release();
+            logger.debug("Session event loop rejected message for: " + sockiopathMessage.address());
+        }
+    }
 
-        SockiopathSession session = sessionStore.get().apply(sockiopathMessage.sessionId());
+    protected void processMessage(SockiopathMessage sockiopathMessage, ChannelHandlerContext context, InetSocketAddress sender) {
+        processSession(sockiopathMessage, findSession(sockiopathMessage, sender), context, sender);
+    }
+
+    private void processSession(
+            SockiopathMessage sockiopathMessage,
+            SockiopathSession session,
+            ChannelHandlerContext context,
+            InetSocketAddress sender
+    ) {
         if (session == null) {
+            sockiopathMessage.release();
             Optional<InetAddress> address = Optional.ofNullable(sender.getAddress());
             logger.debug(
                     NO_SESSION_ERROR_MESSAGE.formatted(address.map(InetAddress::getCanonicalHostName).orElse(sender.getHostName()))
@@ -50,19 +129,67 @@ public abstract class SockiopathServerHandler<T> extends SockiopathHandler<T> {
             return;
         }
         if (isUdp()) {
+            bindUdp(session, sender, context);
+            session.touchUdp();
+        } else {
+            session.touch();
+        }
+
+        // handlers find the session by its token, rather than by an id or address the message may not have
+        super.process(
+                sockiopathMessage.hasSessionToken() ? sockiopathMessage : sockiopathMessage.withSessionToken(session.getToken()),
+                context,
+                sender
+        );
+
+    }
+
+    private void bindUdp(SockiopathSession session, InetSocketAddress sender, ChannelHandlerContext context) {
+        if (udpSessionIndex != null) {
+            udpSessionIndex.bind(session, sender, context);
+            return;
+        }
+        if (!sender.equals(session.getUdpSocketAddress())) {
             session.withUdpSocketAddress(sender);
+        }
+        if (session.getUdpContext() != context) {
             session.withUdpContext(context);
         }
+    }
 
-        super.process(sockiopathMessage, context, sender);
+    /**
+     * Finds the session of a message by its token or id, or for a session-less UDP message, by the address it
+     * came from.
+     */
+    protected SockiopathSession findSession(SockiopathMessage sockiopathMessage, InetSocketAddress sender) {
+        boolean sessionless = !sockiopathMessage.hasSessionToken()
+                && (sockiopathMessage.sessionId() == null || sockiopathMessage.sessionId().isEmpty());
+        if (!sessionless) {
+            return findSession(sockiopathMessage);
+        }
+        if (!isUdp() || udpSessionIndex == null) {
+            return null;
+        }
+        SockiopathSession session = udpSessionIndex.get(sender);
+        if (session != null && sessionStore.getByToken(session.getToken()) == null) {
+            udpSessionIndex.unbind(session);
+            return null;
+        }
+        return session;
+    }
 
+    protected SockiopathSession findSession(SockiopathMessage sockiopathMessage) {
+        if (sockiopathMessage.hasSessionToken()) {
+            return sessionStore.getByToken(sockiopathMessage.sessionToken());
+        }
+        return sessionStore.get(sockiopathMessage.sessionId());
     }
 
     public SockiopathSession getSession(String id) {
-        return sessionStore.get().apply(id);
+        return sessionStore.get(id);
     }
 
     public int getSessionCount() {
-        return sessionStore.size().get();
+        return sessionStore.size();
     }
 }
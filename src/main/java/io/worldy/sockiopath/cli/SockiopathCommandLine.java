@@ -8,7 +8,7 @@ import io.worldy.sockiopath.SockioPathClient;
 import io.worldy.sockiopath.Sockiopath;
 import io.worldy.sockiopath.SockiopathServer;
 import io.worldy.sockiopath.messaging.MessageBus;
-import io.worldy.sockiopath.session.MapBackedSessionStore;
+import io.worldy.sockiopath.session.ConcurrentSessionStore;
 import io.worldy.sockiopath.session.SessionStore;
 import io.worldy.sockiopath.session.SockiopathSession;
 import io.worldy.sockiopath.websocket.WebSocketServer;
@@ -21,7 +21,6 @@ import org.slf4j.LoggerFactory;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -64,7 +63,7 @@ public class SockiopathCommandLine {
         logger.debug("client: " + options.client());
         logger.debug("server: " + options.server());
 
-        SessionStore<SockiopathSession> sessionStore = new MapBackedSessionStore(new HashMap<>());
+        SessionStore<SockiopathSession> sessionStore = new ConcurrentSessionStore();
 
         ExecutorService webSocketServerExecutorService = Executors.newFixedThreadPool(1);
 
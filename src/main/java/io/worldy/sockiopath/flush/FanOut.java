@@ -0,0 +1,98 @@
+package io.worldy.sockiopath.flush;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.EventExecutor;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Sends a payload that was encoded once to many channels.
+ * <p>
+ * Every recipient gets a frame or datagram around a retained duplicate of a shared payload, so the payload is
+ * neither copied nor encoded per recipient. A payload can be a composite buffer, a per recipient header in front of
+ * the shared body. Recipients are grouped by event loop: {@link #send()} hands each loop one task, which writes the
+ * messages of its channels and then flushes each channel once, instead of one task and flush per message. Datagrams
+ * to many addresses through one UDP channel are flushed together.
+ * <p>
+ * A fan-out is used by one thread, once.
+ */
+public class FanOut {
+
+    private final Map<EventExecutor, List<Delivery>> loops = new IdentityHashMap<>();
+    private int recipients;
+
+    private record Delivery(ChannelHandlerContext context, Object message) {
+    }
+
+    /**
+     * Adds a recipient of {@code payload} as a WebSocket text frame. The fan-out retains the payload until the frame
+     * is written, so the caller releases its own reference as usual.
+     */
+    public void addText(ChannelHandlerContext context, ByteBuf payload) {
+        add(context, new TextWebSocketFrame(payload.retainedDuplicate()));
+    }
+
+    /**
+     * Adds a recipient of {@code payload} as a WebSocket binary frame, as {@link #addText} does.
+     */
+    public void addBinary(ChannelHandlerContext context, ByteBuf payload) {
+        add(context, new BinaryWebSocketFrame(payload.retainedDuplicate()));
+    }
+
+    /**
+     * Adds a recipient of {@code payload} as a datagram sent to {@code recipient} through a UDP channel, as
+     * {@link #addText} does.
+     */
+    public void addDatagram(ChannelHandlerContext context, ByteBuf payload, InetSocketAddress recipient) {
+        add(context, new DatagramPacket(payload.retainedDuplicate(), recipient));
+    }
+
+    private void add(ChannelHandlerContext context, Object message) {
+        loops.computeIfAbsent(context.executor(), loop -> new ArrayList<>()).add(new Delivery(context, message));
+        recipients++;
+    }
+
+    /**
+     * Writes and flushes the messages, right away on the calling event loop and in one task on every other one.
+     *
+     * @return the number of recipients
+     */
+    public int send() {
+        loops.forEach((loop, deliveries) -> {
+            if (loop.inEventLoop()) {
+                write(deliveries);
+            } else {
+                try {
+                    loop.execute(() -> write(deliveries));
+                } catch (RejectedExecutionException e) {
+                    // the loop is shutting down with its channels
+                    deliveries.forEach(delivery -> ReferenceCountUtil.release(delivery.message()));
+                }
+            }
+        });
+        loops.clear();
+        return recipients;
+    }
+
+    private static void write(List<Delivery> deliveries) {
+        Set<ChannelHandlerContext> written = new LinkedHashSet<>();
+        for (Delivery delivery : deliveries) {
+            ChannelHandlerContext context = delivery.context();
+            context.write(delivery.message(), context.voidPromise());
+            written.add(context);
+        }
+        written.forEach(ChannelHandlerContext::flush);
+    }
+}
@@ -0,0 +1,147 @@
+package io.worldy.sockiopath.flush;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPromise;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds back flushes so that the replies to a burst of inbound messages leave in as few syscalls as possible.
+ * <p>
+ * Flushes made while the channel is reading are held until the read loop completes or until
+ * {@link FlushPolicy#maxPendingWrites()} of them are pending. Flushes made outside the read loop are held for at
+ * most {@link FlushPolicy#maxDelayMicros()}. With an adaptive policy the threshold follows a moving average of the
+ * messages read per read loop, so a channel that reads one message at a time flushes every reply straight away.
+ * <p>
+ * The handler keeps per channel state and has to be added once per channel, in front of any handler that writes.
+ */
+public class FlushConsolidator extends ChannelDuplexHandler {
+
+    // weight of the latest read loop in the moving average, as for TCP's smoothed RTT
+    private static final double LOAD_WEIGHT = 0.125;
+
+    private final FlushPolicy policy;
+
+    private ChannelHandlerContext context;
+    private boolean readInProgress;
+    private int readsInProgress;
+    private double averageReads = 1;
+    private int pendingFlushes;
+    private Future<?> scheduledFlush;
+
+    public FlushConsolidator(FlushPolicy policy) {
+        this.policy = policy;
+    }
+
+    public static ChannelHandler withFlushPolicy(ChannelHandler channelHandler, FlushPolicy policy) {
+        if (policy == null) {
+            return channelHandler;
+        }
+        return new ChannelInitializer<Channel>() {
+            @Override
+            protected void initChannel(Channel channel) {
+                channel.pipeline().addLast(new FlushConsolidator(policy), channelHandler);
+            }
+        };
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        this.context = ctx;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        readInProgress = true;
+        readsInProgress++;
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) {
+        if (policy.adaptToLoad() && readsInProgress > 0) {
+            averageReads += (readsInProgress - averageReads) * LOAD_WEIGHT;
+        }
+        readsInProgress = 0;
+        readInProgress = false;
+        flushIfPending(ctx);
+        ctx.fireChannelReadComplete();
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) {
+        int threshold = threshold();
+        if (++pendingFlushes >= threshold) {
+            flushNow(ctx);
+        } else if (!readInProgress) {
+            if (policy.maxDelayMicros() == 0) {
+                flushNow(ctx);
+            } else if (scheduledFlush == null) {
+                scheduledFlush = ctx.executor().schedule(this::flushScheduled, policy.maxDelayMicros(), TimeUnit.MICROSECONDS);
+            }
+        }
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) {
+        if (!ctx.channel().isWritable()) {
+            flushIfPending(ctx);
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        flushIfPending(ctx);
+        ctx.fireExceptionCaught(cause);
+    }
+
+    @Override
+    public void disconnect(ChannelHandlerContext ctx, ChannelPromise promise) {
+        flushIfPending(ctx);
+        ctx.disconnect(promise);
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) {
+        flushIfPending(ctx);
+        ctx.close(promise);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        flushIfPending(ctx);
+    }
+
+    int threshold() {
+        if (!policy.adaptToLoad()) {
+            return policy.maxPendingWrites();
+        }
+        return Math.max(1, Math.min(policy.maxPendingWrites(), (int) averageReads));
+    }
+
+    private void flushScheduled() {
+        scheduledFlush = null;
+        flushIfPending(context);
+    }
+
+    private void flushIfPending(ChannelHandlerContext ctx) {
+        if (pendingFlushes > 0) {
+            flushNow(ctx);
+        }
+    }
+
+    private void flushNow(ChannelHandlerContext ctx) {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        pendingFlushes = 0;
+        ctx.flush();
+    }
+}
@@ -0,0 +1,42 @@
+package io.worldy.sockiopath.flush;
+
+/**
+ * Decides when the writes queued on a channel are flushed to the socket. See {@link FlushConsolidator}.
+ *
+ * @param maxPendingWrites the number of flushes that are held back before the channel is flushed. {@code 1}
+ *                         flushes every write straight away.
+ * @param maxDelayMicros   how long a write made outside the read loop, for example a reply completed by another
+ *                         thread, may wait for more writes. {@code 0} flushes it straight away.
+ * @param adaptToLoad      when {@code true} {@code maxPendingWrites} is an upper bound and the threshold follows the
+ *                         number of messages read per read loop, so a quiet channel still flushes every write.
+ */
+public record FlushPolicy(int maxPendingWrites, long maxDelayMicros, boolean adaptToLoad) {
+
+    public static final int DEFAULT_MAX_PENDING_WRITES = 64;
+    public static final long DEFAULT_MAX_DELAY_MICROS = 100;
+
+    public FlushPolicy {
+        if (maxPendingWrites < 1) {
+            throw new IllegalArgumentException("maxPendingWrites must be at least 1: " + maxPendingWrites);
+        }
+        if (maxDelayMicros < 0) {
+            throw new IllegalArgumentException("maxDelayMicros must not be negative: " + maxDelayMicros);
+        }
+    }
+
+    public static FlushPolicy immediate() {
+        return new FlushPolicy(1, 0, false);
+    }
+
+    public static FlushPolicy batched(int maxPendingWrites, long maxDelayMicros) {
+        return new FlushPolicy(maxPendingWrites, maxDelayMicros, false);
+    }
+
+    public static FlushPolicy adaptive() {
+        return adaptive(DEFAULT_MAX_PENDING_WRITES, DEFAULT_MAX_DELAY_MICROS);
+    }
+
+    public static FlushPolicy adaptive(int maxPendingWrites, long maxDelayMicros) {
+        return new FlushPolicy(maxPendingWrites, maxDelayMicros, true);
+    }
+}
@@ -0,0 +1,87 @@
+package io.worldy.sockiopath.flush;
+
+import io.netty.channel.WriteBufferWaterMark;
+
+import java.util.function.Function;
+
+/**
+ * Bounds what an {@link OutboundQueue} holds for a channel whose client reads slower than it is written to.
+ *
+ * @param waterMark         the write buffer water marks of the channel. Above the high mark the channel stops being
+ *                          writable and messages are queued; below the low mark the queue drains.
+ * @param maxQueuedMessages the most messages queued at once
+ * @param maxQueuedBytes    the most bytes queued at once, as the channel's message size estimator counts them
+ * @param overflow          what happens to a message that does not fit
+ * @param coalesceKey       the key of a message for {@link Overflow#COALESCE_BY_KEY}, or {@code null} for messages
+ *                          that never replace one another
+ */
+public record OutboundPolicy(
+        WriteBufferWaterMark waterMark,
+        int maxQueuedMessages,
+        long maxQueuedBytes,
+        Overflow overflow,
+        Function<Object, ?> coalesceKey
+) {
+
+    public static final int DEFAULT_MAX_QUEUED_MESSAGES = 1024;
+    public static final long DEFAULT_MAX_QUEUED_BYTES = 1024 * 1024;
+
+    public enum Overflow {
+
+        /**
+         * Drops queued messages, oldest first, until the new one fits.
+         */
+        DROP_OLDEST,
+
+        /**
+         * Drops the new message.
+         */
+        DROP_NEWEST,
+
+        /**
+         * Drops every queued message and closes the channel.
+         */
+        DISCONNECT,
+
+        /**
+         * Replaces the queued message with the same key, whether the queue is full or not, so that only the latest
+         * state of something is sent. Messages without a queued match overflow as with {@link #DROP_OLDEST}.
+         */
+        COALESCE_BY_KEY
+    }
+
+    public OutboundPolicy {
+        if (waterMark == null) {
+            waterMark = WriteBufferWaterMark.DEFAULT;
+        }
+        if (maxQueuedMessages < 1) {
+            throw new IllegalArgumentException("maxQueuedMessages must be at least 1: " + maxQueuedMessages);
+        }
+        if (maxQueuedBytes < 1) {
+            throw new IllegalArgumentException("maxQueuedBytes must be at least 1: " + maxQueuedBytes);
+        }
+        if (overflow == Overflow.COALESCE_BY_KEY && coalesceKey == null) {
+            throw new IllegalArgumentException("COALESCE_BY_KEY needs a coalesceKey");
+        }
+    }
+
+    public static OutboundPolicy dropOldest(int maxQueuedMessages, long maxQueuedBytes) {
+        return new OutboundPolicy(null, maxQueuedMessages, maxQueuedBytes, Overflow.DROP_OLDEST, null);
+    }
+
+    public static OutboundPolicy dropNewest(int maxQueuedMessages, long maxQueuedBytes) {
+        return new OutboundPolicy(null, maxQueuedMessages, maxQueuedBytes, Overflow.DROP_NEWEST, null);
+    }
+
+    public static OutboundPolicy disconnect(int maxQueuedMessages, long maxQueuedBytes) {
+        return new OutboundPolicy(null, maxQueuedMessages, maxQueuedBytes, Overflow.DISCONNECT, null);
+    }
+
+    public static OutboundPolicy coalesceByKey(int maxQueuedMessages, long maxQueuedBytes, Function<Object, ?> coalesceKey) {
+        return new OutboundPolicy(null, maxQueuedMessages, maxQueuedBytes, Overflow.COALESCE_BY_KEY, coalesceKey);
+    }
+
+    public OutboundPolicy withWaterMark(int low, int high) {
+        return new OutboundPolicy(new WriteBufferWaterMark(low, high), maxQueuedMessages, maxQueuedBytes, overflow, coalesceKey);
+    }
+}
@@ -0,0 +1,230 @@
+package io.worldy.sockiopath.flush;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.MessageSizeEstimator;
+import io.netty.util.ReferenceCountUtil;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Holds back the messages written to a channel while it is not writable, bounded by an {@link OutboundPolicy}, so
+ * that a client that reads slower than it is written to costs a bounded amount of memory instead of growing the
+ * channel's outbound buffer until the heap is full.
+ * <p>
+ * Messages pass straight through while the channel is writable and nothing is queued. Once the outbound buffer goes
+ * above the high water mark, messages are queued in order; when it drains below the low water mark, they are
+ * written again. A message that does not fit in the queue overflows as the policy says, and its promise fails.
+ * <p>
+ * The handler keeps per channel state, so each channel, which is each session on a WebSocket server, has its own
+ * queue. It has to be added between the encoders and the handlers that write, so that it queues whole messages.
+ */
+public class OutboundQueue extends ChannelDuplexHandler {
+
+    private final OutboundPolicy policy;
+    private final SlowConsumerMetrics metrics;
+
+    private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+    private final Map<Object, Pending> keyed = new HashMap<>();
+    private long queuedBytes;
+    private MessageSizeEstimator.Handle sizeEstimator;
+
+    private static final class Pending {
+        private final Object key;
+        private Object message;
+        private ChannelPromise promise;
+        private int size;
+
+        private Pending(Object key, Object message, ChannelPromise promise, int size) {
+            this.key = key;
+            this.message = message;
+            this.promise = promise;
+            this.size = size;
+        }
+    }
+
+    public OutboundQueue(OutboundPolicy policy, SlowConsumerMetrics metrics) {
+        this.policy = policy;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        ctx.channel().config().setWriteBufferWaterMark(policy.waterMark());
+        sizeEstimator = ctx.channel().config().getMessageSizeEstimator().newHandle();
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        // a closed channel is never writable again, and fails the write itself
+        if ((queue.isEmpty() && ctx.channel().isWritable()) || !ctx.channel().isActive()) {
+            ctx.write(msg, promise);
+        } else {
+            enqueue(ctx, msg, promise);
+        }
+    }
+
+    private void enqueue(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        int size = sizeEstimator.size(msg);
+        Object key = policy.overflow() == OutboundPolicy.Overflow.COALESCE_BY_KEY ? policy.coalesceKey().apply(msg) : null;
+        Pending coalesced = key == null ? null : keyed.get(key);
+        if (coalesced != null) {
+            if (size > policy.maxQueuedBytes()) {
+                // it would not fit into an empty queue either, so the message it would replace stays
+                drop(msg, promise, size);
+                return;
+            }
+            // the message takes the place of the one it replaces, so it only has to fit instead of it, and the
+            // messages queued before that one make room for it as they would for a new message
+            while (!fitsInstead(coalesced, size) && queue.peek() != coalesced) {
+                dropHead();
+            }
+            discard(coalesced.message, coalesced.promise, false);
+            metrics.coalesced();
+            if (fitsInstead(coalesced, size)) {
+                queuedBytes += size - coalesced.size;
+                coalesced.message = msg;
+                coalesced.promise = promise;
+                coalesced.size = size;
+                return;
+            }
+            // the replaced message is at the head and the rest are newer, so it is queued as a new message
+            poll();
+        }
+        if (!fits(size)) {
+            switch (policy.overflow()) {
+                case DROP_NEWEST -> {
+                    drop(msg, promise, size);
+                    return;
+                }
+                case DISCONNECT -> {
+                    drop(msg, promise, size);
+                    dropQueued();
+                    metrics.disconnected();
+                    ctx.close();
+                    return;
+                }
+                default -> {
+                    if (size > policy.maxQueuedBytes()) {
+                        // it would not fit into an empty queue either
+                        drop(msg, promise, size);
+                        return;
+                    }
+                    while (!fits(size)) {
+                        dropHead();
+                    }
+                }
+            }
+        }
+        Pending pending = new Pending(key, msg, promise, size);
+        queue.add(pending);
+        if (key != null) {
+            keyed.put(key, pending);
+        }
+        queuedBytes += size;
+        metrics.queued(1);
+    }
+
+    private boolean fits(int size) {
+        return queue.size() < policy.maxQueuedMessages() && queuedBytes + size <= policy.maxQueuedBytes();
+    }
+
+    private boolean fitsInstead(Pending replaced, int size) {
+        return queuedBytes - replaced.size + size <= policy.maxQueuedBytes();
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) {
+        drain(ctx);
+        ctx.flush();
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) {
+        if (ctx.channel().isWritable()) {
+            if (!queue.isEmpty()) {
+                // the channel becomes writable while it flushes, which would not flush what is drained right now
+                ctx.executor().execute(() -> flush(ctx));
+            }
+        } else {
+            metrics.unwritable();
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) {
+        failQueued();
+        ctx.fireChannelInactive();
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        failQueued();
+    }
+
+    /**
+     * The number of messages waiting for the channel to become writable.
+     */
+    public int queuedMessages() {
+        return queue.size();
+    }
+
+    public long queuedBytes() {
+        return queuedBytes;
+    }
+
+    private void drain(ChannelHandlerContext ctx) {
+        while (!queue.isEmpty() && ctx.channel().isWritable()) {
+            Pending pending = poll();
+            ctx.write(pending.message, pending.promise);
+        }
+    }
+
+    private Pending poll() {
+        Pending pending = queue.poll();
+        if (pending.key != null) {
+            keyed.remove(pending.key);
+        }
+        queuedBytes -= pending.size;
+        metrics.queued(-1);
+        return pending;
+    }
+
+    private void dropHead() {
+        Pending pending = poll();
+        drop(pending.message, pending.promise, pending.size);
+    }
+
+    private void dropQueued() {
+        while (!queue.isEmpty()) {
+            dropHead();
+        }
+    }
+
+    private void failQueued() {
+        while (!queue.isEmpty()) {
+            Pending pending = poll();
+            discard(pending.message, pending.promise, true);
+        }
+    }
+
+    private void drop(Object msg, ChannelPromise promise, int size) {
+        metrics.dropped(size);
+        discard(msg, promise, false);
+    }
+
+    private void discard(Object msg, ChannelPromise promise, boolean closed) {
+        ReferenceCountUtil.release(msg);
+        // a void promise would report the failure through the pipeline for every dropped message
+        if (!promise.isVoid()) {
+            promise.tryFailure(closed
+                    ? new ClosedChannelException()
+                    : new IllegalStateException("slow consumer, message dropped by " + policy.overflow()));
+        }
+    }
+}
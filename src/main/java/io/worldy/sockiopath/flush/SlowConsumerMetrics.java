@@ -0,0 +1,71 @@
+package io.worldy.sockiopath.flush;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts what the {@link OutboundQueue}s sharing it did about clients that read slower than they are written to.
+ */
+public class SlowConsumerMetrics {
+
+    private final LongAdder unwritable = new LongAdder();
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder droppedBytes = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder disconnects = new LongAdder();
+
+    void unwritable() {
+        unwritable.increment();
+    }
+
+    void queued(int messages) {
+        queued.add(messages);
+    }
+
+    void dropped(int bytes) {
+        dropped.increment();
+        droppedBytes.add(bytes);
+    }
+
+    void coalesced() {
+        coalesced.increment();
+    }
+
+    void disconnected() {
+        disconnects.increment();
+    }
+
+    /**
+     * How many times a channel went above its high water mark.
+     */
+    public long unwritableCount() {
+        return unwritable.sum();
+    }
+
+    /**
+     * The messages waiting in the queues right now.
+     */
+    public long queuedMessages() {
+        return queued.sum();
+    }
+
+    /**
+     * The messages dropped to make room, including those dropped by a disconnect, but not those replaced by a
+     * message with the same key.
+     */
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    public long droppedBytes() {
+        return droppedBytes.sum();
+    }
+
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    public long disconnectCount() {
+        return disconnects.sum();
+    }
+}
@@ -0,0 +1,125 @@
+package io.worldy.sockiopath.messaging;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.worldy.sockiopath.session.SessionTokens;
+
+import java.util.Optional;
+
+/**
+ * Version 2 of the wire format. A frame is laid out as
+ * <pre>
+ * | magic/version (1) | route id (varint) | session token (8) | payload length (varint) | payload |
+ * </pre>
+ * The magic byte has its high bit set, so it never collides with the first byte of a text-delimited
+ * message, which is always an ASCII address character. Route ids are the ids of the receiver's
+ * {@link RouteTable} and the session token is the one handed out when the session negotiated the binary
+ * format.
+ * <p>
+ * Clients whose UDP address is already bound to their session may send session-less frames instead, which
+ * have their own magic byte and no session token. The server finds their session by the sender address.
+ */
+public final class BinaryFrame {
+
+    public static final int VERSION = 2;
+    public static final byte MAGIC_V2 = (byte) (0xA0 | VERSION);
+    public static final byte MAGIC_V2_SESSIONLESS = (byte) (0xB0 | VERSION);
+
+    private static final int MAX_VAR_INT_BYTES = 5;
+
+    private BinaryFrame() {
+    }
+
+    public static boolean isBinaryFrame(ByteBuf content) {
+        if (!content.isReadable()) {
+            return false;
+        }
+        byte magic = content.getByte(content.readerIndex());
+        return magic == MAGIC_V2 || magic == MAGIC_V2_SESSIONLESS;
+    }
+
+    public static ByteBuf encode(ByteBufAllocator allocator, int routeId, long sessionToken, ByteBuf payload) {
+        int length = payload.readableBytes();
+        ByteBuf frame = allocator.buffer(1 + MAX_VAR_INT_BYTES + Long.BYTES + MAX_VAR_INT_BYTES + length);
+        frame.writeByte(MAGIC_V2);
+        writeVarInt(frame, routeId);
+        frame.writeLong(sessionToken);
+        writeVarInt(frame, length);
+        frame.writeBytes(payload, payload.readerIndex(), length);
+        return frame;
+    }
+
+    /**
+     * Encodes a session-less frame, for a client whose UDP address is bound to its session.
+     */
+    public static ByteBuf encodeSessionless(ByteBufAllocator allocator, int routeId, ByteBuf payload) {
+        int length = payload.readableBytes();
+        ByteBuf frame = allocator.buffer(1 + MAX_VAR_INT_BYTES + MAX_VAR_INT_BYTES + length);
+        frame.writeByte(MAGIC_V2_SESSIONLESS);
+        writeVarInt(frame, routeId);
+        writeVarInt(frame, length);
+        frame.writeBytes(payload, payload.readerIndex(), length);
+        return frame;
+    }
+
+    /**
+     * Decodes a frame without moving the reader index of {@code content}. The payload of the returned message
+     * is a retained slice of {@code content}.
+     */
+    public static Optional<SockiopathMessage> decode(ByteBuf content, RouteTable routes) {
+        if (!isBinaryFrame(content)) {
+            return Optional.empty();
+        }
+        int readerIndex = content.readerIndex();
+        try {
+            boolean sessionless = content.readByte() == MAGIC_V2_SESSIONLESS;
+            int routeId = readVarInt(content);
+            if (routeId < 0 || (!sessionless && content.readableBytes() < Long.BYTES)) {
+                return Optional.empty();
+            }
+            long sessionToken = sessionless ? SessionTokens.NO_TOKEN : content.readLong();
+            int length = readVarInt(content);
+            if (length < 0 || length > content.readableBytes()) {
+                return Optional.empty();
+            }
+
+            Route route = routes.route(routeId);
+            String address = route != null ? route.address() : "#" + routeId;
+            ByteBuf payload = content.retainedSlice(content.readerIndex(), length);
+            return Optional.of(new SockiopathMessage(address, null, sessionToken, payload, route));
+        } finally {
+            content.readerIndex(readerIndex);
+        }
+    }
+
+    static void writeVarInt(ByteBuf out, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("varint values must not be negative: " + value);
+        }
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            out.writeByte((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        out.writeByte(remaining);
+    }
+
+    /**
+     * Reads an unsigned LEB128 varint. Returns {@code -1} if the varint is truncated or does not fit in a
+     * non-negative int.
+     */
+    static int readVarInt(ByteBuf in) {
+        long value = 0;
+        for (int shift = 0; shift < MAX_VAR_INT_BYTES * 7; shift += 7) {
+            if (!in.isReadable()) {
+                return -1;
+            }
+            byte next = in.readByte();
+            value |= (long) (next & 0x7F) << shift;
+            if ((next & 0x80) == 0) {
+                return value > Integer.MAX_VALUE ? -1 : (int) value;
+            }
+        }
+        return -1;
+    }
+}
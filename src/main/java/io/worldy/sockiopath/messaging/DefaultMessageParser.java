@@ -1,51 +1,64 @@
 package io.worldy.sockiopath.messaging;
 
-import java.io.ByteArrayOutputStream;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.worldy.sockiopath.session.SessionTokens;
+
 import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Function;
 
-public class DefaultMessageParser implements Function<ByteBuffer, Optional<SockiopathMessage>> {
+public class DefaultMessageParser implements MessageParser, Function<ByteBuffer, Optional<SockiopathMessage>> {
+
+    private static final Charset PART_CHARSET = RouteTable.ADDRESS_CHARSET;
+
+    private static final RouteTable EMPTY_ROUTES = new RouteTable(Map.of());
 
-    private final Character deliminator;
+    private final byte deliminator;
 
     public DefaultMessageParser(Character deliminator) {
-        this.deliminator = deliminator;
+        this.deliminator = (byte) deliminator.charValue();
     }
 
     @Override
-    public Optional<SockiopathMessage> apply(ByteBuffer content) {
-        var capacity = content.capacity();
-        content.position(0);
-
-        return getPart(content, capacity)
-                .flatMap(address ->
-                        getPart(content, capacity).map(sessionId ->
-                                new SockiopathMessage(address, sessionId, getData(content, capacity))
-                        )
-                );
-    }
+    public Optional<SockiopathMessage> parse(ByteBuf content, RouteTable routes) {
+        if (BinaryFrame.isBinaryFrame(content)) {
+            return BinaryFrame.decode(content, routes);
+        }
 
-    protected byte[] getData(ByteBuffer content, int capacity) {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        while (content.position() < capacity) {
-            baos.write(content.get());
+        int start = content.readerIndex();
+        int end = content.writerIndex();
+
+        int addressEnd = content.indexOf(start, end, deliminator);
+        if (addressEnd < 0) {
+            return Optional.empty();
+        }
+        int sessionIdEnd = content.indexOf(addressEnd + 1, end, deliminator);
+        if (sessionIdEnd < 0) {
+            return Optional.empty();
         }
-        return baos.toByteArray();
+
+        Route route = routes.route(content, start, addressEnd - start);
+        String address = route != null ? route.address() : content.toString(start, addressEnd - start, PART_CHARSET);
+        int sessionIdLength = sessionIdEnd - addressEnd - 1;
+        long sessionToken = SessionTokens.parseHex(content, addressEnd + 1, sessionIdLength);
+        String sessionId = sessionToken == SessionTokens.NO_TOKEN
+                ? content.toString(addressEnd + 1, sessionIdLength, PART_CHARSET)
+                : null;
+        int dataStart = sessionIdEnd + 1;
+        ByteBuf payload = content.retainedSlice(dataStart, end - dataStart);
+        return Optional.of(new SockiopathMessage(address, sessionId, sessionToken, payload, route));
     }
 
-    protected Optional<String> getPart(ByteBuffer content, int capacity) {
-        StringBuilder addressBuilder = new StringBuilder();
-        boolean delimiterFound = false;
-        while (content.position() < capacity) {
-            char character = (char) content.get();
-            if (deliminator.equals(character)) {
-                delimiterFound = true;
-                break;
-            }
-            addressBuilder.append(character);
+    @Override
+    public Optional<SockiopathMessage> apply(ByteBuffer content) {
+        ByteBuf buffer = Unpooled.wrappedBuffer(content.duplicate().clear());
+        try {
+            return parse(buffer, EMPTY_ROUTES);
+        } finally {
+            buffer.release();
         }
-        return delimiterFound ? Optional.of(addressBuilder.toString()) : Optional.empty();
     }
-
 }
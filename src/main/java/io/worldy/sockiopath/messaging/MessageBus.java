@@ -1,8 +1,34 @@
 package io.worldy.sockiopath.messaging;
 
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.UnpooledByteBufAllocator;
+
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
-public record MessageBus(Function<SockiopathMessage, CompletableFuture<byte[]>> consumer, int timeoutMillis) {
+public record MessageBus(MessageHandler handler, int timeoutMillis) {
+
+    public MessageBus(Function<SockiopathMessage, CompletableFuture<byte[]>> consumer, int timeoutMillis) {
+        this(MessageHandler.of(consumer), timeoutMillis);
+    }
 
+    /**
+     * The handler as the {@code byte[]} function a bus used to be made of. Every reply is copied out of its buffer,
+     * which is released.
+     *
+     * @deprecated use {@link #handler()}, which replies without the copy
+     */
+    @Deprecated
+    public Function<SockiopathMessage, CompletableFuture<byte[]>> consumer() {
+        return message -> handler.handle(message, UnpooledByteBufAllocator.DEFAULT).thenApply(response -> {
+            if (response == null) {
+                return null;
+            }
+            try {
+                return ByteBufUtil.getBytes(response);
+            } finally {
+                response.release();
+            }
+        });
+    }
 }
@@ -0,0 +1,31 @@
+package io.worldy.sockiopath.messaging;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Handles the messages sent to a {@link MessageBus} address and produces the reply as a {@link ByteBuf}.
+ * <p>
+ * {@code allocator} is the allocator of the channel the message arrived on, so a reply written into
+ * {@code allocator.buffer()} or {@code allocator.directBuffer()} comes from the channel's pool. Ownership of
+ * the returned buffer passes to the framework, which writes it to the sender and releases it. A handler whose
+ * future has already completed, for example because it timed out, keeps ownership of a buffer it could not
+ * complete the future with and has to release it itself.
+ */
+@FunctionalInterface
+public interface MessageHandler {
+
+    CompletableFuture<ByteBuf> handle(SockiopathMessage message, ByteBufAllocator allocator);
+
+    /**
+     * Adapts a handler that replies with a {@code byte[]}. The array is wrapped, not copied.
+     */
+    static MessageHandler of(Function<SockiopathMessage, CompletableFuture<byte[]>> consumer) {
+        return (message, allocator) -> consumer.apply(message)
+                .thenApply(response -> response == null ? null : Unpooled.wrappedBuffer(response));
+    }
+}
@@ -0,0 +1,29 @@
+package io.worldy.sockiopath.messaging;
+
+import io.netty.buffer.ByteBuf;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Parses an inbound datagram or binary frame directly from its {@link ByteBuf}.
+ * <p>
+ * Implementations must not move the reader index of {@code content} and must not release it. The
+ * {@link SockiopathMessage#content()} of a parsed message is a retained slice of {@code content} owned by
+ * the caller, which releases it once the message has been handled. {@code routes} is the table of the
+ * handler doing the parsing; parsers may use it to resolve the {@link SockiopathMessage#route()} up front.
+ */
+@FunctionalInterface
+public interface MessageParser {
+
+    Optional<SockiopathMessage> parse(ByteBuf content, RouteTable routes);
+
+    /**
+     * Adapts a {@link ByteBuffer} based parser. The buffer handed to {@code parser} is a view of the readable
+     * bytes of the inbound content, not a copy.
+     */
+    static MessageParser of(Function<ByteBuffer, Optional<SockiopathMessage>> parser) {
+        return (content, routes) -> parser.apply(content.nioBuffer());
+    }
+}
@@ -0,0 +1,4 @@
+package io.worldy.sockiopath.messaging;
+
+public record Route(int id, String address, MessageBus messageBus) {
+}
@@ -0,0 +1,157 @@
+package io.worldy.sockiopath.messaging;
+
+import io.netty.buffer.ByteBuf;
+
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Immutable table of the {@link MessageBus} entries a handler dispatches to.
+ * <p>
+ * Route ids are assigned in lexicographic order of the addresses so every handler built from the same
+ * message handlers agrees on them. The ids are what binary frames carry instead of the textual address.
+ * <p>
+ * Text-delimited messages are resolved straight from the address bytes in the inbound buffer through an
+ * open-addressing table of the {@link #ADDRESS_CHARSET encoded} addresses, built once when the table is
+ * created, so dispatching a known address never creates a {@link String}.
+ */
+public final class RouteTable {
+
+    public static final Charset ADDRESS_CHARSET = StandardCharsets.ISO_8859_1;
+
+    private static final int FNV_OFFSET_BASIS = 0x811C9DC5;
+    private static final int FNV_PRIME = 0x01000193;
+
+    private final Route[] routesById;
+    private final Map<String, Route> routesByAddress;
+    private final List<String> addresses;
+
+    private final byte[][] addressBytesBySlot;
+    private final Route[] routesBySlot;
+    private final int slotMask;
+
+    public RouteTable(Map<String, MessageBus> messageHandlers) {
+        Map<String, MessageBus> handlers = Optional.ofNullable(messageHandlers).orElseGet(Map::of);
+        List<String> sortedAddresses = new ArrayList<>(handlers.keySet());
+        Collections.sort(sortedAddresses);
+
+        this.routesById = new Route[sortedAddresses.size()];
+        this.routesByAddress = new HashMap<>();
+        for (int id = 0; id < routesById.length; id++) {
+            String address = sortedAddresses.get(id);
+            Route route = new Route(id, address, handlers.get(address));
+            routesById[id] = route;
+            routesByAddress.put(address, route);
+        }
+        this.addresses = Collections.unmodifiableList(sortedAddresses);
+
+        int slots = slotCount(routesById.length);
+        this.addressBytesBySlot = new byte[slots][];
+        this.routesBySlot = new Route[slots];
+        this.slotMask = slots - 1;
+        CharsetEncoder encoder = ADDRESS_CHARSET.newEncoder();
+        for (Route route : routesById) {
+            // addresses that cannot be encoded can never be the decoding of an inbound address
+            if (encoder.canEncode(route.address())) {
+                addSlot(route);
+            }
+        }
+    }
+
+    public Route route(int id) {
+        if (id < 0 || id >= routesById.length) {
+            return null;
+        }
+        return routesById[id];
+    }
+
+    public Route route(String address) {
+        return routesByAddress.get(address);
+    }
+
+    /**
+     * Resolves the address made of {@code length} bytes of {@code content} starting at {@code index}, without
+     * moving the buffer's indexes. Returns {@code null} if no route has that address.
+     */
+    public Route route(ByteBuf content, int index, int length) {
+        int slot = hash(content, index, length) & slotMask;
+        while (addressBytesBySlot[slot] != null) {
+            if (matches(addressBytesBySlot[slot], content, index, length)) {
+                return routesBySlot[slot];
+            }
+            slot = (slot + 1) & slotMask;
+        }
+        return null;
+    }
+
+    public int size() {
+        return routesById.length;
+    }
+
+    /**
+     * The addresses ordered by route id.
+     */
+    public List<String> addresses() {
+        return addresses;
+    }
+
+    private void addSlot(Route route) {
+        byte[] addressBytes = route.address().getBytes(ADDRESS_CHARSET);
+        int slot = hash(addressBytes) & slotMask;
+        while (addressBytesBySlot[slot] != null) {
+            slot = (slot + 1) & slotMask;
+        }
+        addressBytesBySlot[slot] = addressBytes;
+        routesBySlot[slot] = route;
+    }
+
+    private static boolean matches(byte[] candidate, ByteBuf content, int index, int length) {
+        if (candidate.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (candidate[i] != content.getByte(index + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(ByteBuf content, int index, int length) {
+        int hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ (content.getByte(index + i) & 0xFF)) * FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    private static int hash(byte[] bytes) {
+        int hash = FNV_OFFSET_BASIS;
+        for (byte value : bytes) {
+            hash = (hash ^ (value & 0xFF)) * FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * A power of two with at least one free slot and a load factor of at most one half.
+     */
+    private static int slotCount(int routeCount) {
+        int slots = 2;
+        while (slots < routeCount * 2) {
+            slots <<= 1;
+        }
+        return slots;
+    }
+}
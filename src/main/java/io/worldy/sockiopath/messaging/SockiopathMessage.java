@@ -1,8 +1,56 @@
 package io.worldy.sockiopath.messaging;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.worldy.sockiopath.session.SessionTokens;
+
+/**
+ * A parsed message. {@link #content()} is usually a slice of the inbound buffer rather than a copy, so it
+ * is only valid until the message has been handled. Handlers that keep it longer must
+ * {@link ByteBuf#retain() retain} it.
+ * <p>
+ * Messages that carry a {@link SessionTokens session token}, in binary or hex form, have a
+ * {@link #sessionToken()} and no {@link #sessionId()}; only messages addressed to sessions that are keyed by
+ * some other string have a {@link #sessionId()}. {@link #route()} is set when the parser already resolved
+ * the address. The servers hand messages to their handlers with the token of the session they found for them,
+ * so that handlers of a message without one, such as a session-less datagram, need not look the session up.
+ */
 public record SockiopathMessage(
         String address,
         String sessionId,
-        byte[] data
+        long sessionToken,
+        ByteBuf content,
+        Route route
 ) {
+
+    public SockiopathMessage(String address, String sessionId, ByteBuf content) {
+        this(address, sessionId, SessionTokens.NO_TOKEN, content, null);
+    }
+
+    public SockiopathMessage(String address, String sessionId, byte[] data) {
+        this(address, sessionId, Unpooled.wrappedBuffer(data));
+    }
+
+    /**
+     * Copies the payload into a new array. Prefer reading {@link #content()} on hot paths.
+     */
+    public byte[] data() {
+        return ByteBufUtil.getBytes(content);
+    }
+
+    /**
+     * This message attributed to the session of {@code token}, keeping its {@link #sessionId()} and content.
+     */
+    public SockiopathMessage withSessionToken(long token) {
+        return new SockiopathMessage(address, sessionId, token, content, route);
+    }
+
+    public boolean hasSessionToken() {
+        return sessionToken != SessionTokens.NO_TOKEN;
+    }
+
+    public boolean release() {
+        return content.release();
+    }
 }
@@ -0,0 +1,39 @@
+package io.worldy.sockiopath.pubsub;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The multicast groups that topics are published to, for deployments where many clients share a subnet, such as
+ * on-premises LAN installations. A topic without a group is only published to its subscribers one by one.
+ * <p>
+ * Multicast datagrams leave with a TTL of 1, so they stay on the subnet of the interface the server sends them out
+ * of, see {@link io.worldy.sockiopath.udp.UdpServer#setMulticastInterface}, and are looped back to the host.
+ */
+public class MulticastGroups {
+
+    private final Map<String, InetSocketAddress> groups = new ConcurrentHashMap<>();
+
+    /**
+     * Publishes {@code topic} to {@code group}, a multicast address and the port its clients listen on.
+     */
+    public MulticastGroups assign(String topic, InetSocketAddress group) {
+        if (group.isUnresolved() || !group.getAddress().isMulticastAddress()) {
+            throw new IllegalArgumentException("not a multicast group: " + group);
+        }
+        groups.put(topic, group);
+        return this;
+    }
+
+    public void unassign(String topic) {
+        groups.remove(topic);
+    }
+
+    /**
+     * The group of {@code topic}, or {@code null} if it has none.
+     */
+    public InetSocketAddress group(String topic) {
+        return groups.get(topic);
+    }
+}
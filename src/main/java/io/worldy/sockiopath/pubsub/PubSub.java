@@ -0,0 +1,200 @@
+package io.worldy.sockiopath.pubsub;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandlerContext;
+import io.worldy.sockiopath.flush.FanOut;
+import io.worldy.sockiopath.messaging.MessageBus;
+import io.worldy.sockiopath.messaging.SockiopathMessage;
+import io.worldy.sockiopath.session.SessionStore;
+import io.worldy.sockiopath.session.SockiopathSession;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Topics, or rooms, that sessions subscribe to and that messages are published to, over both transports.
+ * <p>
+ * A publish looks the subscribers of its topic up in a {@link TopicIndex}, finds their sessions by token and sends
+ * the payload to all of them through one {@link FanOut}: as a binary WebSocket frame or as a datagram to the UDP
+ * binding of the session, depending on how it subscribed. Subscribers whose session left the store are unsubscribed
+ * on the way. Subscribers whose session has no channel of the transport right now, such as a session waiting to be
+ * resumed, are skipped but keep their subscriptions.
+ * <p>
+ * With {@link #setMulticast multicast}, subscribers that joined the multicast group of a topic get one datagram sent
+ * to the group, instead of one each. Their sessions are not looked up by a publish, so they are only unsubscribed
+ * when they {@link #leave} or unsubscribe.
+ * <p>
+ * Clients subscribe, unsubscribe and publish through the handlers of {@link #messageHandlers(int)}, which act for
+ * the session whose token the server gave the message.
+ */
+public class PubSub {
+
+    /**
+     * Subscribes the session of the message to the topic in its content, to receive it on its WebSocket channel.
+     */
+    public static final String SUBSCRIBE_ADDRESS = "pubsub/subscribe";
+
+    /**
+     * Subscribes the session of the message to the topic in its content, to receive it as datagrams.
+     */
+    public static final String SUBSCRIBE_UDP_ADDRESS = "pubsub/subscribe-udp";
+
+    /**
+     * Subscribes the session of the message to the topic in its content through the multicast group of the topic,
+     * and replies with the group as {@code <address>|<port>} for the client to join. Without a group the session
+     * subscribes as with {@link #SUBSCRIBE_UDP_ADDRESS} and the reply is empty.
+     */
+    public static final String SUBSCRIBE_MULTICAST_ADDRESS = "pubsub/subscribe-multicast";
+
+    public static final String UNSUBSCRIBE_ADDRESS = "pubsub/unsubscribe";
+
+    /**
+     * Publishes the content of the message after the first {@value TOPIC_DELIMINATOR} to the topic in front of it.
+     */
+    public static final String PUBLISH_ADDRESS = "pubsub/publish";
+
+    public static final char TOPIC_DELIMINATOR = '|';
+
+    private final SessionStore<SockiopathSession> sessionStore;
+    private final TopicIndex topicIndex;
+
+    private MulticastGroups multicastGroups = new MulticastGroups();
+    private ChannelHandlerContext multicastContext;
+
+    public PubSub(SessionStore<SockiopathSession> sessionStore) {
+        this(sessionStore, new TopicIndex());
+    }
+
+    public PubSub(SessionStore<SockiopathSession> sessionStore, TopicIndex topicIndex) {
+        this.sessionStore = sessionStore;
+        this.topicIndex = topicIndex;
+    }
+
+    public TopicIndex topicIndex() {
+        return topicIndex;
+    }
+
+    /**
+     * Publishes the topics that have a group in {@code multicastGroups} to it, through the UDP channel of
+     * {@code udpContext}, for example the {@link io.worldy.sockiopath.SockiopathHandler#getChannelHandlerContext()
+     * context} of a UDP server handler.
+     */
+    public void setMulticast(MulticastGroups multicastGroups, ChannelHandlerContext udpContext) {
+        this.multicastGroups = multicastGroups;
+        this.multicastContext = udpContext;
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code transport} is {@link Transport#MULTICAST} and the topic has no group
+     */
+    public boolean subscribe(SockiopathSession session, String topic, Transport transport) {
+        if (transport == Transport.MULTICAST && multicastGroups.group(topic) == null) {
+            throw new IllegalArgumentException("topic has no multicast group: " + topic);
+        }
+        return topicIndex.subscribe(topic, session.getToken(), transport);
+    }
+
+    public boolean unsubscribe(SockiopathSession session, String topic) {
+        return topicIndex.unsubscribe(topic, session.getToken());
+    }
+
+    /**
+     * Unsubscribes a session that left from all its topics. Sessions that leave without it are unsubscribed by the
+     * next publish to each of their topics.
+     */
+    public int leave(SockiopathSession session) {
+        return topicIndex.unsubscribeAll(session.getToken());
+    }
+
+    /**
+     * Sends {@code payload} to the subscribers of {@code topic}. The payload is shared by all of them and retained
+     * until it is written, so the caller releases its own reference as usual.
+     *
+     * @return the number of frames and datagrams sent, a multicast datagram counting once
+     */
+    public int publish(String topic, ByteBuf payload) {
+        TopicIndex.Subscribers subscribers = topicIndex.subscribers(topic);
+        if (subscribers == null) {
+            return 0;
+        }
+        FanOut fanOut = new FanOut();
+        for (long token : subscribers.members(Transport.WEB_SOCKET)) {
+            SockiopathSession session = subscriber(topic, token);
+            ChannelHandlerContext webSocketContext = session == null ? null : session.getWebSocketContext();
+            if (webSocketContext != null) {
+                fanOut.addBinary(webSocketContext, payload);
+            }
+        }
+        for (long token : subscribers.members(Transport.UDP)) {
+            SockiopathSession session = subscriber(topic, token);
+            if (session == null) {
+                continue;
+            }
+            InetSocketAddress udpSocketAddress = session.getUdpSocketAddress();
+            ChannelHandlerContext udpContext = session.getUdpContext();
+            if (udpSocketAddress != null && udpContext != null) {
+                fanOut.addDatagram(udpContext, payload, udpSocketAddress);
+            }
+        }
+        InetSocketAddress group = multicastGroups.group(topic);
+        if (group != null && multicastContext != null && subscribers.members(Transport.MULTICAST).length > 0) {
+            fanOut.addDatagram(multicastContext, payload, group);
+        }
+        return fanOut.send();
+    }
+
+    private SockiopathSession subscriber(String topic, long token) {
+        SockiopathSession session = sessionStore.getByToken(token);
+        if (session == null) {
+            topicIndex.removeStale(topic, token);
+        }
+        return session;
+    }
+
+    /**
+     * The handlers of {@link #SUBSCRIBE_ADDRESS}, {@link #SUBSCRIBE_UDP_ADDRESS},
+     * {@link #SUBSCRIBE_MULTICAST_ADDRESS}, {@link #UNSUBSCRIBE_ADDRESS} and {@link #PUBLISH_ADDRESS}, to add to
+     * those of a server. Only the multicast subscription replies.
+     */
+    public Map<String, MessageBus> messageHandlers(int timeoutMillis) {
+        return Map.of(
+                SUBSCRIBE_ADDRESS, new MessageBus(
+                        (message, allocator) -> TopicMessages.subscribe(topicIndex, message, Transport.WEB_SOCKET), timeoutMillis
+                ),
+                SUBSCRIBE_UDP_ADDRESS, new MessageBus(
+                        (message, allocator) -> TopicMessages.subscribe(topicIndex, message, Transport.UDP), timeoutMillis
+                ),
+                SUBSCRIBE_MULTICAST_ADDRESS, new MessageBus(this::subscribeMulticast, timeoutMillis),
+                UNSUBSCRIBE_ADDRESS, new MessageBus((message, allocator) -> TopicMessages.unsubscribe(topicIndex, message), timeoutMillis),
+                PUBLISH_ADDRESS, new MessageBus((message, allocator) -> publish(message), timeoutMillis)
+        );
+    }
+
+    private CompletableFuture<ByteBuf> subscribeMulticast(SockiopathMessage message, ByteBufAllocator allocator) {
+        String topic = message.content().toString(StandardCharsets.UTF_8);
+        InetSocketAddress group = multicastGroups.group(topic);
+        if (group == null) {
+            return TopicMessages.subscribe(topicIndex, message, Transport.UDP);
+        }
+        if (!message.hasSessionToken()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        topicIndex.subscribe(topic, message.sessionToken(), Transport.MULTICAST);
+        String reply = group.getAddress().getHostAddress() + TOPIC_DELIMINATOR + group.getPort();
+        return CompletableFuture.completedFuture(ByteBufUtil.writeUtf8(allocator, reply));
+    }
+
+    private CompletableFuture<ByteBuf> publish(SockiopathMessage message) {
+        ByteBuf content = message.content();
+        int deliminator = content.indexOf(content.readerIndex(), content.writerIndex(), (byte) TOPIC_DELIMINATOR);
+        if (deliminator >= 0) {
+            String topic = content.toString(content.readerIndex(), deliminator - content.readerIndex(), StandardCharsets.UTF_8);
+            publish(topic, content.slice(deliminator + 1, content.writerIndex() - deliminator - 1));
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+}
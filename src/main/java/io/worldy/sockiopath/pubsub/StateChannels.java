@@ -0,0 +1,315 @@
+package io.worldy.sockiopath.pubsub;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.util.ReferenceCountUtil;
+import io.worldy.sockiopath.messaging.MessageBus;
+import io.worldy.sockiopath.messaging.SockiopathMessage;
+import io.worldy.sockiopath.session.SessionAttribute;
+import io.worldy.sockiopath.session.SessionStore;
+import io.worldy.sockiopath.session.SockiopathSession;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * State channels, for updates of which only the latest value per key matters, such as positions or cursors.
+ * <p>
+ * An update is encoded once, as {@code <channel>|<key>|<value>}, and held for every WebSocket subscriber of its
+ * channel until that session's event loop sends it. A newer update of the same key replaces one that has not been
+ * sent yet, so a storm of updates costs each session one frame per key and per send, not one per update. A session
+ * sends what it holds on the next turn of its event loop, or at most once per {@code interval} with a positive one.
+ * While its channel is not writable the updates wait for it, still being replaced, so a slow client only ever gets
+ * behind by one value per key.
+ * <p>
+ * Updates to a session without a channel, such as a session waiting to be resumed, are held until the next update
+ * after it is back, or released when the session leaves the store, as it does when its resume grace runs out.
+ * Sessions that left the store are unsubscribed by the next update of each of their channels, as with
+ * {@link PubSub}; sessions that {@link #leave} release what they hold right away.
+ * <p>
+ * Clients subscribe, unsubscribe and update through the handlers of {@link #messageHandlers(int)}.
+ */
+public class StateChannels {
+
+    public static final String SUBSCRIBE_ADDRESS = "state/subscribe";
+
+    public static final String UNSUBSCRIBE_ADDRESS = "state/unsubscribe";
+
+    /**
+     * Updates the key of a channel, with the content of the message as {@code <channel>|<key>|<value>}.
+     */
+    public static final String UPDATE_ADDRESS = "state/update";
+
+    public static final char DELIMINATOR = '|';
+
+    // how long an update waits for an unwritable channel before it checks again, without an interval
+    static final long UNWRITABLE_RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    static final SessionAttribute<PendingUpdates> PENDING_UPDATES = SessionAttribute.valueOf(
+            StateChannels.class.getName() + ".pendingUpdates", PendingUpdates.class
+    );
+
+    private final SessionStore<SockiopathSession> sessionStore;
+    private final TopicIndex topicIndex;
+    private final long intervalNanos;
+
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+
+    /**
+     * The latest values a session has not been sent yet, by {@code <channel>|<key>}, in the order their keys were
+     * first updated. Released with the attributes of its session when that leaves the store, after which it takes
+     * no more updates.
+     */
+    static final class PendingUpdates implements SessionAttribute.Releasable {
+        private Map<String, ByteBuf> latest = new LinkedHashMap<>();
+        private boolean scheduled;
+        private boolean released;
+
+        /**
+         * @return the update this one replaced, or the update itself once released
+         */
+        synchronized ByteBuf put(String key, ByteBuf update) {
+            return released ? update : latest.put(key, update);
+        }
+
+        synchronized boolean schedule() {
+            if (scheduled || latest.isEmpty()) {
+                return false;
+            }
+            scheduled = true;
+            return true;
+        }
+
+        synchronized void unschedule() {
+            scheduled = false;
+        }
+
+        synchronized Collection<ByteBuf> take() {
+            Collection<ByteBuf> updates = latest.values();
+            latest = new LinkedHashMap<>();
+            scheduled = false;
+            return updates;
+        }
+
+        synchronized int size() {
+            return latest.size();
+        }
+
+        @Override
+        public void release() {
+            Collection<ByteBuf> updates;
+            synchronized (this) {
+                released = true;
+                updates = take();
+            }
+            updates.forEach(ReferenceCountUtil::release);
+        }
+    }
+
+    public StateChannels(SessionStore<SockiopathSession> sessionStore) {
+        this(sessionStore, Duration.ZERO);
+    }
+
+    /**
+     * @param interval how long a session holds updates before it sends them, at the least. Zero sends them on the next
+     *                 turn of its event loop.
+     * @throws IllegalArgumentException if {@code interval} is negative
+     */
+    public StateChannels(SessionStore<SockiopathSession> sessionStore, Duration interval) {
+        this(sessionStore, new TopicIndex(), interval);
+    }
+
+    public StateChannels(SessionStore<SockiopathSession> sessionStore, TopicIndex topicIndex, Duration interval) {
+        if (interval.isNegative()) {
+            throw new IllegalArgumentException("interval must not be negative: " + interval);
+        }
+        this.sessionStore = sessionStore;
+        this.topicIndex = topicIndex;
+        this.intervalNanos = interval.toNanos();
+    }
+
+    public TopicIndex topicIndex() {
+        return topicIndex;
+    }
+
+    public boolean subscribe(SockiopathSession session, String channel) {
+        return topicIndex.subscribe(channel, session.getToken(), Transport.WEB_SOCKET);
+    }
+
+    public boolean unsubscribe(SockiopathSession session, String channel) {
+        return topicIndex.unsubscribe(channel, session.getToken());
+    }
+
+    /**
+     * Unsubscribes a session that left from all its channels and releases the updates it has not been sent.
+     */
+    public int leave(SockiopathSession session) {
+        PendingUpdates pending = session.getAttributeVolatile(PENDING_UPDATES);
+        if (pending != null) {
+            pending.take().forEach(ReferenceCountUtil::release);
+        }
+        return topicIndex.unsubscribeAll(session.getToken());
+    }
+
+    /**
+     * Sets {@code key} of {@code channel} to {@code value} for its subscribers, replacing an update of the key they
+     * have not been sent yet. The value is copied once, so the caller keeps its buffer.
+     *
+     * @return the number of sessions the update is held for
+     */
+    public int update(String channel, String key, ByteBuf value) {
+        TopicIndex.Subscribers subscribers = topicIndex.subscribers(channel);
+        if (subscribers == null) {
+            return 0;
+        }
+        long[] members = subscribers.members(Transport.WEB_SOCKET);
+        if (members.length == 0) {
+            return 0;
+        }
+        String pendingKey = channel + DELIMINATOR + key;
+        ByteBuf update = ByteBufAllocator.DEFAULT.buffer(ByteBufUtil.utf8Bytes(pendingKey) + 1 + value.readableBytes());
+        ByteBufUtil.writeUtf8(update, pendingKey);
+        update.writeByte(DELIMINATOR).writeBytes(value, value.readerIndex(), value.readableBytes());
+        int held = 0;
+        try {
+            for (long token : members) {
+                SockiopathSession session = sessionStore.getByToken(token);
+                if (session == null) {
+                    topicIndex.removeStale(channel, token);
+                } else {
+                    hold(session, pendingKey, update);
+                    held++;
+                }
+            }
+        } finally {
+            update.release();
+        }
+        return held;
+    }
+
+    private void hold(SockiopathSession session, String pendingKey, ByteBuf update) {
+        PendingUpdates pending = pendingUpdates(session);
+        ByteBuf held = update.retainedDuplicate();
+        ByteBuf replaced = pending.put(pendingKey, held);
+        if (replaced == held) {
+            // the session left the store since it was looked up
+            held.release();
+            return;
+        }
+        if (replaced != null) {
+            replaced.release();
+            coalesced.increment();
+        }
+        ChannelHandlerContext ctx = session.getWebSocketContext();
+        if (ctx != null && pending.schedule()) {
+            schedule(ctx, session.getToken(), pending, intervalNanos);
+        }
+    }
+
+    private static PendingUpdates pendingUpdates(SockiopathSession session) {
+        PendingUpdates pending = session.getAttributeVolatile(PENDING_UPDATES);
+        if (pending == null) {
+            session.compareAndSetAttribute(PENDING_UPDATES, null, new PendingUpdates());
+            pending = session.getAttributeVolatile(PENDING_UPDATES);
+        }
+        return pending;
+    }
+
+    private void schedule(ChannelHandlerContext ctx, long token, PendingUpdates pending, long delayNanos) {
+        try {
+            if (delayNanos == 0) {
+                ctx.executor().execute(() -> send(token, pending));
+            } else {
+                ctx.executor().schedule(() -> send(token, pending), delayNanos, TimeUnit.NANOSECONDS);
+            }
+        } catch (RejectedExecutionException e) {
+            // the loop is shutting down with the channel
+            pending.take().forEach(ReferenceCountUtil::release);
+        }
+    }
+
+    private void send(long token, PendingUpdates pending) {
+        // looked up again, the session may have been resumed on another channel since
+        SockiopathSession session = sessionStore.getByToken(token);
+        if (session == null) {
+            pending.take().forEach(ReferenceCountUtil::release);
+            return;
+        }
+        ChannelHandlerContext ctx = session.getWebSocketContext();
+        if (ctx == null) {
+            // detached, the next update after a resume sends what is held
+            pending.unschedule();
+            return;
+        }
+        if (!ctx.executor().inEventLoop()) {
+            // resumed on a channel of another loop, which the frames are written from
+            schedule(ctx, token, pending, 0);
+            return;
+        }
+        if (!ctx.channel().isActive()) {
+            pending.take().forEach(ReferenceCountUtil::release);
+            return;
+        }
+        if (!ctx.channel().isWritable()) {
+            schedule(ctx, token, pending, Math.max(intervalNanos, UNWRITABLE_RETRY_NANOS));
+            return;
+        }
+        Collection<ByteBuf> updates = pending.take();
+        for (ByteBuf update : updates) {
+            ctx.write(new BinaryWebSocketFrame(update), ctx.voidPromise());
+        }
+        ctx.flush();
+        sent.add(updates.size());
+    }
+
+    /**
+     * The number of updates that replaced one a session had not been sent yet.
+     */
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * The number of updates sent, one for every session they were sent to.
+     */
+    public long sentCount() {
+        return sent.sum();
+    }
+
+    /**
+     * The handlers of {@link #SUBSCRIBE_ADDRESS}, {@link #UNSUBSCRIBE_ADDRESS} and {@link #UPDATE_ADDRESS}, to add
+     * to those of a server. None of them replies.
+     */
+    public Map<String, MessageBus> messageHandlers(int timeoutMillis) {
+        return Map.of(
+                SUBSCRIBE_ADDRESS, new MessageBus(
+                        (message, allocator) -> TopicMessages.subscribe(topicIndex, message, Transport.WEB_SOCKET), timeoutMillis
+                ),
+                UNSUBSCRIBE_ADDRESS, new MessageBus((message, allocator) -> TopicMessages.unsubscribe(topicIndex, message), timeoutMillis),
+                UPDATE_ADDRESS, new MessageBus((message, allocator) -> update(message), timeoutMillis)
+        );
+    }
+
+    private CompletableFuture<ByteBuf> update(SockiopathMessage message) {
+        ByteBuf content = message.content();
+        int channelEnd = content.indexOf(content.readerIndex(), content.writerIndex(), (byte) DELIMINATOR);
+        int keyEnd = channelEnd < 0 ? -1 : content.indexOf(channelEnd + 1, content.writerIndex(), (byte) DELIMINATOR);
+        if (keyEnd >= 0) {
+            String channel = content.toString(content.readerIndex(), channelEnd - content.readerIndex(), StandardCharsets.UTF_8);
+            String key = content.toString(channelEnd + 1, keyEnd - channelEnd - 1, StandardCharsets.UTF_8);
+            update(channel, key, content.slice(keyEnd + 1, content.writerIndex() - keyEnd - 1));
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+}
@@ -0,0 +1,202 @@
+package io.worldy.sockiopath.pubsub;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds the subscribers of a topic, so that publishing to it only touches them.
+ * <p>
+ * The subscribers of a topic are the tokens of their sessions, in a sorted {@code long[]} per {@link Transport} that
+ * is replaced on every change: a publish reads the arrays without locking or allocating, and a subscriber costs 8
+ * bytes. Subscribing and unsubscribing copy the array of the topic, which suits topics that are published to more
+ * often than their members change. Being keyed by token, subscriptions survive a session resuming on another channel.
+ * <p>
+ * The topics of every session are kept too, so that a session that leaves can be unsubscribed from all of them.
+ */
+public class TopicIndex {
+
+    private static final long[] NO_MEMBERS = new long[0];
+    private static final Transport[] TRANSPORTS = Transport.values();
+    private static final Subscribers NO_SUBSCRIBERS = new Subscribers(new long[TRANSPORTS.length][]);
+
+    static {
+        Arrays.fill(NO_SUBSCRIBERS.members, NO_MEMBERS);
+    }
+
+    private final Map<String, Subscribers> topics = new ConcurrentHashMap<>();
+    private final Map<Long, Set<String>> sessionTopics = new ConcurrentHashMap<>();
+
+    /**
+     * The subscribers of a topic, by {@link Transport#ordinal()}.
+     */
+    static final class Subscribers {
+
+        private final long[][] members;
+
+        private Subscribers(long[][] members) {
+            this.members = members;
+        }
+
+        /**
+         * The subscribers that receive the topic over {@code transport}. The array must not be modified.
+         */
+        long[] members(Transport transport) {
+            return members[transport.ordinal()];
+        }
+
+        int size() {
+            int size = 0;
+            for (long[] transportMembers : members) {
+                size += transportMembers.length;
+            }
+            return size;
+        }
+
+        Subscribers with(long token, Transport transport) {
+            long[][] next = new long[TRANSPORTS.length][];
+            for (int i = 0; i < next.length; i++) {
+                next[i] = i == transport.ordinal() ? insert(members[i], token) : remove(members[i], token);
+            }
+            return new Subscribers(next);
+        }
+
+        Subscribers without(long token) {
+            long[][] next = new long[TRANSPORTS.length][];
+            for (int i = 0; i < next.length; i++) {
+                next[i] = remove(members[i], token);
+            }
+            return new Subscribers(next);
+        }
+
+        boolean contains(long token, Transport transport) {
+            return Arrays.binarySearch(members(transport), token) >= 0;
+        }
+    }
+
+    /**
+     * Subscribes a session to {@code topic}, or moves its subscription to {@code transport}.
+     *
+     * @return whether the subscription is new or moved
+     */
+    public boolean subscribe(String topic, long token, Transport transport) {
+        boolean[] changed = new boolean[1];
+        topics.compute(topic, (key, subscribers) -> {
+            Subscribers current = subscribers == null ? NO_SUBSCRIBERS : subscribers;
+            if (current.contains(token, transport)) {
+                return current;
+            }
+            changed[0] = true;
+            return current.with(token, transport);
+        });
+        if (changed[0]) {
+            sessionTopics.computeIfAbsent(token, key -> ConcurrentHashMap.newKeySet()).add(topic);
+        }
+        return changed[0];
+    }
+
+    /**
+     * @return whether the session was subscribed to {@code topic}
+     */
+    public boolean unsubscribe(String topic, long token) {
+        boolean removed = removeMember(topic, token);
+        if (removed) {
+            sessionTopics.computeIfPresent(token, (key, subscribed) -> {
+                subscribed.remove(topic);
+                return subscribed.isEmpty() ? null : subscribed;
+            });
+        }
+        return removed;
+    }
+
+    /**
+     * Unsubscribes a session from every topic, for example when it leaves.
+     *
+     * @return the number of topics it was subscribed to
+     */
+    public int unsubscribeAll(long token) {
+        Set<String> subscribed = sessionTopics.remove(token);
+        if (subscribed == null) {
+            return 0;
+        }
+        int count = 0;
+        for (String topic : subscribed) {
+            if (removeMember(topic, token)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Unsubscribes a session that is gone, found among the subscribers of {@code topic} by a publish. It is removed
+     * from that topic as well, because a subscribe racing with {@link #unsubscribeAll(long)} can leave it a member
+     * of the topic without the topic being among its own.
+     */
+    void removeStale(String topic, long token) {
+        unsubscribeAll(token);
+        removeMember(topic, token);
+    }
+
+    private boolean removeMember(String topic, long token) {
+        boolean[] removed = new boolean[1];
+        topics.computeIfPresent(topic, (key, subscribers) -> {
+            Subscribers remaining = subscribers.without(token);
+            removed[0] = remaining.size() < subscribers.size();
+            return remaining.size() == 0 ? null : remaining;
+        });
+        return removed[0];
+    }
+
+    /**
+     * The subscribers of {@code topic}, or {@code null} if it has none.
+     */
+    Subscribers subscribers(String topic) {
+        return topics.get(topic);
+    }
+
+    public int subscriberCount(String topic) {
+        Subscribers subscribers = topics.get(topic);
+        return subscribers == null ? 0 : subscribers.size();
+    }
+
+    /**
+     * The number of topics with at least one subscriber.
+     */
+    public int topicCount() {
+        return topics.size();
+    }
+
+    public Set<String> topics(long token) {
+        Set<String> subscribed = sessionTopics.get(token);
+        return subscribed == null ? Set.of() : Set.copyOf(subscribed);
+    }
+
+    private static long[] insert(long[] members, long token) {
+        int index = Arrays.binarySearch(members, token);
+        if (index >= 0) {
+            return members;
+        }
+        int insertion = -index - 1;
+        long[] inserted = new long[members.length + 1];
+        System.arraycopy(members, 0, inserted, 0, insertion);
+        inserted[insertion] = token;
+        System.arraycopy(members, insertion, inserted, insertion + 1, members.length - insertion);
+        return inserted;
+    }
+
+    private static long[] remove(long[] members, long token) {
+        int index = Arrays.binarySearch(members, token);
+        if (index < 0) {
+            return members;
+        }
+        if (members.length == 1) {
+            return NO_MEMBERS;
+        }
+        long[] removed = new long[members.length - 1];
+        System.arraycopy(members, 0, removed, 0, index);
+        System.arraycopy(members, index + 1, removed, index, members.length - index - 1);
+        return removed;
+    }
+}
@@ -0,0 +1,33 @@
+package io.worldy.sockiopath.pubsub;
+
+import io.netty.buffer.ByteBuf;
+import io.worldy.sockiopath.messaging.SockiopathMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The subscription handlers {@link PubSub} and {@link StateChannels} share. They act for the session whose token the
+ * server gave the message, on the topic in its content, and do not reply.
+ */
+final class TopicMessages {
+
+    private static final CompletableFuture<ByteBuf> NO_REPLY = CompletableFuture.completedFuture(null);
+
+    private TopicMessages() {
+    }
+
+    static CompletableFuture<ByteBuf> subscribe(TopicIndex topicIndex, SockiopathMessage message, Transport transport) {
+        if (message.hasSessionToken()) {
+            topicIndex.subscribe(message.content().toString(StandardCharsets.UTF_8), message.sessionToken(), transport);
+        }
+        return NO_REPLY;
+    }
+
+    static CompletableFuture<ByteBuf> unsubscribe(TopicIndex topicIndex, SockiopathMessage message) {
+        if (message.hasSessionToken()) {
+            topicIndex.unsubscribe(message.content().toString(StandardCharsets.UTF_8), message.sessionToken());
+        }
+        return NO_REPLY;
+    }
+}
@@ -0,0 +1,23 @@
+package io.worldy.sockiopath.pubsub;
+
+/**
+ * How a subscriber receives what is published to a topic.
+ */
+public enum Transport {
+
+    /**
+     * As binary frames on the WebSocket channel of its session.
+     */
+    WEB_SOCKET,
+
+    /**
+     * As datagrams to the UDP address its session is bound to.
+     */
+    UDP,
+
+    /**
+     * As datagrams to the multicast group of the topic, which the client joined. A publish sends one datagram to
+     * the group, however many subscribers receive it. See {@link MulticastGroups}.
+     */
+    MULTICAST
+}
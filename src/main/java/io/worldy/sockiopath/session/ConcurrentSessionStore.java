@@ -0,0 +1,155 @@
+package io.worldy.sockiopath.session;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A {@link SessionStore} that is safe to share between event loops.
+ * <p>
+ * Sessions are spread over a power of two number of shards by the hash of their id, and their tokens over as many
+ * shards by token. Lookups by id never lock, and lookups by token only take the read lock of their shard, whose
+ * table is keyed by the primitive token, when they race with a write to it. A put or remove locks only the bin of its id in one shard, so sessions that join and
+ * leave at the same time rarely contend. The token index is updated under that same bin lock, so it always agrees
+ * with the id of a session.
+ */
+public class ConcurrentSessionStore implements SessionStore<SockiopathSession> {
+
+    public static final int DEFAULT_SHARDS = shardsFor(Runtime.getRuntime().availableProcessors() * 4);
+
+    private final Map<String, SockiopathSession>[] ids;
+    private final LongShard<SockiopathSession>[] tokens;
+    private final int mask;
+
+    public ConcurrentSessionStore() {
+        this(DEFAULT_SHARDS);
+    }
+
+    @SuppressWarnings("unchecked")
+    public ConcurrentSessionStore(int shards) {
+        int shardCount = shardsFor(shards);
+        this.ids = (Map<String, SockiopathSession>[]) new Map<?, ?>[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            ids[i] = new ConcurrentHashMap<>();
+        }
+        this.tokens = LongShard.shards(shardCount);
+        this.mask = shardCount - 1;
+    }
+
+    public ConcurrentSessionStore(Map<String, SockiopathSession> sessions) {
+        this();
+        sessions.forEach(this::put);
+    }
+
+    public int shardCount() {
+        return ids.length;
+    }
+
+    static int shardsFor(int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("shards must be at least 1: " + shards);
+        }
+        int shardCount = Integer.highestOneBit(shards);
+        return shardCount == shards ? shardCount : shardCount << 1;
+    }
+
+    @Override
+    public SockiopathSession get(String id) {
+        return idShard(id).get(id);
+    }
+
+    @Override
+    public SockiopathSession getByToken(long token) {
+        return tokenShard(token).get(token);
+    }
+
+    @Override
+    public SockiopathSession put(String id, SockiopathSession session) {
+        SockiopathSession[] previous = new SockiopathSession[1];
+        idShard(id).compute(id, (key, current) -> {
+            // a session with the same token, as a reattached one, is overwritten so it can always be found by token
+            if (current != null && current.getToken() != session.getToken()) {
+                removeToken(current);
+            }
+            tokenShard(session.getToken()).put(session.getToken(), session);
+            previous[0] = current;
+            return session;
+        });
+        return previous[0];
+    }
+
+    @Override
+    public SockiopathSession remove(String id) {
+        SockiopathSession[] removed = new SockiopathSession[1];
+        idShard(id).computeIfPresent(id, (key, current) -> {
+            removeToken(current);
+            removed[0] = current;
+            return null;
+        });
+        if (removed[0] != null) {
+            removed[0].clearAttributes();
+        }
+        return removed[0];
+    }
+
+    /**
+     * Only calls {@code create} under the lock of the bin of {@code id}, so it must not use the store.
+     */
+    @Override
+    public SockiopathSession computeIfAbsent(String id, Function<? super String, ? extends SockiopathSession> create) {
+        Map<String, SockiopathSession> shard = idShard(id);
+        SockiopathSession session = shard.get(id);
+        if (session != null) {
+            return session;
+        }
+        return shard.computeIfAbsent(id, key -> {
+            SockiopathSession created = create.apply(key);
+            if (created != null) {
+                tokenShard(created.getToken()).put(created.getToken(), created);
+            }
+            return created;
+        });
+    }
+
+    @Override
+    public int size() {
+        int count = 0;
+        for (Map<String, SockiopathSession> shard : ids) {
+            count += shard.size();
+        }
+        return count;
+    }
+
+    @Override
+    public void forEachEntry(BiConsumer<? super String, ? super SockiopathSession> visitor) {
+        for (Map<String, SockiopathSession> shard : ids) {
+            shard.forEach(visitor);
+        }
+    }
+
+    @Override
+    public void forEachSession(Consumer<? super SockiopathSession> visitor) {
+        for (Map<String, SockiopathSession> shard : ids) {
+            shard.values().forEach(visitor);
+        }
+    }
+
+    private Map<String, SockiopathSession> idShard(String id) {
+        return ids[spread(id.hashCode()) & mask];
+    }
+
+    private LongShard<SockiopathSession> tokenShard(long token) {
+        return tokens[spread(Long.hashCode(token)) & mask];
+    }
+
+    private void removeToken(SockiopathSession session) {
+        tokenShard(session.getToken()).remove(session.getToken(), current -> current == session);
+    }
+
+    // ConcurrentHashMap bins by the low bits as well, so shard by bits it does not use as much
+    private static int spread(int hash) {
+        return (hash ^ (hash >>> 16)) * 0x9E3779B9 >>> 16;
+    }
+}
@@ -0,0 +1,276 @@
+package io.worldy.sockiopath.session;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Evicts idle sessions and UDP bindings from the {@link SessionStore} it wraps.
+ * <p>
+ * Handlers record activity with {@link SockiopathSession#touch()} and {@link SockiopathSession#touchUdp()}, which
+ * only write a timestamp. Every stored session has one pending timeout on a hashed timing wheel. When it fires the
+ * session is checked against its last activity, and it is either evicted or the timeout is set again for the rest of
+ * its TTL. A session that has been idle for {@code sessionTtl} is removed and its WebSocket channel is closed. A UDP
+ * binding that has been idle for {@code udpBindingTtl} is cleared, so the client has to send from its new address
+ * again. A TTL of zero disables that kind of expiry. Removing a session cancels its timeout, so memory is bounded
+ * by the live sessions.
+ * <p>
+ * Timeouts are kept by session token rather than on the sessions, and a check looks its session up again, so
+ * sessions only need to keep their token, as the views of an {@link OffHeapSessionStore} do.
+ */
+public class ExpiringSessionStore implements SessionStore<SockiopathSession> {
+
+    public static final Duration DEFAULT_TICK = Duration.ofMillis(100);
+    public static final int DEFAULT_TICKS_PER_WHEEL = 512;
+
+    private final SessionStore<SockiopathSession> delegate;
+    private final long sessionTtlNanos;
+    private final long udpBindingTtlNanos;
+    private final Timer timer;
+    private final boolean ownsTimer;
+    private final LongShard<Expiry>[] expiries;
+    private final int mask;
+
+    private final LongAdder expiredSessions = new LongAdder();
+    private final LongAdder expiredUdpBindings = new LongAdder();
+
+    public ExpiringSessionStore(SessionStore<SockiopathSession> delegate, Duration sessionTtl, Duration udpBindingTtl, Timer timer) {
+        this(delegate, sessionTtl, udpBindingTtl, timer, false);
+    }
+
+    public ExpiringSessionStore(SessionStore<SockiopathSession> delegate, Duration sessionTtl, Duration udpBindingTtl) {
+        this(delegate, sessionTtl, udpBindingTtl, new HashedWheelTimer(
+                new DefaultThreadFactory(ExpiringSessionStore.class, true),
+                DEFAULT_TICK.toNanos(), TimeUnit.NANOSECONDS, DEFAULT_TICKS_PER_WHEEL
+        ), true);
+    }
+
+    private ExpiringSessionStore(
+            SessionStore<SockiopathSession> delegate,
+            Duration sessionTtl,
+            Duration udpBindingTtl,
+            Timer timer,
+            boolean ownsTimer
+    ) {
+        if (sessionTtl.isNegative() || udpBindingTtl.isNegative()) {
+            throw new IllegalArgumentException("TTLs must not be negative: " + sessionTtl + ", " + udpBindingTtl);
+        }
+        this.delegate = delegate;
+        this.sessionTtlNanos = sessionTtl.toNanos();
+        this.udpBindingTtlNanos = udpBindingTtl.toNanos();
+        this.timer = timer;
+        this.ownsTimer = ownsTimer;
+        this.expiries = LongShard.shards(ConcurrentSessionStore.DEFAULT_SHARDS);
+        this.mask = expiries.length - 1;
+    }
+
+    @Override
+    public SockiopathSession get(String id) {
+        return delegate.get(id);
+    }
+
+    @Override
+    public SockiopathSession getByToken(long token) {
+        return delegate.getByToken(token);
+    }
+
+    @Override
+    public SockiopathSession put(String id, SockiopathSession session) {
+        SockiopathSession previous = delegate.put(id, session);
+        // a session with the same token, as a reattached one, keeps the check of the session it replaced
+        if (previous != null && previous.getToken() != session.getToken()) {
+            cancel(previous.getToken());
+        }
+        scheduleFirstCheck(id, session);
+        return previous;
+    }
+
+    @Override
+    public SockiopathSession remove(String id) {
+        SockiopathSession removed = delegate.remove(id);
+        if (removed != null) {
+            cancel(removed.getToken());
+        }
+        return removed;
+    }
+
+    @Override
+    public SockiopathSession computeIfAbsent(String id, Function<? super String, ? extends SockiopathSession> create) {
+        SockiopathSession session = delegate.computeIfAbsent(id, create);
+        if (session != null) {
+            scheduleFirstCheck(id, session);
+        }
+        return session;
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public void forEachEntry(BiConsumer<? super String, ? super SockiopathSession> visitor) {
+        delegate.forEachEntry(visitor);
+    }
+
+    @Override
+    public void forEachSession(Consumer<? super SockiopathSession> visitor) {
+        delegate.forEachSession(visitor);
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return delegate.keySet();
+    }
+
+    @Override
+    public Iterator<SockiopathSession> snapshotIterator() {
+        return delegate.snapshotIterator();
+    }
+
+    @Override
+    public SockiopathSession createSession(ChannelHandlerContext ctx) {
+        return delegate.createSession(ctx);
+    }
+
+    private void scheduleFirstCheck(String id, SockiopathSession session) {
+        long token = session.getToken();
+        if ((sessionTtlNanos > 0 || udpBindingTtlNanos > 0) && shard(token).get(token) == null) {
+            Expiry expiry = new Expiry(id, token);
+            shard(token).put(token, expiry);
+            schedule(expiry, firstCheckNanos());
+        }
+    }
+
+    private long firstCheckNanos() {
+        if (sessionTtlNanos == 0) {
+            return udpBindingTtlNanos;
+        }
+        if (udpBindingTtlNanos == 0) {
+            return sessionTtlNanos;
+        }
+        return Math.min(sessionTtlNanos, udpBindingTtlNanos);
+    }
+
+    private void schedule(Expiry expiry, long delayNanos) {
+        expiry.timeout = timer.newTimeout(expiry, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void cancel(long token) {
+        Expiry expiry = shard(token).get(token);
+        if (expiry != null && shard(token).remove(token, current -> current == expiry)) {
+            Timeout timeout = expiry.timeout;
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        }
+    }
+
+    // the pending timeout of the session with this token, if it has one
+    Timeout timeout(long token) {
+        Expiry expiry = shard(token).get(token);
+        return expiry == null ? null : expiry.timeout;
+    }
+
+    private void check(Expiry expiry) {
+        long token = expiry.token;
+        // a cancelled or replaced check may still run once
+        if (shard(token).get(token) != expiry) {
+            return;
+        }
+        SockiopathSession session = delegate.get(expiry.id);
+        if (session == null || session.getToken() != token) {
+            shard(token).remove(token, current -> current == expiry);
+            return;
+        }
+        long now = System.nanoTime();
+        long next = Long.MAX_VALUE;
+        if (sessionTtlNanos > 0) {
+            long idle = now - session.getLastActivityNanos();
+            if (idle >= sessionTtlNanos) {
+                expire(expiry, session);
+                return;
+            }
+            next = sessionTtlNanos - idle;
+        }
+        if (udpBindingTtlNanos > 0) {
+            long idle = now - session.getLastUdpActivityNanos();
+            if (session.getUdpSocketAddress() == null) {
+                next = Math.min(next, udpBindingTtlNanos);
+            } else if (idle >= udpBindingTtlNanos) {
+                session.clearUdpBinding();
+                expiredUdpBindings.increment();
+                next = Math.min(next, udpBindingTtlNanos);
+            } else {
+                next = Math.min(next, udpBindingTtlNanos - idle);
+            }
+        }
+        schedule(expiry, next);
+    }
+
+    private void expire(Expiry expiry, SockiopathSession session) {
+        shard(expiry.token).remove(expiry.token, current -> current == expiry);
+        SockiopathSession current = delegate.get(expiry.id);
+        if (current != null && current.getToken() == expiry.token) {
+            delegate.remove(expiry.id);
+            expiredSessions.increment();
+        }
+        ChannelHandlerContext webSocketContext = session.getWebSocketContext();
+        if (webSocketContext != null) {
+            webSocketContext.close();
+        }
+    }
+
+    private LongShard<Expiry> shard(long token) {
+        return expiries[Long.hashCode(token) & mask];
+    }
+
+    public long expiredSessionCount() {
+        return expiredSessions.sum();
+    }
+
+    public long expiredUdpBindingCount() {
+        return expiredUdpBindings.sum();
+    }
+
+    /**
+     * Stops the timing wheel if this store created it.
+     */
+    public void stop() {
+        if (ownsTimer) {
+            timer.stop();
+        }
+    }
+
+    /**
+     * The idle check of the session with a token, scheduled again for as long as it stays active.
+     */
+    private final class Expiry implements TimerTask {
+
+        private final String id;
+        private final long token;
+        private volatile Timeout timeout;
+
+        Expiry(String id, long token) {
+            this.id = id;
+            this.token = token;
+        }
+
+        @Override
+        public void run(Timeout timeout) {
+            check(this);
+        }
+    }
+}
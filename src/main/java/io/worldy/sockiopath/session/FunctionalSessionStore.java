@@ -0,0 +1,53 @@
+package io.worldy.sockiopath.session;
+
+import io.netty.channel.ChannelHandlerContext;
+
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+/**
+ * The earlier form of {@link SessionStore}, which hands out its operations as functions. Stores that still
+ * implement it are used by the servers through {@link SessionStore#of(FunctionalSessionStore)}.
+ */
+public interface FunctionalSessionStore<T extends SockiopathSession> {
+    Function<String, T> get();
+
+    /**
+     * Finds sessions by token. Stores written before tokens existed need not implement it: the default looks the
+     * {@link SessionTokens#toHex(long) hex form} of the token up as an id, as servers key the sessions they create,
+     * and otherwise looks up every id of the key set, so stores with many sessions keyed otherwise should override it.
+     */
+    default LongFunction<T> getByToken() {
+        return token -> {
+            if (token == SessionTokens.NO_TOKEN) {
+                return null;
+            }
+            T session = get().apply(SessionTokens.toHex(token));
+            if (session != null && session.getToken() == token) {
+                return session;
+            }
+            for (String id : keySet().get()) {
+                session = get().apply(id);
+                if (session != null && session.getToken() == token) {
+                    return session;
+                }
+            }
+            return null;
+        };
+    }
+
+    BiFunction<String, T, T> put();
+
+    Function<String, T> remove();
+
+    Supplier<Integer> size();
+
+    Supplier<Set<String>> keySet();
+
+    default SockiopathSession createSession(ChannelHandlerContext ctx) {
+        return new SockiopathSession(ctx);
+    }
+}
@@ -0,0 +1,81 @@
+package io.worldy.sockiopath.session;
+
+import io.netty.channel.ChannelHandlerContext;
+
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * A {@link SessionStore} over a {@link FunctionalSessionStore}. Its bulk operations look every id of the key set up
+ * again, and {@link #computeIfAbsent} is only as atomic as the adapted store makes a lookup followed by a put.
+ */
+final class FunctionalSessionStoreAdapter<T extends SockiopathSession> implements SessionStore<T> {
+
+    private final FunctionalSessionStore<T> functionalSessionStore;
+
+    FunctionalSessionStoreAdapter(FunctionalSessionStore<T> functionalSessionStore) {
+        this.functionalSessionStore = functionalSessionStore;
+    }
+
+    @Override
+    public T get(String id) {
+        return functionalSessionStore.get().apply(id);
+    }
+
+    @Override
+    public T getByToken(long token) {
+        return functionalSessionStore.getByToken().apply(token);
+    }
+
+    @Override
+    public T put(String id, T session) {
+        return functionalSessionStore.put().apply(id, session);
+    }
+
+    @Override
+    public T remove(String id) {
+        T removed = functionalSessionStore.remove().apply(id);
+        if (removed != null) {
+            removed.clearAttributes();
+        }
+        return removed;
+    }
+
+    @Override
+    public T computeIfAbsent(String id, Function<? super String, ? extends T> create) {
+        T session = get(id);
+        if (session == null) {
+            session = create.apply(id);
+            if (session != null) {
+                put(id, session);
+            }
+        }
+        return session;
+    }
+
+    @Override
+    public int size() {
+        return functionalSessionStore.size().get();
+    }
+
+    @Override
+    public void forEachEntry(BiConsumer<? super String, ? super T> visitor) {
+        for (String id : functionalSessionStore.keySet().get()) {
+            T session = get(id);
+            if (session != null) {
+                visitor.accept(id, session);
+            }
+        }
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return Set.copyOf(functionalSessionStore.keySet().get());
+    }
+
+    @Override
+    public SockiopathSession createSession(ChannelHandlerContext ctx) {
+        return functionalSessionStore.createSession(ctx);
+    }
+}
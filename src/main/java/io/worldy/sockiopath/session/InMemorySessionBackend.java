@@ -0,0 +1,63 @@
+package io.worldy.sockiopath.session;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * A {@link SessionBackend} in the memory of one JVM, for tests and for running several nodes in one process.
+ * Invalidations are delivered to the subscribers before a store or delete returns.
+ */
+public class InMemorySessionBackend implements SessionBackend {
+
+    private final Map<String, SessionRecord> ids = new ConcurrentHashMap<>();
+    private final Map<Long, SessionRecord> tokens = new ConcurrentHashMap<>();
+    private final List<Consumer<String>> subscribers = new CopyOnWriteArrayList<>();
+
+    @Override
+    public SessionRecord load(String id) {
+        return ids.get(id);
+    }
+
+    @Override
+    public SessionRecord loadByToken(long token) {
+        return tokens.get(token);
+    }
+
+    @Override
+    public void store(SessionRecord record) {
+        ids.compute(record.id(), (id, previous) -> {
+            if (previous != null) {
+                tokens.remove(previous.token(), previous);
+            }
+            tokens.put(record.token(), record);
+            return record;
+        });
+        invalidate(record.id());
+    }
+
+    @Override
+    public void delete(String id) {
+        ids.computeIfPresent(id, (key, previous) -> {
+            tokens.remove(previous.token(), previous);
+            return null;
+        });
+        invalidate(id);
+    }
+
+    @Override
+    public Runnable subscribe(Consumer<String> invalidations) {
+        subscribers.add(invalidations);
+        return () -> subscribers.remove(invalidations);
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    private void invalidate(String id) {
+        subscribers.forEach(subscriber -> subscriber.accept(id));
+    }
+}
@@ -0,0 +1,173 @@
+package io.worldy.sockiopath.session;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Predicate;
+
+/**
+ * One shard of an index keyed by long: an open addressing table of primitive keys, so that a lookup neither boxes
+ * its key nor allocates.
+ * <p>
+ * Lookups read optimistically and take no lock, unless a write ran at the same time, in which case they read again
+ * under the read lock. A racing write can leave a lookup with a stale view of the table, so lookups only ever probe
+ * as many slots as the table has, and the result of one that raced is discarded. Writes are serialized.
+ */
+final class LongShard<V> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final StampedLock lock = new StampedLock();
+    private volatile Table table = new Table(INITIAL_CAPACITY);
+    private volatile int size;
+
+    // a slot is empty while its value is null
+    private static final class Table {
+        private final long[] keys;
+        private final Object[] values;
+        private final int mask;
+
+        Table(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new Object[capacity];
+            this.mask = capacity - 1;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static <V> LongShard<V>[] shards(int shardCount) {
+        LongShard<V>[] shards = (LongShard<V>[]) new LongShard<?>[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new LongShard<>();
+        }
+        return shards;
+    }
+
+    V get(long key) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            V value = find(table, key);
+            if (lock.validate(stamp)) {
+                return value;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return find(table, key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    V put(long key, V value) {
+        long stamp = lock.writeLock();
+        try {
+            Table current = table;
+            int position = position(current, key);
+            if (position >= 0) {
+                V previous = value(current, position);
+                current.values[position] = value;
+                return previous;
+            }
+            // at most half full keeps probe sequences short
+            if ((size + 1) * 2 > current.keys.length) {
+                current = resize(current);
+            }
+            insert(current, key, value);
+            size++;
+            return null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes the value of {@code key} if it {@code matches}.
+     */
+    boolean remove(long key, Predicate<? super V> matches) {
+        long stamp = lock.writeLock();
+        try {
+            Table current = table;
+            int position = position(current, key);
+            if (position < 0 || !matches.test(value(current, position))) {
+                return false;
+            }
+            delete(current, position);
+            size--;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private V find(Table table, long key) {
+        int position = position(table, key);
+        return position < 0 ? null : value(table, position);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V value(Table table, int position) {
+        return (V) table.values[position];
+    }
+
+    // bounded, so that it ends even on a table that a racing write is changing
+    private static int position(Table table, long key) {
+        int position = hash(key) & table.mask;
+        for (int probes = 0; probes <= table.mask; probes++) {
+            if (table.values[position] == null) {
+                return -1;
+            }
+            if (table.keys[position] == key) {
+                return position;
+            }
+            position = (position + 1) & table.mask;
+        }
+        return -1;
+    }
+
+    private static void insert(Table table, long key, Object value) {
+        int position = hash(key) & table.mask;
+        while (table.values[position] != null) {
+            position = (position + 1) & table.mask;
+        }
+        table.keys[position] = key;
+        table.values[position] = value;
+    }
+
+    private Table resize(Table current) {
+        Table resized = new Table(current.keys.length << 1);
+        for (int i = 0; i < current.keys.length; i++) {
+            if (current.values[i] != null) {
+                insert(resized, current.keys[i], current.values[i]);
+            }
+        }
+        table = resized;
+        return resized;
+    }
+
+    // backward shift deletion, so that linear probing needs no tombstones
+    private static void delete(Table table, int position) {
+        int hole = position;
+        int next = position;
+        while (true) {
+            next = (next + 1) & table.mask;
+            if (table.values[next] == null) {
+                break;
+            }
+            int home = hash(table.keys[next]) & table.mask;
+            boolean reachable = hole <= next ? hole < home && home <= next : hole < home || home <= next;
+            if (!reachable) {
+                table.keys[hole] = table.keys[next];
+                table.values[hole] = table.values[next];
+                hole = next;
+            }
+        }
+        table.values[hole] = null;
+    }
+
+    private static int hash(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+}
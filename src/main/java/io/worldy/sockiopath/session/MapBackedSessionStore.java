@@ -1,53 +1,78 @@
 package io.worldy.sockiopath.session;
 
+import io.netty.util.collection.LongObjectHashMap;
+import io.netty.util.collection.LongObjectMap;
+
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
-import java.util.function.BiFunction;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
-import java.util.function.Supplier;
 
 public class MapBackedSessionStore implements SessionStore<SockiopathSession> {
     private final Map<String, SockiopathSession> store;
-    private final Function<String, SockiopathSession> get;
-    private final BiFunction<String, SockiopathSession, SockiopathSession> put;
-    private final Function<String, SockiopathSession> remove;
-    private final Supplier<Integer> size;
-    private final Supplier<Set<String>> keySet;
+    private final LongObjectMap<SockiopathSession> tokens;
 
     public MapBackedSessionStore(Map<String, SockiopathSession> store) {
         this.store = Optional.ofNullable(store).orElseGet(Map::of);
-        this.get = this.store::get;
-        this.put = this.store::put;
-        this.remove = this.store::remove;
-        this.size = this.store::size;
-        this.keySet = this.store::keySet;
+        this.tokens = new LongObjectHashMap<>();
+        this.store.values().forEach(session -> tokens.put(session.getToken(), session));
+    }
+
+    @Override
+    public SockiopathSession get(String id) {
+        return store.get(id);
     }
 
+    @Override
+    public SockiopathSession getByToken(long token) {
+        return tokens.get(token);
+    }
 
     @Override
-    public Function<String, SockiopathSession> get() {
-        return get;
+    public SockiopathSession put(String id, SockiopathSession session) {
+        SockiopathSession previous = store.put(id, session);
+        if (previous != null) {
+            tokens.remove(previous.getToken());
+        }
+        tokens.put(session.getToken(), session);
+        return previous;
     }
 
     @Override
-    public BiFunction<String, SockiopathSession, SockiopathSession> put() {
-        return put;
+    public SockiopathSession remove(String id) {
+        SockiopathSession removed = store.remove(id);
+        if (removed != null) {
+            tokens.remove(removed.getToken());
+            removed.clearAttributes();
+        }
+        return removed;
     }
 
     @Override
-    public Function<String, SockiopathSession> remove() {
-        return remove;
+    public SockiopathSession computeIfAbsent(String id, Function<? super String, ? extends SockiopathSession> create) {
+        SockiopathSession session = store.get(id);
+        if (session == null) {
+            session = create.apply(id);
+            if (session != null) {
+                put(id, session);
+            }
+        }
+        return session;
     }
 
+    @Override
+    public int size() {
+        return store.size();
+    }
 
     @Override
-    public Supplier<Integer> size() {
-        return this.size;
+    public void forEachEntry(BiConsumer<? super String, ? super SockiopathSession> visitor) {
+        store.forEach(visitor);
     }
 
     @Override
-    public Supplier<Set<String>> keySet() {
-        return this.keySet;
+    public void forEachSession(Consumer<? super SockiopathSession> visitor) {
+        store.values().forEach(visitor);
     }
 }
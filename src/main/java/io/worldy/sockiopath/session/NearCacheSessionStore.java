@@ -0,0 +1,380 @@
+package io.worldy.sockiopath.session;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A {@link SessionStore} for a node of a cluster, which sees the sessions that joined other nodes through a shared
+ * {@link SessionBackend} without asking it for every message.
+ * <p>
+ * Sessions that joined this node are kept locally, as their channels only exist here, and are written through to
+ * the backend when they are put and deleted from it when they are removed. Sessions of other nodes are loaded from
+ * the backend on a miss and kept in a near-cache, bounded in size and time: an entry is dropped after {@code ttl},
+ * when the backend announces that its session changed, and to make room. Room is made by a clock hand, which goes
+ * round the entries in the order they were cached, reuses those that expired or were dropped, and evicts the first
+ * one that was not looked up since the hand last passed it. Ids and tokens the backend has no session for are
+ * cached as missing for {@code negativeTtl}, so that a client with an unknown or stale token does not send every
+ * message to the backend; the announcement of a new session drops them too, by id and for ids in the
+ * {@link SessionTokens#toHex(long) hex form} of a token, by token.
+ * Changes to a session after it was put, such as a new UDP binding, stay on this node until it is put again.
+ * <p>
+ * The bulk operations and {@link #size()} cover the sessions of this node, so that broadcasts never go to the
+ * backend.
+ */
+public class NearCacheSessionStore implements SessionStore<SockiopathSession> {
+
+    public static final int DEFAULT_MAX_CACHED_SESSIONS = 100_000;
+    public static final Duration DEFAULT_TTL = Duration.ofSeconds(30);
+    public static final Duration DEFAULT_NEGATIVE_TTL = Duration.ofSeconds(1);
+
+    private final SessionBackend backend;
+    private final int maxCachedSessions;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+
+    private final ConcurrentSessionStore local = new ConcurrentSessionStore();
+    private final Map<String, Cached> cachedIds = new ConcurrentHashMap<>();
+    private final Map<String, Cached> missingIds = new ConcurrentHashMap<>();
+    // keyed by the primitive token, so that lookups by token do not box it
+    private final LongShard<Cached>[] cachedTokens = LongShard.shards(ConcurrentSessionStore.DEFAULT_SHARDS);
+    private final LongShard<Cached>[] missingTokens = LongShard.shards(ConcurrentSessionStore.DEFAULT_SHARDS);
+
+    // every cached entry has a slot, so the clock bounds the entries; only loads from the backend take its lock
+    private final Cached[] clock;
+    private int hand;
+
+    private final Runnable unsubscribe;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * A session of another node, or with a {@code null} session, an id or token the backend had no session for.
+     * Missing ids have no token, and missing tokens no id.
+     */
+    private static final class Cached {
+        private final String id;
+        private final long token;
+        private final SockiopathSession session;
+        private final long expiresNanos;
+        // set by lookups and cleared by the clock hand
+        private volatile boolean referenced;
+
+        Cached(String id, long token, SockiopathSession session, long expiresNanos) {
+            this.id = id;
+            this.token = token;
+            this.session = session;
+            this.expiresNanos = expiresNanos;
+        }
+
+        SockiopathSession hit() {
+            if (!referenced) {
+                referenced = true;
+            }
+            return session;
+        }
+    }
+
+    public NearCacheSessionStore(SessionBackend backend) {
+        this(backend, DEFAULT_MAX_CACHED_SESSIONS, DEFAULT_TTL);
+    }
+
+    /**
+     * Caches missing sessions for {@link #DEFAULT_NEGATIVE_TTL}, or for {@code ttl} if that is shorter.
+     */
+    public NearCacheSessionStore(SessionBackend backend, int maxCachedSessions, Duration ttl) {
+        this(backend, maxCachedSessions, ttl, ttl.compareTo(DEFAULT_NEGATIVE_TTL) < 0 ? ttl : DEFAULT_NEGATIVE_TTL);
+    }
+
+    /**
+     * @param negativeTtl how long an id or token the backend had no session for is not asked for again. Zero asks
+     *                    the backend on every lookup of it.
+     */
+    public NearCacheSessionStore(SessionBackend backend, int maxCachedSessions, Duration ttl, Duration negativeTtl) {
+        if (maxCachedSessions < 0) {
+            throw new IllegalArgumentException("maxCachedSessions must not be negative: " + maxCachedSessions);
+        }
+        if (ttl.isNegative()) {
+            throw new IllegalArgumentException("ttl must not be negative: " + ttl);
+        }
+        if (negativeTtl.isNegative()) {
+            throw new IllegalArgumentException("negativeTtl must not be negative: " + negativeTtl);
+        }
+        this.backend = backend;
+        this.maxCachedSessions = maxCachedSessions;
+        this.ttlNanos = ttl.toNanos();
+        this.negativeTtlNanos = negativeTtl.toNanos();
+        this.clock = new Cached[maxCachedSessions];
+        this.unsubscribe = backend.subscribe(this::invalidate);
+    }
+
+    @Override
+    public SockiopathSession get(String id) {
+        SockiopathSession session = local.get(id);
+        if (session != null) {
+            return session;
+        }
+        Cached cached = cachedIds.get(id);
+        if (cached == null) {
+            cached = missingIds.get(id);
+        }
+        if (isFresh(cached)) {
+            hits.increment();
+            return cached.hit();
+        }
+        long start = System.nanoTime();
+        SessionRecord record = backend.load(id);
+        return loaded(record, start, id, SessionTokens.NO_TOKEN);
+    }
+
+    @Override
+    public SockiopathSession getByToken(long token) {
+        SockiopathSession session = local.getByToken(token);
+        if (session != null) {
+            return session;
+        }
+        Cached cached = shard(cachedTokens, token).get(token);
+        if (cached == null) {
+            cached = shard(missingTokens, token).get(token);
+        }
+        if (isFresh(cached)) {
+            hits.increment();
+            return cached.hit();
+        }
+        long start = System.nanoTime();
+        SessionRecord record = backend.loadByToken(token);
+        return loaded(record, start, null, token);
+    }
+
+    private boolean isFresh(Cached cached) {
+        if (cached == null) {
+            return false;
+        }
+        if (System.nanoTime() - cached.expiresNanos < 0) {
+            return true;
+        }
+        drop(cached);
+        return false;
+    }
+
+    private SockiopathSession loaded(SessionRecord record, long start, String id, long token) {
+        long now = System.nanoTime();
+        loadNanos.add(now - start);
+        misses.increment();
+        if (record == null) {
+            if (maxCachedSessions > 0 && negativeTtlNanos > 0) {
+                cache(new Cached(id, token, null, now + negativeTtlNanos), now);
+            }
+            return null;
+        }
+        SockiopathSession session = record.toSession();
+        if (maxCachedSessions > 0 && ttlNanos > 0) {
+            cache(new Cached(record.id(), record.token(), session, now + ttlNanos), now);
+        }
+        return session;
+    }
+
+    private void cache(Cached cached, long now) {
+        synchronized (clock) {
+            evictAtHand(now);
+            clock[hand] = cached;
+            hand = (hand + 1) % clock.length;
+            if (cached.session == null) {
+                if (cached.id != null) {
+                    missingIds.put(cached.id, cached);
+                } else {
+                    shard(missingTokens, cached.token).put(cached.token, cached);
+                }
+                return;
+            }
+            Cached previous = cachedIds.put(cached.id, cached);
+            if (previous != null) {
+                removeToken(cachedTokens, previous);
+            }
+            shard(cachedTokens, cached.token).put(cached.token, cached);
+            missingIds.remove(cached.id);
+            shard(missingTokens, cached.token).remove(cached.token, any -> true);
+        }
+    }
+
+    // moves the hand to a slot that is free, or made free, clearing the looked up marks of the entries it passes.
+    // Two rounds clear every mark, unless lookups set them again, so after those the entry at the hand goes anyway.
+    private void evictAtHand(long now) {
+        for (int passed = 0; ; passed++) {
+            Cached current = clock[hand];
+            if (current == null || !isCached(current)) {
+                return;
+            }
+            if (now - current.expiresNanos >= 0) {
+                drop(current);
+                return;
+            }
+            if (!current.referenced || passed >= 2 * clock.length) {
+                if (drop(current)) {
+                    evictions.increment();
+                }
+                return;
+            }
+            current.referenced = false;
+            hand = (hand + 1) % clock.length;
+        }
+    }
+
+    private boolean isCached(Cached cached) {
+        if (cached.session != null) {
+            return cachedIds.get(cached.id) == cached;
+        }
+        if (cached.id != null) {
+            return missingIds.get(cached.id) == cached;
+        }
+        return shard(missingTokens, cached.token).get(cached.token) == cached;
+    }
+
+    private boolean drop(Cached cached) {
+        if (cached.session == null) {
+            return cached.id != null ? missingIds.remove(cached.id, cached) : removeToken(missingTokens, cached);
+        }
+        removeToken(cachedTokens, cached);
+        return cachedIds.remove(cached.id, cached);
+    }
+
+    private static boolean removeToken(LongShard<Cached>[] tokens, Cached cached) {
+        return shard(tokens, cached.token).remove(cached.token, current -> current == cached);
+    }
+
+    private static LongShard<Cached> shard(LongShard<Cached>[] tokens, long token) {
+        return tokens[Long.hashCode(token) & (tokens.length - 1)];
+    }
+
+    private void invalidate(String id) {
+        if (dropCached(id)) {
+            invalidations.increment();
+        }
+        missingIds.remove(id);
+        long token = SessionTokens.parseHex(id);
+        if (token != SessionTokens.NO_TOKEN) {
+            shard(missingTokens, token).remove(token, any -> true);
+        }
+    }
+
+    private boolean dropCached(String id) {
+        Cached cached = cachedIds.get(id);
+        return cached != null && drop(cached);
+    }
+
+    @Override
+    public SockiopathSession put(String id, SockiopathSession session) {
+        SockiopathSession previous = local.put(id, session);
+        dropCached(id);
+        backend.store(SessionRecord.of(id, session));
+        return previous;
+    }
+
+    @Override
+    public SockiopathSession remove(String id) {
+        SockiopathSession removed = local.remove(id);
+        dropCached(id);
+        backend.delete(id);
+        return removed;
+    }
+
+    /**
+     * Only creates a session if no node has one under {@code id}. Two nodes racing to create the same id can both
+     * succeed, the later one overwriting the record of the other in the backend.
+     */
+    @Override
+    public SockiopathSession computeIfAbsent(String id, Function<? super String, ? extends SockiopathSession> create) {
+        SockiopathSession session = get(id);
+        if (session != null) {
+            return session;
+        }
+        SockiopathSession[] created = new SockiopathSession[1];
+        session = local.computeIfAbsent(id, key -> {
+            created[0] = create.apply(key);
+            return created[0];
+        });
+        if (session != null && session == created[0]) {
+            backend.store(SessionRecord.of(id, session));
+        }
+        return session;
+    }
+
+    @Override
+    public int size() {
+        return local.size();
+    }
+
+    @Override
+    public void forEachEntry(BiConsumer<? super String, ? super SockiopathSession> visitor) {
+        local.forEachEntry(visitor);
+    }
+
+    @Override
+    public void forEachSession(Consumer<? super SockiopathSession> visitor) {
+        local.forEachSession(visitor);
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return local.keySet();
+    }
+
+    @Override
+    public Iterator<SockiopathSession> snapshotIterator() {
+        return local.snapshotIterator();
+    }
+
+    public int cachedSessionCount() {
+        return cachedIds.size();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * The share of lookups of sessions of other nodes answered by the near-cache, or 0 before the first one.
+     */
+    public double hitRatio() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    /**
+     * The mean latency of the lookups that went to the backend.
+     */
+    public long averageLoadNanos() {
+        long missCount = misses.sum();
+        return missCount == 0 ? 0 : loadNanos.sum() / missCount;
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    public long invalidationCount() {
+        return invalidations.sum();
+    }
+
+    /**
+     * Stops listening for invalidations from the backend.
+     */
+    public void stop() {
+        unsubscribe.run();
+    }
+}
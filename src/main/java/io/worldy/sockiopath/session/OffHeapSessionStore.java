@@ -0,0 +1,462 @@
+package io.worldy.sockiopath.session;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A {@link SessionStore} that keeps its sessions off the heap, for deployments with millions of sessions.
+ * <p>
+ * Every session is a fixed size record in one direct buffer: its token, when it was last active, and the address
+ * and port of its UDP binding. Records are found by token through an open addressing index in a second direct
+ * buffer. The only per session state on the heap are the channel contexts and {@link SessionAttribute attributes},
+ * held in arrays indexed by record slot, so the garbage collector has next to nothing to trace however many
+ * sessions there are.
+ * <p>
+ * Session ids must be the {@link SessionTokens#toHex(long) hex form} of the session token, as they are for the
+ * sessions the servers create. The sessions returned by {@link #get(String)} and {@link #getByToken(long)}, and
+ * visited by {@link #forEachSession(Consumer)}, are views of their record created by each lookup, so compare them
+ * by token rather than by identity. A view is a small object that points at the record and at the attribute array
+ * of its slot, so each lookup allocates one; callers that look a session up per message should keep the view for
+ * as long as they need it rather than look it up again. A view of a removed session has no UDP binding and ignores updates. The
+ * sessions returned by {@link #put(String, SockiopathSession)} and {@link #remove(String)} are copies of the record
+ * they replaced.
+ * <p>
+ * Lookups read optimistically and only take a read lock if a put or remove ran at the same time. Puts, removes and
+ * changes to a UDP binding are serialized. Recording activity is a single unlocked write to the record.
+ */
+public class OffHeapSessionStore implements SessionStore<SockiopathSession> {
+
+    static final int RECORD_SIZE = 48;
+
+    public static final int MAX_CAPACITY = Integer.MAX_VALUE / RECORD_SIZE;
+
+    private static final int TOKEN = 0;
+    private static final int LAST_ACTIVITY = 8;
+    private static final int LAST_UDP_ACTIVITY = 16;
+    private static final int ADDRESS = 24;
+    private static final int ADDRESS_SIZE = 16;
+    private static final int PORT = 40;
+    private static final int FLAGS = 42;
+
+    private static final int UDP_BOUND = 1;
+    private static final int IPV6 = 2;
+
+    // index entries are a record slot plus one, so that a zeroed index is empty
+    private static final int EMPTY = 0;
+
+    private final int capacity;
+    private final ByteBuf records;
+    private final ByteBuf index;
+    private final int indexMask;
+
+    private final AtomicReferenceArray<ChannelHandlerContext> webSocketContexts;
+    private final AtomicReferenceArray<ChannelHandlerContext> udpContexts;
+    private final AtomicReferenceArray<Object[]> attributes;
+
+    private final int[] freeSlots;
+    private int freeCount;
+    private volatile int nextSlot;
+    private volatile int sessionCount;
+
+    private final StampedLock lock = new StampedLock();
+
+    public OffHeapSessionStore(int capacity) {
+        if (capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("capacity must be between 1 and " + MAX_CAPACITY + ": " + capacity);
+        }
+        this.capacity = capacity;
+        int recordBytes = capacity * RECORD_SIZE;
+        this.records = Unpooled.directBuffer(recordBytes, recordBytes).setZero(0, recordBytes);
+        // at least twice as many index entries as records keeps probe sequences short
+        int indexSize = Integer.highestOneBit(capacity) << 2;
+        this.index = Unpooled.directBuffer(indexSize * Integer.BYTES, indexSize * Integer.BYTES)
+                .setZero(0, indexSize * Integer.BYTES);
+        this.indexMask = indexSize - 1;
+        this.webSocketContexts = new AtomicReferenceArray<>(capacity);
+        this.udpContexts = new AtomicReferenceArray<>(capacity);
+        this.attributes = new AtomicReferenceArray<>(capacity);
+        this.freeSlots = new int[capacity];
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Frees the off-heap memory of the store. The store must not be used afterwards.
+     */
+    public void release() {
+        records.release();
+        index.release();
+    }
+
+    @Override
+    public SockiopathSession get(String id) {
+        return getByToken(SessionTokens.parseHex(id));
+    }
+
+    @Override
+    public SockiopathSession getByToken(long token) {
+        if (token == SessionTokens.NO_TOKEN) {
+            return null;
+        }
+        return read(() -> {
+            int position = position(token);
+            if (position < 0) {
+                return null;
+            }
+            int slot = index.getInt(position * Integer.BYTES) - 1;
+            // a remove racing this optimistic read may have shifted the entry away, and then the read is repeated
+            return slot < 0 ? null : view(slot, token);
+        });
+    }
+
+    @Override
+    public SockiopathSession put(String id, SockiopathSession session) {
+        return write(id, session, true);
+    }
+
+    /**
+     * Calls {@code create} without holding the lock, so it may use the store. Of two racing calls for the same id,
+     * the session created second is not stored. Returns a view of the stored session, as {@link #get(String)} does.
+     */
+    @Override
+    public SockiopathSession computeIfAbsent(String id, Function<? super String, ? extends SockiopathSession> create) {
+        SockiopathSession session = get(id);
+        if (session != null) {
+            return session;
+        }
+        SockiopathSession created = create.apply(id);
+        if (created == null) {
+            return null;
+        }
+        return write(id, created, false);
+    }
+
+    /**
+     * Stores {@code session} under {@code id}, or if {@code replace} is false only when there is no session yet.
+     *
+     * @return a copy of the session there was, or with {@code replace} false a view of the stored session
+     */
+    private SockiopathSession write(String id, SockiopathSession session, boolean replace) {
+        long token = session.getToken();
+        if (SessionTokens.parseHex(id) != token) {
+            throw new IllegalArgumentException("session id is not the hex form of the session token: " + id);
+        }
+        // read the session before locking, as it may be a view of this store
+        InetSocketAddress udpSocketAddress = requireResolved(session.getUdpSocketAddress());
+        ChannelHandlerContext udpContext = session.getUdpContext();
+        long lastActivityNanos = session.getLastActivityNanos();
+        long lastUdpActivityNanos = session.getLastUdpActivityNanos();
+        Object[] sessionAttributes = session.attributes();
+        long stamp = lock.writeLock();
+        try {
+            int position = position(token);
+            int slot;
+            SockiopathSession previous = null;
+            if (position < 0) {
+                slot = allocate();
+                insert(token, slot);
+                sessionCount++;
+            } else {
+                slot = index.getInt(position * Integer.BYTES) - 1;
+                if (!replace) {
+                    return view(slot, token);
+                }
+                previous = copy(slot, token);
+            }
+            int offset = slot * RECORD_SIZE;
+            records.setLong(offset + LAST_ACTIVITY, lastActivityNanos);
+            records.setLong(offset + LAST_UDP_ACTIVITY, lastUdpActivityNanos);
+            writeAddress(offset, udpSocketAddress);
+            records.setLong(offset + TOKEN, token);
+            webSocketContexts.set(slot, session.getWebSocketContext());
+            udpContexts.set(slot, udpContext);
+            attributes.set(slot, sessionAttributes);
+            return replace ? previous : view(slot, token);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public SockiopathSession remove(String id) {
+        long token = SessionTokens.parseHex(id);
+        if (token == SessionTokens.NO_TOKEN) {
+            return null;
+        }
+        long stamp = lock.writeLock();
+        try {
+            int position = position(token);
+            if (position < 0) {
+                return null;
+            }
+            int slot = index.getInt(position * Integer.BYTES) - 1;
+            SockiopathSession removed = copy(slot, token);
+            delete(position);
+            records.setZero(slot * RECORD_SIZE, RECORD_SIZE);
+            webSocketContexts.set(slot, null);
+            udpContexts.set(slot, null);
+            attributes.set(slot, SockiopathSession.NO_ATTRIBUTES);
+            removed.clearAttributes();
+            freeSlots[freeCount++] = slot;
+            sessionCount--;
+            return removed;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int size() {
+        return sessionCount;
+    }
+
+    /**
+     * Visits the sessions in slot order. A session removed during the visit may still be visited, as a view that
+     * ignores updates.
+     */
+    @Override
+    public void forEachSession(Consumer<? super SockiopathSession> visitor) {
+        int end = nextSlot;
+        for (int slot = 0; slot < end; slot++) {
+            long token = records.getLong(slot * RECORD_SIZE + TOKEN);
+            if (token != SessionTokens.NO_TOKEN) {
+                visitor.accept(view(slot, token));
+            }
+        }
+    }
+
+    @Override
+    public void forEachEntry(BiConsumer<? super String, ? super SockiopathSession> visitor) {
+        forEachSession(session -> visitor.accept(SessionTokens.toHex(session.getToken()), session));
+    }
+
+    private int allocate() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (nextSlot == capacity) {
+            throw new IllegalStateException("session store is full: " + capacity + " sessions");
+        }
+        return nextSlot++;
+    }
+
+    private SockiopathSession view(int slot, long token) {
+        return new SlotSession(slot, token, webSocketContexts.get(slot), attributes.get(slot));
+    }
+
+    private SockiopathSession copy(int slot, long token) {
+        return new SockiopathSession(webSocketContexts.get(slot), token, attributes.get(slot))
+                .withUdpSocketAddress(readAddress(slot * RECORD_SIZE))
+                .withUdpContext(udpContexts.get(slot));
+    }
+
+    /**
+     * The index position of {@code token}, or -1 if it is not in the store. Bounded so that it ends even when it
+     * races with a put or remove under an optimistic read.
+     */
+    private int position(long token) {
+        int position = hash(token) & indexMask;
+        for (int probes = 0; probes <= indexMask; probes++) {
+            int entry = index.getInt(position * Integer.BYTES);
+            if (entry == EMPTY) {
+                return -1;
+            }
+            if (records.getLong((entry - 1) * RECORD_SIZE + TOKEN) == token) {
+                return position;
+            }
+            position = (position + 1) & indexMask;
+        }
+        return -1;
+    }
+
+    private void insert(long token, int slot) {
+        int position = hash(token) & indexMask;
+        while (index.getInt(position * Integer.BYTES) != EMPTY) {
+            position = (position + 1) & indexMask;
+        }
+        index.setInt(position * Integer.BYTES, slot + 1);
+    }
+
+    // backward shift deletion, so that linear probing needs no tombstones
+    private void delete(int position) {
+        int hole = position;
+        int next = position;
+        while (true) {
+            next = (next + 1) & indexMask;
+            int entry = index.getInt(next * Integer.BYTES);
+            if (entry == EMPTY) {
+                break;
+            }
+            int home = hash(records.getLong((entry - 1) * RECORD_SIZE + TOKEN)) & indexMask;
+            boolean reachable = hole <= next ? hole < home && home <= next : hole < home || home <= next;
+            if (!reachable) {
+                index.setInt(hole * Integer.BYTES, entry);
+                hole = next;
+            }
+        }
+        index.setInt(hole * Integer.BYTES, EMPTY);
+    }
+
+    private static int hash(long token) {
+        return (int) ((token * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+
+    private void writeAddress(int offset, InetSocketAddress udpSocketAddress) {
+        records.setZero(offset + ADDRESS, ADDRESS_SIZE + Short.BYTES * 2);
+        if (udpSocketAddress == null) {
+            return;
+        }
+        byte[] address = udpSocketAddress.getAddress().getAddress();
+        records.setBytes(offset + ADDRESS + ADDRESS_SIZE - address.length, address);
+        records.setShort(offset + PORT, udpSocketAddress.getPort());
+        records.setShort(offset + FLAGS, address.length == ADDRESS_SIZE ? UDP_BOUND | IPV6 : UDP_BOUND);
+    }
+
+    // checked before a write takes the lock, so that a rejected address leaves the record as it was
+    private static InetSocketAddress requireResolved(InetSocketAddress udpSocketAddress) {
+        if (udpSocketAddress != null && udpSocketAddress.isUnresolved()) {
+            throw new IllegalArgumentException("UDP socket address is unresolved: " + udpSocketAddress);
+        }
+        return udpSocketAddress;
+    }
+
+    private InetSocketAddress readAddress(int offset) {
+        int flags = records.getShort(offset + FLAGS);
+        if ((flags & UDP_BOUND) == 0) {
+            return null;
+        }
+        byte[] address = new byte[(flags & IPV6) == 0 ? 4 : ADDRESS_SIZE];
+        records.getBytes(offset + ADDRESS + ADDRESS_SIZE - address.length, address);
+        try {
+            return new InetSocketAddress(InetAddress.getByAddress(address), records.getUnsignedShort(offset + PORT));
+        } catch (UnknownHostException e) {
+            // only thrown for addresses that are neither 4 nor 16 bytes long
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private <R> R read(Supplier<R> reader) {
+        long stamp = lock.tryOptimisticRead();
+        R value = reader.get();
+        if (lock.validate(stamp)) {
+            return value;
+        }
+        stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * A session that reads and writes its record. It goes stale once its session is removed, even if the slot is
+     * reused, because the record then holds another token.
+     */
+    private final class SlotSession extends SockiopathSession {
+
+        private final int offset;
+        private final int slot;
+
+        SlotSession(int slot, long token, ChannelHandlerContext webSocketContext, Object[] attributes) {
+            super(webSocketContext, token, attributes);
+            this.slot = slot;
+            this.offset = slot * RECORD_SIZE;
+        }
+
+        private boolean live() {
+            return records.getLong(offset + TOKEN) == getToken();
+        }
+
+        @Override
+        public InetSocketAddress getUdpSocketAddress() {
+            return read(() -> live() ? readAddress(offset) : null);
+        }
+
+        @Override
+        public SockiopathSession withUdpSocketAddress(InetSocketAddress udpSocketAddress) {
+            requireResolved(udpSocketAddress);
+            long stamp = lock.writeLock();
+            try {
+                if (live()) {
+                    writeAddress(offset, udpSocketAddress);
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            return this;
+        }
+
+        @Override
+        public ChannelHandlerContext getUdpContext() {
+            ChannelHandlerContext udpContext = udpContexts.get(slot);
+            return live() ? udpContext : null;
+        }
+
+        @Override
+        public SockiopathSession withUdpContext(ChannelHandlerContext udpContext) {
+            long stamp = lock.writeLock();
+            try {
+                if (live()) {
+                    udpContexts.set(slot, udpContext);
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            return this;
+        }
+
+        @Override
+        public void clearUdpBinding() {
+            long stamp = lock.writeLock();
+            try {
+                if (live()) {
+                    writeAddress(offset, null);
+                    udpContexts.set(slot, null);
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        // a touch that races with the removal of its session at worst marks a new session in the slot as active
+        @Override
+        public void touch() {
+            if (live()) {
+                records.setLong(offset + LAST_ACTIVITY, System.nanoTime());
+            }
+        }
+
+        @Override
+        public void touchUdp() {
+            if (live()) {
+                long now = System.nanoTime();
+                records.setLong(offset + LAST_ACTIVITY, now);
+                records.setLong(offset + LAST_UDP_ACTIVITY, now);
+            }
+        }
+
+        @Override
+        public long getLastActivityNanos() {
+            return records.getLong(offset + LAST_ACTIVITY);
+        }
+
+        @Override
+        public long getLastUdpActivityNanos() {
+            return records.getLong(offset + LAST_UDP_ACTIVITY);
+        }
+    }
+}
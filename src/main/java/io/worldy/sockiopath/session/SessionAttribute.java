@@ -0,0 +1,87 @@
+package io.worldy.sockiopath.session;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A typed key for application state kept on a {@link SockiopathSession}.
+ * <p>
+ * Every attribute is given the next slot index when it is registered, and sessions keep their attributes in an
+ * array indexed by slot, so reading one is an array access rather than a lookup in a map per kind of state.
+ * Sessions only have slots for the attributes registered before they were created, so register attributes as
+ * constants that are initialized before the server starts:
+ * <pre>{@code
+ * static final SessionAttribute<Score> SCORE = SessionAttribute.valueOf("score", Score.class);
+ * }</pre>
+ * The stores of this package clear the attributes of a session when they remove it, and release the values that
+ * are {@link Releasable}.
+ */
+public final class SessionAttribute<T> {
+
+    /**
+     * A value that holds resources, such as pooled buffers, to release when its session leaves the store.
+     */
+    public interface Releasable {
+
+        void release();
+    }
+
+    private static final Map<String, SessionAttribute<?>> ATTRIBUTES = new ConcurrentHashMap<>();
+
+    private static volatile int count;
+
+    private final String name;
+    private final Class<T> type;
+    private final int index;
+
+    private SessionAttribute(String name, Class<T> type, int index) {
+        this.name = name;
+        this.type = type;
+        this.index = index;
+    }
+
+    /**
+     * The attribute registered as {@code name}, which is registered if it was not.
+     *
+     * @throws IllegalArgumentException if {@code name} is registered with another type
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> SessionAttribute<T> valueOf(String name, Class<T> type) {
+        SessionAttribute<?> attribute = ATTRIBUTES.computeIfAbsent(name, key -> register(key, type));
+        if (attribute.type != type) {
+            throw new IllegalArgumentException("session attribute " + name + " is a " + attribute.type.getName()
+                    + ", not a " + type.getName());
+        }
+        return (SessionAttribute<T>) attribute;
+    }
+
+    private static synchronized SessionAttribute<?> register(String name, Class<?> type) {
+        SessionAttribute<?> attribute = new SessionAttribute<>(name, type, count);
+        count = attribute.index + 1;
+        return attribute;
+    }
+
+    /**
+     * How many attributes are registered, which is how many slots a new session has.
+     */
+    static int count() {
+        return count;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public Class<T> type() {
+        return type;
+    }
+
+    public int index() {
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return "SessionAttribute[" + name + ", " + type.getName() + ", " + index + "]";
+    }
+}
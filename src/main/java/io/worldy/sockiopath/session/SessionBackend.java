@@ -0,0 +1,29 @@
+package io.worldy.sockiopath.session;
+
+import java.util.function.Consumer;
+
+/**
+ * The store shared by the nodes of a cluster behind a {@link NearCacheSessionStore}.
+ * <p>
+ * Implementations are called on event loops when a lookup misses the near-cache, so a lookup should be answered in
+ * well under a millisecond. Every store and delete must be announced to the subscribers of all nodes, including the
+ * node that made it, so that they drop their cached copy; announcements may arrive late, but not out of order for
+ * one id.
+ */
+public interface SessionBackend {
+
+    SessionRecord load(String id);
+
+    SessionRecord loadByToken(long token);
+
+    void store(SessionRecord record);
+
+    void delete(String id);
+
+    /**
+     * Subscribes to the ids of the sessions stored or deleted by any node.
+     *
+     * @return unsubscribes the listener
+     */
+    Runnable subscribe(Consumer<String> invalidations);
+}
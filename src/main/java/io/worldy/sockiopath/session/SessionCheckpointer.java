@@ -0,0 +1,254 @@
+package io.worldy.sockiopath.session;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checkpoints the sessions of a {@link SessionStore} to a memory-mapped snapshot file, so that a restarted server
+ * can restore them and returning clients can {@code join} again with their previous token instead of all joining
+ * anew at once.
+ * <p>
+ * A snapshot holds the token and UDP binding of every session whose id is the
+ * {@link SessionTokens#toHex(long) hex form} of its token. It is written to a temporary file that then replaces the
+ * previous snapshot, so a crash while checkpointing leaves the last complete one. Checkpoints run on a thread of
+ * their own and only read the store, never blocking an event loop; the store must therefore be safe to read from
+ * another thread, as a {@link ConcurrentSessionStore} is.
+ * <p>
+ * Restored sessions have no WebSocket channel until their client joins again. Wrap the store in an
+ * {@link ExpiringSessionStore} to drop the ones that never come back.
+ */
+public class SessionCheckpointer {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionCheckpointer.class);
+
+    public static final Duration DEFAULT_INTERVAL = Duration.ofSeconds(30);
+
+    static final int MAGIC = 0x534B5053;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 32;
+    static final int CHUNK_RECORDS = 65536;
+
+    private static final int TOKEN = 0;
+    private static final int PORT = 8;
+    private static final int FLAGS = 10;
+    private static final int ADDRESS = 16;
+    private static final int ADDRESS_SIZE = 16;
+
+    private static final int UDP_BOUND = 1;
+    private static final int IPV6 = 2;
+
+    private final SessionStore<SockiopathSession> sessionStore;
+    private final Path snapshot;
+    private final Duration interval;
+    private final int chunkRecords;
+
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> checkpoints;
+
+    public SessionCheckpointer(SessionStore<SockiopathSession> sessionStore, Path snapshot) {
+        this(sessionStore, snapshot, DEFAULT_INTERVAL);
+    }
+
+    /**
+     * @param interval between periodic checkpoints, or {@link Duration#ZERO} to only checkpoint on {@link #stop()}
+     */
+    public SessionCheckpointer(SessionStore<SockiopathSession> sessionStore, Path snapshot, Duration interval) {
+        this(sessionStore, snapshot, interval, CHUNK_RECORDS);
+    }
+
+    SessionCheckpointer(SessionStore<SockiopathSession> sessionStore, Path snapshot, Duration interval, int chunkRecords) {
+        if (interval.isNegative()) {
+            throw new IllegalArgumentException("interval must not be negative: " + interval);
+        }
+        this.sessionStore = sessionStore;
+        this.snapshot = snapshot;
+        this.interval = interval;
+        this.chunkRecords = chunkRecords;
+    }
+
+    /**
+     * Restores the last snapshot, if there is one, and starts checkpointing periodically. Does nothing if already
+     * started.
+     *
+     * @return the number of restored sessions
+     */
+    public synchronized int start() {
+        if (scheduler != null) {
+            return 0;
+        }
+        int restored = restore();
+        scheduler = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory(SessionCheckpointer.class, true));
+        if (!interval.isZero()) {
+            checkpoints = scheduler.scheduleWithFixedDelay(
+                    this::checkpointQuietly, interval.toNanos(), interval.toNanos(), TimeUnit.NANOSECONDS
+            );
+        }
+        return restored;
+    }
+
+    /**
+     * Stops checkpointing periodically and writes a last checkpoint. Does nothing if not started.
+     */
+    public synchronized void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        if (checkpoints != null) {
+            checkpoints.cancel(false);
+            checkpoints = null;
+        }
+        scheduler.shutdown();
+        scheduler = null;
+        checkpointQuietly();
+    }
+
+    private void checkpointQuietly() {
+        try {
+            checkpoint();
+        } catch (IOException | RuntimeException e) {
+            logger.error("Checkpointing sessions to " + snapshot + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes the sessions of the store to the snapshot file.
+     *
+     * @return the number of sessions written
+     */
+    public synchronized int checkpoint() throws IOException {
+        Path temporary = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        List<SockiopathSession> sessions = new ArrayList<>(sessionStore.size());
+        sessionStore.forEachEntry((id, session) -> {
+            if (SessionTokens.parseHex(id) == session.getToken()) {
+                sessions.add(session);
+            }
+        });
+        int count = 0;
+        try (FileChannel channel = FileChannel.open(temporary,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer chunk = null;
+            for (SockiopathSession session : sessions) {
+                if (chunk == null || !chunk.hasRemaining()) {
+                    force(chunk);
+                    chunk = channel.map(FileChannel.MapMode.READ_WRITE,
+                            HEADER_SIZE + (long) count * RECORD_SIZE, (long) chunkRecords * RECORD_SIZE);
+                }
+                writeRecord(chunk, session);
+                count++;
+            }
+            force(chunk);
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(0);
+            header.force();
+            channel.truncate(HEADER_SIZE + (long) count * RECORD_SIZE);
+        }
+        Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.debug("Checkpointed {} sessions to {}", count, snapshot);
+        return count;
+    }
+
+    /**
+     * Puts the sessions of the snapshot file that are not already in the store into it. A missing snapshot
+     * restores nothing, as does one that is not a complete snapshot of this version.
+     *
+     * @return the number of restored sessions
+     */
+    public int restore() {
+        if (!Files.exists(snapshot)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                logger.warn("Not restoring sessions, " + snapshot + " is not a session snapshot.");
+                return 0;
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            int magic = header.getInt();
+            int version = header.getInt();
+            int count = header.getInt();
+            if (magic != MAGIC || version != VERSION || count < 0 || size != HEADER_SIZE + (long) count * RECORD_SIZE) {
+                logger.warn("Not restoring sessions, " + snapshot + " is not a complete version " + VERSION + " session snapshot.");
+                return 0;
+            }
+            int restored = 0;
+            for (int read = 0; read < count; read += chunkRecords) {
+                int records = Math.min(chunkRecords, count - read);
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_SIZE + (long) read * RECORD_SIZE, (long) records * RECORD_SIZE);
+                for (int i = 0; i < records; i++) {
+                    if (restoreRecord(chunk, i * RECORD_SIZE)) {
+                        restored++;
+                    }
+                }
+            }
+            logger.info("Restored " + restored + " sessions from " + snapshot);
+            return restored;
+        } catch (IOException e) {
+            logger.error("Restoring sessions from " + snapshot + " failed: " + e.getMessage(), e);
+            return 0;
+        }
+    }
+
+    private static void force(MappedByteBuffer chunk) {
+        if (chunk != null) {
+            chunk.force();
+        }
+    }
+
+    private static void writeRecord(MappedByteBuffer chunk, SockiopathSession session) {
+        int offset = chunk.position();
+        chunk.putLong(offset + TOKEN, session.getToken());
+        InetSocketAddress udpSocketAddress = session.getUdpSocketAddress();
+        if (udpSocketAddress != null && !udpSocketAddress.isUnresolved()) {
+            byte[] address = udpSocketAddress.getAddress().getAddress();
+            chunk.putShort(offset + PORT, (short) udpSocketAddress.getPort());
+            chunk.putShort(offset + FLAGS, (short) (address.length == ADDRESS_SIZE ? UDP_BOUND | IPV6 : UDP_BOUND));
+            chunk.put(offset + ADDRESS + ADDRESS_SIZE - address.length, address);
+        }
+        chunk.position(offset + RECORD_SIZE);
+    }
+
+    private boolean restoreRecord(MappedByteBuffer chunk, int offset) throws IOException {
+        long token = chunk.getLong(offset + TOKEN);
+        String id = SessionTokens.toHex(token);
+        if (token == SessionTokens.NO_TOKEN) {
+            return false;
+        }
+        SockiopathSession session = new SockiopathSession(null, token);
+        int flags = chunk.getShort(offset + FLAGS);
+        if ((flags & UDP_BOUND) != 0) {
+            byte[] address = new byte[(flags & IPV6) == 0 ? 4 : ADDRESS_SIZE];
+            chunk.get(offset + ADDRESS + ADDRESS_SIZE - address.length, address);
+            session.withUdpSocketAddress(new InetSocketAddress(
+                    InetAddress.getByAddress(address), Short.toUnsignedInt(chunk.getShort(offset + PORT))
+            ));
+        }
+        boolean[] restored = new boolean[1];
+        sessionStore.computeIfAbsent(id, absent -> {
+            restored[0] = true;
+            return session;
+        });
+        return restored[0];
+    }
+}
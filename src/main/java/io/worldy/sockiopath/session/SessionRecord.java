@@ -0,0 +1,23 @@
+package io.worldy.sockiopath.session;
+
+import java.net.InetSocketAddress;
+
+/**
+ * What a {@link SessionBackend} keeps of a session: the parts that mean something on another node. Channel contexts
+ * and {@link SessionAttribute attributes} stay on the node the session joined.
+ *
+ * @param udpSocketAddress the UDP binding of the session when it was stored, or {@code null}
+ */
+public record SessionRecord(String id, long token, InetSocketAddress udpSocketAddress) {
+
+    public static SessionRecord of(String id, SockiopathSession session) {
+        return new SessionRecord(id, session.getToken(), session.getUdpSocketAddress());
+    }
+
+    /**
+     * A session for the record, without channels, as a node that the session did not join sees it.
+     */
+    public SockiopathSession toSession() {
+        return new SockiopathSession(null, token).withUdpSocketAddress(udpSocketAddress);
+    }
+}
@@ -2,23 +2,80 @@ package io.worldy.sockiopath.session;
 
 import io.netty.channel.ChannelHandlerContext;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
-import java.util.function.BiFunction;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
-import java.util.function.Supplier;
 
+/**
+ * The sessions of a server by id, and by the token of each session.
+ * <p>
+ * {@link #forEachSession(Consumer)} and {@link #forEachEntry(BiConsumer)} visit the sessions in place, without a
+ * lookup per session, and are what broadcasts should use; their visitors must not put or remove sessions. Code that
+ * does has to loop over a {@link #snapshotIterator() snapshot} instead. Stores shared between event loops visit the
+ * sessions that are stored while the visit runs, as the iterators of a concurrent map do.
+ * <p>
+ * Stores written against the earlier functional form of this interface can be adapted with
+ * {@link #of(FunctionalSessionStore)}.
+ */
 public interface SessionStore<T extends SockiopathSession> {
-    Function<String, T> get();
 
-    BiFunction<String, T, T> put();
+    T get(String id);
 
-    Function<String, T> remove();
+    T getByToken(long token);
 
-    Supplier<Integer> size();
+    T put(String id, T session);
 
-    Supplier<Set<String>> keySet();
+    T remove(String id);
+
+    /**
+     * The session stored under {@code id}, or the one {@code create} returns for it, which is then stored unless it
+     * is {@code null}. Stores shared between event loops call {@code create} at most once per absent id, so that
+     * only one of two racing calls creates the session.
+     */
+    T computeIfAbsent(String id, Function<? super String, ? extends T> create);
+
+    int size();
+
+    /**
+     * Visits the id and session of every stored session.
+     */
+    void forEachEntry(BiConsumer<? super String, ? super T> visitor);
+
+    /**
+     * Visits every stored session.
+     */
+    default void forEachSession(Consumer<? super T> visitor) {
+        forEachEntry((id, session) -> visitor.accept(session));
+    }
+
+    /**
+     * The ids of the stored sessions, copied so that it does not change with the store.
+     */
+    default Set<String> keySet() {
+        Set<String> ids = new HashSet<>();
+        forEachEntry((id, session) -> ids.add(id));
+        return ids;
+    }
+
+    /**
+     * Iterates over a copy of the stored sessions, so sessions can be put and removed while iterating.
+     */
+    default Iterator<T> snapshotIterator() {
+        List<T> sessions = new ArrayList<>(size());
+        forEachSession(sessions::add);
+        return sessions.iterator();
+    }
 
     default SockiopathSession createSession(ChannelHandlerContext ctx) {
         return new SockiopathSession(ctx);
     }
+
+    static <T extends SockiopathSession> SessionStore<T> of(FunctionalSessionStore<T> functionalSessionStore) {
+        return new FunctionalSessionStoreAdapter<>(functionalSessionStore);
+    }
 }
@@ -0,0 +1,72 @@
+package io.worldy.sockiopath.session;
+
+import io.netty.buffer.ByteBuf;
+
+import java.security.SecureRandom;
+
+/**
+ * Compact 64-bit session tokens, handed out at join and used as the session id. Binary frames carry them as
+ * 8 bytes, text-delimited messages as 16 hex digits. Tokens are random so they cannot be guessed from other
+ * sessions, and are never {@link #NO_TOKEN}.
+ */
+public final class SessionTokens {
+
+    public static final long NO_TOKEN = 0L;
+
+    private static final int HEX_LENGTH = 16;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private SessionTokens() {
+    }
+
+    public static long next() {
+        long token;
+        do {
+            token = RANDOM.nextLong();
+        } while (token == NO_TOKEN);
+        return token;
+    }
+
+    public static String toHex(long token) {
+        String hex = Long.toHexString(token);
+        return "0".repeat(HEX_LENGTH - hex.length()) + hex;
+    }
+
+    /**
+     * Parses the {@link #toHex(long) hex form} of a token from {@code length} bytes of {@code content} starting
+     * at {@code index}, without allocating. Returns {@link #NO_TOKEN} if the bytes are not a token.
+     */
+    public static long parseHex(ByteBuf content, int index, int length) {
+        if (length != HEX_LENGTH) {
+            return NO_TOKEN;
+        }
+        long token = 0;
+        for (int i = 0; i < HEX_LENGTH; i++) {
+            int digit = Character.digit(content.getByte(index + i), 16);
+            if (digit < 0) {
+                return NO_TOKEN;
+            }
+            token = (token << 4) | digit;
+        }
+        return token;
+    }
+
+    /**
+     * Parses the {@link #toHex(long) hex form} of a token, or returns {@link #NO_TOKEN} if {@code id} is not one.
+     */
+    public static long parseHex(CharSequence id) {
+        if (id == null || id.length() != HEX_LENGTH) {
+            return NO_TOKEN;
+        }
+        long token = 0;
+        for (int i = 0; i < HEX_LENGTH; i++) {
+            int digit = Character.digit(id.charAt(i), 16);
+            if (digit < 0) {
+                return NO_TOKEN;
+            }
+            token = (token << 4) | digit;
+        }
+        return token;
+    }
+}
@@ -2,22 +2,70 @@ package io.worldy.sockiopath.session;
 
 import io.netty.channel.ChannelHandlerContext;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.net.InetSocketAddress;
+import java.util.Arrays;
 
 public class SockiopathSession {
+
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    static final Object[] NO_ATTRIBUTES = new Object[0];
+
     private final ChannelHandlerContext webSocketContext;
-    private InetSocketAddress udpSocketAddress;
+    private final long token;
+    private volatile InetSocketAddress udpSocketAddress;
 
-    private ChannelHandlerContext udpContext;
+    private volatile ChannelHandlerContext udpContext;
+
+    private volatile long lastActivityNanos = System.nanoTime();
+    private volatile long lastUdpActivityNanos = lastActivityNanos;
+
+    // the values of its SessionAttributes, by slot
+    private final Object[] attributes;
 
     public SockiopathSession(ChannelHandlerContext webSocketContext) {
+        this(webSocketContext, SessionTokens.next());
+    }
+
+    public SockiopathSession(ChannelHandlerContext webSocketContext, long token) {
+        this(webSocketContext, token, newAttributes());
+    }
+
+    SockiopathSession(ChannelHandlerContext webSocketContext, long token, Object[] attributes) {
         this.webSocketContext = webSocketContext;
+        this.token = token;
+        this.attributes = attributes;
+    }
+
+    static Object[] newAttributes() {
+        int count = SessionAttribute.count();
+        return count == 0 ? NO_ATTRIBUTES : new Object[count];
+    }
+
+    /**
+     * The same session on another WebSocket channel, or detached from its channel with {@code null}: it keeps the
+     * token, the UDP binding and the attributes of this session, which it shares with it.
+     */
+    public SockiopathSession reattach(ChannelHandlerContext webSocketContext) {
+        Object[] slots = attributes();
+        int count = SessionAttribute.count();
+        // a session older than some attributes gets slots for them, and a copy of the values it has
+        SockiopathSession session = new SockiopathSession(
+                webSocketContext, token, slots.length < count ? Arrays.copyOf(slots, count) : slots
+        );
+        return session.withUdpSocketAddress(getUdpSocketAddress()).withUdpContext(getUdpContext());
     }
 
     public ChannelHandlerContext getWebSocketContext() {
         return webSocketContext;
     }
 
+    public long getToken() {
+        return token;
+    }
+
     public InetSocketAddress getUdpSocketAddress() {
         return udpSocketAddress;
     }
@@ -35,4 +83,98 @@ public class SockiopathSession {
         this.udpContext = udpContext;
         return this;
     }
+
+    public void clearUdpBinding() {
+        this.udpSocketAddress = null;
+        this.udpContext = null;
+    }
+
+    /**
+     * Records activity on the session, see {@link ExpiringSessionStore}.
+     */
+    public void touch() {
+        lastActivityNanos = System.nanoTime();
+    }
+
+    /**
+     * Records activity on the session and its UDP binding.
+     */
+    public void touchUdp() {
+        long now = System.nanoTime();
+        lastActivityNanos = now;
+        lastUdpActivityNanos = now;
+    }
+
+    public long getLastActivityNanos() {
+        return lastActivityNanos;
+    }
+
+    public long getLastUdpActivityNanos() {
+        return lastUdpActivityNanos;
+    }
+
+    /**
+     * Reads an attribute without ordering, for state only ever used by one thread, such as the event loop of the
+     * session with {@link io.worldy.sockiopath.SockiopathServerHandler#setSessionAffinity(boolean) affinity}.
+     *
+     * @return the value, or {@code null} if it is not set
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getAttribute(SessionAttribute<T> attribute) {
+        Object[] slots = attributes();
+        int index = attribute.index();
+        return index < slots.length ? (T) slots[index] : null;
+    }
+
+    public <T> void setAttribute(SessionAttribute<T> attribute, T value) {
+        attributes()[slot(attribute)] = value;
+    }
+
+    /**
+     * Reads an attribute with volatile semantics, for state shared between threads.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getAttributeVolatile(SessionAttribute<T> attribute) {
+        Object[] slots = attributes();
+        int index = attribute.index();
+        return index < slots.length ? (T) SLOTS.getVolatile(slots, index) : null;
+    }
+
+    public <T> void setAttributeVolatile(SessionAttribute<T> attribute, T value) {
+        SLOTS.setVolatile(attributes(), slot(attribute), value);
+    }
+
+    /**
+     * Sets an attribute to {@code value} if it is {@code expected}, compared by identity.
+     */
+    public <T> boolean compareAndSetAttribute(SessionAttribute<T> attribute, T expected, T value) {
+        return SLOTS.compareAndSet(attributes(), slot(attribute), expected, value);
+    }
+
+    private int slot(SessionAttribute<?> attribute) {
+        int index = attribute.index();
+        if (index >= attributes().length) {
+            throw new IllegalStateException(attribute + " was registered after the session was created");
+        }
+        return index;
+    }
+
+    /**
+     * The attribute slots of the session, which the views of an {@link OffHeapSessionStore} share with their record.
+     */
+    Object[] attributes() {
+        return attributes;
+    }
+
+    /**
+     * Drops the attributes of a removed session, releasing those that are {@link SessionAttribute.Releasable}.
+     */
+    void clearAttributes() {
+        Object[] slots = attributes();
+        for (int i = 0; i < slots.length; i++) {
+            if (SLOTS.getAndSet(slots, i, null) instanceof SessionAttribute.Releasable releasable) {
+                releasable.release();
+            }
+        }
+    }
 }
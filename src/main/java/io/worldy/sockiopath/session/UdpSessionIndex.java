@@ -0,0 +1,157 @@
+package io.worldy.sockiopath.session;
+
+import io.netty.channel.ChannelHandlerContext;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Finds the session bound to the address and port a datagram came from, so that bound clients can leave their
+ * session out of every message.
+ * <p>
+ * IPv4 bindings are kept in shards of long keyed maps, with the address and port packed into the key, so a lookup
+ * hashes a long rather than a string and takes the read lock of one shard. IPv6 bindings do not fit in a long and
+ * are kept in a concurrent map by address.
+ * <p>
+ * A session that sends from a new address, as it does when a NAT rebinds its mapping, is moved there in one step:
+ * its old address is unbound, and a session that was still bound to the new address loses its binding. Sessions
+ * are matched by token, so the views of an {@link OffHeapSessionStore} can be bound too.
+ */
+public class UdpSessionIndex {
+
+    // packed IPv4 keys use the low 48 bits, so a negative key never is one
+    private static final long NOT_IPV4 = -1L;
+
+    private final LongShard<SockiopathSession>[] shards;
+    private final Map<InetSocketAddress, SockiopathSession> ipv6 = new ConcurrentHashMap<>();
+    private final int mask;
+
+    private final LongAdder rebinds = new LongAdder();
+
+    public UdpSessionIndex() {
+        this(ConcurrentSessionStore.DEFAULT_SHARDS);
+    }
+
+    public UdpSessionIndex(int shards) {
+        int shardCount = ConcurrentSessionStore.shardsFor(shards);
+        this.shards = LongShard.shards(shardCount);
+        this.mask = shardCount - 1;
+    }
+
+    /**
+     * The session bound to {@code sender}, or {@code null}. A binding that its session has since cleared, as an
+     * {@link ExpiringSessionStore} does, is dropped here.
+     */
+    public SockiopathSession get(InetSocketAddress sender) {
+        SockiopathSession session = lookup(sender);
+        if (session != null && !sender.equals(session.getUdpSocketAddress())) {
+            remove(sender, session);
+            return null;
+        }
+        return session;
+    }
+
+    /**
+     * Binds {@code session} to the address a datagram of it came from. Only writes when the binding changes, so
+     * it can be called for every datagram.
+     *
+     * @return whether the session was bound to another address before, that is whether it was rebound
+     */
+    public boolean bind(SockiopathSession session, InetSocketAddress sender, ChannelHandlerContext context) {
+        if (sender.equals(session.getUdpSocketAddress()) && isSession(lookup(sender), session)) {
+            if (session.getUdpContext() != context) {
+                session.withUdpContext(context);
+            }
+            return false;
+        }
+        synchronized (this) {
+            InetSocketAddress bound = session.getUdpSocketAddress();
+            boolean rebound = bound != null && !bound.equals(sender);
+            if (rebound) {
+                remove(bound, session);
+            }
+            SockiopathSession previous = put(sender, session);
+            if (previous != null && !isSession(previous, session) && sender.equals(previous.getUdpSocketAddress())) {
+                previous.clearUdpBinding();
+            }
+            session.withUdpSocketAddress(sender).withUdpContext(context);
+            if (rebound) {
+                rebinds.increment();
+            }
+            return rebound;
+        }
+    }
+
+    /**
+     * Removes the binding of a session, for example when it leaves the store.
+     */
+    public synchronized void unbind(SockiopathSession session) {
+        InetSocketAddress bound = session.getUdpSocketAddress();
+        if (bound != null) {
+            remove(bound, session);
+        }
+    }
+
+    public int size() {
+        int size = ipv6.size();
+        for (LongShard<SockiopathSession> shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    /**
+     * How many times a session was moved to a new address.
+     */
+    public long rebindCount() {
+        return rebinds.sum();
+    }
+
+    private SockiopathSession lookup(InetSocketAddress address) {
+        long key = key(address);
+        if (key == NOT_IPV4) {
+            return ipv6.get(address);
+        }
+        return shard(key).get(key);
+    }
+
+    private SockiopathSession put(InetSocketAddress address, SockiopathSession session) {
+        long key = key(address);
+        if (key == NOT_IPV4) {
+            return ipv6.put(address, session);
+        }
+        return shard(key).put(key, session);
+    }
+
+    private void remove(InetSocketAddress address, SockiopathSession session) {
+        long key = key(address);
+        if (key == NOT_IPV4) {
+            ipv6.computeIfPresent(address, (bound, current) -> isSession(current, session) ? null : current);
+            return;
+        }
+        shard(key).remove(key, current -> isSession(current, session));
+    }
+
+    private LongShard<SockiopathSession> shard(long key) {
+        int hash = Long.hashCode(key);
+        return shards[((hash ^ (hash >>> 16)) * 0x9E3779B9 >>> 16) & mask];
+    }
+
+    private static boolean isSession(SockiopathSession candidate, SockiopathSession session) {
+        return candidate != null && candidate.getToken() == session.getToken();
+    }
+
+    static long key(InetSocketAddress address) {
+        InetAddress inetAddress = address.getAddress();
+        if (!(inetAddress instanceof Inet4Address)) {
+            return NOT_IPV4;
+        }
+        // the hash code of an IPv4 address is the address itself, and unlike getAddress() it copies nothing
+        long ipv4 = inetAddress.hashCode() & 0xFFFFFFFFL;
+        return ipv4 << 16 | address.getPort();
+    }
+}
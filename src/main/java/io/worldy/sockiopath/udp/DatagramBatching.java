@@ -0,0 +1,86 @@
+package io.worldy.sockiopath.udp;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollDatagramChannel;
+
+/**
+ * Batches datagram I/O on the native epoll transport.
+ * <p>
+ * Reads take up to {@code datagramsPerRead} datagrams of at most {@code maxDatagramSize} bytes per
+ * {@code recvmmsg} call. Writes that are flushed together are coalesced by a {@link DatagramSegmenter} into UDP GSO
+ * packets of up to {@code maxSegments} datagrams each, so the kernel splits them instead of the application making
+ * a syscall per datagram. Replies are written and flushed one by one, so only consolidated flushes let writes share
+ * a flush: a {@link UdpServer} that batches writes flushes its replies as {@link io.worldy.sockiopath.flush.FlushPolicy#adaptive()} does,
+ * unless it was given a flush policy of its own. Both are ignored on NIO.
+ *
+ * @param maxDatagramSize  the largest datagram that can be received
+ * @param datagramsPerRead the number of datagrams received per syscall. {@code 1} disables batched reads.
+ * @param maxSegments      the number of datagrams sent per syscall. {@code 1} disables segmentation offload.
+ */
+public record DatagramBatching(int maxDatagramSize, int datagramsPerRead, int maxSegments) {
+
+    public static final int DEFAULT_MAX_DATAGRAM_SIZE = 2048;
+    public static final int DEFAULT_DATAGRAMS_PER_READ = 32;
+    // the kernel refuses GSO packets with more segments than UDP_MAX_SEGMENTS
+    public static final int MAX_SEGMENTS = 64;
+
+    public DatagramBatching {
+        if (maxDatagramSize < 1) {
+            throw new IllegalArgumentException("maxDatagramSize must be at least 1: " + maxDatagramSize);
+        }
+        if (datagramsPerRead < 1) {
+            throw new IllegalArgumentException("datagramsPerRead must be at least 1: " + datagramsPerRead);
+        }
+        if (maxSegments < 1 || maxSegments > MAX_SEGMENTS) {
+            throw new IllegalArgumentException("maxSegments must be between 1 and " + MAX_SEGMENTS + ": " + maxSegments);
+        }
+    }
+
+    public static DatagramBatching disabled() {
+        return new DatagramBatching(DEFAULT_MAX_DATAGRAM_SIZE, 1, 1);
+    }
+
+    public static DatagramBatching enabled() {
+        return new DatagramBatching(DEFAULT_MAX_DATAGRAM_SIZE, DEFAULT_DATAGRAMS_PER_READ, MAX_SEGMENTS);
+    }
+
+    public boolean batchesReads() {
+        return datagramsPerRead > 1;
+    }
+
+    public boolean batchesWrites() {
+        return maxSegments > 1 && EpollDatagramChannel.isSegmentedDatagramPacketSupported();
+    }
+
+    /**
+     * Sets the options for batched reads on an epoll bootstrap.
+     */
+    public Bootstrap apply(Bootstrap bootstrap) {
+        if (batchesReads()) {
+            bootstrap.option(EpollChannelOption.MAX_DATAGRAM_PAYLOAD_SIZE, maxDatagramSize)
+                    .option(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(maxDatagramSize * datagramsPerRead));
+        }
+        return bootstrap;
+    }
+
+    /**
+     * Puts a {@link DatagramSegmenter} in front of {@code channelHandler} when batched writes are supported.
+     */
+    public ChannelHandler withSegmentation(ChannelHandler channelHandler) {
+        if (!batchesWrites()) {
+            return channelHandler;
+        }
+        return new ChannelInitializer<Channel>() {
+            @Override
+            protected void initChannel(Channel channel) {
+                channel.pipeline().addLast(new DatagramSegmenter(maxSegments), channelHandler);
+            }
+        };
+    }
+}
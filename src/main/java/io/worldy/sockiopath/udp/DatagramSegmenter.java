@@ -0,0 +1,122 @@
+package io.worldy.sockiopath.udp;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.channel.unix.SegmentedDatagramPacket;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Coalesces the datagrams written between two flushes into UDP GSO packets.
+ * <p>
+ * Consecutive datagrams to the same recipient with the same size, optionally followed by one shorter datagram, are
+ * written as one {@link SegmentedDatagramPacket} that the kernel splits back into the original datagrams. Their
+ * contents become the components of a composite buffer, so nothing is copied. Anything else is written as is and in
+ * order. Only usable on the epoll transport, see {@link DatagramBatching#batchesWrites()}.
+ */
+public class DatagramSegmenter extends ChannelOutboundHandlerAdapter {
+
+    // largest UDP payload over IPv6, the total a GSO packet can carry
+    static final int MAX_SEGMENTED_BYTES = 65487;
+
+    private final int maxSegments;
+
+    private final ArrayDeque<PendingDatagram> pending = new ArrayDeque<>();
+
+    public DatagramSegmenter(int maxSegments) {
+        this.maxSegments = maxSegments;
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        if (msg instanceof DatagramPacket packet && !(msg instanceof SegmentedDatagramPacket)) {
+            pending.add(new PendingDatagram(msg, packet.content(), packet.recipient(), promise));
+        } else if (msg instanceof ByteBuf content) {
+            pending.add(new PendingDatagram(msg, content, remoteAddress(ctx), promise));
+        } else {
+            writePending(ctx);
+            ctx.write(msg, promise);
+        }
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) {
+        writePending(ctx);
+        ctx.flush();
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) {
+        writePending(ctx);
+        ctx.close(promise);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        writePending(ctx);
+    }
+
+    private void writePending(ChannelHandlerContext ctx) {
+        while (!pending.isEmpty()) {
+            PendingDatagram first = pending.poll();
+            int segmentSize = first.content().readableBytes();
+            if (first.recipient() == null || segmentSize == 0) {
+                ctx.write(first.msg(), first.promise());
+                continue;
+            }
+
+            List<PendingDatagram> segments = new ArrayList<>();
+            segments.add(first);
+            int totalBytes = segmentSize;
+            while (segments.size() < maxSegments && !pending.isEmpty()) {
+                PendingDatagram next = pending.peek();
+                int size = next.content().readableBytes();
+                if (!first.recipient().equals(next.recipient()) || size == 0 || size > segmentSize
+                        || totalBytes + size > MAX_SEGMENTED_BYTES) {
+                    break;
+                }
+                segments.add(pending.poll());
+                totalBytes += size;
+                if (size < segmentSize) {
+                    break;
+                }
+            }
+
+            if (segments.size() == 1) {
+                ctx.write(first.msg(), first.promise());
+            } else {
+                writeSegmented(ctx, segments, segmentSize, first.recipient());
+            }
+        }
+    }
+
+    private static void writeSegmented(ChannelHandlerContext ctx, List<PendingDatagram> segments, int segmentSize, InetSocketAddress recipient) {
+        CompositeByteBuf content = ctx.alloc().compositeDirectBuffer(segments.size());
+        segments.forEach(segment -> content.addComponent(true, segment.content()));
+        ctx.write(new SegmentedDatagramPacket(content, segmentSize, recipient))
+                .addListener((ChannelFutureListener) future -> segments.forEach(segment -> {
+                    if (future.isSuccess()) {
+                        segment.promise().trySuccess();
+                    } else {
+                        segment.promise().tryFailure(future.cause());
+                    }
+                }));
+    }
+
+    private static InetSocketAddress remoteAddress(ChannelHandlerContext ctx) {
+        SocketAddress remoteAddress = ctx.channel().remoteAddress();
+        return remoteAddress instanceof InetSocketAddress inetSocketAddress ? inetSocketAddress : null;
+    }
+
+    private record PendingDatagram(Object msg, ByteBuf content, InetSocketAddress recipient, ChannelPromise promise) {
+    }
+}
@@ -5,53 +5,108 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.pool.AbstractChannelPoolHandler;
-import io.netty.channel.pool.ChannelPool;
-import io.netty.channel.pool.SimpleChannelPool;
-import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
 import io.worldy.sockiopath.AbstractSockiopathServer;
 import io.worldy.sockiopath.SockiopathServer;
-import io.worldy.sockiopath.SockiopathServerHandler;
 import io.worldy.sockiopath.StartServerResult;
+import io.worldy.sockiopath.flush.FlushConsolidator;
+import io.worldy.sockiopath.flush.FlushPolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.net.NetworkInterface;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
 
 public class UdpServer extends AbstractSockiopathServer {
 
     private static Logger logger = LoggerFactory.getLogger(SockiopathServer.class);
 
+    private final Supplier<? extends ChannelHandler> channelHandlerSupplier;
+
+    private final UdpTransport transport;
+
+    private NetworkInterface multicastInterface;
+
     public UdpServer(
             ChannelHandler channelHandler,
             ExecutorService executorService,
             int port
     ) {
-        super(channelHandler, executorService, port);
+        this(channelHandler, executorService, port, null);
+    }
+
+    /**
+     * @param flushPolicy how the replies of a channel are flushed, or {@code null} to flush them as they are written
+     */
+    public UdpServer(
+            ChannelHandler channelHandler,
+            ExecutorService executorService,
+            int port,
+            FlushPolicy flushPolicy
+    ) {
+        this(() -> channelHandler, executorService, port, flushPolicy, UdpTransport.nio());
+    }
+
+    /**
+     * @param channelHandlerSupplier supplies the handler of each bound channel. It is called once per channel, so
+     *                               handlers that are not {@code @Sharable} can be bound on several channels.
+     * @param flushPolicy            how the replies of a channel are flushed, or {@code null} to flush them as they
+     *                               are written, or adaptively when {@code transport} batches writes, which are only
+     *                               coalesced when they share a flush
+     */
+    public UdpServer(
+            Supplier<? extends ChannelHandler> channelHandlerSupplier,
+            ExecutorService executorService,
+            int port,
+            FlushPolicy flushPolicy,
+            UdpTransport transport
+    ) {
+        super(channelHandlerSupplier.get(), executorService, port, flushPolicy);
+        this.channelHandlerSupplier = channelHandlerSupplier;
+        this.transport = transport;
+    }
+
+    /**
+     * Sends the datagrams addressed to multicast groups, as a {@link io.worldy.sockiopath.pubsub.PubSub} with
+     * {@link io.worldy.sockiopath.pubsub.MulticastGroups} does, out of {@code multicastInterface} instead of the
+     * interface the routing table picks. Set it before the server starts.
+     */
+    public void setMulticastInterface(NetworkInterface multicastInterface) {
+        this.multicastInterface = multicastInterface;
     }
 
     @Override
     public CompletableFuture<StartServerResult> start() {
+        restoreSessions();
         CompletableFuture<StartServerResult> future = new CompletableFuture<>();
         executorService.submit(() -> {
-            EventLoopGroup group = new NioEventLoopGroup();
+            if (transport.preferEpoll() && !transport.useEpoll()) {
+                logger.info("Native epoll transport unavailable, falling back to NIO: " + Epoll.unavailabilityCause());
+            }
+            EventLoopGroup group = transport.newEventLoopGroup();
             try {
                 Bootstrap bootstrap = new Bootstrap();
-                bootstrap.group(group)
-                        .channel(NioDatagramChannel.class)
-                        .option(ChannelOption.SO_BROADCAST, true)
-                        .handler(channelHandler);
+                transport.configure(bootstrap.group(group))
+                        .option(ChannelOption.SO_BROADCAST, true);
+                if (transport.useEpoll()) {
+                    bootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+                }
+                if (multicastInterface != null) {
+                    bootstrap.option(ChannelOption.IP_MULTICAST_IF, multicastInterface);
+                }
 
-                Channel channel = bootstrap.bind(port).sync().channel();
+                Channel channel = bind(bootstrap, channelHandler, port);
                 closeFuture = channel.closeFuture();
                 actualPort = SockiopathServer.getPort(channel);
 
-                if (channelHandler instanceof SockiopathServerHandler<?> sockiopathServerHandler) {
-                    sockiopathServerHandler.setChannelPool(channelPoolInstance(bootstrap, actualPort));
+                for (int i = 1; i < transport.channelCount(); i++) {
+                    bind(bootstrap, channelHandlerSupplier.get(), actualPort);
                 }
+                logger.info("Bound " + transport.channelCount() + " UDP channel(s) to port " + actualPort + " using " + transport.channelClass().getSimpleName());
 
                 future.complete(new StartServerResult(actualPort, closeFuture, this));
                 closeFuture.await();
@@ -64,14 +119,14 @@ public class UdpServer extends AbstractSockiopathServer {
         return future;
     }
 
-    protected ChannelPool channelPoolInstance(Bootstrap bootstrap, int actualPort) {
-        bootstrap.remoteAddress("localhost", actualPort);
-        return new SimpleChannelPool(bootstrap, new AbstractChannelPoolHandler() {
-            @Override
-            public void channelCreated(Channel channel) throws Exception {
-                logger.debug("Channel created in pool");
-            }
-        });
+    private Channel bind(Bootstrap bootstrap, ChannelHandler handler, int port) throws InterruptedException {
+        return bootstrap.clone()
+                .handler(transport.channelHandler(FlushConsolidator.withFlushPolicy(handler, flushPolicyFor(flushPolicy, transport))))
+                .bind(port).sync().channel();
+    }
+
+    static FlushPolicy flushPolicyFor(FlushPolicy flushPolicy, UdpTransport transport) {
+        return flushPolicy == null && transport.batchesWrites() ? FlushPolicy.adaptive() : flushPolicy;
     }
 
     @Override
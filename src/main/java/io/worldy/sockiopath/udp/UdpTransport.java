@@ -0,0 +1,92 @@
+package io.worldy.sockiopath.udp;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+
+/**
+ * Selects the transport a {@link UdpServer} binds with.
+ * <p>
+ * With the native epoll transport the server binds {@code channels} datagram channels to the same port with
+ * {@code SO_REUSEPORT}, one per event loop, and the kernel spreads inbound packets across them. Where epoll is not
+ * available, for example on macOS or Windows, the server falls back to a single NIO channel.
+ *
+ * @param preferEpoll use the native epoll transport when it is available
+ * @param channels    the number of channels, and event loops, to bind with epoll
+ * @param batching    how datagram reads and writes are batched with epoll
+ */
+public record UdpTransport(boolean preferEpoll, int channels, DatagramBatching batching) {
+
+    public UdpTransport {
+        if (channels < 1) {
+            throw new IllegalArgumentException("channels must be at least 1: " + channels);
+        }
+        if (batching == null) {
+            batching = DatagramBatching.disabled();
+        }
+    }
+
+    public UdpTransport(boolean preferEpoll, int channels) {
+        this(preferEpoll, channels, DatagramBatching.disabled());
+    }
+
+    public static UdpTransport nio() {
+        return new UdpTransport(false, 1);
+    }
+
+    public static UdpTransport epoll() {
+        return epoll(Runtime.getRuntime().availableProcessors());
+    }
+
+    public static UdpTransport epoll(int channels) {
+        return new UdpTransport(true, channels);
+    }
+
+    public UdpTransport withBatching(DatagramBatching batching) {
+        return new UdpTransport(preferEpoll, channels, batching);
+    }
+
+    public boolean useEpoll() {
+        return preferEpoll && Epoll.isAvailable();
+    }
+
+    public int channelCount() {
+        return useEpoll() ? channels : 1;
+    }
+
+    public EventLoopGroup newEventLoopGroup() {
+        return useEpoll() ? new EpollEventLoopGroup(channelCount()) : new NioEventLoopGroup();
+    }
+
+    public Class<? extends DatagramChannel> channelClass() {
+        return useEpoll() ? EpollDatagramChannel.class : NioDatagramChannel.class;
+    }
+
+    /**
+     * Whether the channels coalesce the writes flushed together into segmentation offload packets.
+     */
+    public boolean batchesWrites() {
+        return useEpoll() && batching.batchesWrites();
+    }
+
+    /**
+     * Sets the channel class and, with epoll, the batching options on {@code bootstrap}.
+     */
+    public Bootstrap configure(Bootstrap bootstrap) {
+        bootstrap.channel(channelClass());
+        return useEpoll() ? batching.apply(bootstrap) : bootstrap;
+    }
+
+    /**
+     * Wraps the handler of a bound channel with the handlers the transport needs in front of it.
+     */
+    public ChannelHandler channelHandler(ChannelHandler channelHandler) {
+        return useEpoll() ? batching.withSegmentation(channelHandler) : channelHandler;
+    }
+}
@@ -3,9 +3,9 @@ package io.worldy.sockiopath.udp.client;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
+import io.netty.channel.EventLoopGroup;
 import io.netty.channel.SimpleChannelInboundHandler;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.worldy.sockiopath.udp.UdpTransport;
 
 import java.util.concurrent.TimeUnit;
 
@@ -15,17 +15,29 @@ public final class BootstrappedUdpClient {
     protected final String host;
     protected final int port;
     protected final int connectTimeoutMillis;
-    protected final NioEventLoopGroup workGroup;
+    protected final UdpTransport transport;
+    protected final EventLoopGroup workGroup;
     protected final SimpleChannelInboundHandler<Object> messageHandler;
 
     protected Channel channel;
 
     public BootstrappedUdpClient(String host, int port, SimpleChannelInboundHandler<Object> messageHandler, int connectTimeoutMillis) {
+        this(host, port, messageHandler, connectTimeoutMillis, UdpTransport.nio());
+    }
+
+    public BootstrappedUdpClient(
+            String host,
+            int port,
+            SimpleChannelInboundHandler<Object> messageHandler,
+            int connectTimeoutMillis,
+            UdpTransport transport
+    ) {
         this.host = host;
         this.port = port;
         this.messageHandler = messageHandler;
         this.connectTimeoutMillis = connectTimeoutMillis;
-        this.workGroup = new NioEventLoopGroup();
+        this.transport = transport;
+        this.workGroup = transport.newEventLoopGroup();
     }
 
     public Channel getChannel() {
@@ -35,8 +47,8 @@ public final class BootstrappedUdpClient {
     public void startup() throws InterruptedException {
         Bootstrap b = new Bootstrap();
         b.group(workGroup);
-        b.channel(NioDatagramChannel.class);
-        b.handler(messageHandler);
+        transport.configure(b);
+        b.handler(transport.channelHandler(messageHandler));
         ChannelFuture channelFuture = b.connect(host, this.port);
         if (!channelFuture.await(connectTimeoutMillis, TimeUnit.MILLISECONDS)) {
             throw new RuntimeException("Client took too long to connect");
@@ -44,4 +56,8 @@ public final class BootstrappedUdpClient {
         this.channel = channelFuture.channel();
 
     }
+
+    public void shutdown() {
+        workGroup.shutdownGracefully();
+    }
 }
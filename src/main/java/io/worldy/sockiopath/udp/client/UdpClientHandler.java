@@ -6,14 +6,11 @@ import io.netty.channel.socket.DatagramPacket;
 import io.worldy.sockiopath.SockiopathHandler;
 import io.worldy.sockiopath.SockiopathServerHandler;
 import io.worldy.sockiopath.messaging.MessageBus;
-import io.worldy.sockiopath.messaging.SockiopathMessage;
+import io.worldy.sockiopath.messaging.MessageParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.nio.ByteBuffer;
 import java.util.Map;
-import java.util.Optional;
-import java.util.function.Function;
 
 public class UdpClientHandler extends SockiopathHandler<DatagramPacket> {
 
@@ -21,7 +18,7 @@ public class UdpClientHandler extends SockiopathHandler<DatagramPacket> {
 
     public UdpClientHandler(
             Map<String, MessageBus> messageHandlers,
-            Function<ByteBuffer, Optional<SockiopathMessage>> messageParser,
+            MessageParser messageParser,
             Logger logger
     ) {
         super(messageHandlers, messageParser, logger);
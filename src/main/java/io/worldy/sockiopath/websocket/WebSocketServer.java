@@ -11,6 +11,8 @@ import io.netty.handler.logging.LoggingHandler;
 import io.worldy.sockiopath.AbstractSockiopathServer;
 import io.worldy.sockiopath.SockiopathServer;
 import io.worldy.sockiopath.StartServerResult;
+import io.worldy.sockiopath.flush.FlushConsolidator;
+import io.worldy.sockiopath.flush.FlushPolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,8 +32,18 @@ public class WebSocketServer extends AbstractSockiopathServer {
         super(channelHandler, executorService, port);
     }
 
+    public WebSocketServer(
+            ChannelHandler channelHandler,
+            ExecutorService executorService,
+            int port,
+            FlushPolicy flushPolicy
+    ) {
+        super(channelHandler, executorService, port, flushPolicy);
+    }
+
     @Override
     public CompletableFuture<StartServerResult> start() {
+        restoreSessions();
         CompletableFuture<StartServerResult> future = new CompletableFuture<>();
         executorService.submit(() -> {
             EventLoopGroup bossGroup = new NioEventLoopGroup(1);
@@ -41,7 +53,7 @@ public class WebSocketServer extends AbstractSockiopathServer {
                 b.group(bossGroup, workerGroup)
                         .channel(NioServerSocketChannel.class)
                         .handler(new LoggingHandler(LogLevel.INFO))
-                        .childHandler(channelHandler);
+                        .childHandler(FlushConsolidator.withFlushPolicy(channelHandler, flushPolicy));
 
                 Channel channel = b.bind(port).sync().channel();
                 this.closeFuture = channel.closeFuture();
@@ -1,38 +1,63 @@
 package io.worldy.sockiopath.websocket;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.util.AttributeKey;
 import io.worldy.sockiopath.SockiopathServerHandler;
+import io.worldy.sockiopath.flush.FanOut;
+import io.worldy.sockiopath.messaging.BinaryFrame;
 import io.worldy.sockiopath.messaging.MessageBus;
-import io.worldy.sockiopath.messaging.SockiopathMessage;
+import io.worldy.sockiopath.messaging.MessageParser;
+import io.worldy.sockiopath.session.SessionAttribute;
 import io.worldy.sockiopath.session.SessionStore;
+import io.worldy.sockiopath.session.SessionTokens;
 import io.worldy.sockiopath.session.SockiopathSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
-import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.util.Map;
-import java.util.Optional;
-import java.util.function.Function;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
 
 public class WebSocketServerHandler extends SockiopathServerHandler<Object> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SockiopathServerHandler.class);
     private static final String TEXT_COMMAND_JOIN = "join";
+    private static final String TEXT_COMMAND_BINARY = "binary";
 
     private static final String SESSION_MESSAGE_DELIMINATOR = "|";
+    private static final String TEXT_COMMAND_REJOIN = TEXT_COMMAND_JOIN + SESSION_MESSAGE_DELIMINATOR;
+    private static final String TEXT_COMMAND_RESUME = "resume" + SESSION_MESSAGE_DELIMINATOR;
     public static final String TEXT_RESPONSE_PART_SESSION = "session" + SESSION_MESSAGE_DELIMINATOR;
+    public static final String TEXT_RESPONSE_PART_BINARY = "binary" + SESSION_MESSAGE_DELIMINATOR;
 
     public static final InetSocketAddress VIRTUAL_INET_SOCKET_ADDRESS = new InetSocketAddress("VIRTUAL_INET_SOCKET_ADDRESS", 42);
 
+    /**
+     * The session a WebSocket channel joined, keyed in the store by the hex form of its token.
+     */
+    public static final AttributeKey<SockiopathSession> SESSION_ATTRIBUTE = AttributeKey.valueOf(WebSocketServerHandler.class, "session");
+
+    /**
+     * The secret a client resumes its session with, replaced on every join and resume.
+     */
+    public static final SessionAttribute<Long> RESUME_TOKEN = SessionAttribute.valueOf(
+            WebSocketServerHandler.class.getName() + ".resumeToken", Long.class
+    );
+
+    private long resumeGraceNanos;
 
     public WebSocketServerHandler(
             SessionStore<SockiopathSession> sessionStore,
             Map<String, MessageBus> messageHandlers,
-            Function<ByteBuffer, Optional<SockiopathMessage>> messageParser,
+            MessageParser messageParser,
             Logger logger
     ) {
         super(sessionStore, messageHandlers, messageParser, logger);
@@ -53,6 +78,19 @@ public class WebSocketServerHandler extends SockiopathServerHandler<Object> {
         this(sessionStore, messageHandlers, DEFAULT_MESSAGE_DELIMINATOR);
     }
 
+    /**
+     * Keeps the session of a WebSocket channel that closes for {@code resumeGrace}, detached from any channel, so
+     * that its client can reconnect and {@code resume|<session id>|<resume token>} it, with the resume token of the
+     * last {@code session} reply, instead of joining anew. A resumed session keeps its attributes and UDP binding.
+     * Sessions are removed as soon as their channel closes if the grace is zero, which it is by default.
+     */
+    public void setResumeGrace(Duration resumeGrace) {
+        if (resumeGrace.isNegative()) {
+            throw new IllegalArgumentException("resumeGrace must not be negative: " + resumeGrace);
+        }
+        this.resumeGraceNanos = resumeGrace.toNanos();
+    }
+
     @Override
     protected boolean isUdp() {
         return false;
@@ -66,19 +104,28 @@ public class WebSocketServerHandler extends SockiopathServerHandler<Object> {
             logger.debug("{} received {}", ctx.channel(), textMessage);
             logger.debug("sessions {}", sessionStore.size());
 
-            String sessionId = getChannelId(ctx.channel());
+            SockiopathSession session = ctx.channel().attr(SESSION_ATTRIBUTE).get();
+            if (session != null) {
+                session.touch();
+            }
             String sessionShortId = getChannelShortId(ctx.channel());
-            if (TEXT_COMMAND_JOIN.equals(textMessage)) {
-                createSession(ctx);
-                ctx.channel().writeAndFlush(new TextWebSocketFrame(TEXT_RESPONSE_PART_SESSION + sessionId));
-            } else if (sessionStore.get().apply(sessionId) == null) {
+            boolean resume = textMessage.startsWith(TEXT_COMMAND_RESUME);
+            if (TEXT_COMMAND_JOIN.equals(textMessage) || textMessage.startsWith(TEXT_COMMAND_REJOIN) || resume) {
+                if (session == null && resume) {
+                    session = resumeSession(ctx, textMessage.substring(TEXT_COMMAND_RESUME.length()));
+                } else if (session == null && textMessage.startsWith(TEXT_COMMAND_REJOIN)) {
+                    session = rejoinSession(ctx, textMessage.substring(TEXT_COMMAND_REJOIN.length()));
+                }
+                if (session == null) {
+                    session = createSession(ctx);
+                }
+                ctx.channel().writeAndFlush(new TextWebSocketFrame(sessionResponse(session)));
+            } else if (session == null) {
                 logger.debug("message with no session: " + textMessage);
+            } else if (TEXT_COMMAND_BINARY.equals(textMessage)) {
+                ctx.channel().writeAndFlush(new TextWebSocketFrame(binaryNegotiationResponse(session)));
             } else {
-                sessionStore.keySet().get().forEach((key) -> {
-                    boolean isSameSession = key.equals(sessionId);
-                    String prefix = isSameSession ? "" : (sessionShortId + ": ");
-                    sessionStore.get().apply(key).getWebSocketContext().writeAndFlush(new TextWebSocketFrame(prefix + textMessage));
-                });
+                broadcast(ctx, session, sessionShortId + ": ", textMessage);
             }
         } else if (frame instanceof BinaryWebSocketFrame binaryFrame) {
             super.channelRead0(ctx, VIRTUAL_INET_SOCKET_ADDRESS, binaryFrame.content());
@@ -88,17 +135,162 @@ public class WebSocketServerHandler extends SockiopathServerHandler<Object> {
         }
     }
 
-    private void createSession(ChannelHandlerContext ctx) {
-        String sessionId = getChannelId(ctx.channel());
+    /**
+     * Sends a text message to every session with a WebSocket channel, the sender as it is and everyone else with
+     * {@code prefix} in front. The text is encoded once, and the prefix is a header shared by the other recipients.
+     */
+    private void broadcast(ChannelHandlerContext ctx, SockiopathSession sender, String prefix, String textMessage) {
+        ByteBuf body = ByteBufUtil.writeUtf8(ctx.alloc(), textMessage);
+        CompositeByteBuf prefixed = ctx.alloc().compositeBuffer(2)
+                .addComponents(true, ByteBufUtil.writeUtf8(ctx.alloc(), prefix), body.retainedDuplicate());
+        try {
+            long token = sender.getToken();
+            FanOut fanOut = new FanOut();
+            sessionStore.forEachSession(recipient -> {
+                ChannelHandlerContext recipientContext = recipient.getWebSocketContext();
+                if (recipientContext != null) {
+                    fanOut.addText(recipientContext, recipient.getToken() == token ? body : prefixed);
+                }
+            });
+            fanOut.send();
+        } finally {
+            body.release();
+            prefixed.release();
+        }
+    }
+
+    /**
+     * Tells a joined client how to talk the binary wire format: the format version, the session token to put in
+     * every frame and the addresses in route id order, all separated by {@value SESSION_MESSAGE_DELIMINATOR}.
+     */
+    private String binaryNegotiationResponse(SockiopathSession session) {
+        StringJoiner response = new StringJoiner(SESSION_MESSAGE_DELIMINATOR, TEXT_RESPONSE_PART_BINARY, "");
+        response.add(String.valueOf(BinaryFrame.VERSION));
+        response.add(SessionTokens.toHex(session.getToken()));
+        routes.addresses().forEach(response::add);
+        return response.toString();
+    }
+
+    /**
+     * Answers a join or resume with {@code session|<session id>|<resume token>}.
+     */
+    private String sessionResponse(SockiopathSession session) {
+        String response = TEXT_RESPONSE_PART_SESSION + getSessionId(session);
+        Long resumeToken = session.getAttributeVolatile(RESUME_TOKEN);
+        return resumeToken == null ? response : response + SESSION_MESSAGE_DELIMINATOR + SessionTokens.toHex(resumeToken);
+    }
+
+    private SockiopathSession createSession(ChannelHandlerContext ctx) {
+        SockiopathSession session = sessionStore.createSession(ctx);
+        String sessionId = getSessionId(session);
         logger.debug("createSession {}", sessionId);
-        sessionStore.put().apply(sessionId, sessionStore.createSession(ctx));
+        session.setAttributeVolatile(RESUME_TOKEN, SessionTokens.next());
+        sessionStore.put(sessionId, session);
+        ctx.channel().attr(SESSION_ATTRIBUTE).set(session);
+        return session;
+    }
+
+    /**
+     * Attaches the channel to a session restored by a {@link io.worldy.sockiopath.session.SessionCheckpointer}, when
+     * a returning client joins with the token of its previous session as {@code join|<token>}. Only sessions without
+     * a WebSocket channel or a resume token can be rejoined, so a token cannot take over a connected session, nor
+     * one kept for its client to resume.
+     */
+    private SockiopathSession rejoinSession(ChannelHandlerContext ctx, String sessionId) {
+        long token = SessionTokens.parseHex(sessionId);
+        SockiopathSession restored = token == SessionTokens.NO_TOKEN ? null : sessionStore.getByToken(token);
+        if (restored == null || restored.getWebSocketContext() != null) {
+            return null;
+        }
+        SockiopathSession session = restored.reattach(ctx);
+        if (!session.compareAndSetAttribute(RESUME_TOKEN, null, SessionTokens.next())) {
+            return null;
+        }
+        logger.debug("rejoinSession {}", sessionId);
+        return attach(ctx, restored, session);
+    }
+
+    /**
+     * Attaches the channel to the session of a client that {@code resume|<session id>|<resume token>}s it, taking it
+     * over from the channel it is still attached to, if any. The resume token is replaced, so each one resumes once.
+     */
+    private SockiopathSession resumeSession(ChannelHandlerContext ctx, String resume) {
+        int deliminator = resume.indexOf(SESSION_MESSAGE_DELIMINATOR);
+        if (deliminator < 0) {
+            return null;
+        }
+        String sessionId = resume.substring(0, deliminator);
+        long resumeToken = SessionTokens.parseHex(resume.substring(deliminator + 1));
+        SockiopathSession stored = sessionStore.get(sessionId);
+        if (stored == null || resumeToken == SessionTokens.NO_TOKEN) {
+            return null;
+        }
+        SockiopathSession session = stored.reattach(ctx);
+        // the swap decides between two clients resuming at once, and against the end of the grace
+        Long current = session.getAttributeVolatile(RESUME_TOKEN);
+        if (current == null || current != resumeToken
+                || !session.compareAndSetAttribute(RESUME_TOKEN, current, SessionTokens.next())) {
+            return null;
+        }
+        ChannelHandlerContext previousContext = stored.getWebSocketContext();
+        if (previousContext != null && previousContext.channel() != ctx.channel()) {
+            previousContext.channel().attr(SESSION_ATTRIBUTE).set(null);
+            previousContext.close();
+        }
+        logger.debug("resumeSession {}", sessionId);
+        return attach(ctx, stored, session);
+    }
+
+    private SockiopathSession attach(ChannelHandlerContext ctx, SockiopathSession previous, SockiopathSession session) {
+        sessionStore.put(getSessionId(session), session);
+        rebindUdp(previous, session);
+        ctx.channel().attr(SESSION_ATTRIBUTE).set(session);
+        return session;
+    }
+
+    // the index keeps the session object it was bound with, so a session that replaces it takes over its binding
+    private void rebindUdp(SockiopathSession previous, SockiopathSession session) {
+        InetSocketAddress udpSocketAddress = session.getUdpSocketAddress();
+        if (udpSessionIndex != null && udpSocketAddress != null) {
+            udpSessionIndex.unbind(previous);
+            udpSessionIndex.bind(session, udpSocketAddress, session.getUdpContext());
+        }
     }
 
     private void removeSession(ChannelHandlerContext ctx) {
-        String sessionId = getChannelId(ctx.channel());
+        SockiopathSession session = ctx.channel().attr(SESSION_ATTRIBUTE).getAndSet(null);
+        if (session == null) {
+            return;
+        }
+        String sessionId = getSessionId(session);
+        Long resumeToken = session.getAttributeVolatile(RESUME_TOKEN);
+        if (resumeGraceNanos > 0 && resumeToken != null && sessionStore.get(sessionId) != null) {
+            logger.debug("detachSession {}", sessionId);
+            SockiopathSession detached = session.reattach(null);
+            sessionStore.put(sessionId, detached);
+            rebindUdp(session, detached);
+            ctx.executor().schedule(() -> expireDetached(sessionId, resumeToken), resumeGraceNanos, TimeUnit.NANOSECONDS);
+            return;
+        }
         logger.debug("removeSession {}", sessionId);
-        synchronized (sessionStore) {
-            sessionStore.remove().apply(sessionId);
+        sessionStore.remove(sessionId);
+        if (udpSessionIndex != null) {
+            udpSessionIndex.unbind(session);
+        }
+    }
+
+    /**
+     * Removes a detached session at the end of its grace, unless it was resumed, which replaced its resume token.
+     */
+    private void expireDetached(String sessionId, Long resumeToken) {
+        SockiopathSession session = sessionStore.get(sessionId);
+        if (session == null || !session.compareAndSetAttribute(RESUME_TOKEN, resumeToken, null)) {
+            return;
+        }
+        logger.debug("expireSession {}", sessionId);
+        sessionStore.remove(sessionId);
+        if (udpSessionIndex != null) {
+            udpSessionIndex.unbind(session);
         }
     }
 
@@ -108,8 +300,8 @@ public class WebSocketServerHandler extends SockiopathServerHandler<Object> {
         removeSession(ctx);
     }
 
-    private String getChannelId(Channel channel) {
-        return channel.id().asLongText();
+    private static String getSessionId(SockiopathSession session) {
+        return SessionTokens.toHex(session.getToken());
     }
 
     private String getChannelShortId(Channel channel) {
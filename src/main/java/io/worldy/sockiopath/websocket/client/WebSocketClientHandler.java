@@ -5,15 +5,12 @@ import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
 import io.worldy.sockiopath.SockiopathHandler;
 import io.worldy.sockiopath.messaging.MessageBus;
-import io.worldy.sockiopath.messaging.SockiopathMessage;
+import io.worldy.sockiopath.messaging.MessageParser;
 import io.worldy.sockiopath.websocket.WebSocketServerHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.nio.ByteBuffer;
 import java.util.Map;
-import java.util.Optional;
-import java.util.function.Function;
 
 public class WebSocketClientHandler extends SockiopathHandler<Object> {
 
@@ -21,7 +18,7 @@ public class WebSocketClientHandler extends SockiopathHandler<Object> {
 
     public WebSocketClientHandler(
             Map<String, MessageBus> messageHandlers,
-            Function<ByteBuffer, Optional<SockiopathMessage>> messageParser,
+            MessageParser messageParser,
             Logger logger
     ) {
         super(messageHandlers, messageParser, logger);
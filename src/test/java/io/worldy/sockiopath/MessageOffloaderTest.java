@@ -0,0 +1,173 @@
+package io.worldy.sockiopath;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.concurrent.EventExecutor;
+import io.worldy.sockiopath.messaging.SockiopathMessage;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MessageOffloaderTest {
+
+    @Test
+    void offloadRunsInOrderOnExecutorTest() {
+        List<Runnable> executor = new ArrayList<>();
+        MessageOffloader offloader = new MessageOffloader(executor::add);
+        ChannelHandlerContext context = mockContext();
+
+        List<String> processed = new ArrayList<>();
+        offloader.offload(context, message(), () -> processed.add("a"));
+        offloader.offload(context, message(), () -> processed.add("b"));
+        assertEquals(List.of(), processed);
+        assertEquals(1, executor.size());
+
+        executor.remove(0).run();
+        assertEquals(List.of("a", "b"), processed);
+        assertEquals(0, offloader.rejectedCount());
+    }
+
+    @Test
+    void eventLoopsHaveTheirOwnQueueTest() {
+        List<Runnable> executor = new ArrayList<>();
+        MessageOffloader offloader = new MessageOffloader(executor::add, 1, MessageOffloader.RejectionPolicy.DROP);
+
+        offloader.offload(mockContext(), message(), () -> { });
+        offloader.offload(mockContext(), message(), () -> { });
+        assertEquals(2, executor.size());
+        assertEquals(0, offloader.rejectedCount());
+    }
+
+    @Test
+    void drainIsBatchedTest() {
+        List<Runnable> executor = new ArrayList<>();
+        MessageOffloader offloader = new MessageOffloader(executor::add);
+        ChannelHandlerContext context = mockContext();
+
+        int[] processed = new int[1];
+        for (int i = 0; i < MessageOffloader.DRAIN_BATCH + 1; i++) {
+            offloader.offload(context, message(), () -> processed[0]++);
+        }
+        executor.remove(0).run();
+        assertEquals(MessageOffloader.DRAIN_BATCH, processed[0]);
+        executor.remove(0).run();
+        assertEquals(MessageOffloader.DRAIN_BATCH + 1, processed[0]);
+    }
+
+    @Test
+    void dropReleasesNewMessageTest() {
+        List<Runnable> executor = new ArrayList<>();
+        MessageOffloader offloader = new MessageOffloader(executor::add, 1, MessageOffloader.RejectionPolicy.DROP);
+        ChannelHandlerContext context = mockContext();
+
+        List<String> processed = new ArrayList<>();
+        SockiopathMessage dropped = message();
+        offloader.offload(context, message(), () -> processed.add("a"));
+        offloader.offload(context, dropped, () -> processed.add("b"));
+        assertEquals(0, dropped.content().refCnt());
+        assertEquals(1, offloader.rejectedCount());
+
+        executor.remove(0).run();
+        assertEquals(List.of("a"), processed);
+    }
+
+    @Test
+    void dropOldestReleasesQueuedMessageTest() {
+        List<Runnable> executor = new ArrayList<>();
+        MessageOffloader offloader = new MessageOffloader(executor::add, 1, MessageOffloader.RejectionPolicy.DROP_OLDEST);
+        ChannelHandlerContext context = mockContext();
+
+        List<String> processed = new ArrayList<>();
+        SockiopathMessage dropped = message();
+        offloader.offload(context, dropped, () -> processed.add("a"));
+        offloader.offload(context, message(), () -> processed.add("b"));
+        assertEquals(0, dropped.content().refCnt());
+        assertEquals(1, offloader.rejectedCount());
+
+        executor.remove(0).run();
+        assertEquals(List.of("b"), processed);
+    }
+
+    @Test
+    void pauseReadsTest() {
+        List<Runnable> executor = new ArrayList<>();
+        MessageOffloader offloader = new MessageOffloader(executor::add, 2, MessageOffloader.RejectionPolicy.PAUSE_READS);
+        ChannelHandlerContext context = mockContext();
+        ChannelConfig config = context.channel().config();
+
+        List<String> processed = new ArrayList<>();
+        offloader.offload(context, message(), () -> processed.add("a"));
+        offloader.offload(context, message(), () -> processed.add("b"));
+        Mockito.verify(config, Mockito.never()).setAutoRead(false);
+
+        // the full queue takes the messages still being read, in order, and reading stops until it drained
+        offloader.offload(context, message(), () -> processed.add("c"));
+        offloader.offload(context, message(), () -> processed.add("d"));
+        Mockito.verify(config, Mockito.times(1)).setAutoRead(false);
+        assertEquals(List.of(), processed);
+
+        executor.remove(0).run();
+        assertEquals(List.of("a", "b", "c", "d"), processed);
+        Mockito.verify(config, Mockito.times(1)).setAutoRead(true);
+        assertEquals(0, offloader.rejectedCount());
+    }
+
+    @Test
+    void executorRejectionReleasesQueuedMessagesTest() {
+        Logger loggerMock = Mockito.mock(Logger.class);
+        MessageOffloader offloader = new MessageOffloader(task -> {
+            throw new RejectedExecutionException("shut down");
+        }, 4, MessageOffloader.RejectionPolicy.DROP, loggerMock);
+
+        SockiopathMessage message = message();
+        offloader.offload(mockContext(), message, () -> { });
+        assertEquals(0, message.content().refCnt());
+        assertEquals(1, offloader.rejectedCount());
+        Mockito.verify(loggerMock, Mockito.times(1)).error("Offload executor rejected the hand-off: shut down");
+    }
+
+    @Test
+    void taskExceptionIsLoggedTest() {
+        List<Runnable> executor = new ArrayList<>();
+        Logger loggerMock = Mockito.mock(Logger.class);
+        MessageOffloader offloader = new MessageOffloader(executor::add, 4, MessageOffloader.RejectionPolicy.DROP, loggerMock);
+        ChannelHandlerContext context = mockContext();
+
+        RuntimeException exception = new RuntimeException("boom");
+        List<String> processed = new ArrayList<>();
+        offloader.offload(context, message(), () -> {
+            throw exception;
+        });
+        offloader.offload(context, message(), () -> processed.add("b"));
+        executor.remove(0).run();
+
+        Mockito.verify(loggerMock, Mockito.times(1)).error("Error processing offloaded message: boom", exception);
+        assertEquals(List.of("b"), processed);
+    }
+
+    @Test
+    void invalidQueueCapacityTest() {
+        assertThrows(IllegalArgumentException.class, () -> new MessageOffloader(Runnable::run, 0, MessageOffloader.RejectionPolicy.DROP));
+    }
+
+    private static ChannelHandlerContext mockContext() {
+        ChannelHandlerContext context = Mockito.mock(ChannelHandlerContext.class);
+        Mockito.when(context.executor()).thenReturn(Mockito.mock(EventExecutor.class));
+        Channel channel = Mockito.mock(Channel.class);
+        Mockito.when(channel.config()).thenReturn(Mockito.mock(ChannelConfig.class));
+        Mockito.when(context.channel()).thenReturn(channel);
+        return context;
+    }
+
+    private static SockiopathMessage message() {
+        return new SockiopathMessage("address-a", "sessionId-a", "data-a".getBytes());
+    }
+}
@@ -0,0 +1,119 @@
+package io.worldy.sockiopath.flush;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.util.concurrent.EventExecutor;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FanOutTest {
+
+    @Test
+    void sendGroupsByEventLoopTest() {
+        EventExecutor currentLoop = mockLoop(true);
+        EventExecutor otherLoop = mockLoop(false);
+        ChannelHandlerContext ctx1 = mockContext(currentLoop);
+        ChannelHandlerContext ctx2 = mockContext(currentLoop);
+        ChannelHandlerContext ctx3 = mockContext(otherLoop);
+        ByteBuf payload = ByteBufUtil.writeUtf8(UnpooledByteBufAllocator.DEFAULT, "text-a");
+
+        FanOut fanOut = new FanOut();
+        fanOut.addText(ctx1, payload);
+        fanOut.addText(ctx2, payload);
+        fanOut.addText(ctx3, payload);
+        assertEquals(4, payload.refCnt());
+        assertEquals(3, fanOut.send());
+        payload.release();
+
+        // the current loop writes both frames before it flushes
+        InOrder inOrder = Mockito.inOrder(ctx1, ctx2);
+        inOrder.verify(ctx1).write(Mockito.any(), Mockito.any());
+        inOrder.verify(ctx2).write(Mockito.any(), Mockito.any());
+        inOrder.verify(ctx1).flush();
+        inOrder.verify(ctx2).flush();
+
+        // the other loop gets one task
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(otherLoop).execute(task.capture());
+        Mockito.verify(ctx3, Mockito.never()).write(Mockito.any(), Mockito.any());
+        task.getValue().run();
+        ArgumentCaptor<TextWebSocketFrame> frame = ArgumentCaptor.forClass(TextWebSocketFrame.class);
+        Mockito.verify(ctx3).write(frame.capture(), Mockito.any());
+        Mockito.verify(ctx3).flush();
+        assertEquals("text-a", frame.getValue().text());
+        assertEquals(3, payload.refCnt());
+    }
+
+    @Test
+    void sendBinaryAndDatagramsTest() {
+        EventExecutor loop = mockLoop(true);
+        ChannelHandlerContext webSocketContext = mockContext(loop);
+        ChannelHandlerContext udpContext = mockContext(loop);
+        InetSocketAddress recipient1 = new InetSocketAddress("127.0.0.1", 65001);
+        InetSocketAddress recipient2 = new InetSocketAddress("127.0.0.1", 65002);
+        ByteBuf payload = ByteBufUtil.writeUtf8(UnpooledByteBufAllocator.DEFAULT, "data-a");
+
+        FanOut fanOut = new FanOut();
+        fanOut.addBinary(webSocketContext, payload);
+        fanOut.addDatagram(udpContext, payload, recipient1);
+        fanOut.addDatagram(udpContext, payload, recipient2);
+        assertEquals(3, fanOut.send());
+        payload.release();
+
+        ArgumentCaptor<BinaryWebSocketFrame> frame = ArgumentCaptor.forClass(BinaryWebSocketFrame.class);
+        Mockito.verify(webSocketContext).write(frame.capture(), Mockito.any());
+        assertEquals("data-a", frame.getValue().content().toString(StandardCharsets.UTF_8));
+        ArgumentCaptor<DatagramPacket> datagrams = ArgumentCaptor.forClass(DatagramPacket.class);
+        Mockito.verify(udpContext, Mockito.times(2)).write(datagrams.capture(), Mockito.any());
+        assertEquals(recipient1, datagrams.getAllValues().get(0).recipient());
+        assertEquals(recipient2, datagrams.getAllValues().get(1).recipient());
+
+        // one flush for all datagrams through the UDP channel
+        Mockito.verify(webSocketContext).flush();
+        Mockito.verify(udpContext).flush();
+    }
+
+    @Test
+    void sendToShutdownLoopTest() {
+        EventExecutor loop = mockLoop(false);
+        Mockito.doThrow(new RejectedExecutionException()).when(loop).execute(Mockito.any());
+        ByteBuf payload = ByteBufUtil.writeUtf8(UnpooledByteBufAllocator.DEFAULT, "text-a");
+
+        FanOut fanOut = new FanOut();
+        fanOut.addText(mockContext(loop), payload);
+        fanOut.addDatagram(mockContext(loop), payload, new InetSocketAddress("127.0.0.1", 65001));
+        assertEquals(2, fanOut.send());
+        assertEquals(1, payload.refCnt());
+        payload.release();
+    }
+
+    @Test
+    void sendNothingTest() {
+        assertEquals(0, new FanOut().send());
+    }
+
+    private static EventExecutor mockLoop(boolean inEventLoop) {
+        EventExecutor loop = Mockito.mock(EventExecutor.class);
+        Mockito.when(loop.inEventLoop()).thenReturn(inEventLoop);
+        return loop;
+    }
+
+    private static ChannelHandlerContext mockContext(EventExecutor loop) {
+        ChannelHandlerContext ctx = Mockito.mock(ChannelHandlerContext.class);
+        Mockito.when(ctx.executor()).thenReturn(loop);
+        return ctx;
+    }
+}
@@ -0,0 +1,172 @@
+package io.worldy.sockiopath.flush;
+
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FlushConsolidatorTest {
+
+    @Test
+    void immediateFlushesEveryWriteTest() {
+        FlushCounter flushCounter = new FlushCounter();
+        EmbeddedChannel channel = channel(flushCounter, FlushPolicy.immediate());
+
+        channel.writeInbound("a", "b", "c", "d", "e");
+        assertEquals(5, flushCounter.flushes);
+        assertEquals(5, channel.outboundMessages().size());
+    }
+
+    @Test
+    void batchedFlushesAfterMaxPendingWritesAndReadCompleteTest() {
+        FlushCounter flushCounter = new FlushCounter();
+        EmbeddedChannel channel = channel(flushCounter, FlushPolicy.batched(3, 0));
+
+        channel.writeInbound("a", "b", "c", "d", "e");
+        assertEquals(2, flushCounter.flushes);
+        assertEquals(5, channel.outboundMessages().size());
+    }
+
+    @Test
+    void batchedFlushesOutsideReadAfterMaxDelayTest() {
+        FlushCounter flushCounter = new FlushCounter();
+        EmbeddedChannel channel = channel(flushCounter, FlushPolicy.batched(3, 1000));
+        channel.freezeTime();
+
+        channel.writeAndFlush("a");
+        channel.writeAndFlush("b");
+        channel.advanceTimeBy(999, TimeUnit.MICROSECONDS);
+        channel.runScheduledPendingTasks();
+        assertEquals(0, flushCounter.flushes);
+
+        channel.advanceTimeBy(1, TimeUnit.MICROSECONDS);
+        channel.runScheduledPendingTasks();
+        assertEquals(1, flushCounter.flushes);
+        assertEquals(2, channel.outboundMessages().size());
+
+        channel.writeAndFlush("c");
+        channel.writeAndFlush("d");
+        channel.writeAndFlush("e");
+        assertEquals(2, flushCounter.flushes);
+        assertEquals(5, channel.outboundMessages().size());
+    }
+
+    @Test
+    void batchedWithoutDelayFlushesOutsideReadTest() {
+        FlushCounter flushCounter = new FlushCounter();
+        EmbeddedChannel channel = channel(flushCounter, FlushPolicy.batched(3, 0));
+
+        channel.writeAndFlush("a");
+        assertEquals(1, flushCounter.flushes);
+    }
+
+    @Test
+    void adaptiveFlushesImmediatelyUnderLowLoadTest() {
+        FlushCounter flushCounter = new FlushCounter();
+        EmbeddedChannel channel = channel(flushCounter, FlushPolicy.adaptive());
+
+        for (int i = 0; i < 10; i++) {
+            channel.writeInbound("a");
+        }
+        assertEquals(10, flushCounter.flushes);
+        channel.writeAndFlush("b");
+        assertEquals(11, flushCounter.flushes);
+    }
+
+    @Test
+    void adaptiveBatchesUnderHighLoadTest() {
+        FlushCounter flushCounter = new FlushCounter();
+        EmbeddedChannel channel = channel(flushCounter, FlushPolicy.adaptive(8, 100));
+        FlushConsolidator consolidator = channel.pipeline().get(FlushConsolidator.class);
+
+        Object[] burst = new Object[16];
+        Arrays.fill(burst, "a");
+        for (int i = 0; i < 40; i++) {
+            channel.writeInbound(burst);
+        }
+        assertEquals(8, consolidator.threshold());
+
+        int before = flushCounter.flushes;
+        channel.writeInbound(burst);
+        assertEquals(2, flushCounter.flushes - before);
+
+        for (int i = 0; i < 40; i++) {
+            channel.writeInbound("a");
+        }
+        assertEquals(1, consolidator.threshold());
+    }
+
+    @Test
+    void pendingFlushesAreFlushedOnCloseTest() {
+        FlushCounter flushCounter = new FlushCounter();
+        EmbeddedChannel channel = channel(flushCounter, FlushPolicy.batched(3, 1000));
+
+        channel.writeAndFlush("a");
+        assertEquals(0, flushCounter.flushes);
+        channel.close();
+        assertEquals(1, flushCounter.flushes);
+    }
+
+    @Test
+    void pendingFlushesAreFlushedOnDisconnectTest() {
+        FlushCounter flushCounter = new FlushCounter();
+        EmbeddedChannel channel = channel(flushCounter, FlushPolicy.batched(3, 1000));
+
+        channel.writeAndFlush("a");
+        channel.pipeline().fireChannelWritabilityChanged();
+        channel.pipeline().fireChannelReadComplete();
+        assertEquals(1, flushCounter.flushes);
+        channel.writeAndFlush("b");
+        channel.disconnect();
+        assertEquals(2, flushCounter.flushes);
+    }
+
+    @Test
+    void withFlushPolicyTest() {
+        ChannelHandler handler = new ChannelInboundHandlerAdapter();
+        assertSame(handler, FlushConsolidator.withFlushPolicy(handler, null));
+
+        ChannelHandler initializer = FlushConsolidator.withFlushPolicy(handler, FlushPolicy.immediate());
+        assertInstanceOf(ChannelInitializer.class, initializer);
+        EmbeddedChannel channel = new EmbeddedChannel(initializer);
+        assertTrue(channel.pipeline().first() instanceof FlushConsolidator);
+        assertSame(handler, channel.pipeline().last());
+    }
+
+    @Test
+    void invalidPolicyTest() {
+        assertThrows(IllegalArgumentException.class, () -> FlushPolicy.batched(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> FlushPolicy.batched(1, -1));
+    }
+
+    private static EmbeddedChannel channel(FlushCounter flushCounter, FlushPolicy policy) {
+        return new EmbeddedChannel(flushCounter, new FlushConsolidator(policy), new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                ctx.writeAndFlush(msg);
+            }
+        });
+    }
+
+    private static class FlushCounter extends ChannelOutboundHandlerAdapter {
+        private int flushes;
+
+        @Override
+        public void flush(ChannelHandlerContext ctx) {
+            flushes++;
+            ctx.flush();
+        }
+    }
+}
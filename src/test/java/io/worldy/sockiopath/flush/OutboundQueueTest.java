@@ -0,0 +1,249 @@
+package io.worldy.sockiopath.flush;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import java.nio.channels.ClosedChannelException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OutboundQueueTest {
+
+    // the channel also counts an overhead of about a hundred bytes for every pending message, so the high water mark
+    // leaves room for a few small ones, while one message above it makes the channel unwritable until it is flushed
+    private static final int HIGH_WATER_MARK = 1024;
+    private static final String BIG = "0123456789abcdef".repeat(HIGH_WATER_MARK / 8);
+
+    private final SlowConsumerMetrics metrics = new SlowConsumerMetrics();
+
+    @Test
+    void passThroughWhileWritableTest() {
+        EmbeddedChannel channel = channel(OutboundPolicy.dropOldest(2, 1024));
+
+        channel.writeOutbound(buffer("a"), buffer("b"), buffer("c"));
+        assertEquals(List.of("a", "b", "c"), readOutbound(channel));
+        assertEquals(0, metrics.unwritableCount());
+    }
+
+    @Test
+    void queueWhileUnwritableTest() {
+        EmbeddedChannel channel = channel(OutboundPolicy.dropOldest(4, 1024));
+        OutboundQueue outboundQueue = channel.pipeline().get(OutboundQueue.class);
+
+        channel.write(buffer(BIG));
+        assertFalse(channel.isWritable());
+        assertEquals(1, metrics.unwritableCount());
+        channel.write(buffer("a"));
+        channel.write(buffer("bc"));
+        assertEquals(2, outboundQueue.queuedMessages());
+        assertEquals(3, outboundQueue.queuedBytes());
+        assertEquals(2, metrics.queuedMessages());
+
+        // the queue drains in order once the flush brought the channel below the low water mark
+        channel.flush();
+        channel.runPendingTasks();
+        assertEquals(List.of(BIG, "a", "bc"), readOutbound(channel));
+        assertEquals(0, outboundQueue.queuedMessages());
+        assertEquals(0, outboundQueue.queuedBytes());
+        assertEquals(0, metrics.queuedMessages());
+    }
+
+    @Test
+    void dropOldestTest() {
+        EmbeddedChannel channel = channel(OutboundPolicy.dropOldest(2, 1024));
+
+        channel.write(buffer(BIG));
+        ChannelFuture a = channel.write(buffer("a"));
+        channel.write(buffer("b"));
+        channel.write(buffer("c"));
+        assertInstanceOf(IllegalStateException.class, a.cause());
+        assertEquals(1, metrics.droppedCount());
+        assertEquals(1, metrics.droppedBytes());
+
+        channel.flush();
+        channel.runPendingTasks();
+        assertEquals(List.of(BIG, "b", "c"), readOutbound(channel));
+    }
+
+    @Test
+    void dropOldestByBytesTest() {
+        EmbeddedChannel channel = channel(OutboundPolicy.dropOldest(10, 4));
+
+        channel.write(buffer(BIG));
+        channel.write(buffer("ab"));
+        channel.write(buffer("cd"));
+        channel.write(buffer("ef"));
+        // a message that could never fit is dropped itself
+        ChannelFuture tooBig = channel.write(buffer("ghijk"));
+        assertFalse(tooBig.isSuccess());
+        assertEquals(2, metrics.droppedCount());
+
+        channel.flush();
+        channel.runPendingTasks();
+        assertEquals(List.of(BIG, "cd", "ef"), readOutbound(channel));
+    }
+
+    @Test
+    void dropNewestTest() {
+        EmbeddedChannel channel = channel(OutboundPolicy.dropNewest(2, 1024));
+
+        channel.write(buffer(BIG));
+        channel.write(buffer("a"));
+        channel.write(buffer("b"));
+        ByteBuf c = buffer("c");
+        ChannelFuture dropped = channel.write(c);
+        assertFalse(dropped.isSuccess());
+        assertEquals(0, c.refCnt());
+        assertEquals(1, metrics.droppedCount());
+
+        channel.flush();
+        channel.runPendingTasks();
+        assertEquals(List.of(BIG, "a", "b"), readOutbound(channel));
+    }
+
+    @Test
+    void disconnectTest() {
+        EmbeddedChannel channel = channel(OutboundPolicy.disconnect(1, 1024));
+
+        channel.write(buffer(BIG));
+        ByteBuf a = buffer("a");
+        channel.write(a);
+        channel.write(buffer("b"));
+        assertFalse(channel.isActive());
+        assertEquals(0, a.refCnt());
+        assertEquals(2, metrics.droppedCount());
+        assertEquals(1, metrics.disconnectCount());
+        assertEquals(0, metrics.queuedMessages());
+
+        // writes to the closed channel fail there
+        assertFalse(channel.write(buffer("c")).isSuccess());
+    }
+
+    @Test
+    void coalesceByKeyTest() {
+        EmbeddedChannel channel = channel(OutboundPolicy.coalesceByKey(2, 1024, OutboundQueueTest::key));
+
+        channel.write(buffer(BIG));
+        ChannelFuture x1 = channel.write(buffer("x1"));
+        channel.write(buffer("y1"));
+        channel.write(buffer("x2"));
+        assertFalse(x1.isSuccess());
+        assertEquals(1, metrics.coalescedCount());
+        assertEquals(0, metrics.droppedCount());
+
+        // without a match a full queue drops the oldest
+        channel.write(buffer("z1"));
+        assertEquals(1, metrics.droppedCount());
+
+        channel.flush();
+        channel.runPendingTasks();
+        assertEquals(List.of(BIG, "y1", "z1"), readOutbound(channel));
+    }
+
+    @Test
+    void coalescedMessageFitsTheQueueTest() {
+        EmbeddedChannel channel = channel(OutboundPolicy.coalesceByKey(4, 8, OutboundQueueTest::key));
+        OutboundQueue outboundQueue = channel.pipeline().get(OutboundQueue.class);
+
+        channel.write(buffer(BIG));
+        channel.write(buffer("y1"));
+        channel.write(buffer("x1"));
+        channel.write(buffer("x2345"));
+        assertEquals(7, outboundQueue.queuedBytes());
+        assertEquals(0, metrics.droppedCount());
+
+        // a bigger replacement makes room by dropping the messages queued before it
+        channel.write(buffer("x234567"));
+        assertEquals(7, outboundQueue.queuedBytes());
+        assertEquals(1, metrics.droppedCount());
+
+        // one that would not fit on its own is dropped instead
+        ChannelFuture tooBig = channel.write(buffer("x23456789"));
+        assertFalse(tooBig.isSuccess());
+        assertEquals(2, metrics.droppedCount());
+        assertEquals(2, metrics.coalescedCount());
+
+        channel.flush();
+        channel.runPendingTasks();
+        assertEquals(List.of(BIG, "x234567"), readOutbound(channel));
+    }
+
+    @Test
+    void coalescedHeadIsQueuedAgainTest() {
+        EmbeddedChannel channel = channel(OutboundPolicy.coalesceByKey(4, 8, OutboundQueueTest::key));
+        OutboundQueue outboundQueue = channel.pipeline().get(OutboundQueue.class);
+
+        channel.write(buffer(BIG));
+        channel.write(buffer("x1"));
+        channel.write(buffer("y1"));
+        channel.write(buffer("z1"));
+        channel.write(buffer("x234567"));
+        assertEquals(7, outboundQueue.queuedBytes());
+        assertEquals(1, outboundQueue.queuedMessages());
+        assertEquals(2, metrics.droppedCount());
+        assertEquals(1, metrics.coalescedCount());
+
+        channel.flush();
+        channel.runPendingTasks();
+        assertEquals(List.of(BIG, "x234567"), readOutbound(channel));
+    }
+
+    @Test
+    void closeFailsQueuedTest() {
+        EmbeddedChannel channel = channel(OutboundPolicy.dropOldest(4, 1024));
+
+        channel.write(buffer(BIG));
+        ByteBuf a = buffer("a");
+        ChannelFuture queued = channel.write(a);
+        channel.close();
+        assertInstanceOf(ClosedChannelException.class, queued.cause());
+        assertEquals(0, a.refCnt());
+        assertEquals(0, metrics.queuedMessages());
+        assertEquals(0, metrics.droppedCount());
+    }
+
+    @Test
+    void waterMarkTest() {
+        EmbeddedChannel channel = new EmbeddedChannel(new OutboundQueue(OutboundPolicy.dropOldest(1, 1), metrics));
+        assertEquals(WriteBufferWaterMark.DEFAULT.high(), channel.config().getWriteBufferHighWaterMark());
+    }
+
+    @Test
+    void invalidPolicyTest() {
+        assertThrows(IllegalArgumentException.class, () -> OutboundPolicy.dropOldest(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> OutboundPolicy.dropNewest(1, 0));
+        assertThrows(IllegalArgumentException.class, () -> OutboundPolicy.coalesceByKey(1, 1, null));
+    }
+
+    private EmbeddedChannel channel(OutboundPolicy policy) {
+        return new EmbeddedChannel(new OutboundQueue(policy.withWaterMark(1, HIGH_WATER_MARK), metrics));
+    }
+
+    private static Object key(Object message) {
+        return ((ByteBuf) message).getByte(0);
+    }
+
+    private static ByteBuf buffer(String content) {
+        return Unpooled.copiedBuffer(content, StandardCharsets.UTF_8);
+    }
+
+    private static List<String> readOutbound(EmbeddedChannel channel) {
+        List<String> messages = new ArrayList<>();
+        ByteBuf message;
+        while ((message = channel.readOutbound()) != null) {
+            messages.add(message.toString(StandardCharsets.UTF_8));
+            message.release();
+        }
+        return messages;
+    }
+}
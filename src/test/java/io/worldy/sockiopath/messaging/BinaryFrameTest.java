@@ -0,0 +1,105 @@
+package io.worldy.sockiopath.messaging;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Optional;
+
+import static io.worldy.sockiopath.SockiopathHandlerTest.getMessageHandlers;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryFrameTest {
+
+    private static final RouteTable ROUTES = new RouteTable(getMessageHandlers());
+
+    @Test
+    void encodeDecodeTest() {
+        ByteBuf frame = encode(1, -1L, "payload");
+
+        assertTrue(BinaryFrame.isBinaryFrame(frame));
+        // magic + one byte route id + token + one byte length + payload
+        assertEquals(1 + 1 + 8 + 1 + "payload".length(), frame.readableBytes());
+
+        SockiopathMessage message = BinaryFrame.decode(frame, ROUTES).orElseThrow();
+        assertEquals("address-b", message.address());
+        assertEquals(-1L, message.sessionToken());
+        assertEquals("payload", new String(message.data()));
+        assertEquals(0, frame.readerIndex());
+        message.release();
+    }
+
+    @Test
+    void encodeDecodeSessionlessTest() {
+        ByteBuf frame = BinaryFrame.encodeSessionless(UnpooledByteBufAllocator.DEFAULT, 1, Unpooled.wrappedBuffer("payload".getBytes()));
+
+        assertTrue(BinaryFrame.isBinaryFrame(frame));
+        // magic + one byte route id + one byte length + payload
+        assertEquals(1 + 1 + 1 + "payload".length(), frame.readableBytes());
+
+        SockiopathMessage message = BinaryFrame.decode(frame, ROUTES).orElseThrow();
+        assertEquals("address-b", message.address());
+        assertFalse(message.hasSessionToken());
+        assertNull(message.sessionId());
+        assertEquals("payload", new String(message.data()));
+        message.release();
+
+        for (int length = 0; length < frame.readableBytes(); length++) {
+            assertTrue(BinaryFrame.decode(frame.slice(0, length), ROUTES).isEmpty());
+        }
+    }
+
+    @Test
+    void decodeUnknownRouteTest() {
+        SockiopathMessage message = BinaryFrame.decode(encode(300, 7L, ""), ROUTES).orElseThrow();
+
+        assertEquals("#300", message.address());
+        assertNull(message.route());
+        assertEquals(0, message.content().readableBytes());
+        message.release();
+    }
+
+    @Test
+    void decodeTruncatedFrameTest() {
+        ByteBuf frame = encode(0, 7L, "payload");
+
+        for (int length = 0; length < frame.readableBytes(); length++) {
+            Optional<SockiopathMessage> message = BinaryFrame.decode(frame.slice(0, length), ROUTES);
+            assertTrue(message.isEmpty(), "decoded a frame truncated to " + length + " bytes");
+        }
+    }
+
+    @Test
+    void textMessageIsNotABinaryFrameTest() {
+        assertFalse(BinaryFrame.isBinaryFrame(Unpooled.wrappedBuffer("address|sessionId|data".getBytes())));
+        assertFalse(BinaryFrame.isBinaryFrame(Unpooled.EMPTY_BUFFER));
+        assertTrue(BinaryFrame.decode(Unpooled.wrappedBuffer("a|b|c".getBytes()), ROUTES).isEmpty());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE})
+    void varIntTest(int value) {
+        ByteBuf buffer = Unpooled.buffer();
+        BinaryFrame.writeVarInt(buffer, value);
+        assertEquals(value, BinaryFrame.readVarInt(buffer));
+        assertFalse(buffer.isReadable());
+    }
+
+    @Test
+    void varIntOverflowTest() {
+        ByteBuf buffer = Unpooled.wrappedBuffer(new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0x0F});
+        assertEquals(-1, BinaryFrame.readVarInt(buffer));
+        assertThrows(IllegalArgumentException.class, () -> BinaryFrame.writeVarInt(Unpooled.buffer(), -1));
+    }
+
+    private static ByteBuf encode(int routeId, long sessionToken, String payload) {
+        return BinaryFrame.encode(UnpooledByteBufAllocator.DEFAULT, routeId, sessionToken, Unpooled.wrappedBuffer(payload.getBytes()));
+    }
+}
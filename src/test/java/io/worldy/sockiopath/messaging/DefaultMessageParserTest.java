@@ -1,14 +1,20 @@
 package io.worldy.sockiopath.messaging;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
 import org.junit.jupiter.api.Test;
 
 import java.nio.ByteBuffer;
 import java.util.Optional;
 
+import static io.worldy.sockiopath.SockiopathHandlerTest.getMessageHandlers;
 import static org.junit.jupiter.api.Assertions.*;
 
 class DefaultMessageParserTest {
 
+    private static final RouteTable ROUTES = new RouteTable(getMessageHandlers());
+
     @Test
     void apply() {
         DefaultMessageParser defaultMessageParser = new DefaultMessageParser('|');
@@ -20,4 +26,93 @@ class DefaultMessageParserTest {
         assertEquals("sessionId", parsedMessage.sessionId());
         assertEquals("data", new String(parsedMessage.data()));
     }
-}
\ No newline at end of file
+
+    @Test
+    void parseSlicesPayloadWithoutCopying() {
+        DefaultMessageParser defaultMessageParser = new DefaultMessageParser('|');
+        ByteBuf content = Unpooled.wrappedBuffer("address|sessionId|data|more".getBytes());
+
+        SockiopathMessage parsedMessage = defaultMessageParser.parse(content, ROUTES).orElseThrow();
+
+        assertEquals("address", parsedMessage.address());
+        assertEquals("sessionId", parsedMessage.sessionId());
+        assertEquals("data|more", new String(parsedMessage.data()));
+        assertSame(content, parsedMessage.content().unwrap());
+        assertEquals(0, content.readerIndex());
+        assertEquals(2, content.refCnt());
+
+        assertFalse(parsedMessage.release());
+        assertEquals(1, content.refCnt());
+    }
+
+    @Test
+    void parseHonoursReaderIndex() {
+        DefaultMessageParser defaultMessageParser = new DefaultMessageParser('|');
+        ByteBuf content = Unpooled.wrappedBuffer("skip:address|sessionId|".getBytes());
+        content.readerIndex(5);
+
+        SockiopathMessage parsedMessage = defaultMessageParser.parse(content, ROUTES).orElseThrow();
+
+        assertEquals("address", parsedMessage.address());
+        assertEquals("sessionId", parsedMessage.sessionId());
+        assertEquals(0, parsedMessage.content().readableBytes());
+        parsedMessage.release();
+    }
+
+    @Test
+    void parseResolvesRoute() {
+        DefaultMessageParser defaultMessageParser = new DefaultMessageParser('|');
+
+        SockiopathMessage known = defaultMessageParser.parse(Unpooled.wrappedBuffer("address-b|sessionId|".getBytes()), ROUTES)
+                .orElseThrow();
+        SockiopathMessage unknown = defaultMessageParser.parse(Unpooled.wrappedBuffer("address-x|sessionId|".getBytes()), ROUTES)
+                .orElseThrow();
+
+        assertSame(ROUTES.route("address-b"), known.route());
+        assertFalse(known.hasSessionToken());
+        assertNull(unknown.route());
+    }
+
+    @Test
+    void parseBinaryFrame() {
+        DefaultMessageParser defaultMessageParser = new DefaultMessageParser('|');
+        ByteBuf frame = BinaryFrame.encode(
+                UnpooledByteBufAllocator.DEFAULT,
+                ROUTES.route("address-a").id(),
+                42L,
+                Unpooled.wrappedBuffer("data|with|deliminators".getBytes())
+        );
+
+        SockiopathMessage parsedMessage = defaultMessageParser.parse(frame, ROUTES).orElseThrow();
+
+        assertEquals("address-a", parsedMessage.address());
+        assertSame(ROUTES.route("address-a"), parsedMessage.route());
+        assertNull(parsedMessage.sessionId());
+        assertEquals(42L, parsedMessage.sessionToken());
+        assertEquals("data|with|deliminators", new String(parsedMessage.data()));
+        parsedMessage.release();
+    }
+
+    @Test
+    void parseMissingDeliminator() {
+        DefaultMessageParser defaultMessageParser = new DefaultMessageParser('|');
+
+        Optional<SockiopathMessage> noAddress = defaultMessageParser.parse(Unpooled.wrappedBuffer("noAddress".getBytes()), ROUTES);
+        Optional<SockiopathMessage> noSession = defaultMessageParser.parse(Unpooled.wrappedBuffer("address|noSession".getBytes()), ROUTES);
+
+        assertTrue(noAddress.isEmpty());
+        assertTrue(noSession.isEmpty());
+    }
+
+    @Test
+    void byteBufferParserAdapter() {
+        MessageParser parser = MessageParser.of(new DefaultMessageParser('|'));
+        ByteBuf content = Unpooled.wrappedBuffer("address|sessionId|data".getBytes());
+
+        SockiopathMessage parsedMessage = parser.parse(content, ROUTES).orElseThrow();
+
+        assertEquals("address", parsedMessage.address());
+        assertEquals("data", new String(parsedMessage.data()));
+        assertEquals(1, content.refCnt());
+    }
+}
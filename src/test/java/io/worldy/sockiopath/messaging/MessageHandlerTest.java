@@ -0,0 +1,65 @@
+package io.worldy.sockiopath.messaging;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class MessageHandlerTest {
+
+    @Test
+    void byteArrayAdapterTest() throws Exception {
+        byte[] response = "response-a".getBytes();
+        MessageBus messageBus = new MessageBus((msg) -> CompletableFuture.completedFuture(response), 1000);
+
+        ByteBuf buffer = messageBus.handler().handle(message(), UnpooledByteBufAllocator.DEFAULT).get();
+        assertArrayEquals(response, ByteBufUtil.getBytes(buffer));
+        assertEquals(1, buffer.refCnt());
+        assertEquals(1000, messageBus.timeoutMillis());
+        buffer.release();
+    }
+
+    @Test
+    void byteArrayAdapterEmptyResponseTest() throws Exception {
+        MessageBus messageBus = new MessageBus((msg) -> CompletableFuture.completedFuture(null), 1000);
+        assertNull(messageBus.handler().handle(message(), UnpooledByteBufAllocator.DEFAULT).get());
+    }
+
+    @Test
+    void allocatorIsPassedThroughTest() throws Exception {
+        MessageBus messageBus = new MessageBus(
+                (msg, allocator) -> CompletableFuture.completedFuture(allocator.buffer().writeBytes(msg.data())),
+                1000
+        );
+
+        SockiopathMessage message = message();
+        ByteBuf buffer = messageBus.handler().handle(message, UnpooledByteBufAllocator.DEFAULT).get();
+        assertSame(UnpooledByteBufAllocator.DEFAULT, buffer.alloc());
+        assertArrayEquals("data-a".getBytes(), ByteBufUtil.getBytes(buffer));
+        buffer.release();
+        message.release();
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void consumerAdapterTest() throws Exception {
+        ByteBuf reply = UnpooledByteBufAllocator.DEFAULT.buffer().writeBytes("response-a".getBytes());
+        MessageBus messageBus = new MessageBus((msg, allocator) -> CompletableFuture.completedFuture(reply), 1000);
+        assertArrayEquals("response-a".getBytes(), messageBus.consumer().apply(message()).get());
+        assertEquals(0, reply.refCnt());
+
+        MessageBus emptyBus = new MessageBus((msg, allocator) -> CompletableFuture.completedFuture(null), 1000);
+        assertNull(emptyBus.consumer().apply(message()).get());
+    }
+
+    private static SockiopathMessage message() {
+        return new SockiopathMessage("address-a", "sessionId-a", "data-a".getBytes());
+    }
+}
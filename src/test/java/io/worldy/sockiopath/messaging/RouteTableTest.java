@@ -0,0 +1,85 @@
+package io.worldy.sockiopath.messaging;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static io.worldy.sockiopath.SockiopathHandlerTest.getMessageHandlers;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class RouteTableTest {
+
+    @Test
+    void routeIdsFollowAddressOrderTest() {
+        RouteTable routes = new RouteTable(getMessageHandlers());
+
+        assertEquals(List.of("address-a", "address-b", "address-empty", "address-timeout"), routes.addresses());
+        assertEquals(4, routes.size());
+        for (int id = 0; id < routes.size(); id++) {
+            Route route = routes.route(id);
+            assertEquals(id, route.id());
+            assertSame(route, routes.route(route.address()));
+            assertEquals(getMessageHandlers().get(route.address()).timeoutMillis(), route.messageBus().timeoutMillis());
+        }
+    }
+
+    @Test
+    void routeFromBytesTest() {
+        RouteTable routes = new RouteTable(getMessageHandlers());
+        ByteBuf content = Unpooled.wrappedBuffer("address-timeout|address-a|address-|address-ab".getBytes());
+
+        assertSame(routes.route("address-timeout"), routes.route(content, 0, 15));
+        assertSame(routes.route("address-a"), routes.route(content, 16, 9));
+        assertNull(routes.route(content, 26, 8));
+        assertNull(routes.route(content, 35, 10));
+        assertNull(routes.route(content, 0, 0));
+        assertEquals(0, content.readerIndex());
+    }
+
+    @Test
+    void routeFromBytesManyAddressesTest() {
+        Map<String, MessageBus> messageHandlers = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            messageHandlers.put("address-" + i, new MessageBus(msg -> CompletableFuture.completedFuture(null), i));
+        }
+        RouteTable routes = new RouteTable(messageHandlers);
+
+        for (int i = 0; i < 1000; i++) {
+            ByteBuf content = Unpooled.wrappedBuffer(("address-" + i).getBytes());
+            assertEquals(i, routes.route(content, 0, content.readableBytes()).messageBus().timeoutMillis());
+        }
+    }
+
+    @Test
+    void unencodableAddressTest() {
+        RouteTable routes = new RouteTable(Map.of("\u2603", new MessageBus(msg -> CompletableFuture.completedFuture(null), 1)));
+
+        assertNull(routes.route(Unpooled.wrappedBuffer("?".getBytes()), 0, 1));
+        assertEquals(0, routes.route("\u2603").id());
+    }
+
+    @Test
+    void unknownRouteTest() {
+        RouteTable routes = new RouteTable(getMessageHandlers());
+
+        assertNull(routes.route(-1));
+        assertNull(routes.route(4));
+        assertNull(routes.route("address-x"));
+        assertNull(routes.route(null));
+    }
+
+    @Test
+    void emptyRouteTableTest() {
+        RouteTable routes = new RouteTable(null);
+
+        assertEquals(0, routes.size());
+        assertNull(routes.route(0));
+    }
+}
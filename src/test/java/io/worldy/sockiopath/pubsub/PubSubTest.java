@@ -0,0 +1,205 @@
+package io.worldy.sockiopath.pubsub;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.util.concurrent.EventExecutor;
+import io.worldy.sockiopath.messaging.MessageBus;
+import io.worldy.sockiopath.messaging.SockiopathMessage;
+import io.worldy.sockiopath.session.MapBackedSessionStore;
+import io.worldy.sockiopath.session.SessionTokens;
+import io.worldy.sockiopath.session.SockiopathSession;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PubSubTest {
+
+    private final Map<String, SockiopathSession> sessions = new HashMap<>();
+    private final MapBackedSessionStore sessionStore = new MapBackedSessionStore(sessions);
+    private final PubSub pubSub = new PubSub(sessionStore);
+
+    @Test
+    void publishTest() {
+        ChannelHandlerContext webSocketContext = mockContext();
+        ChannelHandlerContext udpContext = mockContext();
+        InetSocketAddress udpSocketAddress = new InetSocketAddress("127.0.0.1", 65001);
+        SockiopathSession webSocketSession = addSession(new SockiopathSession(webSocketContext));
+        SockiopathSession udpSession = addSession(new SockiopathSession(mockContext())
+                .withUdpSocketAddress(udpSocketAddress)
+                .withUdpContext(udpContext));
+        SockiopathSession otherSession = addSession(new SockiopathSession(mockContext()));
+
+        assertTrue(pubSub.subscribe(webSocketSession, "room-a", Transport.WEB_SOCKET));
+        assertTrue(pubSub.subscribe(udpSession, "room-a", Transport.UDP));
+        pubSub.subscribe(otherSession, "room-b", Transport.WEB_SOCKET);
+
+        ByteBuf payload = Unpooled.copiedBuffer("data-a", StandardCharsets.UTF_8);
+        assertEquals(2, pubSub.publish("room-a", payload));
+        assertEquals(0, pubSub.publish("room-c", payload));
+        payload.release();
+
+        ArgumentCaptor<BinaryWebSocketFrame> frame = ArgumentCaptor.forClass(BinaryWebSocketFrame.class);
+        Mockito.verify(webSocketContext).write(frame.capture(), Mockito.any());
+        assertEquals("data-a", frame.getValue().content().toString(StandardCharsets.UTF_8));
+        ArgumentCaptor<DatagramPacket> datagram = ArgumentCaptor.forClass(DatagramPacket.class);
+        Mockito.verify(udpContext).write(datagram.capture(), Mockito.any());
+        assertEquals(udpSocketAddress, datagram.getValue().recipient());
+        Mockito.verify(otherSession.getWebSocketContext(), Mockito.never()).write(Mockito.any(), Mockito.any());
+
+        // the frame and the datagram hold the last references to the payload
+        frame.getValue().release();
+        assertTrue(datagram.getValue().release());
+    }
+
+    @Test
+    void publishSkipsDetachedAndDropsLeftSubscribersTest() {
+        SockiopathSession detached = addSession(new SockiopathSession(null));
+        SockiopathSession unbound = addSession(new SockiopathSession(null));
+        SockiopathSession left = new SockiopathSession(mockContext());
+        pubSub.subscribe(detached, "room-a", Transport.WEB_SOCKET);
+        pubSub.subscribe(unbound, "room-a", Transport.UDP);
+        pubSub.subscribe(left, "room-a", Transport.WEB_SOCKET);
+        pubSub.subscribe(left, "room-b", Transport.UDP);
+
+        assertEquals(0, pubSub.publish("room-a", Unpooled.EMPTY_BUFFER));
+        assertEquals(2, pubSub.topicIndex().subscriberCount("room-a"));
+        assertEquals(Set.of(), pubSub.topicIndex().topics(left.getToken()));
+        assertEquals(0, pubSub.topicIndex().subscriberCount("room-b"));
+    }
+
+    @Test
+    void leaveTest() {
+        SockiopathSession session = addSession(new SockiopathSession(mockContext()));
+        pubSub.subscribe(session, "room-a", Transport.WEB_SOCKET);
+        pubSub.subscribe(session, "room-b", Transport.UDP);
+
+        assertTrue(pubSub.unsubscribe(session, "room-a"));
+        assertEquals(1, pubSub.leave(session));
+        assertEquals(0, pubSub.topicIndex().topicCount());
+    }
+
+    @Test
+    void publishMulticastTest() {
+        ChannelHandlerContext multicastContext = mockContext();
+        InetSocketAddress group = new InetSocketAddress("239.255.42.99", 4446);
+        pubSub.setMulticast(new MulticastGroups().assign("room-a", group), multicastContext);
+        SockiopathSession webSocketSession = addSession(new SockiopathSession(mockContext()));
+        pubSub.subscribe(webSocketSession, "room-a", Transport.WEB_SOCKET);
+
+        // no datagram while nobody listens on the group
+        assertEquals(1, pubSub.publish("room-a", Unpooled.EMPTY_BUFFER));
+        Mockito.verify(multicastContext, Mockito.never()).write(Mockito.any(), Mockito.any());
+
+        // one datagram for all multicast subscribers, whose sessions are not looked up
+        for (int i = 0; i < 3; i++) {
+            pubSub.subscribe(new SockiopathSession(null), "room-a", Transport.MULTICAST);
+        }
+        assertEquals(2, pubSub.publish("room-a", Unpooled.EMPTY_BUFFER));
+        ArgumentCaptor<DatagramPacket> datagram = ArgumentCaptor.forClass(DatagramPacket.class);
+        Mockito.verify(multicastContext).write(datagram.capture(), Mockito.any());
+        assertEquals(group, datagram.getValue().recipient());
+        assertEquals(4, pubSub.topicIndex().subscriberCount("room-a"));
+
+        assertThrows(IllegalArgumentException.class, () -> pubSub.subscribe(webSocketSession, "room-b", Transport.MULTICAST));
+    }
+
+    @Test
+    void multicastGroupsTest() {
+        MulticastGroups multicastGroups = new MulticastGroups();
+        InetSocketAddress group = new InetSocketAddress("239.255.42.99", 4446);
+        assertEquals(group, multicastGroups.assign("room-a", group).group("room-a"));
+        multicastGroups.unassign("room-a");
+        assertNull(multicastGroups.group("room-a"));
+
+        assertThrows(IllegalArgumentException.class, () -> multicastGroups.assign("room-a", new InetSocketAddress("127.0.0.1", 4446)));
+        assertThrows(IllegalArgumentException.class, () -> multicastGroups.assign("room-a", InetSocketAddress.createUnresolved("group-a", 4446)));
+    }
+
+    @Test
+    void subscribeMulticastMessageHandlerTest() throws Exception {
+        pubSub.setMulticast(new MulticastGroups().assign("room-a", new InetSocketAddress("239.255.42.99", 4446)), mockContext());
+        SockiopathSession session = addSession(new SockiopathSession(null));
+        Map<String, MessageBus> messageHandlers = pubSub.messageHandlers(1000);
+
+        ByteBuf reply = handle(messageHandlers, PubSub.SUBSCRIBE_MULTICAST_ADDRESS, session.getToken(), "room-a");
+        assertEquals("239.255.42.99|4446", reply.toString(StandardCharsets.UTF_8));
+        reply.release();
+        assertEquals(1, pubSub.topicIndex().subscribers("room-a").members(Transport.MULTICAST).length);
+
+        // a topic without a group is received by unicast
+        assertNull(handle(messageHandlers, PubSub.SUBSCRIBE_MULTICAST_ADDRESS, session.getToken(), "room-b"));
+        assertEquals(1, pubSub.topicIndex().subscribers("room-b").members(Transport.UDP).length);
+        assertNull(handle(messageHandlers, PubSub.SUBSCRIBE_MULTICAST_ADDRESS, "sessionId-unknown", "room-a"));
+        assertEquals(1, pubSub.topicIndex().subscriberCount("room-a"));
+    }
+
+    @Test
+    void messageHandlersTest() throws Exception {
+        ChannelHandlerContext webSocketContext = mockContext();
+        ChannelHandlerContext udpContext = mockContext();
+        SockiopathSession session1 = addSession(new SockiopathSession(webSocketContext));
+        SockiopathSession session2 = addSession(new SockiopathSession(null)
+                .withUdpSocketAddress(new InetSocketAddress("127.0.0.1", 65001))
+                .withUdpContext(udpContext));
+        Map<String, MessageBus> messageHandlers = pubSub.messageHandlers(1000);
+
+        // by session id and by token
+        assertNull(handle(messageHandlers, PubSub.SUBSCRIBE_ADDRESS, session1.getToken(), "room-a"));
+        assertNull(handle(messageHandlers, PubSub.SUBSCRIBE_UDP_ADDRESS, session2.getToken(), "room-a"));
+        handle(messageHandlers, PubSub.SUBSCRIBE_ADDRESS, "sessionId-unknown", "room-a");
+        assertEquals(2, pubSub.topicIndex().subscriberCount("room-a"));
+
+        assertNull(handle(messageHandlers, PubSub.PUBLISH_ADDRESS, session1.getToken(), "room-a|data-a"));
+        handle(messageHandlers, PubSub.PUBLISH_ADDRESS, session1.getToken(), "no-topic");
+        ArgumentCaptor<BinaryWebSocketFrame> frame = ArgumentCaptor.forClass(BinaryWebSocketFrame.class);
+        Mockito.verify(webSocketContext).write(frame.capture(), Mockito.any());
+        assertEquals("data-a", frame.getValue().content().toString(StandardCharsets.UTF_8));
+        ArgumentCaptor<DatagramPacket> datagram = ArgumentCaptor.forClass(DatagramPacket.class);
+        Mockito.verify(udpContext).write(datagram.capture(), Mockito.any());
+        assertEquals("data-a", datagram.getValue().content().toString(StandardCharsets.UTF_8));
+
+        assertNull(handle(messageHandlers, PubSub.UNSUBSCRIBE_ADDRESS, session2.getToken(), "room-a"));
+        handle(messageHandlers, PubSub.UNSUBSCRIBE_ADDRESS, "sessionId-unknown", "room-a");
+        assertEquals(1, pubSub.topicIndex().subscriberCount("room-a"));
+    }
+
+    private static ByteBuf handle(Map<String, MessageBus> messageHandlers, String address, long token, String content) throws Exception {
+        SockiopathMessage message = new SockiopathMessage(
+                address, null, token, Unpooled.copiedBuffer(content, StandardCharsets.UTF_8), null
+        );
+        return messageHandlers.get(address).handler().handle(message, ByteBufAllocator.DEFAULT).get();
+    }
+
+    private static ByteBuf handle(Map<String, MessageBus> messageHandlers, String address, String sessionId, String content) throws Exception {
+        SockiopathMessage message = new SockiopathMessage(address, sessionId, content.getBytes(StandardCharsets.UTF_8));
+        return messageHandlers.get(address).handler().handle(message, ByteBufAllocator.DEFAULT).get();
+    }
+
+    private SockiopathSession addSession(SockiopathSession session) {
+        sessionStore.put(SessionTokens.toHex(session.getToken()), session);
+        return session;
+    }
+
+    private static ChannelHandlerContext mockContext() {
+        EventExecutor loop = Mockito.mock(EventExecutor.class);
+        Mockito.when(loop.inEventLoop()).thenReturn(true);
+        ChannelHandlerContext ctx = Mockito.mock(ChannelHandlerContext.class);
+        Mockito.when(ctx.executor()).thenReturn(loop);
+        return ctx;
+    }
+}
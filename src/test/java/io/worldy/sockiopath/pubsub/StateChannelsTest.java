@@ -0,0 +1,283 @@
+package io.worldy.sockiopath.pubsub;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.util.concurrent.EventExecutor;
+import io.worldy.sockiopath.messaging.MessageBus;
+import io.worldy.sockiopath.messaging.SockiopathMessage;
+import io.worldy.sockiopath.session.MapBackedSessionStore;
+import io.worldy.sockiopath.session.SessionTokens;
+import io.worldy.sockiopath.session.SockiopathSession;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StateChannelsTest {
+
+    private final Map<String, SockiopathSession> sessions = new HashMap<>();
+    private final MapBackedSessionStore sessionStore = new MapBackedSessionStore(sessions);
+    private final StateChannels stateChannels = new StateChannels(sessionStore);
+
+    @Test
+    void latestValueWinsTest() {
+        ChannelHandlerContext ctx1 = mockContext(true, true);
+        ChannelHandlerContext ctx2 = mockContext(true, true);
+        SockiopathSession session1 = addSession(new SockiopathSession(ctx1));
+        SockiopathSession session2 = addSession(new SockiopathSession(ctx2));
+        assertTrue(stateChannels.subscribe(session1, "room-a"));
+        stateChannels.subscribe(session2, "room-a");
+
+        for (int i = 1; i <= 3; i++) {
+            assertEquals(2, stateChannels.update("room-a", "position", buffer("x" + i)));
+        }
+        stateChannels.update("room-a", "cursor", buffer("c1"));
+        assertEquals(0, stateChannels.update("room-b", "position", buffer("x1")));
+        assertEquals(4, stateChannels.coalescedCount());
+
+        // one send per session, with the latest value of each key
+        runTask(ctx1);
+        runTask(ctx2);
+        assertEquals(List.of("room-a|position|x3", "room-a|cursor|c1"), written(ctx1, 2));
+        assertEquals(List.of("room-a|position|x3", "room-a|cursor|c1"), written(ctx2, 2));
+        Mockito.verify(ctx1).flush();
+        assertEquals(4, stateChannels.sentCount());
+
+        // the next update schedules the next send
+        stateChannels.update("room-a", "position", buffer("x4"));
+        Mockito.verify(ctx1.executor(), Mockito.times(2)).execute(Mockito.any());
+    }
+
+    @Test
+    void intervalTest() {
+        StateChannels throttled = new StateChannels(sessionStore, Duration.ofMillis(50));
+        ChannelHandlerContext ctx = mockContext(true, true);
+        throttled.subscribe(addSession(new SockiopathSession(ctx)), "room-a");
+
+        throttled.update("room-a", "position", buffer("x1"));
+        throttled.update("room-a", "position", buffer("x2"));
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(ctx.executor()).schedule(task.capture(), Mockito.eq(TimeUnit.MILLISECONDS.toNanos(50)), Mockito.eq(TimeUnit.NANOSECONDS));
+        task.getValue().run();
+        assertEquals(List.of("room-a|position|x2"), written(ctx, 1));
+
+        assertThrows(IllegalArgumentException.class, () -> new StateChannels(sessionStore, Duration.ofMillis(-1)));
+    }
+
+    @Test
+    void unwritableTest() {
+        ChannelHandlerContext ctx = mockContext(true, false);
+        SockiopathSession session = addSession(new SockiopathSession(ctx));
+        stateChannels.subscribe(session, "room-a");
+
+        stateChannels.update("room-a", "position", buffer("x1"));
+        runTask(ctx);
+        ArgumentCaptor<Runnable> retry = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(ctx.executor()).schedule(retry.capture(), Mockito.eq(StateChannels.UNWRITABLE_RETRY_NANOS), Mockito.eq(TimeUnit.NANOSECONDS));
+        Mockito.verify(ctx, Mockito.never()).write(Mockito.any(), Mockito.any());
+
+        // updates keep replacing each other while the client is slow
+        stateChannels.update("room-a", "position", buffer("x2"));
+        Mockito.verify(ctx.executor()).execute(Mockito.any());
+        Mockito.when(ctx.channel().isWritable()).thenReturn(true);
+        retry.getValue().run();
+        assertEquals(List.of("room-a|position|x2"), written(ctx, 1));
+    }
+
+    @Test
+    void inactiveAndDetachedTest() {
+        ChannelHandlerContext inactive = mockContext(false, true);
+        SockiopathSession closed = addSession(new SockiopathSession(inactive));
+        SockiopathSession detached = addSession(new SockiopathSession(null));
+        stateChannels.subscribe(closed, "room-a");
+        stateChannels.subscribe(detached, "room-a");
+
+        assertEquals(2, stateChannels.update("room-a", "position", buffer("x1")));
+        runTask(inactive);
+        Mockito.verify(inactive, Mockito.never()).write(Mockito.any(), Mockito.any());
+        assertEquals(0, closed.getAttributeVolatile(StateChannels.PENDING_UPDATES).size());
+
+        // a detached session holds its updates until it is back
+        StateChannels.PendingUpdates pending = detached.getAttributeVolatile(StateChannels.PENDING_UPDATES);
+        assertEquals(1, pending.size());
+        assertEquals(1, stateChannels.leave(detached));
+        assertEquals(0, pending.size());
+    }
+
+    @Test
+    void detachedRemovedTest() {
+        SockiopathSession detached = addSession(new SockiopathSession(null));
+        stateChannels.subscribe(detached, "room-a");
+        stateChannels.update("room-a", "position", buffer("x1"));
+        StateChannels.PendingUpdates pending = detached.getAttributeVolatile(StateChannels.PENDING_UPDATES);
+        // hold one more reference to the update, to see the removal release its own
+        ByteBuf held = pending.take().iterator().next().retain();
+        pending.put("room-a|position", held);
+
+        // the resume grace ran out
+        sessionStore.remove(SessionTokens.toHex(detached.getToken()));
+        assertEquals(0, pending.size());
+        assertEquals(1, held.refCnt());
+        held.release();
+
+        // and an update that raced with the removal is not held
+        ByteBuf late = buffer("x2");
+        assertSame(late, pending.put("room-a|position", late));
+        late.release();
+    }
+
+    @Test
+    void resumedTest() {
+        ChannelHandlerContext ctx = mockContext(true, true);
+        SockiopathSession session = addSession(new SockiopathSession(ctx));
+        stateChannels.subscribe(session, "room-a");
+        stateChannels.update("room-a", "position", buffer("x1"));
+
+        // detached before its send ran
+        SockiopathSession detached = addSession(session.reattach(null));
+        runTask(ctx);
+        Mockito.verify(ctx, Mockito.never()).write(Mockito.any(), Mockito.any());
+
+        ChannelHandlerContext resumed = mockContext(true, true);
+        addSession(detached.reattach(resumed));
+        stateChannels.update("room-a", "cursor", buffer("c1"));
+        runTask(resumed);
+        assertEquals(List.of("room-a|position|x1", "room-a|cursor|c1"), written(resumed, 2));
+    }
+
+    @Test
+    void resumedOnAnotherLoopTest() {
+        ChannelHandlerContext ctx = mockContext(true, true);
+        SockiopathSession session = addSession(new SockiopathSession(ctx));
+        stateChannels.subscribe(session, "room-a");
+        stateChannels.update("room-a", "position", buffer("x1"));
+
+        ChannelHandlerContext resumed = mockContext(true, true);
+        Mockito.when(resumed.executor().inEventLoop()).thenReturn(false);
+        addSession(session.reattach(resumed));
+        runTask(ctx);
+        Mockito.verify(resumed, Mockito.never()).write(Mockito.any(), Mockito.any());
+
+        // sent from the loop of the channel it was resumed on
+        Mockito.when(resumed.executor().inEventLoop()).thenReturn(true);
+        runTask(resumed);
+        assertEquals(List.of("room-a|position|x1"), written(resumed, 1));
+    }
+
+    @Test
+    void leftAndRejectedTest() {
+        SockiopathSession left = new SockiopathSession(mockContext(true, true));
+        stateChannels.subscribe(left, "room-a");
+        ChannelHandlerContext shutdown = mockContext(true, true);
+        EventExecutor executor = shutdown.executor();
+        Mockito.doThrow(new RejectedExecutionException()).when(executor).execute(Mockito.any());
+        SockiopathSession session = addSession(new SockiopathSession(shutdown));
+        stateChannels.subscribe(session, "room-a");
+
+        assertEquals(1, stateChannels.update("room-a", "position", buffer("x1")));
+        assertEquals(Set.of(), stateChannels.topicIndex().topics(left.getToken()));
+        assertEquals(0, session.getAttributeVolatile(StateChannels.PENDING_UPDATES).size());
+    }
+
+    @Test
+    void leftBeforeSendTest() {
+        ChannelHandlerContext ctx = mockContext(true, true);
+        SockiopathSession session = addSession(new SockiopathSession(ctx));
+        stateChannels.subscribe(session, "room-a");
+        stateChannels.update("room-a", "position", buffer("x1"));
+        StateChannels.PendingUpdates pending = session.getAttributeVolatile(StateChannels.PENDING_UPDATES);
+
+        sessionStore.remove(SessionTokens.toHex(session.getToken()));
+        runTask(ctx);
+        Mockito.verify(ctx, Mockito.never()).write(Mockito.any(), Mockito.any());
+        assertEquals(0, pending.size());
+    }
+
+    @Test
+    void messageHandlersTest() throws Exception {
+        ChannelHandlerContext ctx = mockContext(true, true);
+        SockiopathSession session = addSession(new SockiopathSession(ctx));
+        Map<String, MessageBus> messageHandlers = stateChannels.messageHandlers(1000);
+
+        assertNull(handle(messageHandlers, StateChannels.SUBSCRIBE_ADDRESS, session.getToken(), "room-a"));
+        handle(messageHandlers, StateChannels.SUBSCRIBE_ADDRESS, "sessionId-unknown", "room-a");
+        assertEquals(1, stateChannels.topicIndex().subscriberCount("room-a"));
+
+        assertNull(handle(messageHandlers, StateChannels.UPDATE_ADDRESS, session.getToken(), "room-a|position|x1"));
+        handle(messageHandlers, StateChannels.UPDATE_ADDRESS, session.getToken(), "room-a|no-key");
+        handle(messageHandlers, StateChannels.UPDATE_ADDRESS, session.getToken(), "no-channel");
+        runTask(ctx);
+        assertEquals(List.of("room-a|position|x1"), written(ctx, 1));
+
+        assertNull(handle(messageHandlers, StateChannels.UNSUBSCRIBE_ADDRESS, session.getToken(), "room-a"));
+        handle(messageHandlers, StateChannels.UNSUBSCRIBE_ADDRESS, "sessionId-unknown", "room-a");
+        assertEquals(0, stateChannels.topicIndex().subscriberCount("room-a"));
+    }
+
+    private static ByteBuf handle(Map<String, MessageBus> messageHandlers, String address, long token, String content) throws Exception {
+        SockiopathMessage message = new SockiopathMessage(
+                address, null, token, Unpooled.copiedBuffer(content, StandardCharsets.UTF_8), null
+        );
+        return messageHandlers.get(address).handler().handle(message, ByteBufAllocator.DEFAULT).get();
+    }
+
+    private static ByteBuf handle(Map<String, MessageBus> messageHandlers, String address, String sessionId, String content) throws Exception {
+        SockiopathMessage message = new SockiopathMessage(address, sessionId, content.getBytes(StandardCharsets.UTF_8));
+        return messageHandlers.get(address).handler().handle(message, ByteBufAllocator.DEFAULT).get();
+    }
+
+    private SockiopathSession addSession(SockiopathSession session) {
+        sessionStore.put(SessionTokens.toHex(session.getToken()), session);
+        return session;
+    }
+
+    private static ByteBuf buffer(String content) {
+        return Unpooled.copiedBuffer(content, StandardCharsets.UTF_8);
+    }
+
+    private static void runTask(ChannelHandlerContext ctx) {
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(ctx.executor(), Mockito.atLeastOnce()).execute(task.capture());
+        task.getValue().run();
+    }
+
+    private static List<String> written(ChannelHandlerContext ctx, int count) {
+        ArgumentCaptor<BinaryWebSocketFrame> frames = ArgumentCaptor.forClass(BinaryWebSocketFrame.class);
+        Mockito.verify(ctx, Mockito.times(count)).write(frames.capture(), Mockito.any());
+        return frames.getAllValues().stream().map(frame -> {
+            String text = frame.content().toString(StandardCharsets.UTF_8);
+            frame.release();
+            return text;
+        }).toList();
+    }
+
+    private static ChannelHandlerContext mockContext(boolean active, boolean writable) {
+        EventExecutor loop = Mockito.mock(EventExecutor.class);
+        Mockito.when(loop.inEventLoop()).thenReturn(true);
+        Channel channel = Mockito.mock(Channel.class);
+        Mockito.when(channel.isActive()).thenReturn(active);
+        Mockito.when(channel.isWritable()).thenReturn(writable);
+        ChannelHandlerContext ctx = Mockito.mock(ChannelHandlerContext.class);
+        Mockito.when(ctx.executor()).thenReturn(loop);
+        Mockito.when(ctx.channel()).thenReturn(channel);
+        return ctx;
+    }
+}
@@ -0,0 +1,87 @@
+package io.worldy.sockiopath.pubsub;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TopicIndexTest {
+
+    private final TopicIndex topicIndex = new TopicIndex();
+
+    @Test
+    void subscribeTest() {
+        assertTrue(topicIndex.subscribe("room-a", 3L, Transport.WEB_SOCKET));
+        assertTrue(topicIndex.subscribe("room-a", 1L, Transport.WEB_SOCKET));
+        assertTrue(topicIndex.subscribe("room-a", 2L, Transport.UDP));
+        assertFalse(topicIndex.subscribe("room-a", 1L, Transport.WEB_SOCKET));
+        assertTrue(topicIndex.subscribe("room-b", 1L, Transport.UDP));
+
+        TopicIndex.Subscribers subscribers = topicIndex.subscribers("room-a");
+        assertArrayEquals(new long[]{1L, 3L}, subscribers.members(Transport.WEB_SOCKET));
+        assertArrayEquals(new long[]{2L}, subscribers.members(Transport.UDP));
+        assertEquals(3, topicIndex.subscriberCount("room-a"));
+        assertEquals(0, topicIndex.subscriberCount("room-c"));
+        assertEquals(2, topicIndex.topicCount());
+        assertEquals(Set.of("room-a", "room-b"), topicIndex.topics(1L));
+        assertEquals(Set.of(), topicIndex.topics(4L));
+    }
+
+    @Test
+    void subscribeMovesTransportTest() {
+        topicIndex.subscribe("room-a", 1L, Transport.WEB_SOCKET);
+        assertTrue(topicIndex.subscribe("room-a", 1L, Transport.UDP));
+
+        TopicIndex.Subscribers subscribers = topicIndex.subscribers("room-a");
+        assertEquals(0, subscribers.members(Transport.WEB_SOCKET).length);
+        assertArrayEquals(new long[]{1L}, subscribers.members(Transport.UDP));
+    }
+
+    @Test
+    void unsubscribeTest() {
+        topicIndex.subscribe("room-a", 1L, Transport.WEB_SOCKET);
+        topicIndex.subscribe("room-a", 2L, Transport.UDP);
+        topicIndex.subscribe("room-b", 1L, Transport.WEB_SOCKET);
+
+        assertTrue(topicIndex.unsubscribe("room-a", 1L));
+        assertFalse(topicIndex.unsubscribe("room-a", 1L));
+        assertFalse(topicIndex.unsubscribe("room-c", 1L));
+        assertEquals(Set.of("room-b"), topicIndex.topics(1L));
+
+        // a topic goes with its last subscriber
+        assertTrue(topicIndex.unsubscribe("room-a", 2L));
+        assertNull(topicIndex.subscribers("room-a"));
+        assertEquals(Set.of(), topicIndex.topics(2L));
+        assertEquals(1, topicIndex.topicCount());
+    }
+
+    @Test
+    void unsubscribeAllTest() {
+        topicIndex.subscribe("room-a", 1L, Transport.WEB_SOCKET);
+        topicIndex.subscribe("room-b", 1L, Transport.UDP);
+        topicIndex.subscribe("room-b", 2L, Transport.UDP);
+
+        assertEquals(2, topicIndex.unsubscribeAll(1L));
+        assertEquals(0, topicIndex.unsubscribeAll(1L));
+        assertEquals(Set.of(), topicIndex.topics(1L));
+        assertNull(topicIndex.subscribers("room-a"));
+        assertArrayEquals(new long[]{2L}, topicIndex.subscribers("room-b").members(Transport.UDP));
+    }
+
+    @Test
+    void removeStaleTest() {
+        topicIndex.subscribe("room-a", 1L, Transport.WEB_SOCKET);
+        topicIndex.subscribe("room-b", 1L, Transport.UDP);
+        topicIndex.subscribe("room-b", 2L, Transport.UDP);
+
+        topicIndex.removeStale("room-b", 1L);
+        assertEquals(Set.of(), topicIndex.topics(1L));
+        assertNull(topicIndex.subscribers("room-a"));
+        assertArrayEquals(new long[]{2L}, topicIndex.subscribers("room-b").members(Transport.UDP));
+    }
+}
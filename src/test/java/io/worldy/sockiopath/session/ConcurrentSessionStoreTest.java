@@ -0,0 +1,179 @@
+package io.worldy.sockiopath.session;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrentSessionStoreTest {
+
+    @Test
+    void putGetRemoveTest() {
+        ConcurrentSessionStore sessionStore = new ConcurrentSessionStore(4);
+        SockiopathSession session = new SockiopathSession(null);
+
+        assertNull(sessionStore.put("sessionId-a", session));
+        assertSame(session, sessionStore.get("sessionId-a"));
+        assertSame(session, sessionStore.getByToken(session.getToken()));
+        assertEquals(1, sessionStore.size());
+        assertEquals(Set.of("sessionId-a"), sessionStore.keySet());
+
+        assertSame(session, sessionStore.remove("sessionId-a"));
+        assertNull(sessionStore.get("sessionId-a"));
+        assertNull(sessionStore.getByToken(session.getToken()));
+        assertNull(sessionStore.remove("sessionId-a"));
+        assertEquals(0, sessionStore.size());
+        assertTrue(sessionStore.keySet().isEmpty());
+    }
+
+    @Test
+    void replaceUpdatesTokenIndexTest() {
+        ConcurrentSessionStore sessionStore = new ConcurrentSessionStore(4);
+        SockiopathSession first = new SockiopathSession(null);
+        SockiopathSession second = new SockiopathSession(null);
+
+        sessionStore.put("sessionId-a", first);
+        assertSame(first, sessionStore.put("sessionId-a", second));
+        assertNull(sessionStore.getByToken(first.getToken()));
+        assertSame(second, sessionStore.getByToken(second.getToken()));
+        assertNull(sessionStore.put("sessionId-b", first));
+        assertEquals(2, sessionStore.size());
+        assertSame(first, sessionStore.put("sessionId-b", first));
+        assertSame(first, sessionStore.getByToken(first.getToken()));
+    }
+
+    @Test
+    void keySetTest() {
+        SockiopathSession session = new SockiopathSession(null);
+        ConcurrentSessionStore sessionStore = new ConcurrentSessionStore(Map.of(
+                "sessionId-a", session,
+                "sessionId-b", new SockiopathSession(null)
+        ));
+
+        Set<String> keySet = sessionStore.keySet();
+        assertEquals(2, keySet.size());
+        assertTrue(keySet.contains("sessionId-a"));
+        assertFalse(keySet.contains("sessionId-c"));
+        assertFalse(keySet.contains(1));
+        assertSame(session, sessionStore.getByToken(session.getToken()));
+    }
+
+    @Test
+    void computeIfAbsentTest() {
+        ConcurrentSessionStore sessionStore = new ConcurrentSessionStore(4);
+        SockiopathSession session = new SockiopathSession(null);
+
+        assertSame(session, sessionStore.computeIfAbsent("sessionId-a", id -> session));
+        assertSame(session, sessionStore.computeIfAbsent("sessionId-a", id -> new SockiopathSession(null)));
+        assertSame(session, sessionStore.getByToken(session.getToken()));
+        assertNull(sessionStore.computeIfAbsent("sessionId-b", id -> null));
+        assertEquals(1, sessionStore.size());
+    }
+
+    @Test
+    void forEachTest() {
+        SockiopathSession a = new SockiopathSession(null);
+        SockiopathSession b = new SockiopathSession(null);
+        ConcurrentSessionStore sessionStore = new ConcurrentSessionStore(Map.of("sessionId-a", a, "sessionId-b", b));
+
+        Set<SockiopathSession> visited = new HashSet<>();
+        sessionStore.forEachSession(visited::add);
+        assertEquals(Set.of(a, b), visited);
+
+        Map<String, SockiopathSession> entries = new HashMap<>();
+        sessionStore.forEachEntry(entries::put);
+        assertEquals(Map.of("sessionId-a", a, "sessionId-b", b), entries);
+
+        // a snapshot can be iterated while removing
+        Iterator<SockiopathSession> snapshot = sessionStore.snapshotIterator();
+        sessionStore.remove("sessionId-a");
+        sessionStore.remove("sessionId-b");
+        visited.clear();
+        snapshot.forEachRemaining(visited::add);
+        assertEquals(Set.of(a, b), visited);
+        assertEquals(0, sessionStore.size());
+    }
+
+    @Test
+    void shardCountTest() {
+        assertEquals(1, new ConcurrentSessionStore(1).shardCount());
+        assertEquals(8, new ConcurrentSessionStore(5).shardCount());
+        assertEquals(8, new ConcurrentSessionStore(8).shardCount());
+        assertEquals(ConcurrentSessionStore.DEFAULT_SHARDS, new ConcurrentSessionStore().shardCount());
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentSessionStore(0));
+    }
+
+    @Test
+    void reattachIsAlwaysFoundByTokenTest() throws Exception {
+        ConcurrentSessionStore sessionStore = new ConcurrentSessionStore(4);
+        SockiopathSession session = new SockiopathSession(null);
+        String id = SessionTokens.toHex(session.getToken());
+        sessionStore.put(id, session);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        // detaches and resumes keep the token, so a lookup by token never misses in between
+        Future<?> resumes = executor.submit(() -> {
+            SockiopathSession current = session;
+            for (int i = 0; i < 20_000; i++) {
+                current = current.reattach(null);
+                sessionStore.put(id, current);
+            }
+        });
+        while (!resumes.isDone()) {
+            assertEquals(session.getToken(), sessionStore.getByToken(session.getToken()).getToken());
+        }
+        resumes.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+    }
+
+    @Test
+    void concurrentJoinAndLeaveTest() throws Exception {
+        ConcurrentSessionStore sessionStore = new ConcurrentSessionStore(8);
+        int threads = 8;
+        int sessionsPerThread = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < sessionsPerThread; i++) {
+                    String id = thread + "-" + i;
+                    SockiopathSession session = new SockiopathSession(null);
+                    sessionStore.put(id, session);
+                    assertSame(session, sessionStore.getByToken(session.getToken()));
+                    if (i % 2 == 0) {
+                        sessionStore.remove(id);
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(threads * sessionsPerThread / 2, sessionStore.size());
+        assertEquals(threads * sessionsPerThread / 2, sessionStore.keySet().size());
+        for (String id : sessionStore.keySet()) {
+            SockiopathSession session = sessionStore.get(id);
+            assertSame(session, sessionStore.getByToken(session.getToken()));
+        }
+    }
+}
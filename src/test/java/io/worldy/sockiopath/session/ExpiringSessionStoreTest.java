@@ -0,0 +1,222 @@
+package io.worldy.sockiopath.session;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpiringSessionStoreTest {
+
+    private static final Duration TTL = Duration.ofMillis(20);
+
+    @Test
+    void idleSessionIsExpiredTest() throws Exception {
+        Timer timer = mockTimer();
+        ExpiringSessionStore sessionStore = new ExpiringSessionStore(new MapBackedSessionStore(new HashMap<>()), TTL, Duration.ZERO, timer);
+        ChannelHandlerContext ctx = Mockito.mock(ChannelHandlerContext.class);
+        SockiopathSession session = new SockiopathSession(ctx);
+
+        sessionStore.put("sessionId-a", session);
+        TimerTask check = nextTask(timer, 1);
+
+        Thread.sleep(TTL.toMillis() * 2);
+        check.run(null);
+        assertNull(sessionStore.get("sessionId-a"));
+        assertNull(sessionStore.getByToken(session.getToken()));
+        assertEquals(1, sessionStore.expiredSessionCount());
+        Mockito.verify(ctx, Mockito.times(1)).close();
+        Mockito.verify(timer, Mockito.times(1)).newTimeout(Mockito.any(), Mockito.anyLong(), Mockito.any());
+    }
+
+    @Test
+    void computeIfAbsentSchedulesOnceTest() {
+        Timer timer = mockTimer();
+        ExpiringSessionStore sessionStore = new ExpiringSessionStore(new MapBackedSessionStore(new HashMap<>()), TTL, Duration.ZERO, timer);
+        SockiopathSession session = new SockiopathSession(null);
+
+        assertSame(session, sessionStore.computeIfAbsent("sessionId-a", id -> session));
+        assertSame(session, sessionStore.computeIfAbsent("sessionId-a", id -> new SockiopathSession(null)));
+        assertNull(sessionStore.computeIfAbsent("sessionId-b", id -> null));
+
+        Mockito.verify(timer, Mockito.times(1)).newTimeout(Mockito.any(), Mockito.anyLong(), Mockito.any());
+    }
+
+    @Test
+    void activeSessionIsRescheduledTest() throws Exception {
+        Timer timer = mockTimer();
+        ExpiringSessionStore sessionStore = new ExpiringSessionStore(new MapBackedSessionStore(new HashMap<>()), Duration.ofHours(1), Duration.ZERO, timer);
+        SockiopathSession session = new SockiopathSession(null);
+
+        sessionStore.put("sessionId-a", session);
+        session.touch();
+        nextTask(timer, 1).run(null);
+
+        assertSame(session, sessionStore.get("sessionId-a"));
+        assertEquals(0, sessionStore.expiredSessionCount());
+        ArgumentCaptor<Long> delay = ArgumentCaptor.forClass(Long.class);
+        Mockito.verify(timer, Mockito.times(2)).newTimeout(Mockito.any(), delay.capture(), Mockito.eq(TimeUnit.NANOSECONDS));
+        assertEquals(Duration.ofHours(1).toNanos(), delay.getAllValues().get(0));
+        assertTrue(delay.getAllValues().get(1) <= Duration.ofHours(1).toNanos());
+    }
+
+    @Test
+    void idleUdpBindingIsClearedTest() throws Exception {
+        Timer timer = mockTimer();
+        ExpiringSessionStore sessionStore = new ExpiringSessionStore(new MapBackedSessionStore(new HashMap<>()), Duration.ofHours(1), TTL, timer);
+        SockiopathSession session = new SockiopathSession(null);
+        session.withUdpSocketAddress(new InetSocketAddress("127.0.0.1", 10001))
+                .withUdpContext(Mockito.mock(ChannelHandlerContext.class))
+                .touchUdp();
+
+        sessionStore.put("sessionId-a", session);
+        Thread.sleep(TTL.toMillis() * 2);
+        session.touch();
+        nextTask(timer, 1).run(null);
+
+        assertSame(session, sessionStore.get("sessionId-a"));
+        assertNull(session.getUdpSocketAddress());
+        assertNull(session.getUdpContext());
+        assertEquals(1, sessionStore.expiredUdpBindingCount());
+
+        nextTask(timer, 2).run(null);
+        assertEquals(1, sessionStore.expiredUdpBindingCount());
+    }
+
+    @Test
+    void removeCancelsTimeoutTest() throws Exception {
+        Timer timer = mockTimer();
+        ExpiringSessionStore sessionStore = new ExpiringSessionStore(new MapBackedSessionStore(new HashMap<>()), TTL, TTL, timer);
+        SockiopathSession session = new SockiopathSession(null);
+
+        sessionStore.put("sessionId-a", session);
+        Timeout timeout = sessionStore.timeout(session.getToken());
+        assertNotNull(timeout);
+        assertSame(session, sessionStore.remove("sessionId-a"));
+        Mockito.verify(timeout, Mockito.times(1)).cancel();
+        assertNull(sessionStore.timeout(session.getToken()));
+        assertNull(sessionStore.remove("sessionId-a"));
+
+        Thread.sleep(TTL.toMillis() * 2);
+        nextTask(timer, 1).run(null);
+        assertEquals(0, sessionStore.expiredSessionCount());
+    }
+
+    @Test
+    void replacedSessionIsNotExpiredTest() {
+        Timer timer = mockTimer();
+        ExpiringSessionStore sessionStore = new ExpiringSessionStore(new MapBackedSessionStore(new HashMap<>()), TTL, Duration.ZERO, timer);
+        SockiopathSession first = new SockiopathSession(null);
+        SockiopathSession second = new SockiopathSession(null);
+
+        sessionStore.put("sessionId-a", first);
+        Timeout timeout = sessionStore.timeout(first.getToken());
+        sessionStore.put("sessionId-a", second);
+        Mockito.verify(timeout, Mockito.times(1)).cancel();
+        assertNotNull(sessionStore.timeout(second.getToken()));
+        assertNull(sessionStore.timeout(first.getToken()));
+        assertEquals(1, sessionStore.size());
+        assertEquals(1, sessionStore.keySet().size());
+    }
+
+    @Test
+    void reattachedSessionKeepsItsCheckTest() throws Exception {
+        Timer timer = mockTimer();
+        ExpiringSessionStore sessionStore = new ExpiringSessionStore(new MapBackedSessionStore(new HashMap<>()), TTL, Duration.ZERO, timer);
+        SockiopathSession session = new SockiopathSession(null);
+
+        sessionStore.put("sessionId-a", session);
+        Timeout timeout = sessionStore.timeout(session.getToken());
+        SockiopathSession reattached = new SockiopathSession(null, session.getToken());
+        sessionStore.put("sessionId-a", reattached);
+        Mockito.verify(timeout, Mockito.never()).cancel();
+        assertSame(timeout, sessionStore.timeout(session.getToken()));
+
+        Thread.sleep(TTL.toMillis() * 2);
+        nextTask(timer, 1).run(null);
+        assertNull(sessionStore.get("sessionId-a"));
+        assertEquals(1, sessionStore.expiredSessionCount());
+    }
+
+    @Test
+    void offHeapSessionIsExpiredTest() throws Exception {
+        Timer timer = mockTimer();
+        OffHeapSessionStore offHeapSessionStore = new OffHeapSessionStore(16);
+        ExpiringSessionStore sessionStore = new ExpiringSessionStore(offHeapSessionStore, TTL, Duration.ZERO, timer);
+        SockiopathSession active = new SockiopathSession(null);
+        SockiopathSession idle = new SockiopathSession(null);
+        String activeId = SessionTokens.toHex(active.getToken());
+        String idleId = SessionTokens.toHex(idle.getToken());
+
+        sessionStore.put(activeId, active);
+        TimerTask activeCheck = nextTask(timer, 1);
+        sessionStore.put(idleId, idle);
+        TimerTask idleCheck = nextTask(timer, 2);
+        Thread.sleep(TTL.toMillis() * 2);
+        sessionStore.get(activeId).touch();
+        activeCheck.run(null);
+        idleCheck.run(null);
+
+        assertNotNull(sessionStore.getByToken(active.getToken()));
+        assertNull(sessionStore.getByToken(idle.getToken()));
+        assertEquals(1, sessionStore.expiredSessionCount());
+        assertNotNull(sessionStore.timeout(active.getToken()));
+        assertNull(sessionStore.timeout(idle.getToken()));
+        offHeapSessionStore.release();
+    }
+
+    @Test
+    void disabledExpiryDoesNotScheduleTest() {
+        Timer timer = mockTimer();
+        ExpiringSessionStore sessionStore = new ExpiringSessionStore(new MapBackedSessionStore(new HashMap<>()), Duration.ZERO, Duration.ZERO, timer);
+        sessionStore.put("sessionId-a", new SockiopathSession(null));
+        Mockito.verify(timer, Mockito.never()).newTimeout(Mockito.any(), Mockito.anyLong(), Mockito.any());
+        sessionStore.stop();
+        Mockito.verify(timer, Mockito.never()).stop();
+    }
+
+    @Test
+    void ownedTimerIsStoppedTest() throws Exception {
+        ExpiringSessionStore sessionStore = new ExpiringSessionStore(new MapBackedSessionStore(new HashMap<>()), TTL, Duration.ZERO);
+        SockiopathSession session = new SockiopathSession(null);
+        sessionStore.put("sessionId-a", session);
+        assertNotNull(sessionStore.createSession(null));
+
+        Thread.sleep(TTL.toMillis() + ExpiringSessionStore.DEFAULT_TICK.toMillis() * 3);
+        assertNull(sessionStore.get("sessionId-a"));
+        sessionStore.stop();
+    }
+
+    @Test
+    void negativeTtlTest() {
+        assertThrows(IllegalArgumentException.class, () ->
+                new ExpiringSessionStore(new MapBackedSessionStore(new HashMap<>()), Duration.ofMillis(-1), Duration.ZERO, mockTimer())
+        );
+    }
+
+    private static Timer mockTimer() {
+        Timer timer = Mockito.mock(Timer.class);
+        Mockito.when(timer.newTimeout(Mockito.any(), Mockito.anyLong(), Mockito.any())).thenAnswer(invocation -> Mockito.mock(Timeout.class));
+        return timer;
+    }
+
+    private static TimerTask nextTask(Timer timer, int scheduled) {
+        ArgumentCaptor<TimerTask> task = ArgumentCaptor.forClass(TimerTask.class);
+        Mockito.verify(timer, Mockito.times(scheduled)).newTimeout(task.capture(), Mockito.anyLong(), Mockito.any());
+        return task.getAllValues().get(scheduled - 1);
+    }
+}
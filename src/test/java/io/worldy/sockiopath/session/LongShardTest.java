@@ -0,0 +1,56 @@
+package io.worldy.sockiopath.session;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongShardTest {
+
+    @Test
+    void putGetRemoveTest() {
+        LongShard<String> shard = new LongShard<>();
+
+        assertNull(shard.put(0L, "zero"));
+        assertNull(shard.put(-1L, "minus one"));
+        assertEquals("zero", shard.put(0L, "nil"));
+        assertEquals("nil", shard.get(0L));
+        assertEquals("minus one", shard.get(-1L));
+        assertNull(shard.get(1L));
+        assertEquals(2, shard.size());
+
+        assertFalse(shard.remove(0L, "zero"::equals));
+        assertFalse(shard.remove(1L, value -> true));
+        assertTrue(shard.remove(0L, "nil"::equals));
+        assertNull(shard.get(0L));
+        assertEquals(1, shard.size());
+    }
+
+    @Test
+    void matchesMapTest() {
+        LongShard<Long> shard = new LongShard<>();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        // few distinct keys, so that removes shift entries back and puts grow the table
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(2048) * 0x100000001L;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key) != null, shard.remove(key, value -> true));
+            } else {
+                assertEquals(expected.put(key, (long) i), shard.put(key, (long) i));
+            }
+        }
+        assertEquals(expected.size(), shard.size());
+        for (int i = 0; i < 2048; i++) {
+            long key = i * 0x100000001L;
+            assertEquals(expected.get(key), shard.get(key));
+        }
+    }
+}
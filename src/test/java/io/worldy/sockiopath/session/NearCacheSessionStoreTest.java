@@ -0,0 +1,212 @@
+package io.worldy.sockiopath.session;
+
+import io.netty.channel.ChannelHandlerContext;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NearCacheSessionStoreTest {
+
+    private final InMemorySessionBackend backend = new InMemorySessionBackend();
+    private final NearCacheSessionStore node1 = new NearCacheSessionStore(backend);
+    private final NearCacheSessionStore node2 = new NearCacheSessionStore(backend);
+
+    @Test
+    void localSessionsTest() {
+        ChannelHandlerContext ctx = Mockito.mock(ChannelHandlerContext.class);
+        SockiopathSession session = new SockiopathSession(ctx);
+        String id = SessionTokens.toHex(session.getToken());
+
+        assertNull(node1.put(id, session));
+        assertSame(session, node1.get(id));
+        assertSame(session, node1.getByToken(session.getToken()));
+        assertEquals(1, backend.size());
+        assertEquals(0, node1.missCount());
+
+        assertEquals(1, node1.size());
+        assertEquals(Set.of(id), node1.keySet());
+        List<SockiopathSession> visited = new ArrayList<>();
+        node1.forEachSession(visited::add);
+        node1.forEachEntry((key, value) -> visited.add(value));
+        node1.snapshotIterator().forEachRemaining(visited::add);
+        assertEquals(List.of(session, session, session), visited);
+
+        assertSame(session, node1.remove(id));
+        assertNull(node1.get(id));
+        assertEquals(0, backend.size());
+    }
+
+    @Test
+    void remoteSessionsAreCachedTest() {
+        InetSocketAddress udpSocketAddress = new InetSocketAddress("127.0.0.1", 65001);
+        SockiopathSession session = new SockiopathSession(Mockito.mock(ChannelHandlerContext.class))
+                .withUdpSocketAddress(udpSocketAddress);
+        String id = SessionTokens.toHex(session.getToken());
+        node1.put(id, session);
+
+        SockiopathSession remote = node2.get(id);
+        assertNotSame(session, remote);
+        assertEquals(session.getToken(), remote.getToken());
+        assertEquals(udpSocketAddress, remote.getUdpSocketAddress());
+        assertNull(remote.getWebSocketContext());
+        assertEquals(1, node2.missCount());
+
+        assertSame(remote, node2.get(id));
+        assertSame(remote, node2.getByToken(session.getToken()));
+        assertEquals(2, node2.hitCount());
+        assertEquals(2.0 / 3, node2.hitRatio());
+        assertTrue(node2.averageLoadNanos() >= 0);
+        assertEquals(1, node2.cachedSessionCount());
+
+        // remote sessions are not visited by bulk operations
+        assertEquals(0, node2.size());
+        assertTrue(node2.keySet().isEmpty());
+    }
+
+    @Test
+    void invalidationTest() {
+        SockiopathSession session = new SockiopathSession(null);
+        String id = SessionTokens.toHex(session.getToken());
+        node1.put(id, session);
+        SockiopathSession remote = node2.getByToken(session.getToken());
+
+        node1.put(id, session.withUdpSocketAddress(new InetSocketAddress("127.0.0.1", 65002)));
+        assertEquals(1, node2.invalidationCount());
+        assertEquals(0, node2.cachedSessionCount());
+        SockiopathSession reloaded = node2.get(id);
+        assertNotSame(remote, reloaded);
+        assertEquals(session.getUdpSocketAddress(), reloaded.getUdpSocketAddress());
+
+        node1.remove(id);
+        assertEquals(2, node2.invalidationCount());
+        assertNull(node2.get(id));
+    }
+
+    @Test
+    void missTest() {
+        assertNull(node1.get("sessionId-a"));
+        assertNull(node1.getByToken(1L));
+        assertEquals(2, node1.missCount());
+        assertEquals(0, node1.hitRatio());
+        assertEquals(0, node1.cachedSessionCount());
+
+        // misses are cached too, until a session is stored under the id or token
+        assertNull(node1.get("sessionId-a"));
+        assertNull(node1.getByToken(1L));
+        assertEquals(2, node1.missCount());
+        assertEquals(2, node1.hitCount());
+
+        SockiopathSession session = new SockiopathSession(null);
+        assertNull(node2.getByToken(session.getToken()));
+        node1.put("sessionId-a", new SockiopathSession(null));
+        node1.put(SessionTokens.toHex(session.getToken()), session);
+        assertEquals(session.getToken(), node2.getByToken(session.getToken()).getToken());
+        assertNotNull(node2.get("sessionId-a"));
+    }
+
+    @Test
+    void negativeTtlTest() {
+        NearCacheSessionStore uncachedMisses = new NearCacheSessionStore(backend, 10, Duration.ofMinutes(1), Duration.ZERO);
+        assertNull(uncachedMisses.get("sessionId-a"));
+        assertNull(uncachedMisses.get("sessionId-a"));
+        assertEquals(2, uncachedMisses.missCount());
+        uncachedMisses.stop();
+    }
+
+    @Test
+    void sizeEvictionTest() {
+        NearCacheSessionStore small = new NearCacheSessionStore(backend, 2, Duration.ofMinutes(1));
+        Set<Long> tokens = new HashSet<>();
+        for (int i = 0; i < 5; i++) {
+            SockiopathSession session = new SockiopathSession(null);
+            node1.put(SessionTokens.toHex(session.getToken()), session);
+            tokens.add(session.getToken());
+        }
+
+        tokens.forEach(small::getByToken);
+        assertEquals(2, small.cachedSessionCount());
+        assertEquals(3, small.evictionCount());
+        small.stop();
+    }
+
+    @Test
+    void clockEvictionTest() {
+        NearCacheSessionStore small = new NearCacheSessionStore(backend, 2, Duration.ofMinutes(1));
+        long[] tokens = new long[3];
+        for (int i = 0; i < tokens.length; i++) {
+            SockiopathSession session = new SockiopathSession(null);
+            node1.put(SessionTokens.toHex(session.getToken()), session);
+            tokens[i] = session.getToken();
+        }
+        small.getByToken(tokens[0]);
+        small.getByToken(tokens[1]);
+
+        // the hand passes over the session looked up since it was cached, and evicts the other one
+        small.getByToken(tokens[0]);
+        small.getByToken(tokens[2]);
+        assertEquals(1, small.evictionCount());
+        small.getByToken(tokens[0]);
+        assertEquals(2, small.hitCount());
+        small.stop();
+    }
+
+    @Test
+    void ttlExpiryTest() throws Exception {
+        NearCacheSessionStore shortLived = new NearCacheSessionStore(backend, 10, Duration.ofMillis(10));
+        SockiopathSession session = new SockiopathSession(null);
+        String id = SessionTokens.toHex(session.getToken());
+        node1.put(id, session);
+
+        SockiopathSession remote = shortLived.get(id);
+        Thread.sleep(20);
+        assertNotSame(remote, shortLived.get(id));
+        assertEquals(2, shortLived.missCount());
+        shortLived.stop();
+    }
+
+    @Test
+    void computeIfAbsentTest() {
+        SockiopathSession session = new SockiopathSession(null);
+        String id = SessionTokens.toHex(session.getToken());
+
+        assertSame(session, node1.computeIfAbsent(id, key -> session));
+        assertEquals(session.getToken(), node2.computeIfAbsent(id, key -> new SockiopathSession(null)).getToken());
+        assertEquals(0, node2.size());
+        assertNull(node1.computeIfAbsent("sessionId-a", key -> null));
+        assertEquals(1, backend.size());
+    }
+
+    @Test
+    void stopTest() {
+        SockiopathSession session = new SockiopathSession(null);
+        String id = SessionTokens.toHex(session.getToken());
+        node1.put(id, session);
+        node2.get(id);
+
+        node2.stop();
+        node1.remove(id);
+        assertEquals(0, node2.invalidationCount());
+        assertEquals(1, node2.cachedSessionCount());
+    }
+
+    @Test
+    void invalidArgumentsTest() {
+        assertThrows(IllegalArgumentException.class, () -> new NearCacheSessionStore(backend, -1, Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> new NearCacheSessionStore(backend, 1, Duration.ofSeconds(-1)));
+        assertThrows(IllegalArgumentException.class, () -> new NearCacheSessionStore(backend, 1, Duration.ZERO, Duration.ofSeconds(-1)));
+    }
+}
@@ -0,0 +1,288 @@
+package io.worldy.sockiopath.session;
+
+import io.netty.channel.ChannelHandlerContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.net.InetSocketAddress;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapSessionStoreTest {
+
+    private final OffHeapSessionStore sessionStore = new OffHeapSessionStore(16);
+
+    @AfterEach
+    void release() {
+        sessionStore.release();
+    }
+
+    @Test
+    void putAndGetTest() {
+        ChannelHandlerContext webSocketContext = Mockito.mock(ChannelHandlerContext.class);
+        ChannelHandlerContext udpContext = Mockito.mock(ChannelHandlerContext.class);
+        InetSocketAddress udpSocketAddress = new InetSocketAddress("127.0.0.1", 65001);
+        SockiopathSession session = new SockiopathSession(webSocketContext)
+                .withUdpSocketAddress(udpSocketAddress)
+                .withUdpContext(udpContext);
+        String id = SessionTokens.toHex(session.getToken());
+
+        assertNull(sessionStore.put(id, session));
+
+        SockiopathSession stored = sessionStore.get(id);
+        assertEquals(session.getToken(), stored.getToken());
+        assertSame(webSocketContext, stored.getWebSocketContext());
+        assertSame(udpContext, stored.getUdpContext());
+        assertEquals(udpSocketAddress, stored.getUdpSocketAddress());
+        assertEquals(session.getLastActivityNanos(), stored.getLastActivityNanos());
+        assertEquals(session.getToken(), sessionStore.getByToken(session.getToken()).getToken());
+        assertEquals(1, sessionStore.size());
+        assertEquals(Set.of(id), new HashSet<>(sessionStore.keySet()));
+        assertTrue(sessionStore.keySet().contains(id));
+    }
+
+    @Test
+    void ipv6AddressTest() {
+        SockiopathSession session = put(new SockiopathSession(null));
+        InetSocketAddress udpSocketAddress = new InetSocketAddress("::1", 443);
+
+        session.withUdpSocketAddress(udpSocketAddress);
+
+        assertEquals(udpSocketAddress, sessionStore.getByToken(session.getToken()).getUdpSocketAddress());
+    }
+
+    @Test
+    void unresolvedAddressTest() {
+        SockiopathSession session = new SockiopathSession(null)
+                .withUdpSocketAddress(InetSocketAddress.createUnresolved("localhost", 65001));
+
+        assertThrows(IllegalArgumentException.class, () ->
+                sessionStore.put(SessionTokens.toHex(session.getToken()), session)
+        );
+        assertEquals(0, sessionStore.size());
+
+        // neither a replace nor a view loses the binding there was
+        InetSocketAddress bound = new InetSocketAddress("127.0.0.1", 65001);
+        SockiopathSession stored = put(new SockiopathSession(null)).withUdpSocketAddress(bound);
+        SockiopathSession replacement = new SockiopathSession(null, stored.getToken())
+                .withUdpSocketAddress(InetSocketAddress.createUnresolved("localhost", 65002));
+        assertThrows(IllegalArgumentException.class, () ->
+                sessionStore.put(SessionTokens.toHex(stored.getToken()), replacement)
+        );
+        assertThrows(IllegalArgumentException.class, () ->
+                stored.withUdpSocketAddress(InetSocketAddress.createUnresolved("localhost", 65002))
+        );
+        assertEquals(bound, sessionStore.getByToken(stored.getToken()).getUdpSocketAddress());
+        assertEquals(1, sessionStore.size());
+    }
+
+    @Test
+    void viewWritesThroughTest() {
+        SockiopathSession session = put(new SockiopathSession(null));
+        ChannelHandlerContext udpContext = Mockito.mock(ChannelHandlerContext.class);
+
+        session.withUdpSocketAddress(new InetSocketAddress("127.0.0.1", 65001)).withUdpContext(udpContext);
+        long before = session.getLastUdpActivityNanos();
+        session.touchUdp();
+
+        SockiopathSession stored = sessionStore.getByToken(session.getToken());
+        assertEquals(new InetSocketAddress("127.0.0.1", 65001), stored.getUdpSocketAddress());
+        assertSame(udpContext, stored.getUdpContext());
+        assertTrue(stored.getLastUdpActivityNanos() >= before);
+        assertEquals(stored.getLastUdpActivityNanos(), stored.getLastActivityNanos());
+
+        stored.touch();
+        assertTrue(session.getLastActivityNanos() >= session.getLastUdpActivityNanos());
+
+        stored.clearUdpBinding();
+        assertNull(session.getUdpSocketAddress());
+        assertNull(session.getUdpContext());
+    }
+
+    @Test
+    void removeTest() {
+        ChannelHandlerContext webSocketContext = Mockito.mock(ChannelHandlerContext.class);
+        SockiopathSession session = put(new SockiopathSession(webSocketContext)
+                .withUdpSocketAddress(new InetSocketAddress("127.0.0.1", 65001)));
+        String id = SessionTokens.toHex(session.getToken());
+
+        SockiopathSession removed = sessionStore.remove(id);
+
+        assertEquals(session.getToken(), removed.getToken());
+        assertSame(webSocketContext, removed.getWebSocketContext());
+        assertEquals(new InetSocketAddress("127.0.0.1", 65001), removed.getUdpSocketAddress());
+        assertNull(sessionStore.get(id));
+        assertNull(sessionStore.remove(id));
+        assertNull(sessionStore.remove("sessionId-a"));
+        assertEquals(0, sessionStore.size());
+        assertFalse(sessionStore.keySet().iterator().hasNext());
+
+        // the stale view neither reads nor writes the freed record
+        session.withUdpSocketAddress(new InetSocketAddress("127.0.0.1", 65002))
+                .withUdpContext(Mockito.mock(ChannelHandlerContext.class));
+        session.touch();
+        session.touchUdp();
+        session.clearUdpBinding();
+        assertNull(session.getUdpSocketAddress());
+        assertNull(session.getUdpContext());
+    }
+
+    @Test
+    void staleViewOfReusedSlotTest() {
+        SockiopathSession first = put(new SockiopathSession(null));
+        sessionStore.remove(SessionTokens.toHex(first.getToken()));
+        SockiopathSession second = put(new SockiopathSession(null)
+                .withUdpSocketAddress(new InetSocketAddress("127.0.0.1", 65001)));
+
+        assertNull(first.getUdpSocketAddress());
+        first.clearUdpBinding();
+        assertEquals(new InetSocketAddress("127.0.0.1", 65001), second.getUdpSocketAddress());
+    }
+
+    @Test
+    void replaceTest() {
+        long token = SessionTokens.next();
+        String id = SessionTokens.toHex(token);
+        ChannelHandlerContext first = Mockito.mock(ChannelHandlerContext.class);
+        ChannelHandlerContext second = Mockito.mock(ChannelHandlerContext.class);
+
+        assertNull(sessionStore.put(id, new SockiopathSession(first, token)));
+        SockiopathSession previous = sessionStore.put(id, new SockiopathSession(second, token));
+
+        assertSame(first, previous.getWebSocketContext());
+        assertSame(second, sessionStore.get(id).getWebSocketContext());
+        assertEquals(1, sessionStore.size());
+
+        // putting a view of the store back does not deadlock
+        assertNotNull(sessionStore.put(id, sessionStore.get(id)));
+    }
+
+    @Test
+    void idMustBeTheTokenTest() {
+        assertThrows(IllegalArgumentException.class, () ->
+                sessionStore.put("sessionId-a", new SockiopathSession(null))
+        );
+        assertNull(sessionStore.get("sessionId-a"));
+        assertFalse(sessionStore.keySet().contains("sessionId-a"));
+        assertFalse(sessionStore.keySet().contains(1));
+        assertNull(sessionStore.getByToken(SessionTokens.NO_TOKEN));
+    }
+
+    @Test
+    void fullTest() {
+        List<SockiopathSession> sessions = IntStream.range(0, sessionStore.capacity())
+                .mapToObj(i -> put(new SockiopathSession(null)))
+                .toList();
+
+        SockiopathSession overflow = new SockiopathSession(null);
+        assertThrows(IllegalStateException.class, () ->
+                sessionStore.put(SessionTokens.toHex(overflow.getToken()), overflow)
+        );
+
+        // removing in any order keeps every other session reachable
+        for (int i = 0; i < sessions.size(); i += 2) {
+            sessionStore.remove(SessionTokens.toHex(sessions.get(i).getToken()));
+        }
+        for (int i = 1; i < sessions.size(); i += 2) {
+            assertNotNull(sessionStore.getByToken(sessions.get(i).getToken()));
+        }
+        assertEquals(
+                IntStream.range(0, sessions.size()).filter(i -> i % 2 == 1)
+                        .mapToObj(i -> SessionTokens.toHex(sessions.get(i).getToken()))
+                        .collect(Collectors.toSet()),
+                new HashSet<>(sessionStore.keySet())
+        );
+        assertEquals(sessionStore.capacity() / 2, sessionStore.keySet().size());
+
+        put(overflow);
+        assertNotNull(sessionStore.getByToken(overflow.getToken()));
+    }
+
+    @Test
+    void collidingTokensTest() {
+        OffHeapSessionStore small = new OffHeapSessionStore(1);
+        try {
+            SockiopathSession session = new SockiopathSession(null, 1L);
+            small.put(SessionTokens.toHex(1L), session);
+            assertNull(small.getByToken(2L));
+            small.remove(SessionTokens.toHex(1L));
+            small.put(SessionTokens.toHex(2L), new SockiopathSession(null, 2L));
+            assertNotNull(small.getByToken(2L));
+            assertNull(small.getByToken(1L));
+        } finally {
+            small.release();
+        }
+    }
+
+    @Test
+    void keySetIteratorTest() {
+        Iterator<String> iterator = sessionStore.keySet().iterator();
+        assertFalse(iterator.hasNext());
+        assertThrows(NoSuchElementException.class, iterator::next);
+    }
+
+    @Test
+    void computeIfAbsentTest() {
+        SockiopathSession session = new SockiopathSession(null);
+        String id = SessionTokens.toHex(session.getToken());
+
+        SockiopathSession created = sessionStore.computeIfAbsent(id, absent -> session);
+        assertEquals(session.getToken(), created.getToken());
+        created.withUdpSocketAddress(new InetSocketAddress("127.0.0.1", 65001));
+        assertEquals(created.getUdpSocketAddress(), sessionStore.get(id).getUdpSocketAddress());
+
+        SockiopathSession existing = sessionStore.computeIfAbsent(id, absent -> new SockiopathSession(null, session.getToken()));
+        assertEquals(created.getUdpSocketAddress(), existing.getUdpSocketAddress());
+        assertNull(sessionStore.computeIfAbsent(SessionTokens.toHex(1L), absent -> null));
+        assertEquals(1, sessionStore.size());
+    }
+
+    @Test
+    void forEachTest() {
+        SockiopathSession a = put(new SockiopathSession(null));
+        SockiopathSession b = put(new SockiopathSession(null));
+        sessionStore.remove(SessionTokens.toHex(put(new SockiopathSession(null)).getToken()));
+
+        Set<Long> visited = new HashSet<>();
+        sessionStore.forEachSession(session -> visited.add(session.getToken()));
+        assertEquals(Set.of(a.getToken(), b.getToken()), visited);
+
+        Set<String> ids = new HashSet<>();
+        sessionStore.forEachEntry((id, session) -> {
+            assertEquals(SessionTokens.toHex(session.getToken()), id);
+            ids.add(id);
+        });
+        assertEquals(Set.of(SessionTokens.toHex(a.getToken()), SessionTokens.toHex(b.getToken())), ids);
+
+        Iterator<SockiopathSession> snapshot = sessionStore.snapshotIterator();
+        sessionStore.remove(SessionTokens.toHex(a.getToken()));
+        visited.clear();
+        snapshot.forEachRemaining(session -> visited.add(session.getToken()));
+        assertEquals(Set.of(a.getToken(), b.getToken()), visited);
+    }
+
+    @Test
+    void capacityTest() {
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapSessionStore(0));
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapSessionStore(OffHeapSessionStore.MAX_CAPACITY + 1));
+    }
+
+    private SockiopathSession put(SockiopathSession session) {
+        sessionStore.put(SessionTokens.toHex(session.getToken()), session);
+        return sessionStore.getByToken(session.getToken());
+    }
+}
@@ -0,0 +1,160 @@
+package io.worldy.sockiopath.session;
+
+import io.netty.channel.ChannelHandlerContext;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionAttributeTest {
+
+    private static final SessionAttribute<String> NAME = SessionAttribute.valueOf("session-attribute-test-name", String.class);
+    private static final SessionAttribute<Integer> SCORE = SessionAttribute.valueOf("session-attribute-test-score", Integer.class);
+    private static final SessionAttribute<Held> HELD = SessionAttribute.valueOf("session-attribute-test-held", Held.class);
+
+    private static final class Held implements SessionAttribute.Releasable {
+        private int released;
+
+        @Override
+        public void release() {
+            released++;
+        }
+    }
+
+    @Test
+    void valueOfTest() {
+        assertSame(NAME, SessionAttribute.valueOf("session-attribute-test-name", String.class));
+        assertEquals("session-attribute-test-name", NAME.name());
+        assertEquals(String.class, NAME.type());
+        assertEquals(NAME.index() + 1, SCORE.index());
+        assertTrue(SessionAttribute.count() > SCORE.index());
+        assertTrue(NAME.toString().contains("session-attribute-test-name"));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () ->
+                SessionAttribute.valueOf("session-attribute-test-name", Integer.class)
+        );
+        assertEquals("session attribute session-attribute-test-name is a java.lang.String, not a java.lang.Integer",
+                exception.getMessage());
+    }
+
+    @Test
+    void accessModesTest() {
+        SockiopathSession session = new SockiopathSession(null);
+        assertNull(session.getAttribute(NAME));
+        assertNull(session.getAttributeVolatile(SCORE));
+
+        session.setAttribute(NAME, "a");
+        assertEquals("a", session.getAttribute(NAME));
+        session.setAttributeVolatile(NAME, "b");
+        assertEquals("b", session.getAttributeVolatile(NAME));
+
+        Integer one = 1;
+        assertTrue(session.compareAndSetAttribute(SCORE, null, one));
+        assertFalse(session.compareAndSetAttribute(SCORE, null, 2));
+        assertTrue(session.compareAndSetAttribute(SCORE, one, 3));
+        assertEquals(Integer.valueOf(3), session.getAttribute(SCORE));
+    }
+
+    @Test
+    void registeredAfterSessionTest() {
+        SockiopathSession session = new SockiopathSession(null);
+        SessionAttribute<String> late = SessionAttribute.valueOf("session-attribute-test-late", String.class);
+
+        assertNull(session.getAttribute(late));
+        assertNull(session.getAttributeVolatile(late));
+        assertThrows(IllegalStateException.class, () -> session.setAttribute(late, "a"));
+        assertThrows(IllegalStateException.class, () -> session.setAttributeVolatile(late, "a"));
+        assertThrows(IllegalStateException.class, () -> session.compareAndSetAttribute(late, null, "a"));
+
+        SockiopathSession created = new SockiopathSession(null);
+        created.setAttribute(late, "a");
+        assertEquals("a", created.getAttribute(late));
+    }
+
+    @Test
+    void reattachTest() {
+        ChannelHandlerContext ctx = Mockito.mock(ChannelHandlerContext.class);
+        InetSocketAddress udpSocketAddress = new InetSocketAddress("127.0.0.1", 65001);
+        SockiopathSession session = new SockiopathSession(null).withUdpSocketAddress(udpSocketAddress);
+        session.setAttribute(NAME, "a");
+
+        SockiopathSession reattached = session.reattach(ctx);
+        assertSame(ctx, reattached.getWebSocketContext());
+        assertEquals(session.getToken(), reattached.getToken());
+        assertEquals(udpSocketAddress, reattached.getUdpSocketAddress());
+        assertEquals("a", reattached.getAttribute(NAME));
+        reattached.setAttribute(SCORE, 1);
+        assertEquals(Integer.valueOf(1), session.getAttribute(SCORE));
+
+        // a session older than an attribute gets a slot for it on reattaching, and keeps its values
+        SessionAttribute<String> later = SessionAttribute.valueOf("session-attribute-test-later", String.class);
+        SockiopathSession detached = reattached.reattach(null);
+        assertNull(detached.getWebSocketContext());
+        detached.setAttribute(later, "b");
+        assertEquals("a", detached.getAttribute(NAME));
+        assertNull(session.getAttribute(later));
+    }
+
+    @Test
+    void removeClearsAttributesTest() {
+        for (SessionStore<SockiopathSession> sessionStore : List.of(
+                new MapBackedSessionStore(new HashMap<>()), new ConcurrentSessionStore(2)
+        )) {
+            SockiopathSession session = new SockiopathSession(null);
+            String id = SessionTokens.toHex(session.getToken());
+            sessionStore.put(id, session);
+            session.setAttribute(NAME, "a");
+
+            assertSame(session, sessionStore.remove(id));
+            assertNull(session.getAttribute(NAME));
+        }
+    }
+
+    @Test
+    void removalReleasesTest() {
+        MapBackedSessionStore sessionStore = new MapBackedSessionStore(new HashMap<>());
+        SockiopathSession session = new SockiopathSession(null);
+        String id = SessionTokens.toHex(session.getToken());
+        Held held = new Held();
+        session.setAttribute(HELD, held);
+        sessionStore.put(id, session);
+
+        sessionStore.remove(id);
+        assertNull(session.getAttribute(HELD));
+        assertEquals(1, held.released);
+    }
+
+    @Test
+    void offHeapViewsShareAttributesTest() {
+        OffHeapSessionStore sessionStore = new OffHeapSessionStore(4);
+        try {
+            SockiopathSession session = new SockiopathSession(null);
+            String id = SessionTokens.toHex(session.getToken());
+            session.setAttribute(NAME, "a");
+            sessionStore.put(id, session);
+
+            SockiopathSession view = sessionStore.get(id);
+            assertEquals("a", view.getAttribute(NAME));
+            view.setAttributeVolatile(SCORE, 1);
+            assertEquals(Integer.valueOf(1), sessionStore.getByToken(session.getToken()).getAttributeVolatile(SCORE));
+
+            SockiopathSession removed = sessionStore.remove(id);
+            assertNull(removed.getAttribute(NAME));
+            assertNull(view.getAttribute(SCORE));
+
+            sessionStore.put(id, new SockiopathSession(null, session.getToken()));
+            assertNull(sessionStore.get(id).getAttribute(NAME));
+        } finally {
+            sessionStore.release();
+        }
+    }
+}
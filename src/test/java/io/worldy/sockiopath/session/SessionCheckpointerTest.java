@@ -0,0 +1,169 @@
+package io.worldy.sockiopath.session;
+
+import io.netty.channel.ChannelHandlerContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionCheckpointerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void checkpointAndRestoreTest() throws IOException {
+        Path snapshot = directory.resolve("sessions");
+        ConcurrentSessionStore sessionStore = new ConcurrentSessionStore();
+        SockiopathSession ipv4 = put(sessionStore, new SockiopathSession(Mockito.mock(ChannelHandlerContext.class))
+                .withUdpSocketAddress(new InetSocketAddress("127.0.0.1", 65001))
+                .withUdpContext(Mockito.mock(ChannelHandlerContext.class)));
+        SockiopathSession ipv6 = put(sessionStore, new SockiopathSession(null)
+                .withUdpSocketAddress(new InetSocketAddress("::1", 443)));
+        SockiopathSession unbound = put(sessionStore, new SockiopathSession(null));
+        sessionStore.put("sessionId-a", new SockiopathSession(null));
+
+        // three records over two chunks
+        assertEquals(3, new SessionCheckpointer(sessionStore, snapshot, Duration.ZERO, 2).checkpoint());
+        assertEquals(SessionCheckpointer.HEADER_SIZE + 3 * SessionCheckpointer.RECORD_SIZE, Files.size(snapshot));
+        assertFalse(Files.exists(directory.resolve("sessions.tmp")));
+
+        ConcurrentSessionStore restoredStore = new ConcurrentSessionStore();
+        assertEquals(3, new SessionCheckpointer(restoredStore, snapshot, Duration.ZERO, 2).restore());
+        assertEquals(3, restoredStore.size());
+
+        SockiopathSession restored = restoredStore.getByToken(ipv4.getToken());
+        assertEquals(new InetSocketAddress("127.0.0.1", 65001), restored.getUdpSocketAddress());
+        assertNull(restored.getUdpContext());
+        assertNull(restored.getWebSocketContext());
+        assertEquals(new InetSocketAddress("::1", 443), restoredStore.getByToken(ipv6.getToken()).getUdpSocketAddress());
+        assertNull(restoredStore.getByToken(unbound.getToken()).getUdpSocketAddress());
+        assertNull(restoredStore.get("sessionId-a"));
+    }
+
+    @Test
+    void restoreKeepsLiveSessionsTest() throws IOException {
+        Path snapshot = directory.resolve("sessions");
+        ConcurrentSessionStore sessionStore = new ConcurrentSessionStore();
+        SockiopathSession session = put(sessionStore, new SockiopathSession(null));
+        new SessionCheckpointer(sessionStore, snapshot).checkpoint();
+
+        assertEquals(0, new SessionCheckpointer(sessionStore, snapshot).restore());
+        assertSame(session, sessionStore.getByToken(session.getToken()));
+    }
+
+    @Test
+    void emptyCheckpointTest() throws IOException {
+        Path snapshot = directory.resolve("sessions");
+        ConcurrentSessionStore sessionStore = new ConcurrentSessionStore();
+
+        assertEquals(0, new SessionCheckpointer(sessionStore, snapshot).checkpoint());
+        assertEquals(SessionCheckpointer.HEADER_SIZE, Files.size(snapshot));
+        assertEquals(0, new SessionCheckpointer(sessionStore, snapshot).restore());
+    }
+
+    @Test
+    void restoreNothingTest() throws IOException {
+        Path snapshot = directory.resolve("sessions");
+        ConcurrentSessionStore sessionStore = new ConcurrentSessionStore();
+        SessionCheckpointer checkpointer = new SessionCheckpointer(sessionStore, snapshot);
+
+        assertEquals(0, checkpointer.restore());
+
+        Files.write(snapshot, new byte[]{1, 2, 3});
+        assertEquals(0, checkpointer.restore());
+
+        ByteBuffer header = ByteBuffer.allocate(SessionCheckpointer.HEADER_SIZE);
+        header.putInt(SessionCheckpointer.MAGIC).putInt(SessionCheckpointer.VERSION).putInt(1).putInt(0);
+        Files.write(snapshot, header.array());
+        assertEquals(0, checkpointer.restore());
+
+        header.clear();
+        header.putInt(SessionCheckpointer.MAGIC).putInt(SessionCheckpointer.VERSION + 1).putInt(0).putInt(0);
+        Files.write(snapshot, header.array());
+        assertEquals(0, checkpointer.restore());
+
+        header.clear();
+        header.putInt(0).putInt(SessionCheckpointer.VERSION).putInt(0).putInt(0);
+        Files.write(snapshot, header.array());
+        assertEquals(0, checkpointer.restore());
+
+        assertEquals(0, sessionStore.size());
+    }
+
+    @Test
+    void startAndStopTest() throws Exception {
+        Path snapshot = directory.resolve("sessions");
+        ConcurrentSessionStore sessionStore = new ConcurrentSessionStore();
+        SockiopathSession session = put(sessionStore, new SockiopathSession(null));
+        new SessionCheckpointer(sessionStore, snapshot).checkpoint();
+
+        ConcurrentSessionStore restoredStore = new ConcurrentSessionStore();
+        SessionCheckpointer checkpointer = new SessionCheckpointer(restoredStore, snapshot, Duration.ZERO);
+        checkpointer.stop();
+        assertEquals(1, checkpointer.start());
+        assertEquals(0, checkpointer.start());
+        assertEquals(session.getToken(), restoredStore.getByToken(session.getToken()).getToken());
+
+        SockiopathSession joined = put(restoredStore, new SockiopathSession(null));
+        checkpointer.stop();
+        checkpointer.stop();
+
+        ConcurrentSessionStore restartedStore = new ConcurrentSessionStore();
+        assertEquals(2, new SessionCheckpointer(restartedStore, snapshot).restore());
+        assertEquals(joined.getToken(), restartedStore.getByToken(joined.getToken()).getToken());
+    }
+
+    @Test
+    void periodicCheckpointTest() throws Exception {
+        Path snapshot = directory.resolve("sessions");
+        ConcurrentSessionStore sessionStore = new ConcurrentSessionStore();
+        SessionCheckpointer checkpointer = new SessionCheckpointer(sessionStore, snapshot, Duration.ofMillis(10));
+        assertEquals(0, checkpointer.start());
+        put(sessionStore, new SockiopathSession(null));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(3);
+        while (!(Files.exists(snapshot) && Files.size(snapshot) > SessionCheckpointer.HEADER_SIZE) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        checkpointer.stop();
+        assertTrue(Files.size(snapshot) > SessionCheckpointer.HEADER_SIZE);
+    }
+
+    @Test
+    void failedCheckpointIsLoggedTest() throws IOException {
+        Path snapshot = directory.resolve("missing").resolve("sessions");
+        SessionCheckpointer checkpointer = new SessionCheckpointer(new ConcurrentSessionStore(), snapshot, Duration.ZERO);
+
+        assertThrows(IOException.class, checkpointer::checkpoint);
+        checkpointer.start();
+        checkpointer.stop();
+        assertFalse(Files.exists(snapshot));
+    }
+
+    @Test
+    void negativeIntervalTest() {
+        assertThrows(IllegalArgumentException.class, () ->
+                new SessionCheckpointer(new ConcurrentSessionStore(), directory.resolve("sessions"), Duration.ofSeconds(-1))
+        );
+    }
+
+    private static SockiopathSession put(SessionStore<SockiopathSession> sessionStore, SockiopathSession session) {
+        sessionStore.put(SessionTokens.toHex(session.getToken()), session);
+        return session;
+    }
+}
@@ -0,0 +1,107 @@
+package io.worldy.sockiopath.session;
+
+import io.netty.channel.ChannelHandlerContext;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class SessionStoreTest {
+
+    @Test
+    void functionalSessionStoreTest() {
+        Map<String, SockiopathSession> sessions = new HashMap<>();
+        SessionStore<SockiopathSession> sessionStore = SessionStore.of(functional(sessions));
+        SockiopathSession a = new SockiopathSession(null);
+        SockiopathSession b = new SockiopathSession(null);
+
+        assertNull(sessionStore.put("sessionId-a", a));
+        assertSame(a, sessionStore.get("sessionId-a"));
+        assertSame(a, sessionStore.getByToken(a.getToken()));
+        assertSame(b, sessionStore.computeIfAbsent("sessionId-b", id -> b));
+        assertSame(b, sessionStore.computeIfAbsent("sessionId-b", id -> new SockiopathSession(null)));
+        assertNull(sessionStore.computeIfAbsent("sessionId-c", id -> null));
+        assertEquals(2, sessionStore.size());
+        assertEquals(Set.of("sessionId-a", "sessionId-b"), sessionStore.keySet());
+
+        Map<String, SockiopathSession> entries = new HashMap<>();
+        sessionStore.forEachEntry(entries::put);
+        assertEquals(sessions, entries);
+
+        Iterator<SockiopathSession> snapshot = sessionStore.snapshotIterator();
+        assertSame(a, sessionStore.remove("sessionId-a"));
+        Set<SockiopathSession> visited = new HashSet<>();
+        snapshot.forEachRemaining(visited::add);
+        assertEquals(Set.of(a, b), visited);
+        assertEquals(1, sessionStore.size());
+
+        ChannelHandlerContext ctx = Mockito.mock(ChannelHandlerContext.class);
+        assertSame(ctx, sessionStore.createSession(ctx).getWebSocketContext());
+    }
+
+    @Test
+    void functionalDefaultGetByTokenTest() {
+        Map<String, SockiopathSession> sessions = new HashMap<>();
+        SessionStore<SockiopathSession> sessionStore = SessionStore.of(functional(sessions));
+        SockiopathSession byHex = new SockiopathSession(null);
+        SockiopathSession byName = new SockiopathSession(null);
+        sessionStore.put(SessionTokens.toHex(byHex.getToken()), byHex);
+        sessionStore.put("sessionId-a", byName);
+
+        assertSame(byHex, sessionStore.getByToken(byHex.getToken()));
+        assertSame(byName, sessionStore.getByToken(byName.getToken()));
+        assertNull(sessionStore.getByToken(SessionTokens.next()));
+        assertNull(sessionStore.getByToken(SessionTokens.NO_TOKEN));
+    }
+
+    @Test
+    void defaultKeySetIsACopyTest() {
+        MapBackedSessionStore sessionStore = new MapBackedSessionStore(new HashMap<>());
+        sessionStore.put("sessionId-a", new SockiopathSession(null));
+
+        Set<String> keySet = sessionStore.keySet();
+        sessionStore.remove("sessionId-a");
+        assertEquals(Set.of("sessionId-a"), keySet);
+        assertEquals(0, sessionStore.size());
+    }
+
+    private static FunctionalSessionStore<SockiopathSession> functional(Map<String, SockiopathSession> sessions) {
+        return new FunctionalSessionStore<>() {
+            @Override
+            public Function<String, SockiopathSession> get() {
+                return sessions::get;
+            }
+
+            @Override
+            public BiFunction<String, SockiopathSession, SockiopathSession> put() {
+                return sessions::put;
+            }
+
+            @Override
+            public Function<String, SockiopathSession> remove() {
+                return sessions::remove;
+            }
+
+            @Override
+            public Supplier<Integer> size() {
+                return sessions::size;
+            }
+
+            @Override
+            public Supplier<Set<String>> keySet() {
+                return sessions::keySet;
+            }
+        };
+    }
+}
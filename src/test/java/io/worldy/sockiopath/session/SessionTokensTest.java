@@ -0,0 +1,63 @@
+package io.worldy.sockiopath.session;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class SessionTokensTest {
+
+    @Test
+    void nextTest() {
+        long first = SessionTokens.next();
+        long second = SessionTokens.next();
+
+        assertNotEquals(SessionTokens.NO_TOKEN, first);
+        assertNotEquals(first, second);
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {1L, -1L, 0x00ABCDEF12345678L, Long.MIN_VALUE, Long.MAX_VALUE})
+    void hexRoundTripTest(long token) {
+        String hex = SessionTokens.toHex(token);
+        ByteBuf content = Unpooled.copiedBuffer("|" + hex + "|", StandardCharsets.US_ASCII);
+
+        assertEquals(16, hex.length());
+        assertEquals(token, SessionTokens.parseHex(content, 1, hex.length()));
+    }
+
+    @Test
+    void parseUpperCaseHexTest() {
+        ByteBuf content = Unpooled.copiedBuffer("00ABCDEF12345678", StandardCharsets.US_ASCII);
+
+        assertEquals(0x00ABCDEF12345678L, SessionTokens.parseHex(content, 0, 16));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "sessionId-a", "0123456789abcdef0", "0123456789abcdeg", "0123456789abcde-"})
+    void parseNotATokenTest(String sessionId) {
+        ByteBuf content = Unpooled.copiedBuffer(sessionId, StandardCharsets.US_ASCII);
+
+        assertEquals(SessionTokens.NO_TOKEN, SessionTokens.parseHex(content, 0, content.readableBytes()));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "sessionId-a", "0123456789abcdef0", "0123456789abcdeg", "0123456789abcde-"})
+    void parseNotATokenIdTest(String sessionId) {
+        assertEquals(SessionTokens.NO_TOKEN, SessionTokens.parseHex(sessionId));
+    }
+
+    @Test
+    void parseIdTest() {
+        long token = SessionTokens.next();
+
+        assertEquals(token, SessionTokens.parseHex(SessionTokens.toHex(token)));
+        assertEquals(SessionTokens.NO_TOKEN, SessionTokens.parseHex((CharSequence) null));
+    }
+}
@@ -0,0 +1,144 @@
+package io.worldy.sockiopath.session;
+
+import io.netty.channel.ChannelHandlerContext;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.net.InetSocketAddress;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UdpSessionIndexTest {
+
+    private static final InetSocketAddress ADDRESS_A = new InetSocketAddress("127.0.0.1", 65001);
+    private static final InetSocketAddress ADDRESS_B = new InetSocketAddress("127.0.0.1", 65002);
+    private static final InetSocketAddress ADDRESS_V6 = new InetSocketAddress("::1", 65001);
+
+    private final UdpSessionIndex index = new UdpSessionIndex(4);
+
+    @Test
+    void bindTest() {
+        SockiopathSession session = new SockiopathSession(null);
+        ChannelHandlerContext context = Mockito.mock(ChannelHandlerContext.class);
+
+        assertFalse(index.bind(session, ADDRESS_A, context));
+
+        assertSame(session, index.get(ADDRESS_A));
+        assertNull(index.get(ADDRESS_B));
+        assertEquals(ADDRESS_A, session.getUdpSocketAddress());
+        assertSame(context, session.getUdpContext());
+        assertEquals(1, index.size());
+        assertEquals(0, index.rebindCount());
+    }
+
+    @Test
+    void bindAgainOnlyUpdatesContextTest() {
+        SockiopathSession session = new SockiopathSession(null);
+        ChannelHandlerContext context = Mockito.mock(ChannelHandlerContext.class);
+        index.bind(session, ADDRESS_A, Mockito.mock(ChannelHandlerContext.class));
+
+        assertFalse(index.bind(session, new InetSocketAddress("127.0.0.1", 65001), context));
+        assertFalse(index.bind(session, ADDRESS_A, context));
+
+        assertSame(context, session.getUdpContext());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void natRebindingTest() {
+        SockiopathSession session = new SockiopathSession(null);
+        index.bind(session, ADDRESS_A, null);
+
+        assertTrue(index.bind(session, ADDRESS_B, null));
+
+        assertNull(index.get(ADDRESS_A));
+        assertSame(session, index.get(ADDRESS_B));
+        assertEquals(ADDRESS_B, session.getUdpSocketAddress());
+        assertEquals(1, index.size());
+        assertEquals(1, index.rebindCount());
+    }
+
+    @Test
+    void addressTakenOverTest() {
+        SockiopathSession first = new SockiopathSession(null);
+        SockiopathSession second = new SockiopathSession(null);
+        index.bind(first, ADDRESS_A, Mockito.mock(ChannelHandlerContext.class));
+
+        assertFalse(index.bind(second, ADDRESS_A, null));
+
+        assertSame(second, index.get(ADDRESS_A));
+        assertNull(first.getUdpSocketAddress());
+        assertNull(first.getUdpContext());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void ipv6Test() {
+        SockiopathSession session = new SockiopathSession(null);
+
+        index.bind(session, ADDRESS_V6, null);
+        assertSame(session, index.get(ADDRESS_V6));
+        assertEquals(1, index.size());
+
+        assertTrue(index.bind(session, ADDRESS_A, null));
+        assertNull(index.get(ADDRESS_V6));
+        assertSame(session, index.get(ADDRESS_A));
+
+        index.bind(session, ADDRESS_V6, null);
+        index.unbind(session);
+        assertNull(index.get(ADDRESS_V6));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void unbindTest() {
+        SockiopathSession session = new SockiopathSession(null);
+        index.unbind(session);
+        index.bind(session, ADDRESS_A, null);
+
+        index.unbind(session);
+
+        assertNull(index.get(ADDRESS_A));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void clearedBindingIsDroppedTest() {
+        SockiopathSession session = new SockiopathSession(null);
+        index.bind(session, ADDRESS_A, null);
+
+        session.clearUdpBinding();
+
+        assertNull(index.get(ADDRESS_A));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void offHeapViewsTest() {
+        OffHeapSessionStore sessionStore = new OffHeapSessionStore(4);
+        try {
+            SockiopathSession session = new SockiopathSession(null);
+            sessionStore.put(SessionTokens.toHex(session.getToken()), session);
+
+            index.bind(sessionStore.getByToken(session.getToken()), ADDRESS_A, null);
+            assertFalse(index.bind(sessionStore.getByToken(session.getToken()), ADDRESS_A, null));
+
+            assertEquals(ADDRESS_A, sessionStore.getByToken(session.getToken()).getUdpSocketAddress());
+            assertEquals(session.getToken(), index.get(ADDRESS_A).getToken());
+        } finally {
+            sessionStore.release();
+        }
+    }
+
+    @Test
+    void keyTest() {
+        assertEquals(0x7F000001L << 16 | 65001, UdpSessionIndex.key(ADDRESS_A));
+        assertEquals(0xFFFFFFFFL << 16 | 65535, UdpSessionIndex.key(new InetSocketAddress("255.255.255.255", 65535)));
+        assertEquals(-1L, UdpSessionIndex.key(ADDRESS_V6));
+        assertEquals(-1L, UdpSessionIndex.key(InetSocketAddress.createUnresolved("localhost", 65001)));
+    }
+}
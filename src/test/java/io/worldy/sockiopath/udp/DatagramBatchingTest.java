@@ -0,0 +1,86 @@
+package io.worldy.sockiopath.udp;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.worldy.sockiopath.flush.FlushPolicy;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DatagramBatchingTest {
+
+    @Test
+    void disabledTest() {
+        DatagramBatching batching = DatagramBatching.disabled();
+        assertFalse(batching.batchesReads());
+        assertFalse(batching.batchesWrites());
+
+        Bootstrap bootstrap = batching.apply(new Bootstrap());
+        assertTrue(bootstrap.config().options().isEmpty());
+
+        ChannelHandler handler = new ChannelInboundHandlerAdapter();
+        assertSame(handler, batching.withSegmentation(handler));
+    }
+
+    @Test
+    void enabledTest() {
+        DatagramBatching batching = DatagramBatching.enabled();
+        assertTrue(batching.batchesReads());
+        assertEquals(EpollDatagramChannel.isSegmentedDatagramPacketSupported(), batching.batchesWrites());
+
+        Bootstrap bootstrap = batching.apply(new Bootstrap());
+        assertEquals(DatagramBatching.DEFAULT_MAX_DATAGRAM_SIZE, bootstrap.config().options().get(EpollChannelOption.MAX_DATAGRAM_PAYLOAD_SIZE));
+        assertInstanceOf(FixedRecvByteBufAllocator.class, bootstrap.config().options().get(ChannelOption.RCVBUF_ALLOCATOR));
+
+        ChannelHandler handler = new ChannelInboundHandlerAdapter();
+        if (batching.batchesWrites()) {
+            assertNotSame(handler, batching.withSegmentation(handler));
+        } else {
+            assertSame(handler, batching.withSegmentation(handler));
+        }
+    }
+
+    @Test
+    void transportTest() {
+        UdpTransport transport = UdpTransport.epoll(2).withBatching(DatagramBatching.enabled());
+        assertEquals(DatagramBatching.enabled(), transport.batching());
+        assertEquals(DatagramBatching.disabled(), new UdpTransport(true, 2, null).batching());
+
+        Bootstrap bootstrap = UdpTransport.nio().withBatching(DatagramBatching.enabled()).configure(new Bootstrap());
+        assertTrue(bootstrap.config().options().isEmpty());
+        ChannelHandler handler = new ChannelInboundHandlerAdapter();
+        assertSame(handler, UdpTransport.nio().withBatching(DatagramBatching.enabled()).channelHandler(handler));
+    }
+
+    @Test
+    void batchedWritesFlushAdaptivelyTest() {
+        UdpTransport batched = UdpTransport.epoll(1).withBatching(DatagramBatching.enabled());
+        assertEquals(batched.useEpoll() && EpollDatagramChannel.isSegmentedDatagramPacketSupported(), batched.batchesWrites());
+        assertEquals(batched.batchesWrites() ? FlushPolicy.adaptive() : null, UdpServer.flushPolicyFor(null, batched));
+
+        FlushPolicy immediate = FlushPolicy.immediate();
+        assertSame(immediate, UdpServer.flushPolicyFor(immediate, batched));
+        assertFalse(UdpTransport.nio().withBatching(DatagramBatching.enabled()).batchesWrites());
+        assertNull(UdpServer.flushPolicyFor(null, UdpTransport.nio().withBatching(DatagramBatching.enabled())));
+    }
+
+    @Test
+    void invalidBatchingTest() {
+        assertThrows(IllegalArgumentException.class, () -> new DatagramBatching(0, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new DatagramBatching(1, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new DatagramBatching(1, 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new DatagramBatching(1, 1, DatagramBatching.MAX_SEGMENTS + 1));
+    }
+}
@@ -0,0 +1,109 @@
+package io.worldy.sockiopath.udp;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.channel.unix.SegmentedDatagramPacket;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class DatagramSegmenterTest {
+
+    private static final InetSocketAddress RECIPIENT_A = new InetSocketAddress("127.0.0.1", 10001);
+    private static final InetSocketAddress RECIPIENT_B = new InetSocketAddress("127.0.0.1", 10002);
+
+    @Test
+    void equalSizedDatagramsAreSegmentedTest() {
+        assumeTrue(EpollDatagramChannel.isSegmentedDatagramPacketSupported());
+        EmbeddedChannel channel = new EmbeddedChannel(new DatagramSegmenter(DatagramBatching.MAX_SEGMENTS));
+
+        ChannelFuture first = channel.write(packet(10, RECIPIENT_A));
+        channel.write(packet(10, RECIPIENT_A));
+        channel.write(packet(10, RECIPIENT_A));
+        ChannelFuture last = channel.write(packet(4, RECIPIENT_A));
+        channel.write(packet(10, RECIPIENT_B));
+        assertNull(channel.readOutbound());
+        channel.flush();
+
+        SegmentedDatagramPacket segmented = channel.readOutbound();
+        assertEquals(10, segmented.segmentSize());
+        assertEquals(34, segmented.content().readableBytes());
+        assertSame(RECIPIENT_A, segmented.recipient());
+        segmented.release();
+        assertTrue(first.isSuccess());
+        assertTrue(last.isSuccess());
+
+        DatagramPacket single = channel.readOutbound();
+        assertFalse(single instanceof SegmentedDatagramPacket);
+        assertSame(RECIPIENT_B, single.recipient());
+        single.release();
+        assertNull(channel.readOutbound());
+    }
+
+    @Test
+    void maxSegmentsTest() {
+        assumeTrue(EpollDatagramChannel.isSegmentedDatagramPacketSupported());
+        EmbeddedChannel channel = new EmbeddedChannel(new DatagramSegmenter(2));
+
+        channel.write(packet(10, RECIPIENT_A));
+        channel.write(packet(10, RECIPIENT_A));
+        channel.write(packet(10, RECIPIENT_A));
+        channel.flush();
+
+        SegmentedDatagramPacket segmented = channel.readOutbound();
+        assertEquals(20, segmented.content().readableBytes());
+        segmented.release();
+        DatagramPacket single = channel.readOutbound();
+        assertEquals(10, single.content().readableBytes());
+        single.release();
+    }
+
+    @Test
+    void largerDatagramsAreNotSegmentedTest() {
+        EmbeddedChannel channel = new EmbeddedChannel(new DatagramSegmenter(DatagramBatching.MAX_SEGMENTS));
+
+        DatagramPacket small = packet(10, RECIPIENT_A);
+        DatagramPacket large = packet(20, RECIPIENT_A);
+        channel.write(small);
+        channel.write(large);
+        channel.flush();
+
+        assertSame(small, channel.readOutbound());
+        assertSame(large, channel.readOutbound());
+        small.release();
+        large.release();
+    }
+
+    @Test
+    void otherMessagesKeepTheirOrderTest() {
+        EmbeddedChannel channel = new EmbeddedChannel(new DatagramSegmenter(DatagramBatching.MAX_SEGMENTS));
+
+        DatagramPacket packet = packet(10, RECIPIENT_A);
+        channel.write(packet);
+        channel.write("text");
+        ByteBuf unaddressed = Unpooled.wrappedBuffer(new byte[10]);
+        channel.write(unaddressed);
+        channel.flush();
+
+        assertSame(packet, channel.readOutbound());
+        assertEquals("text", channel.readOutbound());
+        assertSame(unaddressed, channel.readOutbound());
+        packet.release();
+        unaddressed.release();
+    }
+
+    private static DatagramPacket packet(int size, InetSocketAddress recipient) {
+        return new DatagramPacket(Unpooled.directBuffer(size).writeZero(size), recipient);
+    }
+}
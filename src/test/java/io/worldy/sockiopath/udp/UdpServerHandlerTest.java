@@ -1,20 +1,38 @@
 package io.worldy.sockiopath.udp;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.socket.DatagramPacket;
+import io.netty.util.concurrent.EventExecutor;
+import io.worldy.sockiopath.MessageOffloader;
 import io.worldy.sockiopath.SockiopathServerHandler;
+import io.worldy.sockiopath.messaging.BinaryFrame;
 import io.worldy.sockiopath.messaging.DefaultMessageParser;
+import io.worldy.sockiopath.messaging.MessageBus;
+import io.worldy.sockiopath.messaging.RouteTable;
+import io.worldy.sockiopath.session.SessionStore;
+import io.worldy.sockiopath.session.SessionTokens;
+import io.worldy.sockiopath.session.SockiopathSession;
+import io.worldy.sockiopath.session.UdpSessionIndex;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.slf4j.Logger;
 
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeoutException;
 import java.util.stream.Stream;
 
@@ -24,6 +42,7 @@ import static io.worldy.sockiopath.SockiopathServerHandlerTest.getUdpHandler;
 import static io.worldy.sockiopath.SockiopathServerHandlerTest.verifyNoWrites;
 import static io.worldy.sockiopath.SockiopathServerHandlerTest.verifyNoWritesOrFlushes;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 class UdpServerHandlerTest {
 
@@ -61,6 +80,241 @@ class UdpServerHandlerTest {
         assertEquals(context, sockioPathServerHandler.getSession("sessionId-a").getUdpContext());
     }
 
+    @Test
+    void channelRead0BinaryFrameTest() throws Exception {
+        ChannelHandlerContext context = Mockito.mock(ChannelHandlerContext.class);
+        DatagramPacket packet = Mockito.mock(DatagramPacket.class);
+        SessionStore<SockiopathSession> sessionStore = getSessionStore(context);
+        SockiopathServerHandler<DatagramPacket> sockioPathServerHandler = new UdpServerHandler(sessionStore, getMessageHandlers());
+
+        long token = sessionStore.get("sessionId-a").getToken();
+        int routeId = new RouteTable(getMessageHandlers()).route("address-a").id();
+        ByteBuf content = BinaryFrame.encode(UnpooledByteBufAllocator.DEFAULT, routeId, token, Unpooled.wrappedBuffer("data-a".getBytes()));
+        Mockito.when(packet.content()).thenReturn(content);
+        InetSocketAddress sender = Mockito.mock(InetSocketAddress.class);
+        Mockito.when(packet.sender()).thenReturn(sender);
+
+        sockioPathServerHandler.channelRead0(context, packet);
+        Mockito.verify(context, Mockito.times(1)).writeAndFlush(Mockito.any());
+        assertEquals(sender, sockioPathServerHandler.getSession("sessionId-a").getUdpSocketAddress());
+        assertEquals(1, content.refCnt());
+    }
+
+    @Test
+    void channelRead0SessionTokenTest() throws Exception {
+        ChannelHandlerContext context = Mockito.mock(ChannelHandlerContext.class);
+        DatagramPacket packet = Mockito.mock(DatagramPacket.class);
+        SessionStore<SockiopathSession> sessionStore = getSessionStore(context);
+        SockiopathServerHandler<DatagramPacket> sockioPathServerHandler = new UdpServerHandler(sessionStore, getMessageHandlers());
+
+        String token = SessionTokens.toHex(sessionStore.get("sessionId-a").getToken());
+        ByteBuf content = Unpooled.wrappedBuffer(("address-a|" + token + "|data-a").getBytes());
+        Mockito.when(packet.content()).thenReturn(content);
+        InetSocketAddress sender = Mockito.mock(InetSocketAddress.class);
+        Mockito.when(packet.sender()).thenReturn(sender);
+
+        sockioPathServerHandler.channelRead0(context, packet);
+        Mockito.verify(context, Mockito.times(1)).writeAndFlush(Mockito.any());
+        assertEquals(sender, sockioPathServerHandler.getSession("sessionId-a").getUdpSocketAddress());
+    }
+
+    @Test
+    void channelRead0SessionlessTest() throws Exception {
+        ChannelHandlerContext context = Mockito.mock(ChannelHandlerContext.class);
+        // the test removes a session, so the store is backed by a mutable map
+        SessionStore<SockiopathSession> sessionStore = getSessionStore(new HashMap<>(Map.of("sessionId-a", new SockiopathSession(context))));
+        UdpServerHandler sockioPathServerHandler = new UdpServerHandler(sessionStore, getMessageHandlers());
+        UdpSessionIndex udpSessionIndex = new UdpSessionIndex();
+        sockioPathServerHandler.setUdpSessionIndex(udpSessionIndex);
+        InetSocketAddress sender = new InetSocketAddress("127.0.0.1", 65001);
+
+        // session-less messages are dropped until the sender is bound
+        sockioPathServerHandler.channelRead0(context, new DatagramPacket(Unpooled.wrappedBuffer("address-a||data-a".getBytes()), null, sender));
+        Mockito.verify(context, Mockito.never()).writeAndFlush(Mockito.any());
+
+        sockioPathServerHandler.channelRead0(context, new DatagramPacket(Unpooled.wrappedBuffer("address-a|sessionId-a|data-a".getBytes()), null, sender));
+        SockiopathSession session = sessionStore.get("sessionId-a");
+        assertSame(session, udpSessionIndex.get(sender));
+
+        sockioPathServerHandler.channelRead0(context, new DatagramPacket(Unpooled.wrappedBuffer("address-a||data-a".getBytes()), null, sender));
+        int routeId = new RouteTable(getMessageHandlers()).route("address-a").id();
+        ByteBuf frame = BinaryFrame.encodeSessionless(UnpooledByteBufAllocator.DEFAULT, routeId, Unpooled.wrappedBuffer("data-a".getBytes()));
+        sockioPathServerHandler.channelRead0(context, new DatagramPacket(frame, null, sender));
+        Mockito.verify(context, Mockito.times(3)).writeAndFlush(Mockito.any());
+
+        // the client moved behind its NAT
+        InetSocketAddress rebound = new InetSocketAddress("127.0.0.1", 65002);
+        sockioPathServerHandler.channelRead0(context, new DatagramPacket(Unpooled.wrappedBuffer("address-a|sessionId-a|data-a".getBytes()), null, rebound));
+        assertEquals(rebound, session.getUdpSocketAddress());
+        assertEquals(1, udpSessionIndex.rebindCount());
+        sockioPathServerHandler.channelRead0(context, new DatagramPacket(Unpooled.wrappedBuffer("address-a||data-a".getBytes()), null, sender));
+        Mockito.verify(context, Mockito.times(4)).writeAndFlush(Mockito.any());
+
+        // sessions that left the store are unbound
+        sessionStore.remove("sessionId-a");
+        sockioPathServerHandler.channelRead0(context, new DatagramPacket(Unpooled.wrappedBuffer("address-a||data-a".getBytes()), null, rebound));
+        Mockito.verify(context, Mockito.times(4)).writeAndFlush(Mockito.any());
+        assertEquals(0, udpSessionIndex.size());
+    }
+
+    @Test
+    void channelRead0HandlersGetSessionTokenTest() throws Exception {
+        ChannelHandlerContext context = Mockito.mock(ChannelHandlerContext.class);
+        SockiopathSession session = new SockiopathSession(context);
+        List<Long> tokens = new ArrayList<>();
+        Map<String, MessageBus> messageHandlers = Map.of("address-a", new MessageBus((msg, allocator) -> {
+            tokens.add(msg.sessionToken());
+            return CompletableFuture.completedFuture(null);
+        }, 1000));
+        UdpServerHandler sockioPathServerHandler = new UdpServerHandler(getSessionStore(Map.of("sessionId-a", session)), messageHandlers);
+        sockioPathServerHandler.setUdpSessionIndex(new UdpSessionIndex());
+        InetSocketAddress sender = new InetSocketAddress("127.0.0.1", 65001);
+
+        // by id, and session-less once the sender is bound
+        sockioPathServerHandler.channelRead0(context, new DatagramPacket(Unpooled.wrappedBuffer("address-a|sessionId-a|data-a".getBytes()), null, sender));
+        sockioPathServerHandler.channelRead0(context, new DatagramPacket(Unpooled.wrappedBuffer("address-a||data-a".getBytes()), null, sender));
+        assertEquals(List.of(session.getToken(), session.getToken()), tokens);
+    }
+
+    @Test
+    void channelRead0SessionlessWithoutIndexTest() throws Exception {
+        ChannelHandlerContext context = Mockito.mock(ChannelHandlerContext.class);
+        UdpServerHandler sockioPathServerHandler = new UdpServerHandler(getSessionStore(context), getMessageHandlers());
+        InetSocketAddress sender = new InetSocketAddress("127.0.0.1", 65001);
+
+        sockioPathServerHandler.channelRead0(context, new DatagramPacket(Unpooled.wrappedBuffer("address-a|sessionId-a|data-a".getBytes()), null, sender));
+        sockioPathServerHandler.channelRead0(context, new DatagramPacket(Unpooled.wrappedBuffer("address-a||data-a".getBytes()), null, sender));
+
+        Mockito.verify(context, Mockito.times(1)).writeAndFlush(Mockito.any());
+    }
+
+    @Test
+    void channelRead0PooledResponseTest() throws Exception {
+        ChannelHandlerContext context = Mockito.mock(ChannelHandlerContext.class);
+        Mockito.when(context.alloc()).thenReturn(PooledByteBufAllocator.DEFAULT);
+        DatagramPacket packet = Mockito.mock(DatagramPacket.class);
+        ByteBuf[] response = new ByteBuf[1];
+        Map<String, MessageBus> messageHandlers = Map.of("address-a", new MessageBus((msg, allocator) -> {
+            response[0] = allocator.directBuffer().writeBytes("response-a".getBytes());
+            return CompletableFuture.completedFuture(response[0]);
+        }, 1000));
+        SockiopathServerHandler<DatagramPacket> sockioPathServerHandler = new UdpServerHandler(getSessionStore(context), messageHandlers);
+
+        ByteBuf content = Unpooled.wrappedBuffer("address-a|sessionId-a|data-a".getBytes());
+        Mockito.when(packet.content()).thenReturn(content);
+        InetSocketAddress sender = Mockito.mock(InetSocketAddress.class);
+        Mockito.when(packet.sender()).thenReturn(sender);
+
+        sockioPathServerHandler.channelRead0(context, packet);
+        ArgumentCaptor<DatagramPacket> written = ArgumentCaptor.forClass(DatagramPacket.class);
+        Mockito.verify(context, Mockito.times(1)).writeAndFlush(written.capture());
+        assertSame(response[0], written.getValue().content());
+        assertEquals(sender, written.getValue().recipient());
+        assertEquals(1, content.refCnt());
+        written.getValue().release();
+    }
+
+    @Test
+    void channelRead0OffloadTest() throws Exception {
+        ChannelHandlerContext context = Mockito.mock(ChannelHandlerContext.class);
+        Mockito.when(context.executor()).thenReturn(Mockito.mock(EventExecutor.class));
+        DatagramPacket packet = Mockito.mock(DatagramPacket.class);
+        SockiopathServerHandler<DatagramPacket> sockioPathServerHandler = getUdpHandler(context);
+        List<Runnable> executor = new ArrayList<>();
+        sockioPathServerHandler.setOffloader(new MessageOffloader(executor::add));
+
+        ByteBuf content = Unpooled.wrappedBuffer("address-a|sessionId-a|data-a".getBytes());
+        Mockito.when(packet.content()).thenReturn(content);
+        InetSocketAddress sender = Mockito.mock(InetSocketAddress.class);
+        Mockito.when(packet.sender()).thenReturn(sender);
+
+        sockioPathServerHandler.channelRead0(context, packet);
+        verifyNoWritesOrFlushes(context);
+        assertEquals(2, content.refCnt());
+
+        executor.remove(0).run();
+        Mockito.verify(context, Mockito.times(1)).writeAndFlush(Mockito.any());
+        assertEquals(1, content.refCnt());
+        assertEquals(sender, sockioPathServerHandler.getSession("sessionId-a").getUdpSocketAddress());
+    }
+
+    @Test
+    void channelRead0SessionAffinityTest() throws Exception {
+        ChannelHandlerContext context = Mockito.mock(ChannelHandlerContext.class);
+        ChannelHandlerContext webSocketContext = Mockito.mock(ChannelHandlerContext.class);
+        EventExecutor webSocketLoop = Mockito.mock(EventExecutor.class);
+        Mockito.when(webSocketContext.executor()).thenReturn(webSocketLoop);
+        List<Runnable> tasks = new ArrayList<>();
+        Mockito.doAnswer(invocation -> tasks.add(invocation.getArgument(0))).when(webSocketLoop).execute(Mockito.any());
+        SockiopathServerHandler<DatagramPacket> sockioPathServerHandler = getUdpHandler(webSocketContext);
+        sockioPathServerHandler.setSessionAffinity(true);
+        InetSocketAddress sender = new InetSocketAddress("127.0.0.1", 65001);
+        ByteBuf content = Unpooled.wrappedBuffer("address-a|sessionId-a|data-a".getBytes());
+
+        sockioPathServerHandler.channelRead0(context, new DatagramPacket(content, null, sender));
+        verifyNoWritesOrFlushes(context);
+        assertEquals(2, content.refCnt());
+
+        tasks.remove(0).run();
+        Mockito.verify(context, Mockito.times(1)).writeAndFlush(Mockito.any());
+        assertEquals(1, content.refCnt());
+        assertEquals(sender, sockioPathServerHandler.getSession("sessionId-a").getUdpSocketAddress());
+
+        // already on the loop of the session
+        Mockito.when(webSocketLoop.inEventLoop()).thenReturn(true);
+        sockioPathServerHandler.channelRead0(context, new DatagramPacket(content, null, sender));
+        Mockito.verify(context, Mockito.times(2)).writeAndFlush(Mockito.any());
+        assertEquals(0, tasks.size());
+    }
+
+    @Test
+    void channelRead0SessionAffinityRejectedTest() throws Exception {
+        ChannelHandlerContext context = Mockito.mock(ChannelHandlerContext.class);
+        ChannelHandlerContext webSocketContext = Mockito.mock(ChannelHandlerContext.class);
+        EventExecutor webSocketLoop = Mockito.mock(EventExecutor.class);
+        Mockito.when(webSocketContext.executor()).thenReturn(webSocketLoop);
+        Mockito.doThrow(new RejectedExecutionException("shut down")).when(webSocketLoop).execute(Mockito.any());
+        SockiopathServerHandler<DatagramPacket> sockioPathServerHandler = getUdpHandler(webSocketContext);
+        sockioPathServerHandler.setSessionAffinity(true);
+        ByteBuf content = Unpooled.wrappedBuffer("address-a|sessionId-a|data-a".getBytes());
+
+        sockioPathServerHandler.channelRead0(context, new DatagramPacket(content, null, new InetSocketAddress("127.0.0.1", 65001)));
+
+        verifyNoWritesOrFlushes(context);
+        assertEquals(1, content.refCnt());
+    }
+
+    @Test
+    void channelRead0SessionAffinityWithoutWebSocketTest() throws Exception {
+        ChannelHandlerContext context = Mockito.mock(ChannelHandlerContext.class);
+        SockiopathServerHandler<DatagramPacket> sockioPathServerHandler = new UdpServerHandler(
+                getSessionStore(Map.of("sessionId-a", new SockiopathSession(null))), getMessageHandlers()
+        );
+        sockioPathServerHandler.setSessionAffinity(true);
+        InetSocketAddress sender = new InetSocketAddress("127.0.0.1", 65001);
+
+        sockioPathServerHandler.channelRead0(context, new DatagramPacket(Unpooled.wrappedBuffer("address-a|sessionId-a|data-a".getBytes()), null, sender));
+        sockioPathServerHandler.channelRead0(context, new DatagramPacket(Unpooled.wrappedBuffer("address-a|sessionId-b|data-a".getBytes()), null, sender));
+
+        Mockito.verify(context, Mockito.times(1)).writeAndFlush(Mockito.any());
+    }
+
+    @Test
+    void channelRead0SessionAffinityLooksUpOnceTest() throws Exception {
+        ChannelHandlerContext context = Mockito.mock(ChannelHandlerContext.class);
+        Mockito.when(context.executor()).thenReturn(Mockito.mock(EventExecutor.class));
+        SessionStore<SockiopathSession> sessionStore = Mockito.spy(getSessionStore(Map.of("sessionId-a", new SockiopathSession(null))));
+        UdpServerHandler sockioPathServerHandler = new UdpServerHandler(sessionStore, getMessageHandlers());
+        sockioPathServerHandler.setSessionAffinity(true);
+        sockioPathServerHandler.setOffloader(new MessageOffloader(Runnable::run));
+        InetSocketAddress sender = new InetSocketAddress("127.0.0.1", 65001);
+
+        sockioPathServerHandler.channelRead0(context, new DatagramPacket(Unpooled.wrappedBuffer("address-a|sessionId-a|data-a".getBytes()), null, sender));
+
+        Mockito.verify(context, Mockito.times(1)).writeAndFlush(Mockito.any());
+        Mockito.verify(sessionStore, Mockito.times(1)).get("sessionId-a");
+    }
+
     @Test
     void channelRead0TimeoutTest() throws Exception {
         ChannelHandlerContext context = Mockito.mock(ChannelHandlerContext.class);
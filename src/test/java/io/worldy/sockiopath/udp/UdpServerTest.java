@@ -1,37 +1,45 @@
 package io.worldy.sockiopath.udp;
 
-import io.netty.bootstrap.Bootstrap;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
-import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.SimpleChannelInboundHandler;
-import io.netty.channel.pool.AbstractChannelPoolHandler;
-import io.netty.channel.pool.ChannelPool;
-import io.netty.channel.pool.SimpleChannelPool;
 import io.netty.channel.socket.DatagramPacket;
 import io.worldy.sockiopath.CountDownLatchChannelHandler;
+import io.worldy.sockiopath.MessageOffloader;
 import io.worldy.sockiopath.SockiopathServer;
 import io.worldy.sockiopath.SockiopathServerHandlerTest;
 import io.worldy.sockiopath.StartServerResult;
-import io.worldy.sockiopath.messaging.DefaultMessageParser;
+import io.worldy.sockiopath.flush.FlushPolicy;
+import io.worldy.sockiopath.pubsub.MulticastGroups;
+import io.worldy.sockiopath.pubsub.PubSub;
+import io.worldy.sockiopath.pubsub.Transport;
+import io.worldy.sockiopath.session.MapBackedSessionStore;
 import io.worldy.sockiopath.session.SockiopathSession;
 import io.worldy.sockiopath.udp.client.BootstrappedUdpClient;
 import org.junit.jupiter.api.Test;
-import org.mockito.Mockito;
-import org.slf4j.Logger;
 
 import java.io.IOException;
 import java.net.BindException;
 import java.net.DatagramSocket;
+import java.net.Inet4Address;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static io.worldy.sockiopath.SockiopathHandlerTest.getMessageHandlers;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -39,6 +47,7 @@ import static org.hamcrest.Matchers.instanceOf;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.fail;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 public class UdpServerTest {
 
@@ -67,23 +76,49 @@ public class UdpServerTest {
 
 
     @Test
-    void channelPoolingTest() throws InterruptedException, ExecutionException, TimeoutException {
-
-        Map<String, SockiopathSession> sessionMap = Map.of(
-                "sessionId-a", new SockiopathSession(null)
+    void reusePortChannelsTest() throws InterruptedException, ExecutionException, TimeoutException {
+        AtomicInteger handlers = new AtomicInteger();
+        UdpServer udpServer = new UdpServer(
+                () -> {
+                    handlers.incrementAndGet();
+                    return getEchoChannelHandler();
+                },
+                Executors.newFixedThreadPool(1),
+                0,
+                FlushPolicy.adaptive(),
+                UdpTransport.epoll(2)
         );
+
+        StartServerResult startServerResult = udpServer.start().orTimeout(1000, TimeUnit.MILLISECONDS).get();
+        int port = startServerResult.port();
+        for (int i = 0; i < 4; i++) {
+            assertEquals("hello" + i, request("hello" + i, 6, port, 1000));
+        }
+        assertEquals(UdpTransport.epoll(2).channelCount(), handlers.get());
+
+        if (!startServerResult.closeFuture().cancel(true)) {
+            fail("unable to stop server.");
+        }
+        if (!startServerResult.closeFuture().await(1000, TimeUnit.MILLISECONDS)) {
+            fail("server took too long to shut down.");
+        }
+    }
+
+    @Test
+    void batchedTransportTest() throws InterruptedException, ExecutionException, TimeoutException {
         UdpServer udpServer = new UdpServer(
-                new UdpServerHandler(SockiopathServerHandlerTest.getSessionStore(sessionMap), getMessageHandlers()),
+                UdpServerTest::getEchoChannelHandler,
                 Executors.newFixedThreadPool(1),
-                0
+                0,
+                FlushPolicy.adaptive(),
+                UdpTransport.epoll(2).withBatching(DatagramBatching.enabled())
         );
 
         StartServerResult startServerResult = udpServer.start().orTimeout(1000, TimeUnit.MILLISECONDS).get();
         int port = startServerResult.port();
-        String expectedResponse = "response-a";
-        String response = request("address-a|sessionId-a|data-a", expectedResponse.getBytes().length, port, 2000);
-        assertEquals(expectedResponse, response);
-        assertEquals(port, udpServer.actualPort());
+        for (int i = 0; i < 4; i++) {
+            assertEquals("hello" + i, request("hello" + i, 6, port, 1000));
+        }
 
         if (!startServerResult.closeFuture().cancel(true)) {
             fail("unable to stop server.");
@@ -94,38 +129,25 @@ public class UdpServerTest {
     }
 
     @Test
-    void channelPoolFailureTest() throws InterruptedException, ExecutionException {
-        Logger loggerMock = Mockito.mock(Logger.class);
+    void offloadTest() throws InterruptedException, ExecutionException, TimeoutException {
 
         Map<String, SockiopathSession> sessionMap = Map.of(
                 "sessionId-a", new SockiopathSession(null)
         );
+        UdpServerHandler udpServerHandler = new UdpServerHandler(SockiopathServerHandlerTest.getSessionStore(sessionMap), getMessageHandlers());
+        udpServerHandler.setOffloader(new MessageOffloader(Executors.newFixedThreadPool(2)));
         UdpServer udpServer = new UdpServer(
-                new UdpServerHandler(
-                        SockiopathServerHandlerTest.getSessionStore(sessionMap),
-                        getMessageHandlers(),
-                        new DefaultMessageParser('|'),
-                        loggerMock
-                ),
+                udpServerHandler,
                 Executors.newFixedThreadPool(1),
                 0
-        ) {
-            @Override
-            protected ChannelPool channelPoolInstance(Bootstrap bootstrap, int actualPort) {
-                return new SimpleChannelPool(bootstrap, new AbstractChannelPoolHandler() {
-                    @Override
-                    public void channelCreated(Channel channel) throws Exception {
-                        loggerMock.debug("Channel created in pool");
-                    }
-                });
-            }
-        };
+        );
 
         StartServerResult startServerResult = udpServer.start().orTimeout(1000, TimeUnit.MILLISECONDS).get();
         int port = startServerResult.port();
-        String expectedResponse = "hello";
-        assertThrows(TimeoutException.class, () -> request("hello", expectedResponse.getBytes().length, port, 1000));
-        Mockito.verify(loggerMock, Mockito.times(1)).error("Error acquiring channel from pool. remoteAddress not set");
+        String expectedResponse = "response-a";
+        String response = request("address-a|sessionId-a|data-a", expectedResponse.getBytes().length, port, 2000);
+        assertEquals(expectedResponse, response);
+        assertEquals(port, udpServer.actualPort());
 
         if (!startServerResult.closeFuture().cancel(true)) {
             fail("unable to stop server.");
@@ -172,6 +194,57 @@ public class UdpServerTest {
         assertEquals(expectedResponse, SockiopathServer.byteBufferToString(datagramPacket.content().nioBuffer()));
     }
 
+    @Test
+    void multicastPublishTest() throws Exception {
+        Optional<NetworkInterface> multicastInterface = NetworkInterface.networkInterfaces()
+                .filter(UdpServerTest::isMulticastInterface)
+                .findFirst();
+        assumeTrue(multicastInterface.isPresent());
+
+        CompletableFuture<ChannelHandlerContext> udpContext = new CompletableFuture<>();
+        UdpServer udpServer = new UdpServer(
+                new ChannelInboundHandlerAdapter() {
+                    @Override
+                    public void handlerAdded(ChannelHandlerContext ctx) {
+                        udpContext.complete(ctx);
+                    }
+                },
+                Executors.newFixedThreadPool(1),
+                0
+        );
+        udpServer.setMulticastInterface(multicastInterface.get());
+        StartServerResult startServerResult = udpServer.start().orTimeout(1000, TimeUnit.MILLISECONDS).get();
+
+        try (MulticastSocket client = new MulticastSocket(0)) {
+            InetSocketAddress group = new InetSocketAddress(InetAddress.getByName("239.255.42.99"), client.getLocalPort());
+            client.joinGroup(group, multicastInterface.get());
+            client.setSoTimeout(1000);
+
+            SockiopathSession session = new SockiopathSession(null);
+            PubSub pubSub = new PubSub(new MapBackedSessionStore(new HashMap<>()));
+            pubSub.setMulticast(new MulticastGroups().assign("room-a", group), udpContext.get(1000, TimeUnit.MILLISECONDS));
+            pubSub.subscribe(session, "room-a", Transport.MULTICAST);
+            ByteBuf payload = Unpooled.copiedBuffer("hello", StandardCharsets.UTF_8);
+            assertEquals(1, pubSub.publish("room-a", payload));
+            payload.release();
+
+            java.net.DatagramPacket received = new java.net.DatagramPacket(new byte[5], 5);
+            client.receive(received);
+            assertEquals("hello", new String(received.getData(), 0, received.getLength(), StandardCharsets.UTF_8));
+        } finally {
+            startServerResult.closeFuture().cancel(true);
+        }
+    }
+
+    private static boolean isMulticastInterface(NetworkInterface networkInterface) {
+        try {
+            return networkInterface.isUp() && networkInterface.supportsMulticast()
+                    && networkInterface.inetAddresses().anyMatch(address -> address instanceof Inet4Address);
+        } catch (SocketException e) {
+            return false;
+        }
+    }
+
     @Test
     void bindPortExceptionTest() {
         UdpServer udpServer = new UdpServer(
@@ -0,0 +1,49 @@
+package io.worldy.sockiopath.udp;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UdpTransportTest {
+
+    @Test
+    void nioTest() {
+        UdpTransport transport = UdpTransport.nio();
+        assertFalse(transport.useEpoll());
+        assertEquals(1, transport.channelCount());
+        assertEquals(NioDatagramChannel.class, transport.channelClass());
+
+        EventLoopGroup group = transport.newEventLoopGroup();
+        assertInstanceOf(NioEventLoopGroup.class, group);
+        group.shutdownGracefully();
+    }
+
+    @Test
+    void epollTest() {
+        UdpTransport transport = UdpTransport.epoll(4);
+        assertEquals(Epoll.isAvailable(), transport.useEpoll());
+        assertEquals(Epoll.isAvailable() ? 4 : 1, transport.channelCount());
+        assertEquals(Epoll.isAvailable() ? EpollDatagramChannel.class : NioDatagramChannel.class, transport.channelClass());
+
+        EventLoopGroup group = transport.newEventLoopGroup();
+        group.shutdownGracefully();
+    }
+
+    @Test
+    void defaultChannelsTest() {
+        assertEquals(Runtime.getRuntime().availableProcessors(), UdpTransport.epoll().channels());
+    }
+
+    @Test
+    void invalidChannelsTest() {
+        assertThrows(IllegalArgumentException.class, () -> UdpTransport.epoll(0));
+    }
+}
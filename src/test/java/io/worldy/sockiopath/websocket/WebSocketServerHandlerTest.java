@@ -2,27 +2,43 @@ package io.worldy.sockiopath.websocket;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelId;
-import io.netty.channel.pool.ChannelPool;
 import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.AttributeMap;
+import io.netty.util.DefaultAttributeMap;
 import io.worldy.sockiopath.SockiopathServerHandler;
 import io.worldy.sockiopath.SockiopathServerHandlerTest;
 import io.worldy.sockiopath.messaging.DefaultMessageParser;
+import io.worldy.sockiopath.session.SessionAttribute;
+import io.worldy.sockiopath.session.SessionTokens;
+import io.worldy.sockiopath.session.SockiopathSession;
+import io.worldy.sockiopath.session.UdpSessionIndex;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.slf4j.Logger;
 
+import java.net.InetSocketAddress;
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static io.worldy.sockiopath.SockiopathHandlerTest.getMessageHandlers;
 import static io.worldy.sockiopath.SockiopathServerHandlerTest.getSessionStore;
 import static io.worldy.sockiopath.SockiopathServerHandlerTest.getWebSocketServerHandler;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class WebSocketServerHandlerTest {
 
@@ -96,9 +112,9 @@ class WebSocketServerHandlerTest {
         assertEquals(1, sockiopathServerHandler.getSessionCount());
         sockiopathServerHandler.channelRead0(ctx1, new TextWebSocketFrame("test1-1"));
 
-        ChannelHandlerContext sessionContext1 = sockiopathServerHandler.getSession("long1").getWebSocketContext();
+        ChannelHandlerContext sessionContext1 = sockiopathServerHandler.getSession(sessionId(ctx1)).getWebSocketContext();
         assertEquals(ctx1, sessionContext1);
-        Mockito.verify(sessionContext1, Mockito.times(1)).writeAndFlush(Mockito.any());
+        Mockito.verify(sessionContext1, Mockito.times(1)).write(Mockito.any(), Mockito.any());
 
 
         ChannelHandlerContext ctx2 = mockContext(2);
@@ -106,27 +122,274 @@ class WebSocketServerHandlerTest {
         assertEquals(2, sockiopathServerHandler.getSessionCount());
         sockiopathServerHandler.channelRead0(ctx2, new TextWebSocketFrame("test2-1"));
 
-        ChannelHandlerContext sessionContext2 = sockiopathServerHandler.getSession("long2").getWebSocketContext();
+        ChannelHandlerContext sessionContext2 = sockiopathServerHandler.getSession(sessionId(ctx2)).getWebSocketContext();
         assertEquals(ctx2, sessionContext2);
-        Mockito.verify(sessionContext2, Mockito.times(1)).writeAndFlush(Mockito.any());
-        Mockito.verify(sessionContext1, Mockito.times(2)).writeAndFlush(Mockito.any());
+        Mockito.verify(sessionContext2, Mockito.times(1)).write(Mockito.any(), Mockito.any());
+        Mockito.verify(sessionContext1, Mockito.times(2)).write(Mockito.any(), Mockito.any());
 
         sockiopathServerHandler.channelUnregistered(ctx1);
 
         sockiopathServerHandler.channelRead0(ctx2, new TextWebSocketFrame("test2-2"));
         assertEquals(1, sockiopathServerHandler.getSessionCount());
-        Mockito.verify(sessionContext2, Mockito.times(2)).writeAndFlush(Mockito.any());
-        Mockito.verify(sessionContext1, Mockito.times(2)).writeAndFlush(Mockito.any());
+        Mockito.verify(sessionContext2, Mockito.times(2)).write(Mockito.any(), Mockito.any());
+        Mockito.verify(sessionContext1, Mockito.times(2)).write(Mockito.any(), Mockito.any());
 
 
         sockiopathServerHandler.channelRead0(ctx1, new TextWebSocketFrame("test1-2"));
-        Mockito.verify(sessionContext2, Mockito.times(2)).writeAndFlush(Mockito.any());
-        Mockito.verify(sessionContext1, Mockito.times(2)).writeAndFlush(Mockito.any());
+        Mockito.verify(sessionContext2, Mockito.times(2)).write(Mockito.any(), Mockito.any());
+        Mockito.verify(sessionContext1, Mockito.times(2)).write(Mockito.any(), Mockito.any());
 
         Exception exception = assertThrows(UnsupportedOperationException.class, () -> sockiopathServerHandler.channelRead0(ctx2, "test1-3"));
         assertEquals("unsupported frame type: java.lang.String", exception.getMessage());
     }
 
+    @Test
+    void channelRead0TextFrameBroadcastTest() throws Exception {
+        SockiopathServerHandler<Object> sockiopathServerHandler = SockiopathServerHandlerTest.getWebSocketServerHandler(new HashMap<>());
+        ChannelHandlerContext ctx1 = mockContext(1);
+        ChannelHandlerContext ctx2 = mockContext(2);
+        sockiopathServerHandler.channelRead0(ctx1, new TextWebSocketFrame("join"));
+        sockiopathServerHandler.channelRead0(ctx2, new TextWebSocketFrame("join"));
+
+        sockiopathServerHandler.channelRead0(ctx1, new TextWebSocketFrame("h\u00e9llo"));
+
+        ArgumentCaptor<TextWebSocketFrame> own = ArgumentCaptor.forClass(TextWebSocketFrame.class);
+        Mockito.verify(ctx1).write(own.capture(), Mockito.any());
+        Mockito.verify(ctx1).flush();
+        ArgumentCaptor<TextWebSocketFrame> other = ArgumentCaptor.forClass(TextWebSocketFrame.class);
+        Mockito.verify(ctx2).write(other.capture(), Mockito.any());
+        Mockito.verify(ctx2).flush();
+        assertEquals("h\u00e9llo", own.getValue().text());
+        assertEquals("short1: h\u00e9llo", other.getValue().text());
+
+        // the frames hold the last references to the encoded text
+        assertTrue(other.getValue().release());
+        assertTrue(own.getValue().release());
+    }
+
+    @Test
+    void channelRead0TextFrameBinaryNegotiationTest() throws Exception {
+        SockiopathServerHandler<Object> sockiopathServerHandler = SockiopathServerHandlerTest.getWebSocketServerHandler(new HashMap<>());
+
+        ChannelHandlerContext ctx = mockContext(1);
+        sockiopathServerHandler.channelRead0(ctx, new TextWebSocketFrame("binary"));
+        Mockito.verify(ctx.channel(), Mockito.never()).writeAndFlush(Mockito.any());
+
+        sockiopathServerHandler.channelRead0(ctx, new TextWebSocketFrame("join"));
+        sockiopathServerHandler.channelRead0(ctx, new TextWebSocketFrame("binary"));
+
+        ArgumentCaptor<TextWebSocketFrame> responses = ArgumentCaptor.forClass(TextWebSocketFrame.class);
+        Mockito.verify(ctx.channel(), Mockito.times(2)).writeAndFlush(responses.capture());
+        String token = SessionTokens.toHex(sockiopathServerHandler.getSession(sessionId(ctx)).getToken());
+        assertEquals(
+                "binary|2|" + token + "|address-a|address-b|address-empty|address-timeout",
+                responses.getAllValues().get(1).text()
+        );
+    }
+
+    @Test
+    void channelRead0TextFrameJoinIssuesTokenTest() throws Exception {
+        SockiopathServerHandler<Object> sockiopathServerHandler = SockiopathServerHandlerTest.getWebSocketServerHandler(new HashMap<>());
+
+        ChannelHandlerContext ctx = mockContext(1);
+        sockiopathServerHandler.channelRead0(ctx, new TextWebSocketFrame("join"));
+        sockiopathServerHandler.channelRead0(ctx, new TextWebSocketFrame("join"));
+        assertEquals(1, sockiopathServerHandler.getSessionCount());
+
+        ArgumentCaptor<TextWebSocketFrame> responses = ArgumentCaptor.forClass(TextWebSocketFrame.class);
+        Mockito.verify(ctx.channel(), Mockito.times(2)).writeAndFlush(responses.capture());
+        SockiopathSession session = ctx.channel().attr(WebSocketServerHandler.SESSION_ATTRIBUTE).get();
+        String sessionId = SessionTokens.toHex(session.getToken());
+        assertEquals(16, sessionId.length());
+        String expected = "session|" + sessionId + "|" + resumeToken(ctx);
+        assertEquals(expected, responses.getAllValues().get(0).text());
+        assertEquals(expected, responses.getAllValues().get(1).text());
+        assertEquals(session, sockiopathServerHandler.getSession(sessionId));
+
+        sockiopathServerHandler.channelUnregistered(ctx);
+        assertEquals(0, sockiopathServerHandler.getSessionCount());
+        assertNull(ctx.channel().attr(WebSocketServerHandler.SESSION_ATTRIBUTE).get());
+    }
+
+    @Test
+    void channelRead0TextFrameRejoinRestoredSessionTest() throws Exception {
+        SockiopathSession restored = new SockiopathSession(null)
+                .withUdpSocketAddress(new InetSocketAddress("127.0.0.1", 65001));
+        String restoredId = SessionTokens.toHex(restored.getToken());
+        Map<String, SockiopathSession> sessions = new HashMap<>();
+        sessions.put(restoredId, restored);
+        SockiopathServerHandler<Object> sockiopathServerHandler = SockiopathServerHandlerTest.getWebSocketServerHandler(sessions);
+
+        ChannelHandlerContext ctx1 = mockContext(1);
+        sockiopathServerHandler.channelRead0(ctx1, new TextWebSocketFrame("join|" + restoredId));
+        assertEquals(restoredId, sessionId(ctx1));
+        SockiopathSession rejoined = sockiopathServerHandler.getSession(restoredId);
+        assertEquals(ctx1, rejoined.getWebSocketContext());
+        assertEquals(new InetSocketAddress("127.0.0.1", 65001), rejoined.getUdpSocketAddress());
+        assertEquals(1, sockiopathServerHandler.getSessionCount());
+
+        ArgumentCaptor<TextWebSocketFrame> responses = ArgumentCaptor.forClass(TextWebSocketFrame.class);
+        Mockito.verify(ctx1.channel(), Mockito.times(1)).writeAndFlush(responses.capture());
+        assertEquals("session|" + restoredId + "|" + resumeToken(ctx1), responses.getValue().text());
+
+        // a connected session cannot be taken over, and unknown tokens join anew
+        ChannelHandlerContext ctx2 = mockContext(2);
+        sockiopathServerHandler.channelRead0(ctx2, new TextWebSocketFrame("join|" + restoredId));
+        ChannelHandlerContext ctx3 = mockContext(3);
+        sockiopathServerHandler.channelRead0(ctx3, new TextWebSocketFrame("join|sessionId-a"));
+        assertNotEquals(restoredId, sessionId(ctx2));
+        assertNotEquals(restoredId, sessionId(ctx3));
+        assertEquals(ctx1, sockiopathServerHandler.getSession(restoredId).getWebSocketContext());
+        assertEquals(3, sockiopathServerHandler.getSessionCount());
+    }
+
+    @Test
+    void channelRead0TextFrameSkipsDetachedRecipientsTest() throws Exception {
+        SockiopathSession restored = new SockiopathSession(null);
+        Map<String, SockiopathSession> sessions = new HashMap<>();
+        sessions.put(SessionTokens.toHex(restored.getToken()), restored);
+        SockiopathServerHandler<Object> sockiopathServerHandler = SockiopathServerHandlerTest.getWebSocketServerHandler(sessions);
+
+        ChannelHandlerContext ctx = mockContext(1);
+        sockiopathServerHandler.channelRead0(ctx, new TextWebSocketFrame("join"));
+        sockiopathServerHandler.channelRead0(ctx, new TextWebSocketFrame("test1-1"));
+
+        Mockito.verify(ctx, Mockito.times(1)).write(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    void channelUnregisteredUnbindsUdpTest() throws Exception {
+        SockiopathServerHandler<Object> sockiopathServerHandler = SockiopathServerHandlerTest.getWebSocketServerHandler(new HashMap<>());
+        UdpSessionIndex udpSessionIndex = new UdpSessionIndex();
+        sockiopathServerHandler.setUdpSessionIndex(udpSessionIndex);
+
+        ChannelHandlerContext ctx = mockContext(1);
+        sockiopathServerHandler.channelRead0(ctx, new TextWebSocketFrame("join"));
+        SockiopathSession session = sockiopathServerHandler.getSession(sessionId(ctx));
+        udpSessionIndex.bind(session, new InetSocketAddress("127.0.0.1", 65001), null);
+
+        sockiopathServerHandler.channelUnregistered(ctx);
+        assertEquals(0, udpSessionIndex.size());
+    }
+
+    @Test
+    void channelRead0TextFrameResumeWithinGraceTest() throws Exception {
+        WebSocketServerHandler sockiopathServerHandler = getResumableHandler();
+        UdpSessionIndex udpSessionIndex = new UdpSessionIndex();
+        sockiopathServerHandler.setUdpSessionIndex(udpSessionIndex);
+        SessionAttribute<String> name = SessionAttribute.valueOf("web-socket-server-handler-test-name", String.class);
+
+        ChannelHandlerContext ctx1 = mockContext(1);
+        sockiopathServerHandler.channelRead0(ctx1, new TextWebSocketFrame("join"));
+        String sessionId = sessionId(ctx1);
+        String resumeToken = resumeToken(ctx1);
+        SockiopathSession session = sockiopathServerHandler.getSession(sessionId);
+        session.setAttribute(name, "name-a");
+        InetSocketAddress udpSocketAddress = new InetSocketAddress("127.0.0.1", 65001);
+        udpSessionIndex.bind(session, udpSocketAddress, null);
+
+        sockiopathServerHandler.channelUnregistered(ctx1);
+        SockiopathSession detached = sockiopathServerHandler.getSession(sessionId);
+        assertNull(detached.getWebSocketContext());
+        assertSame(detached, udpSessionIndex.get(udpSocketAddress));
+
+        ChannelHandlerContext ctx2 = mockContext(2);
+        sockiopathServerHandler.channelRead0(ctx2, new TextWebSocketFrame("resume|" + sessionId + "|" + resumeToken));
+        assertEquals(sessionId, sessionId(ctx2));
+        SockiopathSession resumed = sockiopathServerHandler.getSession(sessionId);
+        assertEquals(ctx2, resumed.getWebSocketContext());
+        assertEquals("name-a", resumed.getAttribute(name));
+        assertEquals(udpSocketAddress, resumed.getUdpSocketAddress());
+        assertSame(resumed, udpSessionIndex.get(udpSocketAddress));
+        assertEquals(1, sockiopathServerHandler.getSessionCount());
+
+        // every resume replaces the resume token, and the end of the grace no longer removes the session
+        ArgumentCaptor<TextWebSocketFrame> responses = ArgumentCaptor.forClass(TextWebSocketFrame.class);
+        Mockito.verify(ctx2.channel()).writeAndFlush(responses.capture());
+        assertNotEquals(resumeToken, resumeToken(ctx2));
+        assertEquals("session|" + sessionId + "|" + resumeToken(ctx2), responses.getValue().text());
+        scheduledExpiry(ctx1).run();
+        assertSame(resumed, sockiopathServerHandler.getSession(sessionId));
+    }
+
+    @Test
+    void channelRead0TextFrameResumeTakesOverTest() throws Exception {
+        WebSocketServerHandler sockiopathServerHandler = getResumableHandler();
+
+        ChannelHandlerContext ctx1 = mockContext(1);
+        sockiopathServerHandler.channelRead0(ctx1, new TextWebSocketFrame("join"));
+        String sessionId = sessionId(ctx1);
+
+        // the client reconnects before the server noticed that its old connection is gone
+        ChannelHandlerContext ctx2 = mockContext(2);
+        sockiopathServerHandler.channelRead0(ctx2, new TextWebSocketFrame("resume|" + sessionId + "|" + resumeToken(ctx1)));
+        assertEquals(sessionId, sessionId(ctx2));
+        assertNull(ctx1.channel().attr(WebSocketServerHandler.SESSION_ATTRIBUTE).get());
+        Mockito.verify(ctx1).close();
+
+        sockiopathServerHandler.channelUnregistered(ctx1);
+        assertEquals(ctx2, sockiopathServerHandler.getSession(sessionId).getWebSocketContext());
+        Mockito.verify(ctx1, Mockito.never()).executor();
+    }
+
+    @Test
+    void channelRead0TextFrameResumeRefusedTest() throws Exception {
+        WebSocketServerHandler sockiopathServerHandler = getResumableHandler();
+
+        ChannelHandlerContext ctx1 = mockContext(1);
+        sockiopathServerHandler.channelRead0(ctx1, new TextWebSocketFrame("join"));
+        String sessionId = sessionId(ctx1);
+        String resumeToken = resumeToken(ctx1);
+        sockiopathServerHandler.channelUnregistered(ctx1);
+
+        // a wrong resume token, an unknown session or a malformed resume join anew
+        ChannelHandlerContext ctx2 = mockContext(2);
+        sockiopathServerHandler.channelRead0(ctx2, new TextWebSocketFrame("resume|" + sessionId + "|" + SessionTokens.toHex(1L)));
+        ChannelHandlerContext ctx3 = mockContext(3);
+        sockiopathServerHandler.channelRead0(ctx3, new TextWebSocketFrame("resume|sessionId-a|" + resumeToken));
+        ChannelHandlerContext ctx4 = mockContext(4);
+        sockiopathServerHandler.channelRead0(ctx4, new TextWebSocketFrame("resume|" + sessionId));
+        // and the session token alone does not rejoin a session kept for resuming
+        ChannelHandlerContext ctx5 = mockContext(5);
+        sockiopathServerHandler.channelRead0(ctx5, new TextWebSocketFrame("join|" + sessionId));
+        assertNotEquals(sessionId, sessionId(ctx2));
+        assertNotEquals(sessionId, sessionId(ctx3));
+        assertNotEquals(sessionId, sessionId(ctx4));
+        assertNotEquals(sessionId, sessionId(ctx5));
+        assertNull(sockiopathServerHandler.getSession(sessionId).getWebSocketContext());
+        assertEquals(5, sockiopathServerHandler.getSessionCount());
+    }
+
+    @Test
+    void resumeGraceExpiryTest() throws Exception {
+        WebSocketServerHandler sockiopathServerHandler = getResumableHandler();
+        UdpSessionIndex udpSessionIndex = new UdpSessionIndex();
+        sockiopathServerHandler.setUdpSessionIndex(udpSessionIndex);
+
+        ChannelHandlerContext ctx1 = mockContext(1);
+        sockiopathServerHandler.channelRead0(ctx1, new TextWebSocketFrame("join"));
+        String sessionId = sessionId(ctx1);
+        String resumeToken = resumeToken(ctx1);
+        udpSessionIndex.bind(sockiopathServerHandler.getSession(sessionId), new InetSocketAddress("127.0.0.1", 65001), null);
+        sockiopathServerHandler.channelUnregistered(ctx1);
+        assertEquals(1, sockiopathServerHandler.getSessionCount());
+
+        scheduledExpiry(ctx1).run();
+        assertEquals(0, sockiopathServerHandler.getSessionCount());
+        assertEquals(0, udpSessionIndex.size());
+
+        ChannelHandlerContext ctx2 = mockContext(2);
+        sockiopathServerHandler.channelRead0(ctx2, new TextWebSocketFrame("resume|" + sessionId + "|" + resumeToken));
+        assertNotEquals(sessionId, sessionId(ctx2));
+    }
+
+    @Test
+    void setResumeGraceTest() {
+        WebSocketServerHandler sockiopathServerHandler = new WebSocketServerHandler(null, null);
+        assertThrows(IllegalArgumentException.class, () -> sockiopathServerHandler.setResumeGrace(Duration.ofSeconds(-1)));
+        sockiopathServerHandler.setResumeGrace(Duration.ZERO);
+    }
+
     @Test
     void exceptionCaughtTest() {
         ChannelHandlerContext context = Mockito.mock(ChannelHandlerContext.class);
@@ -139,14 +402,6 @@ class WebSocketServerHandlerTest {
         Mockito.verify(context, Mockito.never()).close();
     }
 
-    @Test
-    void setChannelPoolExceptionTest() {
-        SockiopathServerHandler<Object> sockioPathServerHandler = new WebSocketServerHandler(null, null, new DefaultMessageParser('|'), Mockito.mock(Logger.class));
-        assertThrows(UnsupportedOperationException.class, () ->
-                sockioPathServerHandler.setChannelPool(Mockito.mock(ChannelPool.class))
-        );
-    }
-
     @Test
     void getChannelHandlerContextTest() {
         SockiopathServerHandler<Object> sockiopathServerHandler = new WebSocketServerHandler(null, null);
@@ -154,6 +409,29 @@ class WebSocketServerHandlerTest {
         assertEquals("Getting the ChannelHandlerContext is only supported for UdpHandlers.", ex.getMessage());
     }
 
+    private static WebSocketServerHandler getResumableHandler() {
+        WebSocketServerHandler sockiopathServerHandler = (WebSocketServerHandler) getWebSocketServerHandler(new HashMap<>());
+        sockiopathServerHandler.setResumeGrace(Duration.ofSeconds(30));
+        return sockiopathServerHandler;
+    }
+
+    private static Runnable scheduledExpiry(ChannelHandlerContext ctx) {
+        ArgumentCaptor<Runnable> expiry = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(ctx.executor()).schedule(expiry.capture(), Mockito.eq(Duration.ofSeconds(30).toNanos()), Mockito.eq(TimeUnit.NANOSECONDS));
+        return expiry.getValue();
+    }
+
+    private static String resumeToken(ChannelHandlerContext ctx) {
+        SockiopathSession session = ctx.channel().attr(WebSocketServerHandler.SESSION_ATTRIBUTE).get();
+        Long resumeToken = session.getAttributeVolatile(WebSocketServerHandler.RESUME_TOKEN);
+        assertNotNull(resumeToken);
+        return SessionTokens.toHex(resumeToken);
+    }
+
+    private static String sessionId(ChannelHandlerContext ctx) {
+        return SessionTokens.toHex(ctx.channel().attr(WebSocketServerHandler.SESSION_ATTRIBUTE).get().getToken());
+    }
+
     private ChannelHandlerContext mockContext(int sessionId) {
         ChannelHandlerContext ctx = Mockito.mock(ChannelHandlerContext.class);
         Channel channel = Mockito.mock(Channel.class);
@@ -161,7 +439,13 @@ class WebSocketServerHandlerTest {
         Mockito.when(channelId.asLongText()).thenReturn("long" + sessionId);
         Mockito.when(channelId.asShortText()).thenReturn("short" + sessionId);
         Mockito.when(channel.id()).thenReturn(channelId);
+        AttributeMap attributes = new DefaultAttributeMap();
+        Mockito.when(channel.attr(Mockito.any())).thenAnswer(invocation -> attributes.attr(invocation.getArgument(0)));
         Mockito.when(ctx.channel()).thenReturn(channel);
+        EventExecutor executor = Mockito.mock(EventExecutor.class);
+        Mockito.when(executor.inEventLoop()).thenReturn(true);
+        Mockito.when(ctx.executor()).thenReturn(executor);
+        Mockito.when(ctx.alloc()).thenReturn(UnpooledByteBufAllocator.DEFAULT);
         return ctx;
     }
 }
\ No newline at end of file
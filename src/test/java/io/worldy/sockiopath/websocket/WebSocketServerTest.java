@@ -6,17 +6,31 @@ import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslHandler;
 import io.worldy.sockiopath.SockiopathServer;
+import io.worldy.sockiopath.SockiopathServerTest;
 import io.worldy.sockiopath.StartServerResult;
+import io.worldy.sockiopath.flush.OutboundPolicy;
+import io.worldy.sockiopath.flush.SlowConsumerMetrics;
+import io.worldy.sockiopath.session.ConcurrentSessionStore;
+import io.worldy.sockiopath.session.SessionCheckpointer;
+import io.worldy.sockiopath.session.SessionStore;
+import io.worldy.sockiopath.session.SessionTokens;
+import io.worldy.sockiopath.session.SockiopathSession;
 import io.worldy.sockiopath.websocket.client.BootstrappedWebSocketClient;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mockito;
 
 import java.net.BindException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -26,11 +40,44 @@ import static io.worldy.sockiopath.SockiopathServerTest.getWebSocketServer;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 public class WebSocketServerTest {
 
+    @Test
+    void startServerWithOutboundQueueTest() throws InterruptedException, ExecutionException {
+
+        CountDownLatch latch = new CountDownLatch(1);
+        Map<Long, Object> responseMap = new HashMap<>();
+        SlowConsumerMetrics metrics = new SlowConsumerMetrics();
+
+        WebSocketServer webSocketServer = new WebSocketServer(
+                SockiopathServer.basicWebSocketChannelHandler(
+                        SockiopathServer.DEFAULT_WEB_SOCKET_PATH,
+                        SockiopathServer.DEFAULT_MAX_CONTENT_LENGTH,
+                        List.of(SockiopathServerTest::channelEchoWebSocketHandler),
+                        null,
+                        OutboundPolicy.dropOldest(OutboundPolicy.DEFAULT_MAX_QUEUED_MESSAGES, OutboundPolicy.DEFAULT_MAX_QUEUED_BYTES),
+                        metrics
+                ),
+                Executors.newFixedThreadPool(1),
+                0
+        );
+        int port = webSocketServer.start().orTimeout(1000, TimeUnit.MILLISECONDS).get().port();
+
+        BootstrappedWebSocketClient client = getWebSocketClient(latch, responseMap, port, null);
+        client.startup();
+        client.getChannel().writeAndFlush(new TextWebSocketFrame("test")).await(1000, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(3000, TimeUnit.MILLISECONDS));
+
+        assertEquals("test", ((TextWebSocketFrame) responseMap.get(1L)).text());
+        assertEquals(0, metrics.droppedCount());
+        webSocketServer.stop();
+    }
+
     @Test
     void startServerTest() throws InterruptedException, ExecutionException, TimeoutException {
 
@@ -69,6 +116,25 @@ public class WebSocketServerTest {
     }
 
 
+    @Test
+    void sessionCheckpointerTest(@TempDir Path directory) throws Exception {
+        Path snapshot = directory.resolve("sessions");
+        SessionStore<SockiopathSession> sessionStore = new ConcurrentSessionStore();
+        SockiopathSession session = new SockiopathSession(null);
+        sessionStore.put(SessionTokens.toHex(session.getToken()), session);
+        new SessionCheckpointer(sessionStore, snapshot).checkpoint();
+
+        SessionStore<SockiopathSession> restoredStore = new ConcurrentSessionStore();
+        WebSocketServer webSocketServer = getWebSocketServer(0, null);
+        webSocketServer.setSessionCheckpointer(new SessionCheckpointer(restoredStore, snapshot, Duration.ZERO));
+        webSocketServer.start().orTimeout(1000, TimeUnit.MILLISECONDS).get();
+        assertNotNull(restoredStore.getByToken(session.getToken()));
+
+        Files.delete(snapshot);
+        webSocketServer.stop();
+        assertTrue(Files.exists(snapshot));
+    }
+
     @Test
     void startSslServerFailsWithMocksTest() throws InterruptedException, ExecutionException {
 